@@ -0,0 +1,111 @@
+/*
+ * AIBenchmark.java
+ *
+ * Measures the decision step of the bee AI against real level geometry.
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AIGraphModel;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AISingleCharacterController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AStarPathFinderController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.FlowFieldController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.LineOfSightService;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.WorldSnapshot;
+import edu.cornell.gdiac.honeyHeistCode.models.AbstractBeeModel;
+import edu.cornell.gdiac.honeyHeistCode.models.FlyingBeeModel;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of AISingleCharacterController.updateAIController for every bee in a level,
+ * and of finding the way from every bee to the player, by route or by flow field.
+ *
+ * The controllers are built the same way LevelController builds them, but the
+ * world is frozen so that every call sees the same geometry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIBenchmark {
+    /** The level to take bees from */
+    @Param({BenchmarkFixtures.BEES_LEVEL, BenchmarkFixtures.BALLS_LEVEL,
+            BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** The level controller that owns the bees */
+    private LevelController controller;
+    /** One AI controller per bee */
+    private Array<AISingleCharacterController> controllers;
+    /** The path finder shared by the AI controllers */
+    private AStarPathFinderController pathFinder;
+    /** The flow field to the player shared by the AI controllers */
+    private FlowFieldController flowField;
+    /** The route found by each query */
+    private DefaultGraphPath<AIGraphModel.AINodeModel> route;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        BenchmarkFixtures.warm(controller, 60);
+        LevelModel model = controller.getLevel();
+        JsonValue constants = BenchmarkFixtures.getConstants();
+        controllers = new Array<AISingleCharacterController>();
+        AIGraphModel graph = new AIGraphModel(model);
+        pathFinder = new AStarPathFinderController(graph);
+        flowField = new FlowFieldController(graph);
+        flowField.update(model.getPlayer().getPosition());
+        route = pathFinder.obtainPath();
+        LineOfSightService lineOfSight = new LineOfSightService(model);
+        lineOfSight.beginTick();
+        // The world does not step during the benchmark, so one snapshot serves every call
+        WorldSnapshot snapshot = new WorldSnapshot();
+        snapshot.capture(model);
+        for (AbstractBeeModel bee : model.getBees()) {
+            String kind = (bee instanceof FlyingBeeModel ? "FlyingBee" : "GroundedBee");
+            JsonValue options = constants.get(kind).get("ai_controller_options");
+            controllers.add(new AISingleCharacterController(model, bee, options, controllers.size, pathFinder, flowField,
+                    lineOfSight, snapshot));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    @Benchmark
+    public void updateAllBees(Blackhole hole) {
+        for (int ii = 0; ii < controllers.size; ii++) {
+            AISingleCharacterController ai = controllers.get(ii);
+            ai.updateAIController();
+            hole.consume(ai.getMovementDirection());
+        }
+    }
+
+    @Benchmark
+    public void findRoutesToPlayer(Blackhole hole) {
+        LevelModel model = controller.getLevel();
+        for (AbstractBeeModel bee : model.getBees()) {
+            hole.consume(pathFinder.findPath(bee.getPosition(), model.getPlayer().getPosition(), route));
+        }
+    }
+
+    @Benchmark
+    public void readFlowFieldToPlayer(Blackhole hole) {
+        LevelModel model = controller.getLevel();
+        flowField.update(model.getPlayer().getPosition());
+        for (AbstractBeeModel bee : model.getBees()) {
+            hole.consume(flowField.getNextNode(bee.getPosition(), 2));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * BenchmarkFixtures.java
+ *
+ * Shared set-up for the JMH suites.  Every suite runs against the shipped level
+ * JSONs, loaded through the headless runtime so that no display or audio device
+ * is needed.  The benchmarks must be run from the assets folder (the jmh task in
+ * benchmarks/build.gradle does this).
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.JsonValue;
+import edu.cornell.gdiac.assets.HeadlessAssetDirectory;
+import edu.cornell.gdiac.honeyHeistCode.controllers.HeadlessLevelRunner;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+
+/**
+ * Static helpers that give each suite a populated level.
+ */
+public class BenchmarkFixtures {
+    /**
+     * The levels every suite is parameterized over by default.
+     *
+     * These cover an empty level, the most bees, the most balls and the most
+     * spikes.  Override with -p level=... to run any other level key.
+     */
+    public static final String DEFAULT_LEVEL = "platform:defaultLevel";
+    public static final String BEES_LEVEL    = "levels:multipleEnemies";
+    public static final String BALLS_LEVEL   = "levels:killTheBeesWithTheBall";
+    public static final String SPIKES_LEVEL  = "levels:spikesEverywhereTWOBee";
+
+    /** The asset directory shared by every benchmark in this JVM */
+    private static HeadlessAssetDirectory directory;
+    /** The runner used to populate levels */
+    private static HeadlessLevelRunner runner;
+
+    /**
+     * Returns the shared asset directory, starting the headless backend if needed
+     *
+     * @return the shared asset directory
+     */
+    public static synchronized HeadlessAssetDirectory getDirectory() {
+        if (directory == null) {
+            if (Gdx.app == null) {
+                HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+                config.updatesPerSecond = -1;
+                new HeadlessApplication(new ApplicationAdapter() {}, config);
+            }
+            directory = new HeadlessAssetDirectory("assets.json");
+            directory.loadAssets();
+            runner = new HeadlessLevelRunner(directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Returns a new controller with the given level populated
+     *
+     * @param levelKey  The asset directory key of the level
+     *
+     * @return a new controller with the given level populated
+     */
+    public static LevelController load(String levelKey) {
+        getDirectory();
+        return runner.load(levelKey);
+    }
+
+    /**
+     * Returns the shared level constants (the same ones LevelController reads)
+     *
+     * @return the shared level constants
+     */
+    public static JsonValue getConstants() {
+        return getDirectory().getEntry("platform:constants2", JsonValue.class);
+    }
+
+    /**
+     * Advances the controller by the given number of steps with no input
+     *
+     * Suites use this to let bees and balls settle before measuring.
+     *
+     * @param controller    The controller to advance
+     * @param steps         The number of fixed steps
+     */
+    public static void warm(LevelController controller, int steps) {
+        for (int ii = 0; ii < steps; ii++) {
+            controller.step(0, false, false, true);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * ContactBenchmark.java
+ *
+ * Measures the collision callbacks in LevelController against the contacts that
+ * actually occur in a level.
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.utils.Array;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of replaying every contact in a level through beginContact/endContact.
+ *
+ * The level is stepped for a second so that characters are resting on platforms,
+ * and then the world's contact list is replayed through the callbacks.  The sensor
+ * sets are sets, so replaying the same begin twice does not grow them.  The world
+ * is not stepped while measuring, so the contacts stay valid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactBenchmark {
+    /** The level to take contacts from */
+    @Param({BenchmarkFixtures.DEFAULT_LEVEL, BenchmarkFixtures.BEES_LEVEL,
+            BenchmarkFixtures.BALLS_LEVEL, BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** The controller under test */
+    private LevelController controller;
+    /** The contacts in the world after settling */
+    private Array<Contact> contacts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        BenchmarkFixtures.warm(controller, 60);
+        contacts = new Array<Contact>(controller.getWorld().getContactList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    @Benchmark
+    public void beginEndAll(Blackhole hole) {
+        for (int ii = 0; ii < contacts.size; ii++) {
+            Contact contact = contacts.get(ii);
+            controller.beginContact(contact);
+            controller.endContact(contact);
+        }
+        hole.consume(controller.isFailure());
+    }
+
+    @Benchmark
+    public void beginAll(Blackhole hole) {
+        for (int ii = 0; ii < contacts.size; ii++) {
+            controller.beginContact(contacts.get(ii));
+        }
+        hole.consume(controller.isFailure());
+    }
+
+    @Benchmark
+    public void endAll(Blackhole hole) {
+        for (int ii = 0; ii < contacts.size; ii++) {
+            controller.endContact(contacts.get(ii));
+        }
+        hole.consume(controller.isFailure());
+    }
+}
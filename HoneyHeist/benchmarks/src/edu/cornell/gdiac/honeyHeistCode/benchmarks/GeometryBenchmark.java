@@ -0,0 +1,123 @@
+/*
+ * GeometryBenchmark.java
+ *
+ * Measures the polygon math that runs every frame for drawing and AI line tests.
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+import edu.cornell.gdiac.honeyHeistCode.models.PlatformModel;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of PolygonObstacle.getTrueVertices and PlatformModel.computerCenters over
+ * every platform, spike and honey patch in a level.
+ *
+ * The tile center inputs are computed once in set-up exactly as PlatformModel.draw
+ * computes them, so only computerCenters itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+    /** The level to take geometry from */
+    @Param({BenchmarkFixtures.DEFAULT_LEVEL, BenchmarkFixtures.BEES_LEVEL,
+            BenchmarkFixtures.BALLS_LEVEL, BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** The level controller that owns the geometry */
+    private LevelController controller;
+    /** Every polygon body of every platform model */
+    private Array<PolygonObstacle> polygons;
+    /** The platform model that owns each polygon */
+    private Array<PlatformModel> owners;
+    /** The computerCenters arguments for each polygon, in groups of 8 */
+    private float[] centerArgs;
+    /** The number of tile centers for each polygon */
+    private int[] centerCounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        LevelModel model = controller.getLevel();
+        polygons = new Array<PolygonObstacle>();
+        owners = new Array<PlatformModel>();
+        addBodies(model.getPlatforms());
+        addBodies(model.getSpikedPlatforms());
+        addBodies(model.getHoneyPatches());
+
+        centerArgs = new float[polygons.size * 8];
+        centerCounts = new int[polygons.size];
+        for (int ii = 0; ii < polygons.size; ii++) {
+            PolygonObstacle obj = polygons.get(ii);
+            float[] corners = obj.getTruePoints();
+            Vector2 botLeft = new Vector2(corners[2], corners[3]);
+            Vector2 botRight = new Vector2(corners[4], corners[5]);
+            Vector2 topLeft = new Vector2(corners[0], corners[1]);
+            float trueWidth = Math.max(botLeft.dst(botRight), botLeft.dst(topLeft));
+            Vector2 center = obj.getCenter();
+            float angle = botRight.cpy().sub(botLeft).angleDeg();
+
+            float step = owners.get(ii).D_THICKNESS;
+            int base = ii * 8;
+            centerArgs[base] = center.x;
+            centerArgs[base + 1] = center.y;
+            centerArgs[base + 2] = angle;
+            centerArgs[base + 3] = step;
+            centerArgs[base + 4] = Math.min(Math.min(Math.min(corners[0], corners[2]), corners[4]), corners[6]);
+            centerArgs[base + 5] = Math.max(Math.max(Math.max(corners[0], corners[2]), corners[4]), corners[6]);
+            centerArgs[base + 6] = Math.min(Math.min(Math.min(corners[1], corners[3]), corners[5]), corners[7]);
+            centerArgs[base + 7] = Math.max(Math.max(Math.max(corners[1], corners[3]), corners[5]), corners[7]);
+            centerCounts[ii] = (int) (trueWidth / step);
+        }
+    }
+
+    /**
+     * Adds every body of the given platform model to the fixture
+     *
+     * @param model The platform model (may be null)
+     */
+    private void addBodies(PlatformModel model) {
+        if (model == null) {
+            return;
+        }
+        for (PolygonObstacle obj : model.getArrayBodies()) {
+            polygons.add(obj);
+            owners.add(model);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    @Benchmark
+    public void getTrueVertices(Blackhole hole) {
+        for (int ii = 0; ii < polygons.size; ii++) {
+            hole.consume(polygons.get(ii).getTrueVertices());
+        }
+    }
+
+    @Benchmark
+    public void computerCenters(Blackhole hole) {
+        Vector2 start = new Vector2();
+        for (int ii = 0; ii < polygons.size; ii++) {
+            int base = ii * 8;
+            start.set(centerArgs[base], centerArgs[base + 1]);
+            hole.consume(owners.get(ii).computerCenters(start, centerArgs[base + 2], centerArgs[base + 3],
+                    centerCounts[ii], centerArgs[base + 4], centerArgs[base + 5],
+                    centerArgs[base + 6], centerArgs[base + 7]));
+        }
+    }
+}
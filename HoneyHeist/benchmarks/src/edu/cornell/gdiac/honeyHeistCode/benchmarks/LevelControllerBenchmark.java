@@ -0,0 +1,61 @@
+/*
+ * LevelControllerBenchmark.java
+ *
+ * Measures one fixed step of gameplay, split into the game logic (update) and
+ * the physics step (postUpdate).
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick cost of LevelController.
+ *
+ * The level is rebuilt for every iteration so that every iteration measures the
+ * same stretch of play rather than a level where everything has already died.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelControllerBenchmark {
+    /** The level to simulate */
+    @Param({BenchmarkFixtures.DEFAULT_LEVEL, BenchmarkFixtures.BEES_LEVEL,
+            BenchmarkFixtures.BALLS_LEVEL, BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** The controller under test */
+    private LevelController controller;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        BenchmarkFixtures.warm(controller, 60);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    @Benchmark
+    public void update() {
+        controller.update(0, false, false);
+    }
+
+    @Benchmark
+    public void postUpdate() {
+        controller.postUpdate(LevelController.WORLD_STEP);
+    }
+
+    @Benchmark
+    public void tick() {
+        controller.update(0, false, false);
+        controller.postUpdate(LevelController.WORLD_STEP);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * LineOfSightBenchmark.java
+ *
+ * Compares the ways the bee AI can test whether its lines are blocked.
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.DirectedLineSegment;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.LineOfSightService;
+import edu.cornell.gdiac.honeyHeistCode.models.AbstractBeeModel;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one tick of line of sight queries, answered by the edge index or by
+ * Box2D raycasts, with and without the per-tick cache.
+ *
+ * Each bee asks about its line to the player and about a short probe in each of
+ * eight directions, against both the platforms and the spikes, as the AI does
+ * when it looks for a new direction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineOfSightBenchmark {
+    /** The number of probes around each bee */
+    private static final int PROBES = 8;
+
+    /** The level to take bees from */
+    @Param({BenchmarkFixtures.BEES_LEVEL, BenchmarkFixtures.BALLS_LEVEL,
+            BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** How the queries are answered */
+    @Param({"INDEX", "RAYCAST"})
+    public LineOfSightService.Backend backend;
+
+    /** The width of a cache cell (0 for no cache) */
+    @Param({"0", "0.25"})
+    public float cacheCell;
+
+    /** The level controller that owns the world */
+    private LevelController controller;
+    /** The service under test */
+    private LineOfSightService lineOfSight;
+    /** The lines asked about in one tick */
+    private Array<DirectedLineSegment> lines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        BenchmarkFixtures.warm(controller, 60);
+        LevelModel model = controller.getLevel();
+        lineOfSight = new LineOfSightService(model);
+        lineOfSight.setBackend(backend, controller.getWorld());
+        lineOfSight.setCacheCellSize(cacheCell);
+
+        lines = new Array<DirectedLineSegment>();
+        Vector2 probe = new Vector2();
+        for (AbstractBeeModel bee : model.getBees()) {
+            lines.add(new DirectedLineSegment(bee.getPosition(), model.getPlayer().getPosition()));
+            for (int ii = 0; ii < PROBES; ii++) {
+                probe.set(1, 0).rotateRad(ii * MathUtils.PI2 / PROBES);
+                DirectedLineSegment line = new DirectedLineSegment();
+                line.setByVector(bee.getPosition(), probe);
+                lines.add(line);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    @Benchmark
+    public void queryOneTick(Blackhole hole) {
+        lineOfSight.beginTick();
+        for (int ii = 0; ii < lines.size; ii++) {
+            DirectedLineSegment line = lines.get(ii);
+            hole.consume(lineOfSight.isBlockedByPlatforms(line));
+            hole.consume(lineOfSight.isBlockedBySpikes(line));
+        }
+    }
+}
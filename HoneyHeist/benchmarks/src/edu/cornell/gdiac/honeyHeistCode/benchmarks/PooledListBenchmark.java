@@ -0,0 +1,76 @@
+/*
+ * PooledListBenchmark.java
+ *
+ * Measures the two ways LevelController walks its object list every frame.
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
+import edu.cornell.gdiac.util.PooledList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of iterating a PooledList of a level's obstacles.
+ *
+ * The list holds one entry per Box2D body in the level, which is an upper bound
+ * on the size of LevelController's own object list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledListBenchmark {
+    /** The level to take obstacles from */
+    @Param({BenchmarkFixtures.DEFAULT_LEVEL, BenchmarkFixtures.BEES_LEVEL,
+            BenchmarkFixtures.BALLS_LEVEL, BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** The level controller that owns the obstacles */
+    private LevelController controller;
+    /** The list under test */
+    private PooledList<Obstacle> objects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        Array<Body> bodies = new Array<Body>();
+        controller.getWorld().getBodies(bodies);
+        objects = new PooledList<Obstacle>();
+        for (Body body : bodies) {
+            if (body.getUserData() instanceof Obstacle) {
+                objects.add((Obstacle) body.getUserData());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    /** The for-each loop used by LevelController.draw */
+    @Benchmark
+    public void valueIterator(Blackhole hole) {
+        for (Obstacle obj : objects) {
+            hole.consume(obj);
+        }
+    }
+
+    /** The entry loop used by LevelController.postUpdate */
+    @Benchmark
+    public void entryIterator(Blackhole hole) {
+        Iterator<PooledList<Obstacle>.Entry> iterator = objects.entryIterator();
+        while (iterator.hasNext()) {
+            hole.consume(iterator.next().getValue());
+        }
+    }
+}
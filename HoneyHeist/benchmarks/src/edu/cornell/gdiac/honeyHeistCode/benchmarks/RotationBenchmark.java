@@ -0,0 +1,65 @@
+/*
+ * RotationBenchmark.java
+ *
+ * Measures one fixed step of gameplay while the level is rotating, with and
+ * without the static geometry merged into one kinematic body, and with the
+ * gravity turning in place of the geometry.
+ */
+package edu.cornell.gdiac.honeyHeistCode.benchmarks;
+
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick cost of LevelController during a rotation.
+ *
+ * A new rotation is started whenever the last one finishes, so every measured
+ * tick moves the level geometry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotationBenchmark {
+    /** The level to simulate */
+    @Param({BenchmarkFixtures.DEFAULT_LEVEL, BenchmarkFixtures.BEES_LEVEL,
+            BenchmarkFixtures.BALLS_LEVEL, BenchmarkFixtures.SPIKES_LEVEL})
+    public String level;
+
+    /** Whether the static geometry is merged into one kinematic body */
+    @Param({"false", "true"})
+    public boolean compound;
+
+    /** How the level turns */
+    @Param({"GEOMETRY", "GRAVITY"})
+    public LevelModel.RotationMode mode;
+
+    /** The controller under test */
+    private LevelController controller;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        controller = BenchmarkFixtures.load(level);
+        controller.setCompoundGeometry(compound);
+        controller.setRotationMode(mode);
+        controller.reset();
+        BenchmarkFixtures.warm(controller, 60);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    @Benchmark
+    public void rotatingTick() {
+        boolean rotate = !controller.getLevel().getPlatforms().isRotating();
+        controller.update(0, rotate, false);
+        controller.postUpdate(LevelController.WORLD_STEP);
+    }
+}
@@ -31,12 +31,19 @@ import edu.cornell.gdiac.util.*;
  *
  * The region has the same format as {@link TextureRegionParser}. The values size
  * and region are optional.
+ *
+ * If the texture was packed into an atlas (see {@link PackedTextures}), the film strip
+ * is cut from its place on the atlas page instead.
  */
 public class FilmStripParser implements AssetParser<FilmStrip> {
+	/** The JSON representation of the asset directory */
+	private JsonValue directory;
 	/** The parent texture of the current film strip */
  	private JsonValue root;
 	/** The current film strip entry in the JSON directory */
     private JsonValue sprite;
+	/** The textures packed into atlases (null until the first film strip is processed) */
+	private PackedTextures packed;
 
     /** The separating character between the file name and the alias */
     public static char ALIAS_SEP = ':';
@@ -61,6 +68,8 @@ public class FilmStripParser implements AssetParser<FilmStrip> {
      * @param directory    The JSON representation of the asset directory
      */
     public void reset(JsonValue directory) {
+        this.directory = directory;
+        packed = null;
         root = directory;
         root = root.getChild( "textures" );
         sprite = null;
@@ -93,7 +102,16 @@ public class FilmStripParser implements AssetParser<FilmStrip> {
             advance();
             return;
         }
-        FilmStripLoader.FilmStripParameters params = new FilmStripLoader.FilmStripParameters(file);
+        if (packed == null) {
+            packed = new PackedTextures( directory, manager.getFileHandleResolver() );
+        }
+        PackedTextures.Placement place = packed.getPlacement( root.name() );
+        FilmStripLoader.FilmStripParameters params;
+        if (place != null) {
+            params = new FilmStripLoader.FilmStripParameters(place.page);
+        } else {
+            params = new FilmStripLoader.FilmStripParameters(file);
+        }
 
         params.rows = sprite.getInt("rows", 1);
         params.cols = sprite.getInt("cols",1);
@@ -110,6 +128,12 @@ public class FilmStripParser implements AssetParser<FilmStrip> {
             params.width = params.width == -1 ? -1 : params.width-params.x;
             params.height = params.height == -1 ? -1 : params.height-params.y;
         }
+        if (place != null) {
+            params.width  = params.width  == -1 ? place.width-params.x  : params.width;
+            params.height = params.height == -1 ? place.height-params.y : params.height;
+            params.x += place.x;
+            params.y += place.y;
+        }
 
         String region = ParserUtils.safeConcatenate(file,sprite.name(),ALIAS_SEP,ALIAS_MASK);
         keymap.put(root.name()+"."+sprite.name(),region);
@@ -0,0 +1,285 @@
+/*
+ * HeadlessAssetDirectory.java
+ *
+ * This is a stand-in for AssetDirectory when there is no display or audio device,
+ * such as on a build server.  It reads the same JSON directory, but it never
+ * decodes images or sounds.  Textures are replaced by stubs of the correct size
+ * (read from the PNG header) so that anything that derives physics sizes from
+ * textures still behaves exactly as it does in the game.
+ *
+ * Sounds, music and fonts are simply absent.  Code that plays sounds must
+ * tolerate a null asset.
+ */
+package edu.cornell.gdiac.assets;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.*;
+import edu.cornell.gdiac.util.FilmStrip;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * An asset directory that serves stub assets without a GL context or audio device.
+ *
+ * Only {@link Texture}, {@link TextureRegion}, {@link FilmStrip} and {@link JsonValue}
+ * entries are supported.  Every other type returns null.  Assets are created the
+ * first time they are requested and cached after that.
+ *
+ * Textures still need a GL20 instance to exist, so this class installs a no-op
+ * implementation in {@link Gdx#gl} if none is present.
+ */
+public class HeadlessAssetDirectory extends AssetDirectory {
+    /** The parsed contents of the JSON directory */
+    private JsonValue directory;
+    /** The assets created so far, keyed by type and then directory key */
+    private ObjectMap<Class<?>, ObjectMap<String, Object>> cache;
+
+    /**
+     * Creates a new HeadlessAssetDirectory from the given directory.
+     *
+     * @param directory    The asset directory file name
+     */
+    public HeadlessAssetDirectory(String directory) {
+        super( directory );
+        cache = new ObjectMap<Class<?>, ObjectMap<String, Object>>();
+        if (Gdx.gl == null) {
+            Gdx.gl = Gdx.gl20 = stubGL();
+        }
+    }
+
+    /**
+     * Reads the JSON directory.
+     *
+     * Unlike {@link AssetDirectory#loadAssets}, this method finishes immediately.
+     */
+    @Override
+    public void loadAssets() {
+        directory = new JsonReader().parse( resolver.resolve( filename ) );
+    }
+
+    /**
+     * Disposes of all stub assets created by this directory.
+     */
+    @Override
+    public void unloadAssets() {
+        ObjectMap<String, Object> textures = cache.get( Texture.class, null );
+        if (textures != null) {
+            for (Object texture : textures.values()) {
+                ((Texture)texture).dispose();
+            }
+        }
+        cache.clear();
+        directory = null;
+    }
+
+    /**
+     * Sets every film strip created so far back to its first frame.
+     *
+     * Models advance the shared film strips as they animate, and some game logic
+     * (like when a death is over) reads those frames.  Rewinding them makes the next
+     * level start as it would in a fresh directory.
+     */
+    public void rewindFilmStrips() {
+        ObjectMap<String, Object> strips = cache.get( FilmStrip.class, null );
+        if (strips != null) {
+            for (Object strip : strips.values()) {
+                ((FilmStrip)strip).setFrame( 0 );
+            }
+        }
+    }
+
+    /**
+     * Returns the asset keys with the given directory
+     *
+     * @return the asset  keys with the given directory
+     */
+    @Override
+    public Array<String> getEntryKeys() {
+        Array<String> result = new Array<String>();
+        if (directory == null) {
+            return result;
+        }
+        for (JsonValue category : directory) {
+            for (JsonValue entry : category) {
+                result.add( entry.name() );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the asset associated with the given directory key
+     *
+     * The method {@link #loadAssets} must have been called for this method to
+     * return a value.
+     *
+     * @param key  the asset directory key
+     * @param type the asset type
+     *
+     * @return the asset associated with the given directory key
+     */
+    @Override
+    public <T> T getEntry(String key, Class<T> type) {
+        ObjectMap<String, Object> entries = cache.get( type, null );
+        if (entries == null) {
+            entries = new ObjectMap<String, Object>();
+            cache.put( type, entries );
+        }
+        Object result = entries.get( key, null );
+        if (result == null) {
+            result = create( key, type );
+            if (result != null) {
+                entries.put( key, result );
+            }
+        }
+        return type.cast( result );
+    }
+
+    /**
+     * Returns true if there is an asset associated with the given directory key
+     *
+     * @param key  the asset directory key
+     * @param type the asset type
+     *
+     * @return true if there is an asset associated with the given directory key
+     */
+    @Override
+    public <T> boolean hasEntry(String key, Class<T> type) {
+        return getEntry( key, type ) != null;
+    }
+
+    /**
+     * Returns a new stub asset for the given key, or null if unsupported
+     *
+     * @param key  the asset directory key
+     * @param type the asset type
+     *
+     * @return a new stub asset for the given key
+     */
+    private Object create(String key, Class<?> type) {
+        if (directory == null) {
+            return null;
+        }
+        if (type == JsonValue.class) {
+            String file = directory.get( "jsons" ).getString( key, null );
+            return (file == null ? null : new JsonReader().parse( resolver.resolve( file ) ));
+        } else if (type == Texture.class) {
+            JsonValue entry = directory.get( "textures" ).get( key );
+            if (entry == null) {
+                return null;
+            }
+            String file = entry.isString() ? entry.asString() : entry.getString( "file" );
+            return new Texture( new StubTextureData( resolver.resolve( file ) ) );
+        } else if (type == TextureRegion.class) {
+            Texture texture = getEntry( key, Texture.class );
+            return (texture == null ? null : new TextureRegion( texture ));
+        } else if (type == FilmStrip.class) {
+            int split = key.lastIndexOf( '.' );
+            if (split == -1) {
+                return null;
+            }
+            String root = key.substring( 0, split );
+            JsonValue sprites = directory.get( "textures" ).get( root );
+            JsonValue sprite = (sprites == null ? null : sprites.get( "sprites" ));
+            sprite = (sprite == null ? null : sprite.get( key.substring( split+1 ) ));
+            if (sprite == null) {
+                return null;
+            }
+            int rows = sprite.getInt( "rows", 1 );
+            int cols = sprite.getInt( "cols", 1 );
+            int size = sprite.getInt( "size", rows*cols );
+            return new FilmStrip( getEntry( root, Texture.class ), rows, cols, size );
+        }
+        return null;
+    }
+
+    /**
+     * Texture data with the dimensions of an image file but no pixels.
+     *
+     * Only the PNG header is read, so this is cheap even for large textures.
+     */
+    private static class StubTextureData implements TextureData {
+        /** The width of the image in pixels */
+        private int width;
+        /** The height of the image in pixels */
+        private int height;
+
+        /**
+         * Creates texture data matching the size of the given PNG file
+         *
+         * @param file  the PNG file
+         */
+        public StubTextureData(FileHandle file) {
+            DataInputStream stream = new DataInputStream( file.read() );
+            try {
+                // 8 byte signature, 4 byte length, 4 byte "IHDR", then width and height
+                stream.skipBytes( 16 );
+                width  = stream.readInt();
+                height = stream.readInt();
+            } catch (IOException e) {
+                throw new GdxRuntimeException( "Could not read image size from "+file, e );
+            } finally {
+                StreamUtils.closeQuietly( stream );
+            }
+        }
+
+        public TextureDataType getType() { return TextureDataType.Custom; }
+
+        public boolean isPrepared() { return true; }
+
+        public void prepare() { }
+
+        public Pixmap consumePixmap() {
+            throw new GdxRuntimeException( "Stub textures have no pixels" );
+        }
+
+        public boolean disposePixmap() { return false; }
+
+        public void consumeCustomData(int target) { }
+
+        public int getWidth() { return width; }
+
+        public int getHeight() { return height; }
+
+        public Pixmap.Format getFormat() { return Pixmap.Format.RGBA8888; }
+
+        public boolean useMipMaps() { return false; }
+
+        public boolean isManaged() { return false; }
+    }
+
+    /**
+     * Returns a GL20 implementation where every call does nothing.
+     *
+     * Methods that return a value return zero, false or the empty string.
+     *
+     * @return a GL20 implementation where every call does nothing
+     */
+    private static GL20 stubGL() {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Class<?> result = method.getReturnType();
+                if (result == boolean.class) {
+                    return Boolean.FALSE;
+                } else if (result == int.class) {
+                    return 0;
+                } else if (result == String.class) {
+                    return "";
+                }
+                return null;
+            }
+        };
+        return (GL20)Proxy.newProxyInstance( GL20.class.getClassLoader(), new Class<?>[] { GL20.class }, handler );
+    }
+}
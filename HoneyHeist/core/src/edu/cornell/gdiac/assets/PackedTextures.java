@@ -0,0 +1,291 @@
+/*
+ * PackedTextures.java
+ *
+ * This is the record of which textures in an asset directory have been packed into
+ * a texture atlas, and where.  The atlases are declared in the "atlases" entry of the
+ * directory, each with the atlas file and the texture keys packed into it.  The atlas
+ * files are made by the packTextures task of the build, and are optional.  Until an
+ * atlas has been packed, its textures are served from their own files as before.
+ *
+ * The texture parsers share this record, so that a packed texture is loaded as a
+ * region of an atlas page rather than as a texture of its own.
+ */
+package edu.cornell.gdiac.assets;
+
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * This class records where the packed textures of a directory are in their atlases.
+ *
+ * An atlas is declared in the JSON directory as
+ *
+ *     "atlases": {
+ *         "game": { "file": "atlases/game.atlas", "textures": [ "platform:ant", ... ] }
+ *     }
+ *
+ * Every texture listed is available as a {@link com.badlogic.gdx.graphics.g2d.TextureRegion}
+ * under its own key.  If the atlas file exists, and holds the image of the texture
+ * (named for its file without the extension, as the packer names it), that region
+ * is part of an atlas page.  Otherwise it is the whole of the texture.
+ *
+ * Regions that the packer rotated or trimmed are ignored, as the film strips and
+ * texture regions defined on a texture assume its pixels are where they were.
+ */
+public class PackedTextures {
+    /** The name of the entry in the directory that declares the atlases */
+    public static final String ATLASES = "atlases";
+
+    /**
+     * The place of a packed texture on an atlas page
+     */
+    public static class Placement {
+        /** The file of the atlas page */
+        public final String page;
+        /** The left edge of the texture on the page (measured in pixels) */
+        public final int x;
+        /** The top edge of the texture on the page (measured in pixels) */
+        public final int y;
+        /** The width of the texture (measured in pixels) */
+        public final int width;
+        /** The height of the texture (measured in pixels) */
+        public final int height;
+
+        /**
+         * Creates the placement of a texture on an atlas page
+         *
+         * @param page      The file of the atlas page
+         * @param x         The left edge of the texture on the page
+         * @param y         The top edge of the texture on the page
+         * @param width     The width of the texture
+         * @param height    The height of the texture
+         */
+        public Placement(String page, int x, int y, int width, int height) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /** The texture keys listed in an atlas */
+    private ObjectSet<String> listed;
+    /** The place of each packed texture, by texture key */
+    private ObjectMap<String, Placement> placements;
+    /** The file of each atlas page, by atlas name and page number */
+    private ObjectMap<String, String> pages;
+    /** The texture parameters of each atlas page, by file */
+    private ObjectMap<String, TextureLoader.TextureParameter> settings;
+
+    /**
+     * Reads the atlases declared in the given directory
+     *
+     * Atlas files that do not exist are skipped, leaving their textures unpacked.
+     *
+     * @param directory    The JSON representation of the asset directory
+     * @param resolver     The resolver for the files of the directory
+     */
+    public PackedTextures(JsonValue directory, FileHandleResolver resolver) {
+        listed = new ObjectSet<String>();
+        placements = new ObjectMap<String, Placement>();
+        pages = new ObjectMap<String, String>();
+        settings = new ObjectMap<String, TextureLoader.TextureParameter>();
+
+        JsonValue atlases = directory.get( ATLASES );
+        JsonValue textures = directory.get( "textures" );
+        if (atlases == null || textures == null) {
+            return;
+        }
+        for (JsonValue atlas : atlases) {
+            ObjectMap<String, String> regions = new ObjectMap<String, String>();
+            for (String key : getPackable( directory, atlas.name() )) {
+                listed.add( key );
+                regions.put( regionName( getFile( textures.get( key ) ) ), key );
+            }
+
+            FileHandle file = resolver.resolve( atlas.getString( "file" ) );
+            if (!file.exists()) {
+                continue;
+            }
+            TextureAtlas.TextureAtlasData data = new TextureAtlas.TextureAtlasData( file, file.parent(), false );
+            for (int ii = 0; ii < data.getPages().size; ii++) {
+                TextureAtlas.TextureAtlasData.Page page = data.getPages().get( ii );
+                String path = page.textureFile.path();
+                pages.put( ii == 0 ? atlas.name() : atlas.name()+"."+ii, path );
+                settings.put( path, getParameters( page ) );
+            }
+            for (TextureAtlas.TextureAtlasData.Region region : data.getRegions()) {
+                String key = regions.get( region.name, null );
+                if (key == null || region.rotate || region.degrees != 0 ||
+                    region.width != region.originalWidth || region.height != region.originalHeight) {
+                    continue;
+                }
+                placements.put( key, new Placement( region.page.textureFile.path(), region.left, region.top,
+                                                    region.width, region.height ) );
+            }
+        }
+    }
+
+    /**
+     * Returns true if the texture is listed in an atlas
+     *
+     * A listed texture is available as a texture region, whether or not it is packed.
+     *
+     * @param key   The texture key
+     *
+     * @return true if the texture is listed in an atlas
+     */
+    public boolean isListed(String key) {
+        return listed.contains( key );
+    }
+
+    /**
+     * Returns true if the texture is on an atlas page, rather than in a file of its own
+     *
+     * @param key   The texture key
+     *
+     * @return true if the texture is on an atlas page
+     */
+    public boolean isPacked(String key) {
+        return placements.containsKey( key );
+    }
+
+    /**
+     * Returns the place of a packed texture on its atlas page (or null if it is not packed)
+     *
+     * @param key   The texture key
+     *
+     * @return the place of a packed texture on its atlas page
+     */
+    public Placement getPlacement(String key) {
+        return placements.get( key, null );
+    }
+
+    /**
+     * Returns the files of the atlas pages, keyed by atlas name
+     *
+     * The first page of an atlas has the name of the atlas, and page n after it
+     * has the name of the atlas followed by ".n".
+     *
+     * @return the files of the atlas pages, keyed by atlas name
+     */
+    public ObjectMap<String, String> getPages() {
+        return pages;
+    }
+
+    /**
+     * Returns the parameters to load the given atlas page with
+     *
+     * @param page  The file of the atlas page
+     *
+     * @return the parameters to load the given atlas page with
+     */
+    public TextureLoader.TextureParameter getParameters(String page) {
+        return settings.get( page, null );
+    }
+
+    /**
+     * Returns the keys of the textures listed in any atlas of the directory
+     *
+     * This does not read the atlas files, so it can be used before there is a
+     * resolver for them.  Every texture returned is available as a region.
+     *
+     * @param directory    The JSON representation of the asset directory
+     *
+     * @return the keys of the textures listed in any atlas of the directory
+     */
+    public static ObjectSet<String> getListed(JsonValue directory) {
+        ObjectSet<String> result = new ObjectSet<String>();
+        JsonValue atlases = directory.get( ATLASES );
+        if (atlases != null && directory.has( "textures" )) {
+            for (JsonValue atlas : atlases) {
+                result.addAll( getPackable( directory, atlas.name() ) );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys of the textures that should be packed in the given atlas
+     *
+     * A texture is left out if it does not exist or if it repeats (as the wrap of
+     * a texture applies to the whole atlas page).  This is what the packer packs.
+     *
+     * @param directory    The JSON representation of the asset directory
+     * @param atlas        The name of the atlas
+     *
+     * @return the keys of the textures that should be packed in the given atlas
+     */
+    public static Array<String> getPackable(JsonValue directory, String atlas) {
+        Array<String> result = new Array<String>();
+        JsonValue textures = directory.get( "textures" );
+        for (JsonValue key : directory.get( ATLASES ).get( atlas ).get( "textures" )) {
+            JsonValue entry = textures.get( key.asString() );
+            if (entry != null && isPackable( entry )) {
+                result.add( key.asString() );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the file of a texture entry
+     *
+     * @param entry The texture entry
+     *
+     * @return the file of a texture entry
+     */
+    public static String getFile(JsonValue entry) {
+        return entry.isString() ? entry.asString() : entry.getString( "file", null );
+    }
+
+    /**
+     * Returns the name the packer gives the image of the given file
+     *
+     * This is the file without its extension, relative to the assets folder.
+     *
+     * @param file  The image file
+     *
+     * @return the name the packer gives the image of the given file
+     */
+    public static String regionName(String file) {
+        int dot = file.lastIndexOf( '.' );
+        return (dot == -1 ? file : file.substring( 0, dot ));
+    }
+
+    /**
+     * Returns true if the texture can share an atlas page
+     *
+     * Textures that repeat or have mipmaps of their own cannot.
+     */
+    private static boolean isPackable(JsonValue entry) {
+        if (entry.isString()) {
+            return true;
+        }
+        return getFile( entry ) != null && !entry.getBoolean( "mipmaps", false ) &&
+               ParserUtils.parseWrap( entry.get( "wrapU" ), Texture.TextureWrap.ClampToEdge ) == Texture.TextureWrap.ClampToEdge &&
+               ParserUtils.parseWrap( entry.get( "wrapV" ), Texture.TextureWrap.ClampToEdge ) == Texture.TextureWrap.ClampToEdge;
+    }
+
+    /**
+     * Returns the texture parameters for an atlas page
+     */
+    private static TextureLoader.TextureParameter getParameters(TextureAtlas.TextureAtlasData.Page page) {
+        TextureLoader.TextureParameter params = new TextureLoader.TextureParameter();
+        params.genMipMaps = page.useMipMaps;
+        params.minFilter = page.minFilter;
+        params.magFilter = page.magFilter;
+        params.wrapU = page.uWrap;
+        params.wrapV = page.vWrap;
+        params.format = page.format;
+        return params;
+    }
+}
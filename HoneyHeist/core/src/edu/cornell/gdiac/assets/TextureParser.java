@@ -27,10 +27,19 @@ import com.badlogic.gdx.utils.ObjectMap;
  * used on loading.
  * 
  * all properties) are stored in the file.
+ *
+ * Textures packed into an atlas (see {@link PackedTextures}) are not loaded from
+ * their own files.  The atlas pages are loaded instead, each under the name of its
+ * atlas, and the packed textures are served as regions of them by the
+ * {@link TextureRegionParser}.
  */
 public class TextureParser implements AssetParser<Texture> {
+    /** The JSON representation of the asset directory */
+    private JsonValue directory;
     /** The current font entry in the JSON directory */
     private JsonValue root;
+    /** The textures packed into atlases (null until the first texture is processed) */
+    private PackedTextures packed;
 
     /**
      * Returns the asset type generated by this parser
@@ -50,8 +59,10 @@ public class TextureParser implements AssetParser<Texture> {
      * @param directory    The JSON representation of the asset directory
      */
     public void reset(JsonValue directory) {
+        this.directory = directory;
         root = directory;
         root = root.getChild( "textures" );
+        packed = null;
     }
 
     /**
@@ -71,7 +82,8 @@ public class TextureParser implements AssetParser<Texture> {
      * key will be the name of the font object.
      *
      * If the JSON value is a string and not an object, it will interpret that
-     * string as the file and use the default settings.
+     * string as the file and use the default settings.  A texture packed into an
+     * atlas is skipped, and the atlas pages are loaded before the first texture.
      *
      * This method fails silently if there are no available assets to process.
      *
@@ -79,6 +91,18 @@ public class TextureParser implements AssetParser<Texture> {
      * @param keymap    The mapping of JSON keys to asset file names
      */
     public void processNext(AssetManager manager, ObjectMap<String,String> keymap) {
+        if (packed == null) {
+            packed = new PackedTextures( directory, manager.getFileHandleResolver() );
+            for (ObjectMap.Entry<String,String> page : packed.getPages()) {
+                keymap.put( page.key, page.value );
+                manager.load( page.value, Texture.class, packed.getParameters( page.value ) );
+            }
+        }
+        if (packed.isPacked( root.name() )) {
+            root = root.next();
+            return;
+        }
+
         TextureLoader.TextureParameter params = new TextureLoader.TextureParameter();
         if (root.isString()) {
             params.genMipMaps = false;
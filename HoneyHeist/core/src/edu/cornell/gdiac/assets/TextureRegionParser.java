@@ -14,6 +14,7 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
 import edu.cornell.gdiac.util.FilmStrip;
 
 /**
@@ -23,12 +24,24 @@ import edu.cornell.gdiac.util.FilmStrip;
  * of the texture region. Texture regions are defined inside of a subobject called "atlas".
  * Each entry is an array of four numbers defining the rectangle [left,bottom,right,top]
  * of the texture region.
+ *
+ * In addition, every texture listed in a packed atlas (see {@link PackedTextures}) is
+ * a texture region under its own key.  If the texture was packed, that region, and
+ * every region defined inside of it, is part of the atlas page.
  */
 public class TextureRegionParser implements AssetParser<TextureRegion> {
+    /** The JSON representation of the asset directory */
+    private JsonValue directory;
     /** The parent texture of the current texture region */
     private JsonValue root;
     /** The current texture region entry in the JSON directory */
     private JsonValue atlas;
+    /** Whether the current texture region is the whole of the parent texture */
+    private boolean whole;
+    /** The textures listed in an atlas */
+    private ObjectSet<String> listed;
+    /** The textures packed into atlases (null until the first region is processed) */
+    private PackedTextures packed;
 
     /** The separating character between the file name and the alias */
     public static char ALIAS_SEP = ':';
@@ -53,9 +66,13 @@ public class TextureRegionParser implements AssetParser<TextureRegion> {
      * @param directory    The JSON representation of the asset directory
      */
     public void reset(JsonValue directory) {
+        this.directory = directory;
         root = directory;
         root = root.getChild( "textures" );
         atlas = null;
+        whole = false;
+        listed = PackedTextures.getListed( directory );
+        packed = null;
         advance();
     }
 
@@ -65,7 +82,7 @@ public class TextureRegionParser implements AssetParser<TextureRegion> {
      * @return true if there are still assets left to generate
      */
     public boolean hasNext() {
-        return atlas != null;
+        return whole || atlas != null;
     }
 
     /**
@@ -80,24 +97,43 @@ public class TextureRegionParser implements AssetParser<TextureRegion> {
      * @param keymap    The mapping of JSON keys to asset file names
      */
     public void processNext(AssetManager manager, ObjectMap<String,String> keymap) {
-        String file = root.getString( "file", null );
+        String file = PackedTextures.getFile( root );
         if (file == null) {
             advance();
             return;
         }
-        TextureRegionLoader.TextureRegionParameters params = new TextureRegionLoader.TextureRegionParameters(file);
-        if (atlas.size < 4) {
-            throw new GdxRuntimeException( "Rectangle "+atlas+" is not valid");
+        if (packed == null) {
+            packed = new PackedTextures( directory, manager.getFileHandleResolver() );
+        }
+        PackedTextures.Placement place = packed.getPlacement( root.name() );
+        TextureRegionLoader.TextureRegionParameters params;
+        if (place != null) {
+            params = new TextureRegionLoader.TextureRegionParameters(place.page);
+        } else {
+            params = new TextureRegionLoader.TextureRegionParameters(file);
         }
 
-        params.x = atlas.getInt(0);
-        params.y = atlas.getInt(1);
-        params.width  = atlas.getInt(2);
-        params.height = atlas.getInt(3);
-        params.width = params.width == -1 ? -1 : params.width-params.x;
-        params.height = params.height == -1 ? -1 : params.height-params.y;
-        String region = ParserUtils.safeConcatenate(file,atlas.name(),ALIAS_SEP,ALIAS_MASK);
-        keymap.put(root.name()+"."+atlas.name(),region);
+        String name = whole ? root.name() : atlas.name();
+        if (!whole) {
+            if (atlas.size < 4) {
+                throw new GdxRuntimeException( "Rectangle "+atlas+" is not valid");
+            }
+            params.x = atlas.getInt(0);
+            params.y = atlas.getInt(1);
+            params.width  = atlas.getInt(2);
+            params.height = atlas.getInt(3);
+            params.width = params.width == -1 ? -1 : params.width-params.x;
+            params.height = params.height == -1 ? -1 : params.height-params.y;
+        }
+        if (place != null) {
+            params.width  = params.width  == -1 ? place.width-params.x  : params.width;
+            params.height = params.height == -1 ? place.height-params.y : params.height;
+            params.x += place.x;
+            params.y += place.y;
+        }
+
+        String region = ParserUtils.safeConcatenate(file,name,ALIAS_SEP,ALIAS_MASK);
+        keymap.put(whole ? root.name() : root.name()+"."+atlas.name(),region);
         manager.load( region,TextureRegion.class, params );
         advance();
     }
@@ -115,17 +151,26 @@ public class TextureRegionParser implements AssetParser<TextureRegion> {
      * Advances the read position forward to find the next texture region
      *
      * Texture regions are defined inside of a parent texture. As not all textures
-     * have a region, we need to scan forward to find the next film strip
+     * have a region, we need to scan forward to find the next film strip.  A texture
+     * listed in an atlas is a region itself, before any of the regions inside it.
      */
     private void advance() {
-        if (atlas != null) {
+        if (whole) {
+            whole = false;
+            atlas = root.getChild( "atlas" );
+            if (atlas == null) {
+                root = root.next();
+            }
+        } else if (atlas != null) {
             atlas = atlas.next();
             if (atlas == null) {
                 root = root.next();
             }
         }
-        while (atlas == null && root != null) {
-            if (root.hasChild( "atlas" )) {
+        while (!whole && atlas == null && root != null) {
+            if (listed.contains( root.name() )) {
+                whole = true;
+            } else if (root.hasChild( "atlas" )) {
                 atlas = root.getChild( "atlas" );
             } else {
                 root = root.next();
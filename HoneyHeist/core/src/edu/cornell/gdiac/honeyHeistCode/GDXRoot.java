@@ -18,6 +18,7 @@ import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
 import edu.cornell.gdiac.honeyHeistCode.controllers.EditorController;
 import edu.cornell.gdiac.honeyHeistCode.controllers.LoadingMode;
+import edu.cornell.gdiac.honeyHeistCode.controllers.Replay;
 import edu.cornell.gdiac.util.*;
 import edu.cornell.gdiac.assets.*;
 
@@ -48,6 +49,10 @@ public class GDXRoot extends Game implements ScreenListener {
 	private GameplayController controller;
 	/** Level Editor Controller + GUI (Screen) */
 	private EditorController editorController;
+	/** Whether each attempt at a level is saved as a replay */
+	private boolean recordReplays;
+	/** The replay file to play once loading finishes (null to go to the level selector) */
+	private String replayFile;
 
 	/**
 	 * Creates a new game from the configuration settings.
@@ -55,7 +60,23 @@ public class GDXRoot extends Game implements ScreenListener {
 	 * This method configures the asset manager, but does not load any assets
 	 * or assign any screen.
 	 */
-	public GDXRoot() { }
+	public GDXRoot() {
+		this(false, null);
+	}
+
+	/**
+	 * Creates a new game that records or plays replays.
+	 *
+	 * This method configures the asset manager, but does not load any assets
+	 * or assign any screen.
+	 *
+	 * @param recordReplays	Whether each attempt at a level is saved as a replay
+	 * @param replayFile	The local replay file to play once loading finishes (or null)
+	 */
+	public GDXRoot(boolean recordReplays, String replayFile) {
+		this.recordReplays = recordReplays;
+		this.replayFile = replayFile;
+	}
 
 	/**
 	 * Called when the Application is first created.
@@ -71,6 +92,7 @@ public class GDXRoot extends Game implements ScreenListener {
 //		controllers = new WorldController[1];
 //		controllers[0] = new LevelController();
 		controller = new GameplayController();
+		controller.setRecordReplays(recordReplays);
 		// current = 0;
 		// Initialize editor controller and modes
 		editorController = new EditorController();
@@ -152,6 +174,10 @@ public class GDXRoot extends Game implements ScreenListener {
 			setScreen(levelSelector);
 			loading.dispose();
 			loading = null;
+			if (replayFile != null) {
+				playReplay(Replay.load(Gdx.files.absolute(replayFile)));
+				replayFile = null;
+			}
 		} else if (screen == levelSelector && exitCode == LevelSelector.EXIT_PLAY) {
 //			directory = levelSelector.getAssets();
 			levelSelector.stopAllSounds();
@@ -244,4 +270,21 @@ public class GDXRoot extends Game implements ScreenListener {
 		}
 	}
 
+	/**
+	 * Goes straight to the level of the given replay and plays it.
+	 *
+	 * @param replay	The replay to play
+	 */
+	private void playReplay(Replay replay) {
+		levelSelector.stopAllSounds();
+		controller.gatherAssets(directory, replay.getLevelKey(), levelSelector.getAllLevelData(),
+				levelSelector.getCurrentLevelNum());
+		editorController.gatherAssets(directory);
+		controller.setScreenListener(this);
+		editorController.setScreenListener(this);
+		controller.setCanvas(canvas);
+		editorController.setCanvas(canvas);
+		controller.startReplay(replay);
+		setScreen(controller);
+	}
 }
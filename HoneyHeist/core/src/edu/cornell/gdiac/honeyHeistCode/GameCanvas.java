@@ -23,7 +23,11 @@ import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.glutils.*;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Comparator;
 
 /**
  * Primary view class for the game, abstracting the basic graphics calls.
@@ -61,6 +65,88 @@ public class GameCanvas {
 		OPAQUE
 	}	
 
+	/**
+	 * Enumeration of the layers of the render queue, in the order they are drawn.
+	 *
+	 * Everything queued in a layer is drawn over everything in the layers before
+	 * it, whatever order it was queued in.  The hazards are drawn over the actors,
+	 * so that a character caught in honey is seen through it.
+	 */
+	public enum RenderLayer {
+		/** The backdrop of the level */
+		BACKGROUND,
+		/** The platforms and the goal */
+		GEOMETRY,
+		/** The characters and the balls */
+		ACTORS,
+		/** The honey patches and the spikes */
+		HAZARDS,
+		/** Effects over the level, such as the transitions between levels */
+		FX,
+		/** The interface, over everything else */
+		UI
+	}
+
+	/**
+	 * Something that can be queued to be drawn in a layer of the render queue.
+	 */
+	public interface Renderable {
+		/**
+		 * Returns the layer of the render queue this is drawn in.
+		 *
+		 * @return the layer of the render queue this is drawn in
+		 */
+		RenderLayer getRenderLayer();
+
+		/**
+		 * Returns the texture this is mostly drawn from (or null if unknown).
+		 *
+		 * The queue draws the things in a layer that share a texture together, so
+		 * that the sprite batch does not flush between them.
+		 *
+		 * @return the texture this is mostly drawn from
+		 */
+		Texture getRenderTexture();
+
+		/**
+		 * Returns the blend state this is drawn with (or null for that of the pass).
+		 *
+		 * @return the blend state this is drawn with
+		 */
+		BlendState getRenderBlend();
+
+		/**
+		 * Draws this to the canvas, which is in a standard pass.
+		 *
+		 * @param canvas Drawing context
+		 */
+		void draw(GameCanvas canvas);
+	}
+
+	/**
+	 * An entry of the render queue.
+	 */
+	private static class QueueEntry {
+		/** The thing to draw */
+		Renderable item;
+		/** The blend state to draw it with (null for that of the pass) */
+		BlendState blend;
+		/** The layer to draw it in */
+		int layer;
+		/** The texture and blend state it shares with others, numbered in order of first use */
+		int group;
+	}
+
+	/** The order entries are drawn in: by layer, and then by group */
+	private static final Comparator<QueueEntry> QUEUE_ORDER = new Comparator<QueueEntry>() {
+		public int compare(QueueEntry a, QueueEntry b) {
+			if (a.layer != b.layer) {
+				return a.layer - b.layer;
+			}
+			return a.group - b.group;
+		}
+	};
+
 	
 	/** Drawing context to handle textures AND POLYGONS as sprites */
 	private PolygonSpriteBatch spriteBatch;
@@ -91,9 +177,43 @@ public class GameCanvas {
 	/** Affine cache for all sprites this drawing pass */
 	private Matrix4 global;
 	private Vector2 vertex;
+	/** The transform applied to baked vertices (identity when not transformed) */
+	private Matrix4 meshTransform;
+	/** Whether the baked vertices are transformed */
+	private boolean meshTransformed;
+	/** The projection while drawing into a layer */
+	private Matrix4 layerProjection;
+	/** The projection to resume with once a layer is drawn */
+	private Matrix4 resumeProjection;
+	/** The pass to resume once a layer is drawn */
+	private DrawPass resumePass;
+	/** The blend state to resume with once a layer is drawn */
+	private BlendState resumeBlend;
 	/** Cache object to handle raw textures */
 	private TextureRegion holder;
 
+	// RENDER STATS
+	/** The counts and timings of the last frame (null unless stats are on) */
+	private RenderStats stats;
+	/** The counter of the GL calls made while stats are on */
+	private GLProfiler profiler;
+	/** The total render calls of the sprite batch when the frame began */
+	private int frameRenderCalls;
+	/** The font of the stats overlay (null until first shown) */
+	private BitmapFont statsFont;
+
+	// RENDER QUEUE
+	/** The entries queued since the queue was last flushed */
+	private Array<QueueEntry> queue;
+	/** The entries to reuse */
+	private Array<QueueEntry> spareEntries;
+	/** The layer of each group of the entries queued */
+	private Array<RenderLayer> groupLayers;
+	/** The texture of each group of the entries queued */
+	private Array<Texture> groupTextures;
+	/** The blend state of each group of the entries queued */
+	private Array<BlendState> groupBlends;
+
 	/**
 	 * Creates a new GameCanvas determined by the application configuration.
 	 * 
@@ -117,6 +237,14 @@ public class GameCanvas {
 		local  = new Affine2();
 		global = new Matrix4();
 		vertex = new Vector2();
+		meshTransform = new Matrix4();
+		layerProjection = new Matrix4();
+		resumeProjection = new Matrix4();
+		queue = new Array<QueueEntry>();
+		spareEntries = new Array<QueueEntry>();
+		groupLayers = new Array<RenderLayer>();
+		groupTextures = new Array<Texture>();
+		groupBlends = new Array<BlendState>();
 	}
 		
     /**
@@ -127,6 +255,11 @@ public class GameCanvas {
 			Gdx.app.error("GameCanvas", "Cannot dispose while drawing active", new IllegalStateException());
 			return;
 		}
+		setStatsEnabled(false);
+		if (statsFont != null) {
+			statsFont.dispose();
+			statsFont = null;
+		}
 		spriteBatch.dispose();
     	spriteBatch = null;
     	local  = null;
@@ -318,10 +451,102 @@ public class GameCanvas {
 		blend = state;
 	}
 	
+	/**
+	 * Returns true if the canvas is counting what it draws.
+	 *
+	 * @return true if the canvas is counting what it draws
+	 */
+	public boolean isStatsEnabled() {
+		return stats != null;
+	}
+
+	/**
+	 * Sets whether the canvas counts what it draws.
+	 *
+	 * The counts are of the last frame, and a frame begins when the canvas is
+	 * cleared.  Counting wraps the GL in a profiler, which costs a little on every
+	 * GL call, so stats are off unless asked for.
+	 *
+	 * @param value whether the canvas counts what it draws
+	 */
+	public void setStatsEnabled(boolean value) {
+		if (value == (stats != null)) {
+			return;
+		}
+		if (value) {
+			stats = new RenderStats();
+			profiler = new GLProfiler(Gdx.graphics);
+			profiler.enable();
+			frameRenderCalls = spriteBatch.totalRenderCalls;
+		} else {
+			profiler.disable();
+			profiler = null;
+			stats = null;
+		}
+	}
+
+	/**
+	 * Returns the counts and timings of the last frame (null unless stats are on).
+	 *
+	 * @return the counts and timings of the last frame
+	 */
+	public RenderStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Starts timing the named section of the frame, if stats are on.
+	 *
+	 * @param name the name of the section
+	 */
+	public void beginSection(String name) {
+		if (stats != null) {
+			stats.beginSection(name);
+		}
+	}
+
+	/**
+	 * Stops timing the named section of the frame, if stats are on.
+	 *
+	 * @param name the name of the section
+	 */
+	public void endSection(String name) {
+		if (stats != null) {
+			stats.endSection(name);
+		}
+	}
+
+	/**
+	 * Draws the stats of the last frame as text, if stats are on.
+	 *
+	 * This must be called in a standard pass without a global transform.
+	 *
+	 * @param x The x-coordinate of the upper-left corner of the text
+	 * @param y The y-coordinate of the upper-left corner of the text
+	 */
+	public void drawStats(float x, float y) {
+		if (stats == null) {
+			return;
+		}
+		if (statsFont == null) {
+			statsFont = new BitmapFont();
+		}
+		statsFont.setColor(Color.WHITE);
+		drawText(stats.toString(), statsFont, x, y);
+	}
+
 	/**
 	 * Clear the screen so we can start a new animation frame
+	 *
+	 * If stats are on, this finishes the counts of the last frame.
 	 */
 	public void clear() {
+		if (stats != null) {
+			stats.finishFrame(spriteBatch.totalRenderCalls - frameRenderCalls, profiler.getTextureBindings(),
+					(int) profiler.getVertexCount().total, profiler.getDrawCalls(), profiler.getShaderSwitches());
+			frameRenderCalls = spriteBatch.totalRenderCalls;
+			profiler.reset();
+		}
     	// Clear the screen
 		Gdx.gl.glClearColor(0.39f, 0.58f, 0.93f, 1.0f);  // Homage to the XNA years
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);		
@@ -340,7 +565,7 @@ public class GameCanvas {
 		spriteBatch.setProjectionMatrix(global);
 		
 		setBlendState(BlendState.NO_PREMULT);
-		spriteBatch.begin();
+		beginBatch();
     	active = DrawPass.STANDARD;
     }
 
@@ -358,7 +583,7 @@ public class GameCanvas {
     	global.mulLeft(camera.combined);
 		spriteBatch.setProjectionMatrix(global);
 		
-    	spriteBatch.begin();
+    	beginBatch();
     	active = DrawPass.STANDARD;
     }
     
@@ -369,10 +594,20 @@ public class GameCanvas {
 	 */
     public void begin() {
 		spriteBatch.setProjectionMatrix(camera.combined);
-    	spriteBatch.begin();
+    	beginBatch();
     	active = DrawPass.STANDARD;
     }
 
+	/**
+	 * Begins the sprite batch, counting the pass if stats are on.
+	 */
+	private void beginBatch() {
+		spriteBatch.begin();
+		if (stats != null) {
+			stats.countPass();
+		}
+	}
+
 	/**
 	 * Ends a drawing sequence, flushing textures to the graphics card.
 	 */
@@ -884,6 +1119,193 @@ public class GameCanvas {
 		}
 	}
 	
+	/**
+	 * Draws quads whose vertices were baked ahead of time in the format of the sprite batch.
+	 *
+	 * Each quad is four vertices of five floats: x, y, the packed color, u and v.
+	 * Geometry that only ever moves rigidly, such as the tiles of the platforms, can
+	 * be baked once and then drawn each frame without working out a single vertex.
+	 * The vertices are transformed by the mesh transform (@see setMeshTransform).
+	 *
+	 * @param texture 	The texture of every quad
+	 * @param vertices 	The baked vertices
+	 * @param offset 	The first float of the quads to draw
+	 * @param count 	The number of floats to draw (twenty for each quad)
+	 */
+	public void draw(Texture texture, float[] vertices, int offset, int count) {
+		if (active != DrawPass.STANDARD) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+			return;
+		}
+		spriteBatch.draw(texture, vertices, offset, count);
+	}
+
+	/**
+	 * Sets the transform applied to baked vertices drawn after this.
+	 *
+	 * The transform is applied by the graphics card, after the vertices and before
+	 * the global transform.  Changing it flushes the batch, so set it back to null
+	 * as soon as the transformed vertices are drawn.
+	 *
+	 * @param affine 	The transform to apply to baked vertices (null for none)
+	 */
+	public void setMeshTransform(Affine2 affine) {
+		if (affine == null && !meshTransformed) {
+			return;
+		}
+		if (affine == null) {
+			meshTransform.idt();
+		} else {
+			meshTransform.set(affine);
+		}
+		meshTransformed = (affine != null);
+		spriteBatch.setTransformMatrix(meshTransform);
+	}
+
+	/**
+	 * Starts drawing into the given frame buffer instead of the screen.
+	 *
+	 * This may be called in the middle of a standard pass, which is resumed by
+	 * endLayer.  The buffer is cleared to transparent, and shows the square of its
+	 * size centered on the given point, without the global transform.  Its colors
+	 * end up with pre-multiplied alpha, as drawLayer expects.
+	 *
+	 * @param layer 	The frame buffer to draw into
+	 * @param x 		The x-coordinate drawn at the center of the buffer (in pixels)
+	 * @param y 		The y-coordinate drawn at the center of the buffer (in pixels)
+	 */
+	public void beginLayer(FrameBuffer layer, float x, float y) {
+		if (active == DrawPass.DEBUG) {
+			Gdx.app.error("GameCanvas", "Cannot draw a layer in a debug pass", new IllegalStateException());
+			return;
+		}
+		resumePass = active;
+		resumeBlend = blend;
+		resumeProjection.set(spriteBatch.getProjectionMatrix());
+		if (active == DrawPass.STANDARD) {
+			spriteBatch.end();
+		}
+
+		layer.begin();
+		Gdx.gl.glClearColor(0, 0, 0, 0);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		layerProjection.setToOrtho2D(x - layer.getWidth() / 2f, y - layer.getHeight() / 2f,
+				layer.getWidth(), layer.getHeight());
+		spriteBatch.setProjectionMatrix(layerProjection);
+		// Blend the colors as usual, but add up the coverage, so the buffer is pre-multiplied
+		spriteBatch.setBlendFunctionSeparate(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA,
+				GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		blend = null;
+		beginBatch();
+		active = DrawPass.STANDARD;
+	}
+
+	/**
+	 * Stops drawing into the frame buffer, and resumes the pass it was started in.
+	 *
+	 * @param layer 	The frame buffer drawn into
+	 */
+	public void endLayer(FrameBuffer layer) {
+		spriteBatch.end();
+		layer.end();
+		spriteBatch.setProjectionMatrix(resumeProjection);
+		// A batch that was never given a blend state blends without pre-multiplied alpha
+		setBlendState(resumeBlend != null ? resumeBlend : BlendState.NO_PREMULT);
+		if (resumePass == DrawPass.STANDARD) {
+			beginBatch();
+		}
+		active = resumePass;
+	}
+
+	/**
+	 * Draws a frame buffer drawn by beginLayer as a single quad.
+	 *
+	 * The quad is turned by the angle about its center, which is placed at the given point.
+	 *
+	 * @param layer 	The frame buffer to draw
+	 * @param x 		The x-coordinate of the center of the quad (on screen)
+	 * @param y 		The y-coordinate of the center of the quad (on screen)
+	 * @param angle 	The rotation angle (in radians) about the center
+	 */
+	public void drawLayer(FrameBuffer layer, float x, float y, float angle) {
+		if (active != DrawPass.STANDARD) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+			return;
+		}
+		BlendState previous = blend;
+		setBlendState(BlendState.ALPHA_BLEND);
+		holder.setRegion(layer.getColorBufferTexture());
+		// The rows of a frame buffer run from the bottom up
+		holder.flip(false, true);
+		computeTransform(layer.getWidth() / 2f, layer.getHeight() / 2f, x, y, angle, 1, 1);
+		spriteBatch.setColor(Color.WHITE);
+		spriteBatch.draw(holder, layer.getWidth(), layer.getHeight(), local);
+		setBlendState(previous != null ? previous : BlendState.NO_PREMULT);
+	}
+
+	/**
+	 * Adds something to the render queue, to be drawn when the queue is flushed.
+	 *
+	 * Within its layer, it is drawn with the others of the same texture and blend
+	 * state, in the order they were queued.  These groups are drawn in the order
+	 * they were first queued in.  So the order things are queued in only matters
+	 * between those that share a layer, texture and blend state.
+	 *
+	 * @param item 	The thing to draw
+	 */
+	public void queue(Renderable item) {
+		RenderLayer layer = item.getRenderLayer();
+		Texture texture = item.getRenderTexture();
+		BlendState state = item.getRenderBlend();
+		int group = 0;
+		while (group < groupLayers.size && (groupLayers.get(group) != layer ||
+				groupTextures.get(group) != texture || groupBlends.get(group) != state)) {
+			group++;
+		}
+		if (group == groupLayers.size) {
+			groupLayers.add(layer);
+			groupTextures.add(texture);
+			groupBlends.add(state);
+		}
+
+		QueueEntry entry = (spareEntries.size > 0 ? spareEntries.pop() : new QueueEntry());
+		entry.item = item;
+		entry.blend = state;
+		entry.layer = layer.ordinal();
+		entry.group = group;
+		queue.add(entry);
+	}
+
+	/**
+	 * Draws everything in the render queue, layer by layer, and empties it.
+	 *
+	 * The things in a layer are drawn in groups of the same texture and blend state,
+	 * so that the batch is only flushed when one group ends and the next begins.
+	 * This must be called in a standard pass, whose blend state is restored after.
+	 */
+	public void flushQueue() {
+		if (active != DrawPass.STANDARD) {
+			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+			return;
+		}
+		// The sort is stable, so each group keeps the order it was queued in
+		queue.sort(QUEUE_ORDER);
+		BlendState pass = (blend != null ? blend : BlendState.NO_PREMULT);
+		for (int ii = 0; ii < queue.size; ii++) {
+			QueueEntry entry = queue.get(ii);
+			setBlendState(entry.blend != null ? entry.blend : pass);
+			entry.item.draw(this);
+			entry.item = null;
+		}
+		setBlendState(pass);
+
+		spareEntries.addAll(queue);
+		queue.clear();
+		groupLayers.clear();
+		groupTextures.clear();
+		groupBlends.clear();
+	}
+
 	/**
 	 * Transform the given vertices by the affine transform
 	 */
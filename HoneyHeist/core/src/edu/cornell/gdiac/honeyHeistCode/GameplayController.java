@@ -32,6 +32,7 @@ import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
 import edu.cornell.gdiac.util.PooledList;
 import edu.cornell.gdiac.util.ScreenListener;
 import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.Replay;
 
 import javax.swing.*;
 //import org.
@@ -79,6 +80,10 @@ public class GameplayController implements Screen, InputProcessor {
 	public static final int WORLD_VELOC = 6;
 	/** Number of position iterations for the constrain solvers */
 	public static final int WORLD_POSIT = 2;
+	/** The longest frame we will try to catch up on (avoids a burst after a hitch) */
+	public static final float MAX_FRAME_TIME = 0.25f;
+	/** The most physics steps we will run in a single frame (caps the spiral of death) */
+	public static final int MAX_STEPS_PER_FRAME = 5;
 
 	/** Width of the game world in Box2d units */
 	protected static final float DEFAULT_WIDTH  = 32.0f;
@@ -113,6 +118,24 @@ public class GameplayController implements Screen, InputProcessor {
     private boolean debug;
     /** Countdown active for winning or losing */
     private int countdown;
+	/** Simulation time that has not yet been consumed by a fixed step */
+	private float accumulator;
+	/** Whether a clockwise rotation was pressed but has not reached a step yet */
+	private boolean rotateQueued;
+	/** Whether an anti-clockwise rotation was pressed but has not reached a step yet */
+	private boolean antiRotateQueued;
+	/** Whether the next step is the first of its frame */
+	private boolean frameStart;
+	/** Whether each attempt at a level is saved as a replay */
+	private boolean recordReplays;
+	/** The recording of the current attempt (null if not recording) */
+	private Replay recording;
+	/** The replay standing in for the player's input (null if none) */
+	private Replay playback;
+	/** The next step of the replay to play */
+	private int playbackStep;
+	/** Whether the level geometry was merged before the replay changed it */
+	private boolean liveCompoundGeometry;
     // ------------------------------- newly added variables
     /** Which level the game is currently in */
     private int level;
@@ -175,6 +198,8 @@ public class GameplayController implements Screen, InputProcessor {
 	private final float PAUSE_XPOS = Gdx.graphics.getWidth()*0.94f;
 	private final float PAUSE_YPOS = Gdx.graphics.getHeight()*0.94f;
 	private final float PAUSE_SCALE = 0.4f;
+	/** Distance of the render stats from the upper-left corner of the screen */
+	private static final float STATS_MARGIN = 10.0f;
 	/** Menu button texture */
 	private Texture menuButton;
 	/** Offset for the menu word on the button */
@@ -397,9 +422,77 @@ public class GameplayController implements Screen, InputProcessor {
 //		canvas = null;
 //	}
 	public void dispose() {
+		finishRecording();
 		levelController.dispose();
 	}
 
+	/**
+	 * Returns true if each attempt at a level is saved as a replay.
+	 *
+	 * @return true if each attempt at a level is saved as a replay
+	 */
+	public boolean isRecordReplays() {
+		return recordReplays;
+	}
+
+	/**
+	 * Sets whether each attempt at a level is saved as a replay.
+	 *
+	 * Recording starts with the next reset.  Each attempt is saved to the local
+	 * "replays" folder when it ends, named after the level and the time.  While
+	 * recording, every AI thinks every tick, so that the attempt plays back the same.
+	 *
+	 * @param value whether each attempt at a level is saved as a replay
+	 */
+	public void setRecordReplays(boolean value) {
+		recordReplays = value;
+		if (!value && playback == null) {
+			levelController.setAIBudget(-1);
+		}
+	}
+
+	/**
+	 * Resets the level and plays the given replay in place of the player's input.
+	 *
+	 * The level must already be the one the replay was recorded on.  Steps are still
+	 * paced by the frame rate, so this shows the attempt as it was played.  Once the
+	 * recorded steps run out, control returns to the player; the next reset ends
+	 * the replay and restores the live settings.
+	 *
+	 * @param replay the replay to play
+	 */
+	public void startReplay(Replay replay) {
+		stopReplay();
+		liveCompoundGeometry = levelController.isCompoundGeometry();
+		replay.prepare(levelController);
+		reset();
+		playback = replay;
+		playbackStep = 0;
+	}
+
+	/**
+	 * Stops playing the replay (if any) and restores the live settings.
+	 */
+	private void stopReplay() {
+		if (playback != null) {
+			levelController.setCompoundGeometry(liveCompoundGeometry);
+			levelController.setRotationMode(null);
+			levelController.setAIBudget(-1);
+			playback = null;
+		}
+	}
+
+	/**
+	 * Saves the recording of the current attempt (if any) and stops recording.
+	 */
+	private void finishRecording() {
+		if (recording != null && recording.size() > 0) {
+			String name = recording.getLevelKey().replace(':', '_') + "-" + TimeUtils.millis();
+			recording.save(Gdx.files.local("replays/" + name + "." + Replay.EXTENSION));
+		}
+		recording = null;
+	}
+
 	/**
 	 * Gather the assets for this controller.
 	 *
@@ -483,7 +576,19 @@ public class GameplayController implements Screen, InputProcessor {
 		resumePressed = false;
 //		resumeReady = false;
 		isPaused = false;
-        levelController.reset();
+		accumulator = 0;
+		rotateQueued = false;
+		antiRotateQueued = false;
+		finishRecording();
+		stopReplay();
+		// Only an attempt in a new world, with every AI thinking every tick, can be replayed exactly
+		if (recordReplays) {
+			levelController.setAIBudget(0);
+		}
+        levelController.reset(recordReplays);
+		if (recordReplays) {
+			recording = new Replay(levelController);
+		}
     }
 
     /**
@@ -533,6 +638,7 @@ public class GameplayController implements Screen, InputProcessor {
         // Now it is time to maybe switch screens.
         if (quitReady) {
 			pause();
+			finishRecording();
 			listener.exitScreen(this, EXIT_QUIT);
 			return false;
 		} else if (input.didExit()) {
@@ -544,17 +650,17 @@ public class GameplayController implements Screen, InputProcessor {
 //			return false;
 		} else if (menuReady) {
         	pause();
+        	finishRecording();
         	levelController.stopAllSounds();
         	levelController.setBgmId(1);
         	listener.exitScreen(this, EXIT_MENU);
         	return false;
-		} else if (levelController.getCountdown() > 0) {
-			levelController.decreaseCountdown();
 		} else if (levelController.getCountdown() == 0) {
 			if (levelController.isFailure()) {
 				reset();
 			} else if (levelController.isComplete()) {
 				pause();
+				finishRecording();
 				saveData();
 				currentLevelNum ++;
 				System.out.println("current level: " + currentLevelNum);
@@ -574,14 +680,33 @@ public class GameplayController implements Screen, InputProcessor {
 	 * This method is called after input is read, but before collisions are resolved.
 	 * The very last thing that it should do is apply forces to the appropriate objects.
 	 *
-	 * @param dt	Number of seconds since last animation frame
+	 * Rotation presses are edge-triggered, so they are latched in render() and
+	 * consumed by the first step that sees them.  The input of each step is what
+	 * a replay records, and what it stands in for when one is playing.
+	 *
+	 * @param dt	Length of the fixed step (should be WORLD_STEP)
 	 */
 //	public abstract void update(float dt);
 	public void update(float dt) {
 		float horizontal = InputController.getInstance().getHorizontal();
-		boolean isRotate = InputController.getInstance().didRotate();
-		boolean isAntiRotate = InputController.getInstance().didAntiRotate();
-		levelController.update(horizontal, isRotate, isAntiRotate);
+		boolean didRotate = rotateQueued;
+		boolean didAntiRotate = antiRotateQueued;
+		if (playback != null && playbackStep < playback.size()) {
+			horizontal = playback.getHorizontal(playbackStep);
+			didRotate = playback.didRotate(playbackStep);
+			didAntiRotate = playback.didAntiRotate(playbackStep);
+			playbackStep++;
+		}
+		if (recording != null) {
+			recording.addStep(horizontal, didRotate, didAntiRotate, frameStart);
+		}
+		frameStart = false;
+		levelController.update(horizontal, didRotate, didAntiRotate);
+		rotateQueued = false;
+		antiRotateQueued = false;
+		if (levelController.getCountdown() > 0) {
+			levelController.decreaseCountdown();
+		}
 	};
 	/**
 	 * Processes physics
@@ -590,7 +715,7 @@ public class GameplayController implements Screen, InputProcessor {
 	 * physics.  The primary method is the step() method in world.  This implementation
 	 * works for all applications and should not need to be overwritten.
 	 *
-	 * @param dt	Number of seconds since last animation frame
+	 * @param dt	Length of the fixed step (should be WORLD_STEP)
 	 */
 	public void postUpdate(float dt) {
 //		// Add any objects created by actions
@@ -631,6 +756,7 @@ public class GameplayController implements Screen, InputProcessor {
 	 */
 	public void draw(float dt) {
 		canvas.clear();
+		canvas.beginSection("gameplay");
 		canvas.begin();
 		// resize the image to have width and height fit for the Gdx graphics (screen)
 		canvas.draw(background, Color.WHITE, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
@@ -665,6 +791,8 @@ public class GameplayController implements Screen, InputProcessor {
 						PAUSE_QUIT_YPOS, 0, menuScale*scaleFactor, menuScale*scaleFactor);
 			}
 		}
+		canvas.endSection("gameplay");
+		canvas.drawStats(STATS_MARGIN, canvas.getHeight() - STATS_MARGIN);
 		canvas.end();
 	}
 
@@ -736,13 +864,33 @@ public class GameplayController implements Screen, InputProcessor {
 	 * We defer to the other methods update() and draw().  However, it is VERY important
 	 * that we only quit AFTER a draw.
 	 *
+	 * The simulation runs at a fixed WORLD_STEP no matter the frame rate.  Frame time
+	 * is banked in an accumulator and spent on zero or more steps, and whatever is
+	 * left over is used to interpolate the drawing between the last two steps.
+	 *
 	 * @param delta Number of seconds since last animation frame
 	 */
 	public void render(float delta) {
 		if (active) {
 			if (preUpdate(delta)) {
-				update(delta); // This is the one that must be defined.
-				postUpdate(delta);
+				frameStart = true;
+				InputController input = InputController.getInstance();
+				rotateQueued |= input.didRotate();
+				antiRotateQueued |= input.didAntiRotate();
+
+				accumulator += Math.min(delta, MAX_FRAME_TIME);
+				int steps = 0;
+				while (accumulator >= WORLD_STEP && steps < MAX_STEPS_PER_FRAME) {
+					update(WORLD_STEP); // This is the one that must be defined.
+					postUpdate(WORLD_STEP);
+					accumulator -= WORLD_STEP;
+					steps++;
+				}
+				// Too far behind to catch up; drop the backlog rather than spiral
+				if (accumulator >= WORLD_STEP) {
+					accumulator %= WORLD_STEP;
+				}
+				levelController.setInterpolation(accumulator / WORLD_STEP);
 			}
 			draw(delta);
 		}
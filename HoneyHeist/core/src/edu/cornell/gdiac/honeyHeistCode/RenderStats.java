@@ -0,0 +1,229 @@
+/*
+ * RenderStats.java
+ *
+ * What the last frame cost to draw.  The canvas counts the work it hands to the
+ * graphics card while stats are on, and the controllers time the parts of their
+ * draw methods they are interested in.  The counts start again each frame, so they
+ * can be read (or shown on screen) while the next frame is drawn.
+ */
+package edu.cornell.gdiac.honeyHeistCode;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * The counts and timings of the last frame drawn by a GameCanvas.
+ *
+ * A sprite batch sends its vertices to the graphics card when it ends, and also
+ * whenever the texture or blend function changes.  So a frame in which the render
+ * calls are well above the passes has its batches broken by state changes, and one
+ * with many passes has them broken by code ending and beginning the canvas.
+ *
+ * The texture bindings, vertices and draw calls are counted by the GL itself, and
+ * include everything drawn, not just the sprite batch.  The draw calls that the
+ * batch did not make are the flushes of the shape renderers (such as debug mode).
+ */
+public class RenderStats {
+	/** The render calls of the sprite batch */
+	private int renderCalls;
+	/** The begin/end pairs of the sprite batch */
+	private int passes;
+	/** The times a texture was bound */
+	private int textureBindings;
+	/** The vertices sent to the graphics card */
+	private int vertices;
+	/** The draw calls of the GL, from any source */
+	private int drawCalls;
+	/** The times the shader program changed */
+	private int shaderSwitches;
+
+	/** The begin/end pairs of the frame being drawn */
+	private int framePasses;
+
+	/** The names of the timed sections, in the order first timed */
+	private Array<String> sections;
+	/** When each section began this frame (or -1 if it is not running) */
+	private LongArray starts;
+	/** The time spent in each section this frame, in nanoseconds */
+	private LongArray running;
+	/** The time spent in each section last frame, in nanoseconds */
+	private LongArray times;
+
+	/**
+	 * Creates stats with every count at zero.
+	 */
+	public RenderStats() {
+		sections = new Array<String>();
+		starts  = new LongArray();
+		running = new LongArray();
+		times   = new LongArray();
+	}
+
+	/**
+	 * Returns the render calls of the sprite batch last frame.
+	 *
+	 * @return the render calls of the sprite batch last frame
+	 */
+	public int getRenderCalls() {
+		return renderCalls;
+	}
+
+	/**
+	 * Returns the begin/end pairs of the sprite batch last frame.
+	 *
+	 * Drawing into a cached layer ends and begins the batch around it, so those count too.
+	 *
+	 * @return the begin/end pairs of the sprite batch last frame
+	 */
+	public int getPasses() {
+		return passes;
+	}
+
+	/**
+	 * Returns the times a texture was bound last frame.
+	 *
+	 * @return the times a texture was bound last frame
+	 */
+	public int getTextureBindings() {
+		return textureBindings;
+	}
+
+	/**
+	 * Returns the vertices sent to the graphics card last frame.
+	 *
+	 * @return the vertices sent to the graphics card last frame
+	 */
+	public int getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Returns the draw calls of the GL last frame, from any source.
+	 *
+	 * @return the draw calls of the GL last frame
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	/**
+	 * Returns the flushes of the shape renderers last frame.
+	 *
+	 * These are the draw calls the sprite batch did not make.
+	 *
+	 * @return the flushes of the shape renderers last frame
+	 */
+	public int getShapeFlushes() {
+		return Math.max(drawCalls - renderCalls, 0);
+	}
+
+	/**
+	 * Returns the times the shader program changed last frame.
+	 *
+	 * @return the times the shader program changed last frame
+	 */
+	public int getShaderSwitches() {
+		return shaderSwitches;
+	}
+
+	/**
+	 * Returns the time spent in the named section last frame, in milliseconds.
+	 *
+	 * @param name 	the name of the section
+	 * @return the time spent in the named section last frame (0 if it was not timed)
+	 */
+	public float getTime(String name) {
+		int index = sections.indexOf(name, false);
+		return (index == -1 ? 0 : times.get(index) / 1.0e6f);
+	}
+
+	/**
+	 * Returns the names of the sections timed so far.
+	 *
+	 * @return the names of the sections timed so far
+	 */
+	public Array<String> getSections() {
+		return sections;
+	}
+
+	/**
+	 * Starts timing the named section.
+	 *
+	 * A section may be timed more than once in a frame, and the times are added up.
+	 *
+	 * @param name 	the name of the section
+	 */
+	void beginSection(String name) {
+		int index = sections.indexOf(name, false);
+		if (index == -1) {
+			sections.add(name);
+			starts.add(-1);
+			running.add(0);
+			times.add(0);
+			index = sections.size - 1;
+		}
+		starts.set(index, System.nanoTime());
+	}
+
+	/**
+	 * Stops timing the named section.
+	 *
+	 * @param name 	the name of the section
+	 */
+	void endSection(String name) {
+		int index = sections.indexOf(name, false);
+		if (index == -1 || starts.get(index) < 0) {
+			return;
+		}
+		running.incr(index, System.nanoTime() - starts.get(index));
+		starts.set(index, -1);
+	}
+
+	/**
+	 * Counts a begin/end pair of the sprite batch.
+	 */
+	void countPass() {
+		framePasses++;
+	}
+
+	/**
+	 * Makes the counts of the frame just drawn the ones reported, and starts the next.
+	 *
+	 * @param renderCalls 		the render calls of the sprite batch
+	 * @param textureBindings 	the times a texture was bound
+	 * @param vertices 			the vertices sent to the graphics card
+	 * @param drawCalls 		the draw calls of the GL
+	 * @param shaderSwitches 	the times the shader program changed
+	 */
+	void finishFrame(int renderCalls, int textureBindings, int vertices, int drawCalls, int shaderSwitches) {
+		this.renderCalls = renderCalls;
+		this.textureBindings = textureBindings;
+		this.vertices = vertices;
+		this.drawCalls = drawCalls;
+		this.shaderSwitches = shaderSwitches;
+		passes = framePasses;
+		framePasses = 0;
+		for (int ii = 0; ii < sections.size; ii++) {
+			times.set(ii, running.get(ii));
+			running.set(ii, 0);
+		}
+	}
+
+	/**
+	 * Returns the stats as lines of text, as the overlay shows them.
+	 *
+	 * @return the stats as lines of text
+	 */
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append("render calls ").append(renderCalls).append(" in ").append(passes).append(" passes\n");
+		text.append("texture binds ").append(textureBindings).append(", shader switches ").append(shaderSwitches).append('\n');
+		text.append("vertices ").append(vertices).append('\n');
+		text.append("draw calls ").append(drawCalls).append(", shape flushes ").append(getShapeFlushes());
+		for (int ii = 0; ii < sections.size; ii++) {
+			text.append('\n').append(sections.get(ii)).append(' ');
+			text.append(String.format("%.2f ms", times.get(ii) / 1.0e6f));
+		}
+		return text.toString();
+	}
+}
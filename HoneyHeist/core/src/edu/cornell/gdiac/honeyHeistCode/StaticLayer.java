@@ -0,0 +1,205 @@
+/*
+ * StaticLayer.java
+ *
+ * A picture of the parts of a level that only ever move rigidly, such as the
+ * background, the platforms and the spikes.  They are drawn into a frame buffer
+ * once, and the buffer is then drawn as a single quad each frame.  While the level
+ * turns the quad is turned with it, so a rotation costs one draw instead of one
+ * for every tile of every platform.
+ */
+package edu.cornell.gdiac.honeyHeistCode;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
+
+/**
+ * Caches the drawing of a run of obstacles that move together in a frame buffer.
+ *
+ * The obstacles must only ever move rigidly, and all in the same way, as the level
+ * geometry does when it turns about the origin.  One of them is the reference, and
+ * the quad follows it from where it was when the picture was drawn.  The picture is
+ * drawn again whenever the obstacles come to rest somewhere new, so the quad is only
+ * turned while they are moving.
+ *
+ * The buffer is a square about the origin large enough to hold the bounds of the
+ * level at any angle, so that nothing is cut off while the quad turns.
+ *
+ * The layer is queued in the render queue in place of its obstacles.  Its picture
+ * has pre-multiplied alpha, so it is drawn with a blend state of its own.
+ */
+public class StaticLayer implements GameCanvas.Renderable {
+	/** The obstacles drawn into the layer, in the order they are drawn */
+	private Array<Obstacle> obstacles;
+	/** The obstacle the layer follows as it moves */
+	private Obstacle reference;
+	/** The layer of the render queue the picture is drawn in */
+	private GameCanvas.RenderLayer renderLayer;
+	/** The fraction of a physics step left over, to draw the obstacles at */
+	private float drawAlpha = 1.0f;
+	/** The point the layer is centered on, in world units */
+	private Vector2 center;
+	/** The bounds of the level, in world units */
+	private Rectangle bounds;
+	/** The drawing scale of the obstacles */
+	private Vector2 scale;
+
+	/** The picture of the obstacles (null until first drawn) */
+	private FrameBuffer buffer;
+	/** Whether the picture has been drawn since the obstacles last changed */
+	private boolean valid;
+	/** The drawn position and angle of the reference when the picture was drawn */
+	private float bakedX;
+	private float bakedY;
+	private float bakedAngle;
+
+	/**
+	 * Creates an empty layer that follows the given obstacle.
+	 *
+	 * @param layer 	the layer of the render queue the picture is drawn in
+	 * @param reference the obstacle the layer follows as it moves
+	 * @param center 	the point the layer is centered on, such as the origin of the level
+	 * @param bounds 	the bounds of the level, in world units
+	 * @param scale 	the drawing scale of the obstacles
+	 */
+	public StaticLayer(GameCanvas.RenderLayer layer, Obstacle reference, Vector2 center, Rectangle bounds, Vector2 scale) {
+		this.renderLayer = layer;
+		this.reference = reference;
+		this.center = new Vector2(center);
+		this.bounds = new Rectangle(bounds);
+		this.scale = new Vector2(scale);
+		obstacles = new Array<Obstacle>();
+	}
+
+	/**
+	 * Adds an obstacle to the layer, to be drawn after those already in it.
+	 *
+	 * @param obj the obstacle to add
+	 */
+	public void add(Obstacle obj) {
+		obstacles.add(obj);
+		valid = false;
+	}
+
+	/**
+	 * Returns the layer of the render queue the picture is drawn in.
+	 *
+	 * @return the layer of the render queue the picture is drawn in
+	 */
+	public GameCanvas.RenderLayer getRenderLayer() {
+		return renderLayer;
+	}
+
+	/**
+	 * Returns the texture of the picture (or null until it is first drawn).
+	 *
+	 * @return the texture of the picture
+	 */
+	public Texture getRenderTexture() {
+		return (buffer == null ? null : buffer.getColorBufferTexture());
+	}
+
+	/**
+	 * Returns the blend state of the picture, whose colors have pre-multiplied alpha.
+	 *
+	 * @return the blend state of the picture
+	 */
+	public GameCanvas.BlendState getRenderBlend() {
+		return GameCanvas.BlendState.ALPHA_BLEND;
+	}
+
+	/**
+	 * Sets how far between the last two physics steps the obstacles are drawn.
+	 *
+	 * @param alpha the fraction of a physics step left over, to draw the obstacles at
+	 */
+	public void setDrawAlpha(float alpha) {
+		drawAlpha = alpha;
+	}
+
+	/**
+	 * Marks the picture as out of date, so that it is drawn again before it is next used.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Draws the layer where the obstacles are at the last alpha set.
+	 *
+	 * @param canvas 	Drawing context, in a standard pass
+	 */
+	public void draw(GameCanvas canvas) {
+		draw(canvas, drawAlpha);
+	}
+
+	/**
+	 * Draws the layer, drawing its picture again first if it is out of date.
+	 *
+	 * @param canvas 	Drawing context, in a standard pass
+	 * @param alpha 	the fraction of a physics step left over, to draw the obstacles at
+	 */
+	public void draw(GameCanvas canvas, float alpha) {
+		reference.setDrawAlpha(alpha);
+		float x = reference.getDrawX();
+		float y = reference.getDrawY();
+		float angle = reference.getDrawAngle();
+		boolean moved = (x != bakedX || y != bakedY || angle != bakedAngle);
+		if (!valid || (moved && !reference.isRotating())) {
+			render(canvas, alpha);
+			moved = false;
+		}
+
+		float cx = center.x * scale.x;
+		float cy = center.y * scale.y;
+		if (!moved) {
+			canvas.drawLayer(buffer, cx, cy, 0);
+			return;
+		}
+		// The center goes wherever the rigid motion of the reference takes it
+		float turn = angle - bakedAngle;
+		float cos = (float) Math.cos(turn);
+		float sin = (float) Math.sin(turn);
+		float dx = cx - bakedX * scale.x;
+		float dy = cy - bakedY * scale.y;
+		canvas.drawLayer(buffer, x * scale.x + dx * cos - dy * sin, y * scale.y + dx * sin + dy * cos, turn);
+	}
+
+	/**
+	 * Releases the frame buffer of the layer.
+	 */
+	public void dispose() {
+		if (buffer != null) {
+			buffer.dispose();
+			buffer = null;
+		}
+		valid = false;
+	}
+
+	/**
+	 * Draws the obstacles into the frame buffer where they are now.
+	 */
+	private void render(GameCanvas canvas, float alpha) {
+		if (buffer == null) {
+			float width = Math.max(center.x - bounds.x, bounds.x + bounds.width - center.x) * scale.x;
+			float height = Math.max(center.y - bounds.y, bounds.y + bounds.height - center.y) * scale.y;
+			int size = MathUtils.ceil(2 * (float) Math.sqrt(width * width + height * height));
+			buffer = new FrameBuffer(Pixmap.Format.RGBA8888, size, size, false);
+		}
+		canvas.beginLayer(buffer, center.x * scale.x, center.y * scale.y);
+		for (Obstacle obj : obstacles) {
+			obj.setDrawAlpha(alpha);
+			obj.draw(canvas);
+		}
+		canvas.endLayer(buffer);
+		bakedX = reference.getDrawX();
+		bakedY = reference.getDrawY();
+		bakedAngle = reference.getDrawAngle();
+		valid = true;
+	}
+}
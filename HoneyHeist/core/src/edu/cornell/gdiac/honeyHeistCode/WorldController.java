@@ -313,7 +313,7 @@ public abstract class WorldController implements Screen {
     public void gatherAssets(AssetDirectory directory) {
         // Allocate the tiles
         earthTile = new TextureRegion(directory.getEntry( "shared:earth", Texture.class ));
-        goalTile  = new TextureRegion(directory.getEntry( "shared:goal", Texture.class ));
+        goalTile  = new TextureRegion(directory.getEntry( "shared:goal", TextureRegion.class ));
         displayFont = directory.getEntry( "shared:retro" ,BitmapFont.class);
     }
 
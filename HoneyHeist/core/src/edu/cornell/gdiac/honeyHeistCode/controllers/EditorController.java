@@ -111,6 +111,13 @@ public class EditorController extends WorldController implements InputProcessor
 
     private AssetDirectory directory;
 
+    /** Checks each fully saved level for a win (created at the first full save) */
+    private LevelSolver solver;
+    /** The outcome of the last check, drawn under the mode text */
+    private volatile String solverStatus = "";
+    /** Whether a check is running */
+    private volatile boolean solving;
+
     /** Platform texture */
     private TextureRegion ULeft;
     private TextureRegion UMid;
@@ -256,37 +263,37 @@ public class EditorController extends WorldController implements InputProcessor
         flyingBeeStrip  = directory.getEntry( "platform:beeFly.pacing", FilmStrip.class );
         chasingBeeStrip = directory.getEntry( "platform:beeChase.pacing", FilmStrip.class );
 
-        SpikeULeft  = new TextureRegion(directory.getEntry("platform:spikeULeft", Texture.class));
-        SpikeUMid   = new TextureRegion(directory.getEntry("platform:spikeUMid", Texture.class));
-        SpikeURight = new TextureRegion(directory.getEntry("platform:spikeURight", Texture.class));
-        SpikeMLeft  = new TextureRegion(directory.getEntry("platform:spikeMLeft", Texture.class));
-        SpikeMMid   = new TextureRegion(directory.getEntry("platform:spikeMMid", Texture.class));
-        SpikeMRight = new TextureRegion(directory.getEntry("platform:spikeMRight", Texture.class));
-        SpikeBLeft  = new TextureRegion(directory.getEntry("platform:spikeBLeft", Texture.class));
-        SpikeBMid   = new TextureRegion(directory.getEntry("platform:spikeBMid", Texture.class));
-        SpikeBRight = new TextureRegion(directory.getEntry("platform:spikeBRight", Texture.class));
-
-        ULeft  = new TextureRegion(directory.getEntry("platform:ULeft", Texture.class));
-        UMid   = new TextureRegion(directory.getEntry("platform:UMid", Texture.class));
-        URight = new TextureRegion(directory.getEntry("platform:URight", Texture.class));
-        MLeft  = new TextureRegion(directory.getEntry("platform:MLeft", Texture.class));
-        MMid   = new TextureRegion(directory.getEntry("platform:MMid", Texture.class));
-        MRight = new TextureRegion(directory.getEntry("platform:MRight", Texture.class));
-        BLeft  = new TextureRegion(directory.getEntry("platform:BLeft", Texture.class));
-        BMid   = new TextureRegion(directory.getEntry("platform:BMid", Texture.class));
-        BRight = new TextureRegion(directory.getEntry("platform:BRight", Texture.class));
-
-        platNinePatch  = new NinePatch(directory.getEntry("platform:platNinePatch", Texture.class),  16, 16 ,16 ,16 );
-        spikeNinePatch = new NinePatch(directory.getEntry("platform:spikeNinePatch", Texture.class),  16, 16 ,16 ,16 );
-
-
-        crosshairTexture  = new TextureRegion(directory.getEntry( "shared:crosshair", Texture.class ));
+        SpikeULeft  = new TextureRegion(directory.getEntry("platform:spikeULeft", TextureRegion.class));
+        SpikeUMid   = new TextureRegion(directory.getEntry("platform:spikeUMid", TextureRegion.class));
+        SpikeURight = new TextureRegion(directory.getEntry("platform:spikeURight", TextureRegion.class));
+        SpikeMLeft  = new TextureRegion(directory.getEntry("platform:spikeMLeft", TextureRegion.class));
+        SpikeMMid   = new TextureRegion(directory.getEntry("platform:spikeMMid", TextureRegion.class));
+        SpikeMRight = new TextureRegion(directory.getEntry("platform:spikeMRight", TextureRegion.class));
+        SpikeBLeft  = new TextureRegion(directory.getEntry("platform:spikeBLeft", TextureRegion.class));
+        SpikeBMid   = new TextureRegion(directory.getEntry("platform:spikeBMid", TextureRegion.class));
+        SpikeBRight = new TextureRegion(directory.getEntry("platform:spikeBRight", TextureRegion.class));
+
+        ULeft  = new TextureRegion(directory.getEntry("platform:ULeft", TextureRegion.class));
+        UMid   = new TextureRegion(directory.getEntry("platform:UMid", TextureRegion.class));
+        URight = new TextureRegion(directory.getEntry("platform:URight", TextureRegion.class));
+        MLeft  = new TextureRegion(directory.getEntry("platform:MLeft", TextureRegion.class));
+        MMid   = new TextureRegion(directory.getEntry("platform:MMid", TextureRegion.class));
+        MRight = new TextureRegion(directory.getEntry("platform:MRight", TextureRegion.class));
+        BLeft  = new TextureRegion(directory.getEntry("platform:BLeft", TextureRegion.class));
+        BMid   = new TextureRegion(directory.getEntry("platform:BMid", TextureRegion.class));
+        BRight = new TextureRegion(directory.getEntry("platform:BRight", TextureRegion.class));
+
+        platNinePatch  = new NinePatch(directory.getEntry("platform:platNinePatch", TextureRegion.class),  16, 16 ,16 ,16 );
+        spikeNinePatch = new NinePatch(directory.getEntry("platform:spikeNinePatch", TextureRegion.class),  16, 16 ,16 ,16 );
+
+
+        crosshairTexture  = new TextureRegion(directory.getEntry( "shared:crosshair", TextureRegion.class ));
         background = new TextureRegion(directory.getEntry( "shared:background",  Texture.class ));
-        avatarTexture = new TextureRegion(directory.getEntry("platform:ant", Texture.class));
-        chaserBeeTexture = new TextureRegion(directory.getEntry("platform:larvae", Texture.class));
-        flyingBeeTexture = new TextureRegion(directory.getEntry("platform:flyingBee", Texture.class));
+        avatarTexture = new TextureRegion(directory.getEntry("platform:ant", TextureRegion.class));
+        chaserBeeTexture = new TextureRegion(directory.getEntry("platform:larvae", TextureRegion.class));
+        flyingBeeTexture = new TextureRegion(directory.getEntry("platform:flyingBee", TextureRegion.class));
         tilesBackground = new TextureRegion(directory.getEntry("shared:tilesBackground", Texture.class));
-        ballTexture = new TextureRegion(directory.getEntry("platform:ball", Texture.class));
+        ballTexture = new TextureRegion(directory.getEntry("platform:ball", TextureRegion.class));
 
         //walkingPlayer = directory.getEntry( "platform:walk.pacing", FilmStrip.class );
 
@@ -1349,6 +1356,9 @@ public class EditorController extends WorldController implements InputProcessor
         canvas.begin();
         modeFont.setColor(Color.WHITE);
         canvas.drawTextCentered(modeText,modeFont, -canvas.getWidth()/3f);
+        if (!solverStatus.isEmpty()) {
+            canvas.drawTextCentered(solverStatus, modeFont, -canvas.getWidth()/3f - modeFont.getLineHeight());
+        }
         canvas.end();
 
         // Draw platform outline
@@ -1701,6 +1711,66 @@ public class EditorController extends WorldController implements InputProcessor
         }
 
         saveToPath(path, level);
+        checkSolvable(jfc.getSelectedFile().getName(), level);
+    }
+
+    /**
+     * Searches for a win of the saved level in the background
+     *
+     * The outcome is printed and drawn under the mode text.  A save made while an
+     * earlier check is still running is not checked.
+     *
+     * @param name      The name to report the level by
+     * @param jsonLevel The level that was saved
+     */
+    private void checkSolvable(final String name, Level jsonLevel){
+        if (solving) {
+            return;
+        }
+        if (solver == null) {
+            solver = new LevelSolver("assets.json", Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        }
+        Json json = new Json();
+        json.setOutputType(JsonWriter.OutputType.json);
+        final JsonValue data = new JsonReader().parse(json.toJson(jsonLevel));
+
+        solving = true;
+        solverStatus = "Checking " + name + "...";
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LevelSolver.Result result = solver.solve(name, data);
+                switch (result.outcome) {
+                    case SOLVED:
+                        solverStatus = "Winnable in " + result.moves.size + " moves";
+                        break;
+                    case UNSOLVABLE:
+                        solverStatus = "No win found: the level may be unwinnable";
+                        break;
+                    case UNKNOWN:
+                        solverStatus = "No win found within " + result.depth + " moves";
+                        break;
+                    default:
+                        solverStatus = "Could not check level: " + result.error;
+                        break;
+                }
+                solving = false;
+            }
+        }, "LevelSolver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Dispose of all (non-static) resources allocated to this mode.
+     */
+    public void dispose() {
+        if (solver != null) {
+            solver.cancel();
+            solver.dispose();
+            solver = null;
+        }
+        super.dispose();
     }
 
     private void chooseFile(){
@@ -0,0 +1,284 @@
+/*
+ * HeadlessLevelRunner.java
+ *
+ * Builds and simulates levels without a window, GL context or audio device.  This
+ * is what lets us check every shipped level (and profile the update loop) on a
+ * machine with no display.  Pair it with a HeadlessAssetDirectory so that no
+ * images or sounds are decoded.
+ */
+package edu.cornell.gdiac.honeyHeistCode.controllers;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import edu.cornell.gdiac.assets.AssetDirectory;
+import edu.cornell.gdiac.honeyHeistCode.models.AbstractBeeModel;
+import edu.cornell.gdiac.honeyHeistCode.models.BallModel;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
+
+/**
+ * Loads levels into a LevelController and ticks them as fast as the CPU allows.
+ *
+ * Each tick is exactly what GameplayController does for one fixed step:
+ * preUpdate, update and postUpdate.  No input is applied unless the caller
+ * drives the controller itself through {@link #load}, or plays a {@link Replay}.
+ */
+public class HeadlessLevelRunner {
+    /** Width of the game window, which determines the physics scale */
+    public static final int CANVAS_WIDTH  = 1024;
+    /** Height of the game window, which determines the physics scale */
+    public static final int CANVAS_HEIGHT = 576;
+
+    /**
+     * The outcome of simulating a single level.
+     */
+    public static class Result {
+        /** The asset directory key of the level */
+        public final String level;
+        /** The number of fixed steps that were simulated */
+        public int steps;
+        /** Wall clock time spent loading and simulating, in nanoseconds */
+        public long nanos;
+        /** Whether the player reached the goal */
+        public boolean complete;
+        /** Whether the player died */
+        public boolean failed;
+        /** The exception raised while loading or simulating, if any */
+        public RuntimeException error;
+        /** A hash of the final state of the characters (see {@link #checksum}) */
+        public long checksum;
+        /** The average number of path nodes the AI expanded each step */
+        public float nodesExpanded;
+
+        /**
+         * Creates an empty result for the given level
+         *
+         * @param level The asset directory key of the level
+         */
+        public Result(String level) {
+            this.level = level;
+        }
+
+        /**
+         * Returns true if the level loaded and simulated without an exception
+         *
+         * @return true if the level loaded and simulated without an exception
+         */
+        public boolean isValid() {
+            return error == null;
+        }
+
+        public String toString() {
+            String outcome = (error != null ? "ERROR " + error :
+                    complete ? "complete" : failed ? "failed" : "running");
+            return String.format("%-36s %6d steps %8.2f ms %7.1f nodes/step  %016x  %s",
+                    level, steps, nanos / 1.0e6, nodesExpanded, checksum, outcome);
+        }
+    }
+
+    /** The (usually headless) asset directory to load from */
+    private AssetDirectory directory;
+
+    /**
+     * Creates a runner that loads levels from the given directory
+     *
+     * The directory must have finished loading.
+     *
+     * @param directory The asset directory with the levels and constants
+     */
+    public HeadlessLevelRunner(AssetDirectory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the keys of every level in the asset directory, in directory order
+     *
+     * A JSON entry counts as a level if it has platform data.
+     *
+     * @return the keys of every level in the asset directory
+     */
+    public Array<String> getLevelKeys() {
+        Array<String> result = new Array<String>();
+        for (String key : directory.getEntryKeys()) {
+            if (directory.hasEntry(key, JsonValue.class)) {
+                JsonValue json = directory.getEntry(key, JsonValue.class);
+                if (json != null && json.has("platformPos")) {
+                    result.add(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new controller with the given level populated and ready to tick
+     *
+     * @param levelKey  The asset directory key of the level
+     *
+     * @return a new controller with the given level populated
+     */
+    public LevelController load(String levelKey) {
+        LevelController controller = create(levelKey);
+        controller.reset();
+        return controller;
+    }
+
+    /**
+     * Returns a new controller with the given level populated and ready to tick
+     *
+     * The AI seeds of this and every later reset are drawn from the given seed.
+     *
+     * @param levelKey  The asset directory key of the level
+     * @param seed      The seed for the AI seeds
+     *
+     * @return a new controller with the given level populated
+     */
+    public LevelController load(String levelKey, long seed) {
+        LevelController controller = create(levelKey);
+        controller.setSeed(seed);
+        controller.reset();
+        return controller;
+    }
+
+    /**
+     * Returns a new controller with the given level loaded, but not yet populated
+     *
+     * @param levelKey  The asset directory key of the level
+     *
+     * @return a new controller with the given level loaded
+     */
+    private LevelController create(String levelKey) {
+        LevelController controller = new LevelController();
+        controller.getScale().set(CANVAS_WIDTH / controller.bounds.getWidth(),
+                CANVAS_HEIGHT / controller.bounds.getHeight());
+        controller.gatherAssets(directory, levelKey);
+        // The AI must not depend on the speed of the machine
+        controller.setAIBudget(0);
+        // Each worker already has a core of its own
+        controller.setAIThreads(1);
+        return controller;
+    }
+
+    /**
+     * Returns a hash of the position, velocity and angle of every character and ball
+     *
+     * Two runs that agree bit for bit have the same checksum.
+     *
+     * @param controller    The controller to hash
+     *
+     * @return a hash of the state of the characters
+     */
+    public static long checksum(LevelController controller) {
+        LevelModel level = controller.getLevel();
+        long hash = checksum(0xcbf29ce484222325L, level.getPlayer());
+        for (AbstractBeeModel bee : level.getBees()) {
+            hash = checksum(hash, bee);
+        }
+        for (BallModel ball : level.getBalls()) {
+            hash = checksum(hash, ball);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the given hash combined with the state of an obstacle
+     *
+     * @param hash  The hash so far
+     * @param obj   The obstacle to add to the hash
+     *
+     * @return the combined hash
+     */
+    private static long checksum(long hash, Obstacle obj) {
+        float[] values = {obj.getX(), obj.getY(), obj.getVX(), obj.getVY(), obj.getAngle()};
+        for (float value : values) {
+            hash = (hash ^ Float.floatToRawIntBits(value)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Simulates the given level with no input until it ends or runs out of steps
+     *
+     * Exceptions are captured in the result rather than thrown.
+     *
+     * @param levelKey  The asset directory key of the level
+     * @param maxSteps  The maximum number of fixed steps to simulate
+     *
+     * @return the outcome of the simulation
+     */
+    public Result run(String levelKey, int maxSteps) {
+        Result result = new Result(levelKey);
+        long start = System.nanoTime();
+        LevelController controller = null;
+        try {
+            controller = load(levelKey);
+            while (result.steps < maxSteps && !controller.isComplete() && !controller.isFailure()) {
+                controller.step(0, false, false, true);
+                result.steps++;
+            }
+            result.complete = controller.isComplete();
+            result.failed = controller.isFailure();
+            result.checksum = checksum(controller);
+            result.nodesExpanded = controller.getAIController().getAverageNodesExpanded();
+        } catch (RuntimeException e) {
+            result.error = e;
+        } finally {
+            if (controller != null && controller.world != null) {
+                controller.dispose();
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Plays a recorded attempt at a level from start to finish
+     *
+     * Exceptions are captured in the result rather than thrown.
+     *
+     * @param replay    The recorded attempt
+     *
+     * @return the outcome of the replay
+     */
+    public Result replay(Replay replay) {
+        Result result = new Result(replay.getLevelKey());
+        long start = System.nanoTime();
+        LevelController controller = null;
+        try {
+            controller = create(replay.getLevelKey());
+            replay.prepare(controller);
+            controller.reset();
+            while (result.steps < replay.size()) {
+                replay.play(controller, result.steps);
+                result.steps++;
+            }
+            result.complete = controller.isComplete();
+            result.failed = controller.isFailure();
+            result.checksum = checksum(controller);
+            result.nodesExpanded = controller.getAIController().getAverageNodesExpanded();
+        } catch (RuntimeException e) {
+            result.error = e;
+        } finally {
+            if (controller != null && controller.world != null) {
+                controller.dispose();
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Simulates every level in the asset directory
+     *
+     * @param maxSteps  The maximum number of fixed steps to simulate per level
+     *
+     * @return the outcome of each level, in directory order
+     */
+    public Array<Result> runAll(int maxSteps) {
+        Array<Result> results = new Array<Result>();
+        for (String key : getLevelKeys()) {
+            results.add(run(key, maxSteps));
+        }
+        return results;
+    }
+}
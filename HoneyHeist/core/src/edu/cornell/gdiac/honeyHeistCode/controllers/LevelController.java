@@ -15,25 +15,35 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectSet;
 import edu.cornell.gdiac.assets.AssetDirectory;
 import edu.cornell.gdiac.audio.SoundBuffer;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
+import edu.cornell.gdiac.honeyHeistCode.StaticLayer;
 import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AIController;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AIGraphModel;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AILevelOfDetail;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.LineOfSightService;
 import edu.cornell.gdiac.honeyHeistCode.models.*;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.BoxObstacle;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.CompoundBody;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import edu.cornell.gdiac.util.FilmStrip;
 import edu.cornell.gdiac.util.PooledList;
 import edu.cornell.gdiac.util.ScreenListener;
 
 import java.util.Iterator;
+import java.util.Random;
 
 /**
  * Gameplay specific controller for the platformer game.
@@ -45,6 +55,18 @@ import java.util.Iterator;
  * place nicely with the static assets.
  */
 public class LevelController implements ContactListener {
+    /**
+     * The time spent in each phase of the steps taken by step, in nanoseconds
+     */
+    public static class StepTimes {
+        /** The time spent checking whether the player fell out of the level */
+        public long preUpdate;
+        /** The time spent on input and AI */
+        public long update;
+        /** The time spent on physics */
+        public long postUpdate;
+    }
+
     /** The texture for walls and platforms */
     protected TextureRegion earthTile;
     /** The texture for honeyPatches */
@@ -116,6 +138,8 @@ public class LevelController implements ContactListener {
     private boolean aIDebug;
     /** Countdown active for winning or losing */
     private int countdown;
+    /** How far (0 to 1) the frame being drawn lies between the last two physics steps */
+    private float interpolation = 1.0f;
 
     /** Whether additional rotations were queued or not */
     private boolean didQueueClockwise = false;
@@ -127,6 +151,54 @@ public class LevelController implements ContactListener {
 
     private boolean transNext = false;
 
+    /** Whether static level geometry is merged into one kinematic body */
+    private boolean compoundGeometry;
+    /** The kinematic body holding the static level geometry (null if not merged) */
+    private CompoundBody levelBody;
+    /** Whether static level geometry is drawn from pictures cached in frame buffers */
+    private boolean staticLayers;
+    /** Whether the canvas counts what it draws, and shows the counts on screen */
+    private boolean renderStats;
+    /** The cached layers of static level geometry (empty until first drawn) */
+    private Array<StaticLayer> layers = new Array<StaticLayer>();
+    /** The layer each obstacle in a cached layer is drawn in */
+    private ObjectMap<Obstacle, StaticLayer> layerOf = new ObjectMap<Obstacle, StaticLayer>();
+
+    /** The rotation mode to use in place of the one chosen by each level (null if none) */
+    private LevelModel.RotationMode rotationModeOverride;
+    /** The strength of gravity in this level, along the screen's vertical axis */
+    private float levelGravity;
+    /** The angle of the screen's horizontal axis in world coordinates */
+    private float frameAngle;
+    /** The frame angle at the start of the last physics step */
+    private float previousFrameAngle;
+    /** Cache for the gravity vector */
+    private final Vector2 gravityCache = new Vector2();
+    /** Cache for the camera transform when the gravity turns */
+    private final Affine2 cameraCache = new Affine2();
+
+    /** The asset directory key of the level data */
+    private String levelKey;
+    /** Source of fresh seeds for the AI random generators */
+    private Random seedSource = new Random();
+    /** The seeds given to the AI controllers at the last reset, in order of creation */
+    private LongArray aiSeeds = new LongArray();
+    /** The seeds to give the AI controllers at the next reset (null for fresh seeds) */
+    private LongArray replaySeeds;
+
+    /** Whether a reset restores the level in place rather than rebuilding the world */
+    private boolean instantReset = true;
+    /** The time the AI may think each tick in microseconds, or -1 for the value in the constants */
+    private long aiBudget = -1;
+    /** The number of threads the AI may think on, or -1 for the value in the constants */
+    private int aiThreads = -1;
+    /** The objects of the level as populated, in order (the objects a snapshot covers) */
+    private Array<Obstacle> populated = new Array<Obstacle>();
+    /** The state of the level as populated, which an instant reset restores (empty if none) */
+    private StateBuffer initialState = new StateBuffer();
+    /** Cache for the objects still in the world when a snapshot is restored */
+    private ObjectSet<Obstacle> liveCache = new ObjectSet<Obstacle>();
+
     /**
      * Returns true if debug mode is active.
      *
@@ -244,6 +316,18 @@ public class LevelController implements ContactListener {
         countdown--;
     }
 
+    /**
+     * Sets the fraction of a physics step left over after the last step.
+     *
+     * Objects are drawn this far between their previous and current transform,
+     * so that motion stays smooth when the frame rate differs from WORLD_STEP.
+     *
+     * @param alpha the leftover fraction of a physics step (0 to 1)
+     */
+    public void setInterpolation(float alpha) {
+        interpolation = alpha;
+    }
+
     /**
      * Returns true if the level is failed.
      *
@@ -269,6 +353,306 @@ public class LevelController implements ContactListener {
         failed = value;
     }
 
+    /**
+     * Returns the Box2D world for the current level
+     *
+     * @return the Box2D world for the current level
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns true if static level geometry is merged into one kinematic body.
+     *
+     * @return true if static level geometry is merged into one kinematic body
+     */
+    public boolean isCompoundGeometry() {
+        return compoundGeometry;
+    }
+
+    /**
+     * Sets whether static level geometry is merged into one kinematic body.
+     *
+     * When set, the platforms, spikes, honey patches, background and goal share a
+     * single kinematic body that turns with an angular velocity during a rotation,
+     * rather than each being teleported every step.  The obstacles still rotate as
+     * before for drawing and AI.  This takes effect the next time the level is reset.
+     * <p>
+     * The moving body sweeps its fixtures through the broadphase, which can create
+     * more contacts than teleporting does.  RotationBenchmark compares the two.
+     *
+     * @param value whether to merge static level geometry into one kinematic body
+     */
+    public void setCompoundGeometry(boolean value) {
+        if (compoundGeometry != value) {
+            initialState.clear();
+        }
+        compoundGeometry = value;
+    }
+
+    /**
+     * Returns true if static level geometry is drawn from cached layers.
+     *
+     * @return true if static level geometry is drawn from cached layers
+     */
+    public boolean isStaticLayers() {
+        return staticLayers;
+    }
+
+    /**
+     * Sets whether static level geometry is drawn from cached layers.
+     *
+     * When set, the background, goal and platforms, and then the honey patches and
+     * spikes, are each drawn into a frame buffer, which is queued as one quad in their
+     * place.  During a rotation the quad turns with the level, and the buffers are
+     * drawn again once the level comes to rest.  The characters and balls are drawn
+     * as before, between the two layers.
+     *
+     * @param value whether to draw static level geometry from cached layers
+     */
+    public void setStaticLayers(boolean value) {
+        staticLayers = value;
+        if (!value) {
+            disposeStaticLayers();
+        }
+    }
+
+    /**
+     * Returns true if the canvas counts what it draws.
+     *
+     * @return true if the canvas counts what it draws
+     */
+    public boolean isRenderStats() {
+        return renderStats;
+    }
+
+    /**
+     * Sets whether the canvas counts what it draws.
+     *
+     * When set, the canvas reports the render calls, passes, texture bindings and
+     * vertices of each frame (see {@link RenderStats}), along with the time spent
+     * drawing the level, and the gameplay screen shows them in its corner.
+     *
+     * @param value whether the canvas counts what it draws
+     */
+    public void setRenderStats(boolean value) {
+        renderStats = value;
+        if (canvas != null) {
+            canvas.setStatsEnabled(value);
+        }
+    }
+
+    /**
+     * Returns the rotation mode used in place of the one chosen by each level.
+     *
+     * @return the rotation mode used in place of the one chosen by each level (null if none)
+     */
+    public LevelModel.RotationMode getRotationMode() {
+        return rotationModeOverride;
+    }
+
+    /**
+     * Sets the rotation mode to use in place of the one chosen by each level.
+     *
+     * A level chooses its mode with the "rotationMode" entry of its data, falling back
+     * to the "rotationMode" default.  Setting this to null restores that choice.  This
+     * takes effect the next time the level is reset.
+     *
+     * @param mode the rotation mode to use for every level (null to let each level choose)
+     */
+    public void setRotationMode(LevelModel.RotationMode mode) {
+        if (rotationModeOverride != mode) {
+            initialState.clear();
+        }
+        rotationModeOverride = mode;
+    }
+
+    /**
+     * Returns true if a reset restores the level in place.
+     *
+     * @return true if a reset restores the level in place
+     */
+    public boolean isInstantReset() {
+        return instantReset;
+    }
+
+    /**
+     * Sets whether a reset restores the level in place.
+     *
+     * When set, the state of every object is saved once the level is populated, and
+     * later resets put that state back into the same Box2D bodies instead of disposing
+     * the world and populating it again.  The level is still rebuilt whenever its data
+     * or settings change.
+     *
+     * @param value whether a reset restores the level in place
+     */
+    public void setInstantReset(boolean value) {
+        instantReset = value;
+        if (!value) {
+            initialState.clear();
+        }
+    }
+
+    /**
+     * Returns the asset directory key of the level data
+     *
+     * @return the asset directory key of the level data
+     */
+    public String getLevelKey() {
+        return levelKey;
+    }
+
+    /**
+     * Returns the seeds given to the AI controllers at the last reset.
+     *
+     * The seeds are in the order the controllers were created, which is the order of
+     * the bees in the level data.  Together with the input of each step, they are all
+     * that is needed to replay an attempt.
+     *
+     * @return the seeds given to the AI controllers at the last reset
+     */
+    public LongArray getAISeeds() {
+        return aiSeeds;
+    }
+
+    /**
+     * Sets the seeds to give the AI controllers at the next reset.
+     *
+     * The seeds are only used once.  If there are fewer seeds than controllers, the
+     * rest get fresh seeds.
+     *
+     * @param seeds the seeds to give the AI controllers (null for fresh seeds)
+     */
+    public void setReplaySeeds(LongArray seeds) {
+        replaySeeds = seeds;
+    }
+
+    /**
+     * Sets the time the AI may think each tick.
+     *
+     * A budget of zero lets every AI think every tick, which keeps runs repeatable.
+     *
+     * @param micros the budget in microseconds, or -1 for the value in the constants
+     */
+    public void setAIBudget(long micros) {
+        aiBudget = micros;
+        if (aIController != null) {
+            applyAIBudget();
+        }
+    }
+
+    /**
+     * Sets the number of threads the AI may think on.
+     *
+     * The AI decides the same on any number of threads, but the headless tools
+     * already run a level on each core.
+     *
+     * @param threads the number of threads (0 for every core), or -1 for the value in the constants
+     */
+    public void setAIThreads(int threads) {
+        aiThreads = threads;
+        if (aIController != null) {
+            applyAIThreads();
+        }
+    }
+
+    /**
+     * Gives the AI the number of threads set for this controller.
+     */
+    private void applyAIThreads() {
+        JsonValue options = constants.get("ai_scheduler");
+        int threads = aiThreads;
+        if (threads < 0) {
+            threads = (options == null ? 1 : options.getInt("threads", 1));
+        }
+        if (threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        aIController.setParallelism(threads, options == null ? 1 : options.getInt("batch", 1));
+    }
+
+    /**
+     * Gives the AI the budget set for this controller.
+     */
+    private void applyAIBudget() {
+        JsonValue options = constants.get("ai_scheduler");
+        long micros = aiBudget;
+        if (micros < 0) {
+            micros = (options == null ? 0 : options.getLong("budget_us", 0));
+        }
+        aIController.setBudget(micros, options == null ? 1 : options.getInt("max_wait_ticks", 1));
+    }
+
+    /**
+     * Gives the AI the tiers of detail set in the constants, if any.
+     */
+    private void applyAILevelOfDetail() {
+        JsonValue options = constants.get("ai_lod");
+        if (options != null) {
+            aIController.setLevelOfDetail(new AILevelOfDetail(options));
+        }
+    }
+
+    /**
+     * Chooses how the AI tests its lines of sight, as set in the constants.
+     */
+    private void applyAILineOfSight() {
+        JsonValue options = constants.get("ai_line_of_sight");
+        if (options == null) {
+            return;
+        }
+        LineOfSightService lineOfSight = aIController.getLineOfSight();
+        lineOfSight.setBackend(LineOfSightService.Backend.fromString(options.getString("backend", "index")), world);
+        lineOfSight.setCacheCellSize(options.getFloat("cache_cell", 0));
+    }
+
+    /**
+     * Reseeds the source of fresh AI seeds.
+     *
+     * Every later reset draws its AI seeds from this source, so two controllers
+     * seeded alike give their AI the same seeds.
+     *
+     * @param seed the seed for the source of fresh AI seeds
+     */
+    public void setSeed(long seed) {
+        seedSource.setSeed(seed);
+    }
+
+    /**
+     * Returns the seed for the next AI controller created by this reset
+     *
+     * @return the seed for the next AI controller
+     */
+    private long nextAISeed() {
+        long seed;
+        if (replaySeeds != null && aiSeeds.size < replaySeeds.size) {
+            seed = replaySeeds.get(aiSeeds.size);
+        } else {
+            seed = seedSource.nextLong();
+        }
+        aiSeeds.add(seed);
+        return seed;
+    }
+
+    /**
+     * Returns the model of the level currently being played
+     *
+     * @return the model of the level currently being played
+     */
+    public LevelModel getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the AI of the level currently being played
+     *
+     * @return the AI of the level currently being played
+     */
+    public AIController getAIController() {
+        return aIController;
+    }
+
     /**
      * Returns true if this is the active screen
      *
@@ -301,6 +685,9 @@ public class LevelController implements ContactListener {
         this.canvas = canvas;
         this.scale.x = canvas.getWidth()/bounds.getWidth();
         this.scale.y = canvas.getHeight()/bounds.getHeight();
+        if (renderStats) {
+            canvas.setStatsEnabled(true);
+        }
     }
 
     /** Player texture and filmstrip */
@@ -436,11 +823,11 @@ public class LevelController implements ContactListener {
      * @param directory Reference to global asset manager.
      */
     public void gatherAssets(AssetDirectory directory, String dataFilePath) {
-        ballTexture      = new TextureRegion(directory.getEntry("platform:ball", Texture.class));
+        ballTexture      = new TextureRegion(directory.getEntry("platform:ball", TextureRegion.class));
 
-        avatarTexture    = new TextureRegion(directory.getEntry("platform:ant", Texture.class));
-        larvaeTexture    = new TextureRegion(directory.getEntry("platform:larvae", Texture.class));
-        flyingBeeTexture = new TextureRegion(directory.getEntry("platform:flyingBee", Texture.class));
+        avatarTexture    = new TextureRegion(directory.getEntry("platform:ant", TextureRegion.class));
+        larvaeTexture    = new TextureRegion(directory.getEntry("platform:larvae", TextureRegion.class));
+        flyingBeeTexture = new TextureRegion(directory.getEntry("platform:flyingBee", TextureRegion.class));
 
         walkingPlayer   = directory.getEntry( "platform:playerWalk.pacing", FilmStrip.class );
         flailingPlayer  = directory.getEntry("platform:playerFlail.pacing", FilmStrip.class);
@@ -458,28 +845,28 @@ public class LevelController implements ContactListener {
 
         levelTransition = directory.getEntry("platform:levelTransition.pacing", FilmStrip.class);
 
-        SpikeULeft  = new TextureRegion(directory.getEntry("platform:spikeULeft", Texture.class));
-        SpikeUMid   = new TextureRegion(directory.getEntry("platform:spikeUMid", Texture.class));
-        SpikeURight = new TextureRegion(directory.getEntry("platform:spikeURight", Texture.class));
-        SpikeMLeft  = new TextureRegion(directory.getEntry("platform:spikeMLeft", Texture.class));
-        SpikeMMid   = new TextureRegion(directory.getEntry("platform:spikeMMid", Texture.class));
-        SpikeMRight = new TextureRegion(directory.getEntry("platform:spikeMRight", Texture.class));
-        SpikeBLeft  = new TextureRegion(directory.getEntry("platform:spikeBLeft", Texture.class));
-        SpikeBMid   = new TextureRegion(directory.getEntry("platform:spikeBMid", Texture.class));
-        SpikeBRight = new TextureRegion(directory.getEntry("platform:spikeBRight", Texture.class));
-
-        ULeft  = new TextureRegion(directory.getEntry("platform:ULeft", Texture.class));
-        UMid   = new TextureRegion(directory.getEntry("platform:UMid", Texture.class));
-        URight = new TextureRegion(directory.getEntry("platform:URight", Texture.class));
-        MLeft  = new TextureRegion(directory.getEntry("platform:MLeft", Texture.class));
-        MMid   = new TextureRegion(directory.getEntry("platform:MMid", Texture.class));
-        MRight = new TextureRegion(directory.getEntry("platform:MRight", Texture.class));
-        BLeft  = new TextureRegion(directory.getEntry("platform:BLeft", Texture.class));
-        BMid   = new TextureRegion(directory.getEntry("platform:BMid", Texture.class));
-        BRight = new TextureRegion(directory.getEntry("platform:BRight", Texture.class));
-
-        platNinePatch  = new NinePatch(directory.getEntry("platform:platNinePatch", Texture.class),  16, 16 ,16 ,16 );
-        spikeNinePatch = new NinePatch(directory.getEntry("platform:spikeNinePatch", Texture.class),  16, 16 ,16 ,16 );
+        SpikeULeft  = new TextureRegion(directory.getEntry("platform:spikeULeft", TextureRegion.class));
+        SpikeUMid   = new TextureRegion(directory.getEntry("platform:spikeUMid", TextureRegion.class));
+        SpikeURight = new TextureRegion(directory.getEntry("platform:spikeURight", TextureRegion.class));
+        SpikeMLeft  = new TextureRegion(directory.getEntry("platform:spikeMLeft", TextureRegion.class));
+        SpikeMMid   = new TextureRegion(directory.getEntry("platform:spikeMMid", TextureRegion.class));
+        SpikeMRight = new TextureRegion(directory.getEntry("platform:spikeMRight", TextureRegion.class));
+        SpikeBLeft  = new TextureRegion(directory.getEntry("platform:spikeBLeft", TextureRegion.class));
+        SpikeBMid   = new TextureRegion(directory.getEntry("platform:spikeBMid", TextureRegion.class));
+        SpikeBRight = new TextureRegion(directory.getEntry("platform:spikeBRight", TextureRegion.class));
+
+        ULeft  = new TextureRegion(directory.getEntry("platform:ULeft", TextureRegion.class));
+        UMid   = new TextureRegion(directory.getEntry("platform:UMid", TextureRegion.class));
+        URight = new TextureRegion(directory.getEntry("platform:URight", TextureRegion.class));
+        MLeft  = new TextureRegion(directory.getEntry("platform:MLeft", TextureRegion.class));
+        MMid   = new TextureRegion(directory.getEntry("platform:MMid", TextureRegion.class));
+        MRight = new TextureRegion(directory.getEntry("platform:MRight", TextureRegion.class));
+        BLeft  = new TextureRegion(directory.getEntry("platform:BLeft", TextureRegion.class));
+        BMid   = new TextureRegion(directory.getEntry("platform:BMid", TextureRegion.class));
+        BRight = new TextureRegion(directory.getEntry("platform:BRight", TextureRegion.class));
+
+        platNinePatch  = new NinePatch(directory.getEntry("platform:platNinePatch", TextureRegion.class),  16, 16 ,16 ,16 );
+        spikeNinePatch = new NinePatch(directory.getEntry("platform:spikeNinePatch", TextureRegion.class),  16, 16 ,16 ,16 );
 
         deathSound = directory.getEntry("audio:soundeffect_death_pixel", SoundBuffer.class);
         trackingSound = directory.getEntry("audio:soundeffect_tracking", SoundBuffer.class);
@@ -487,7 +874,13 @@ public class LevelController implements ContactListener {
         bgm = directory.getEntry("audio:bgm", SoundBuffer.class);
 
         constants = directory.getEntry("platform:constants2", JsonValue.class);
+        compoundGeometry = constants.get("defaults").getBoolean("compoundGeometry", false);
+        staticLayers = constants.get("defaults").getBoolean("staticLayers", false);
+        setRenderStats(constants.get("defaults").getBoolean("renderStats", false));
+        instantReset = constants.get("defaults").getBoolean("instantReset", true);
         System.out.println("DatafilePath = " + dataFilePath);
+        initialState.clear();
+        levelKey = dataFilePath;
         levelData = directory.getEntry(dataFilePath, JsonValue.class);
 //        levelData = directory.getEntry("platform:prototypeLevel", JsonValue.class);
 //        super.gatherAssets(directory);
@@ -496,19 +889,36 @@ public class LevelController implements ContactListener {
         earthTile         = new TextureRegion(directory.getEntry( "shared:earth", Texture.class ));
         honeyPatchTexture = new TextureRegion(directory.getEntry( "shared:honeyPatch", Texture.class ));
         poisonTile        = new TextureRegion(directory.getEntry( "shared:poisonWall", Texture.class));
-        goalTile          = new TextureRegion(directory.getEntry( "shared:goal", Texture.class ));
+        goalTile          = new TextureRegion(directory.getEntry( "shared:goal", TextureRegion.class ));
         background        = new TextureRegion(directory.getEntry( "shared:background",  Texture.class ));
         tilesBackground   = new TextureRegion(directory.getEntry("shared:tilesBackground", Texture.class));
         displayFont       = directory.getEntry( "shared:retro" ,BitmapFont.class);
 
         // This is just for Debugging.
-        whiteSquare = new TextureRegion(directory.getEntry( "shared:whiteSquare", Texture.class ));
+        whiteSquare = new TextureRegion(directory.getEntry( "shared:whiteSquare", TextureRegion.class ));
     }
 
     public void gatherLevelData(AssetDirectory directory, String dataFilePath){
+        initialState.clear();
+        levelKey = dataFilePath;
         levelData = directory.getEntry(dataFilePath, JsonValue.class);
     }
 
+    /**
+     * Sets the level data directly, for levels that are not in the asset directory.
+     * <p>
+     * This is how levels that are still in the editor are played.  The level is
+     * populated at the next reset.
+     *
+     * @param key   The name to report the level by
+     * @param data  The level data, in the same format as the level files
+     */
+    public void setLevelData(String key, JsonValue data) {
+        initialState.clear();
+        levelKey = key;
+        levelData = data;
+    }
+
     /**
      * Dispose of all (non-static) resources allocated to this mode.
      */
@@ -518,6 +928,13 @@ public class LevelController implements ContactListener {
         }
         objects.clear();
         addQueue.clear();
+        populated.clear();
+        initialState.clear();
+        levelBody = null;
+        disposeStaticLayers();
+        if (aIController != null) {
+            aIController.dispose();
+        }
         world.dispose();
         objects = null;
         addQueue = null;
@@ -530,9 +947,44 @@ public class LevelController implements ContactListener {
     /**
      * Resets the status of the game so that we can play again.
      * <p>
-     * This method disposes of the world and creates a new one.
+     * If the level was populated with the same data and settings before, this puts
+     * every object back the way it was populated.  Otherwise it disposes of the world
+     * and creates a new one.
      */
     public void reset() {
+        reset(false);
+    }
+
+    /**
+     * Resets the status of the game so that we can play again.
+     * <p>
+     * A restored level plays the same as a new one, but not bit for bit: Box2D finds
+     * the contacts of the restored bodies in a different order.  So a replay is only
+     * exact from a new world, and a reset with replay seeds always rebuilds.
+     *
+     * @param rebuild whether to create a new world even if the level could be restored
+     */
+    public void reset(boolean rebuild) {
+        if (!rebuild && instantReset && !initialState.isEmpty() && !transNext && replaySeeds == null) {
+            restoreLevel();
+        } else {
+            rebuildLevel();
+        }
+        setComplete(false);
+        setFailure(false);
+        replaySeeds = null;
+        if(bgmId == 1) {
+            bgmId = loopSound(bgm, bgmId);
+        }
+    }
+
+    /**
+     * Disposes of the world and populates a new one.
+     *
+     * If instant resets are on, the new level is saved so that the next reset can
+     * restore it.
+     */
+    private void rebuildLevel() {
         Vector2 gravity = new Vector2(world.getGravity());
 
         for (Obstacle obj : objects) {
@@ -541,17 +993,166 @@ public class LevelController implements ContactListener {
         objects.clear();
         addQueue.clear();
         transition = null;
+        levelBody = null;
+        disposeStaticLayers();
         world.dispose();
         sensorFixtures.clear();
         honeyFixtures.clear();
 
         world = new World(gravity, false);
         world.setContactListener(this);
-        setComplete(false);
-        setFailure(false);
+        aiSeeds.clear();
         populateLevel();
-        if(bgmId == 1) {
-            bgmId = loopSound(bgm, bgmId);
+
+        populated.clear();
+        for (Obstacle obj : objects) {
+            if (obj != transition) {
+                populated.add(obj);
+            }
+        }
+        initialState.clear();
+        if (instantReset) {
+            saveSnapshot(initialState);
+        }
+    }
+
+    /**
+     * Puts every object back the way it was when the level was populated.
+     *
+     * The AI starts over with fresh seeds, as it would on a rebuild.
+     */
+    private void restoreLevel() {
+        restoreSnapshot(initialState);
+
+        int count = aiSeeds.size;
+        aiSeeds.clear();
+        for (int ii = 0; ii < count; ii++) {
+            nextAISeed();
+        }
+        aIController.resetAIControllers(aiSeeds);
+    }
+
+    /**
+     * Saves the state of the level to the buffer, so that restoreSnapshot can return to it.
+     * <p>
+     * A snapshot covers every object the level was populated with (whether or not it
+     * has been removed since), any rotation the player queued, and the state of the
+     * AI.  It does not cover level transitions, the countdown or sounds.  Take
+     * snapshots between steps.
+     * <p>
+     * A snapshot holds values only, so it can be restored into any controller that
+     * populated the same level data with the same settings, not just this one.
+     * Saving costs a few array writes per object, so a search can afford to keep a
+     * snapshot of every state it has yet to explore, and share them among workers.
+     *
+     * @param buffer the buffer to save to (its contents are replaced)
+     */
+    public void saveSnapshot(StateBuffer buffer) {
+        buffer.clear();
+        liveCache.clear();
+        for (Obstacle obj : objects) {
+            liveCache.add(obj);
+        }
+        for (Obstacle obj : populated) {
+            boolean live = liveCache.contains(obj);
+            buffer.putBoolean(live);
+            if (live) {
+                obj.saveState(buffer);
+            }
+        }
+        if (levelBody != null) {
+            levelBody.saveState(buffer);
+        }
+
+        buffer.putBoolean(complete);
+        buffer.putBoolean(failed);
+        buffer.putBoolean(didQueueClockwise);
+        buffer.putBoolean(didQueueCounterClockwise);
+        buffer.putFloat(frameAngle);
+        aIController.saveState(buffer);
+    }
+
+    /**
+     * Returns the level to the state saved in the buffer.
+     * <p>
+     * No body or fixture is created, except for objects that were removed from the
+     * world after the snapshot.  The characters are made inactive while they are
+     * moved, which ends their contacts, so that Box2D finds them again from the
+     * restored positions.  Box2D finds those contacts in its own order, so the level
+     * plays on as it did after the snapshot, but not bit for bit.
+     *
+     * @param buffer a buffer saved by saveSnapshot from a controller populated alike
+     */
+    public void restoreSnapshot(StateBuffer buffer) {
+        buffer.rewind();
+
+        // Anything not in the level as populated (like the transition) goes away
+        liveCache.clear();
+        for (Obstacle obj : objects) {
+            liveCache.add(obj);
+        }
+        for (Obstacle obj : objects) {
+            if (!populated.contains(obj, true)) {
+                obj.deactivatePhysics(world);
+            }
+        }
+        objects.clear();
+        addQueue.clear();
+        transition = null;
+
+        setCharactersActive(false);
+        for (Obstacle obj : populated) {
+            if (buffer.getBoolean()) {
+                if (!liveCache.contains(obj)) {
+                    obj.activatePhysics(world);
+                }
+                obj.restoreState(buffer);
+                objects.add(obj);
+            } else if (liveCache.contains(obj)) {
+                obj.deactivatePhysics(world);
+            }
+        }
+        setCharactersActive(true);
+        if (levelBody != null) {
+            levelBody.restoreState(buffer);
+        }
+
+        complete = buffer.getBoolean();
+        failed = buffer.getBoolean();
+        didQueueClockwise = buffer.getBoolean();
+        didQueueCounterClockwise = buffer.getBoolean();
+        frameAngle = buffer.getFloat();
+        previousFrameAngle = frameAngle;
+        world.setGravity(gravityCache.set(0, levelGravity).rotateRad(frameAngle));
+        sensorFixtures.clear();
+        honeyFixtures.clear();
+        aIController.restoreState(buffer);
+    }
+
+    /**
+     * Sets whether the player, bees and balls take part in the simulation
+     *
+     * @param value whether the characters are active
+     */
+    private void setCharactersActive(boolean value) {
+        setActive(level.getPlayer(), value);
+        for (AbstractBeeModel bee : level.getBees()) {
+            setActive(bee, value);
+        }
+        for (BallModel ball : level.getBalls()) {
+            setActive(ball, value);
+        }
+    }
+
+    /**
+     * Sets whether the given object takes part in the simulation, if it is in the world
+     *
+     * @param obj   The object to change
+     * @param value whether the object is active
+     */
+    private void setActive(Obstacle obj, boolean value) {
+        if (obj.getBody() != null) {
+            obj.setActive(value);
         }
     }
 
@@ -614,6 +1215,7 @@ public class LevelController implements ContactListener {
             levelBackground.setDrawScale(scale);
             levelBackground.setTexture(tilesBackground);
             levelBackground.setSensor(true);
+            levelBackground.setRenderLayer(GameCanvas.RenderLayer.BACKGROUND);
             addObject(levelBackground);
         } else {
             levelBackground = null;
@@ -635,7 +1237,9 @@ public class LevelController implements ContactListener {
         goalDoor.setDrawScale(scale);
         goalDoor.setTexture(goalTile);
         goalDoor.setName("goal");
+        goalDoor.setRenderLayer(GameCanvas.RenderLayer.GEOMETRY);
         addObject(goalDoor);
+        FixtureData.tag(goalDoor, FixtureData.CATEGORY_GOAL, FixtureData.MASK_ALL);
 
 
         // Create the hexagon level
@@ -692,17 +1296,15 @@ public class LevelController implements ContactListener {
                 SpikeBLeft, SpikeBMid, SpikeBRight
         );
         // spikedPlatforms.setAnimationStrip(PlatformModel.PlatformAnimations.SHUFFLE, spikeCenter);
-        //addObject(spikedPlatforms);
 
         // Create honeypatches
         HoneypatchModel honeyPatches = new HoneypatchModel(levelData.get("honeypatchPos"),0.4f, worldCenter);
         honeyPatches.setDrawScale(scale);
         honeyPatches.setTexture(honeyPatchTexture);
-        //dont add yet so that it can overlap
-        //addObject(honeyPatches);
 
         // This world is heavier
-        world.setGravity(new Vector2(0, defaults.getFloat("gravity", 0)));
+        levelGravity = defaults.getFloat("gravity", 0);
+        world.setGravity(new Vector2(0, levelGravity));
 
         // Create player (ant)
         dwidth = avatarTexture.getRegionWidth() / scale.x;
@@ -727,7 +1329,14 @@ public class LevelController implements ContactListener {
         // Init Level Model
         level = new LevelModel(avatar,bees,balls,goalDoor,platforms, spikedPlatforms, honeyPatches, levelBackground, new Rectangle(bounds));
       
-        aIController = new AIController(level);
+        if (aIController != null) {
+            aIController.dispose();
+        }
+        aIController = new AIController(level, levelData.get(AIGraphModel.BAKED_KEY));
+        applyAIBudget();
+        applyAIThreads();
+        applyAILineOfSight();
+        applyAILevelOfDetail();
 
         dwidth = larvaeTexture.getRegionWidth() / scale.x;
         dheight = larvaeTexture.getRegionHeight() / scale.y;
@@ -746,7 +1355,7 @@ public class LevelController implements ContactListener {
             larvae.setIsTrulyDead(false);
             bees.add(larvae);
             addObject(larvae);
-            aIController.createAIForSingleCharacter(larvae, constants.get("GroundedBee").get("ai_controller_options"));
+            aIController.createAIForSingleCharacter(larvae, constants.get("GroundedBee").get("ai_controller_options"), nextAISeed());
         }
 
         JsonValue flyingBeePositions = levelData.get("flyingBeePos");
@@ -763,7 +1372,7 @@ public class LevelController implements ContactListener {
             flyingBee.setIsTrulyDead(false);
             bees.add(flyingBee);
             addObject(flyingBee);
-            aIController.createAIForSingleCharacter(flyingBee, constants.get("FlyingBee").get("ai_controller_options"));
+            aIController.createAIForSingleCharacter(flyingBee, constants.get("FlyingBee").get("ai_controller_options"), nextAISeed());
         }
 
         // Add Balls based on Level data
@@ -783,10 +1392,49 @@ public class LevelController implements ContactListener {
             }
         }
 
-        //establish draw order:
+        // The hazards draw in their own layer, over the characters, wherever they are added.
+        // They are added last so that the bodies are made in the order recorded replays expect.
         addObject(honeyPatches);
         addObject(spikedPlatforms);
 
+        // In gravity mode a rotation only keeps time, and the world turns around the level
+        LevelModel.RotationMode rotationMode = rotationModeOverride;
+        if (rotationMode == null) {
+            rotationMode = LevelModel.RotationMode.fromString(
+                    levelData.getString("rotationMode", defaults.getString("rotationMode", "geometry")));
+        }
+        level.setRotationMode(rotationMode);
+        frameAngle = 0;
+        previousFrameAngle = 0;
+        if (rotationMode == LevelModel.RotationMode.GRAVITY) {
+            platforms.setTurnsWithStage(false);
+            avatar.setTurnsWithStage(false);
+            for (AbstractBeeModel bee : bees) {
+                bee.setTurnsWithStage(false);
+            }
+            for (BallModel ball : balls) {
+                ball.setTurnsWithStage(false);
+            }
+        }
+
+        if (compoundGeometry) {
+            // The platforms come first, so the body follows their rotation
+            levelBody = new CompoundBody(world, level.getOrigin());
+            for (PolygonObstacle obj : platforms.getBodies()) {
+                levelBody.add(obj);
+            }
+            for (PolygonObstacle obj : spikedPlatforms.getBodies()) {
+                levelBody.add(obj);
+            }
+            for (PolygonObstacle obj : honeyPatches.getBodies()) {
+                levelBody.add(obj);
+            }
+            if (levelBackground != null) {
+                levelBody.add(levelBackground);
+            }
+            levelBody.add(goalDoor);
+        }
+
         if(transNext == true) {
             transition = new TransitionModel(level.getOrigin().x, level.getOrigin().y, true);
             transition.setSensor(true);
@@ -841,15 +1489,18 @@ public class LevelController implements ContactListener {
         Array<BallModel> balls = level.getBalls();
         Vector2 origin = level.getOrigin();
 
+        // The platforms keep time for the rotation even when they do not move
         platforms.startRotation(isClockwise, origin);
-        spikedPlatforms.startRotation(isClockwise, origin);
-        level.getHoneyPatches().startRotation(isClockwise,origin);
-        level.getLevelBackground().startRotation(isClockwise,origin);
+        if (level.getRotationMode() == LevelModel.RotationMode.GEOMETRY) {
+            spikedPlatforms.startRotation(isClockwise, origin);
+            level.getHoneyPatches().startRotation(isClockwise,origin);
+            level.getLevelBackground().startRotation(isClockwise,origin);
 
-        level.getGoalDoor().startRotation(isClockwise,origin);
+            level.getGoalDoor().startRotation(isClockwise,origin);
 
-        if(transition != null){
-            transition.startRotation(isClockwise,origin);
+            if(transition != null){
+                transition.startRotation(isClockwise,origin);
+            }
         }
 
         if ((avatar.isGrounded()||avatar.isInHoney())&&platformNotRotating){
@@ -1114,7 +1765,7 @@ public class LevelController implements ContactListener {
             transition.setAnimationStrip(levelTransition);
             transition.setName("transition");
             addQueuedObject(transition);
-            if(platforms.isRotating()) {
+            if(platforms.isRotating() && level.getRotationMode() == LevelModel.RotationMode.GEOMETRY) {
                 float angle = ((float)Math.PI/3 - platforms.getRemainingAngle());
                 if(platforms.isClockwise()) transition.setAngle(angle);
                 else transition.setAngle(-angle);
@@ -1124,6 +1775,60 @@ public class LevelController implements ContactListener {
             transNext = true;
         }
     }
+
+    /**
+     * Advances the level by a single fixed step with the given input, as the game does
+     *
+     * GameplayController only checks whether the player fell out of the level once a
+     * frame, before its steps.  A frame in which the player falls takes no steps, and
+     * the next frame's check passes (as the level has failed), so its steps go ahead.
+     * So the check at the start of a frame only ever sets the failure, and the step
+     * is always taken.  Replays, the simulation farm, the solver and the headless
+     * runner all step through here, so that they agree with the game and each other.
+     *
+     * @param horizontal    The horizontal movement of the player (-1 to 1)
+     * @param didRotate     Whether the clockwise rotation was pressed this step
+     * @param didAntiRotate Whether the anti-clockwise rotation was pressed this step
+     * @param frameStart    Whether this is the first step of a frame
+     */
+    public void step(float horizontal, boolean didRotate, boolean didAntiRotate, boolean frameStart) {
+        step(horizontal, didRotate, didAntiRotate, frameStart, null);
+    }
+
+    /**
+     * Advances the level by a single fixed step with the given input, timing each phase
+     *
+     * @param horizontal    The horizontal movement of the player (-1 to 1)
+     * @param didRotate     Whether the clockwise rotation was pressed this step
+     * @param didAntiRotate Whether the anti-clockwise rotation was pressed this step
+     * @param frameStart    Whether this is the first step of a frame
+     * @param times         The times to add the phases of this step to (null to not time it)
+     */
+    public void step(float horizontal, boolean didRotate, boolean didAntiRotate, boolean frameStart, StepTimes times) {
+        long last = (times == null ? 0 : System.nanoTime());
+        if (frameStart) {
+            preUpdate(true);
+        }
+        if (times != null) {
+            long time = System.nanoTime();
+            times.preUpdate += time - last;
+            last = time;
+        }
+        update(horizontal, didRotate, didAntiRotate);
+        if (getCountdown() > 0) {
+            decreaseCountdown();
+        }
+        if (times != null) {
+            long time = System.nanoTime();
+            times.update += time - last;
+            last = time;
+        }
+        postUpdate(WORLD_STEP);
+        if (times != null) {
+            times.postUpdate += System.nanoTime() - last;
+        }
+    }
+
     /**
      * Processes physics
      *
@@ -1131,7 +1836,10 @@ public class LevelController implements ContactListener {
      * physics.  The primary method is the step() method in world.  This implementation
      * works for all applications and should not need to be overwritten.
      *
-     * @param dt	Number of seconds since last animation frame
+     * Each call advances the world by exactly one WORLD_STEP, so the caller is
+     * responsible for running it as many times as the frame requires.
+     *
+     * @param dt	Length of the fixed step (should be WORLD_STEP)
      */
     public void postUpdate(float dt) {
         // Add any objects created by actions
@@ -1139,6 +1847,12 @@ public class LevelController implements ContactListener {
             addObject(addQueue.poll());
         }
 
+        // Remember where everything started so draw can interpolate.
+        for (Obstacle obj : objects) {
+            obj.storePreviousTransform();
+        }
+        previousFrameAngle = frameAngle;
+
         // Turn the physics engine crank.
         world.step(WORLD_STEP, WORLD_VELOC, WORLD_POSIT);
 
@@ -1157,6 +1871,36 @@ public class LevelController implements ContactListener {
                 obj.update(dt);
             }
         }
+
+        // Turn the merged geometry to where the obstacles were just rotated
+        if (levelBody != null) {
+            levelBody.follow(WORLD_STEP);
+        }
+
+        // Or turn the gravity and the screen instead
+        if (level.getRotationMode() == LevelModel.RotationMode.GRAVITY && level.getFrameAngle() != frameAngle) {
+            setFrameAngle(level.getFrameAngle());
+        }
+    }
+
+    /**
+     * Turns the gravity and the screen axes of every character to the given angle.
+     *
+     * This is how the level rotates in gravity mode.  Gravity points down the screen's
+     * vertical axis, and the characters move and stand upright along the screen's axes.
+     *
+     * @param angle the angle of the screen's horizontal axis in world coordinates
+     */
+    private void setFrameAngle(float angle) {
+        frameAngle = angle;
+        world.setGravity(gravityCache.set(0, levelGravity).rotateRad(angle));
+        level.getPlayer().setFrameAngle(angle);
+        for (AbstractBeeModel bee : level.getBees()) {
+            bee.setFrameAngle(angle);
+        }
+        for (BallModel ball : level.getBalls()) {
+            ball.setFrameAngle(angle);
+        }
     }
 
 
@@ -1166,6 +1910,9 @@ public class LevelController implements ContactListener {
      * This method is called when we first get a collision between two objects.  We use
      * this method to test if it is the "right" kind of collision.  In particular, we
      * use it to test if we made it to the win door.
+     * <p>
+     * Each fixture is classified by the category bits of its filter and the role in its
+     * FixtureData, and the contact is then applied from the point of view of each side.
      *
      * @param contact The two bodies that collided
      */
@@ -1173,167 +1920,169 @@ public class LevelController implements ContactListener {
         Fixture fix1 = contact.getFixtureA();
         Fixture fix2 = contact.getFixtureB();
 
-        Body body1 = fix1.getBody();
-        Body body2 = fix2.getBody();
+        beginContact(fix1, fix2);
+        beginContact(fix2, fix1);
+    }
 
-        Object fd1 = fix1.getUserData();
-        Object fd2 = fix2.getUserData();
+    /**
+     * Applies the start of a collision to the owner of one of the two fixtures
+     *
+     * @param fix   The fixture whose owner reacts to the collision
+     * @param other The fixture it collided with
+     */
+    private void beginContact(Fixture fix, Fixture other) {
+        switch (FixtureData.categoryOf(fix)) {
+            case FixtureData.CATEGORY_PLAYER:
+                beginPlayerContact(fix, other);
+                break;
+            case FixtureData.CATEGORY_BEE:
+                beginBeeContact((AbstractBeeModel) FixtureData.ownerOf(fix), fix, other);
+                break;
+            case FixtureData.CATEGORY_BALL:
+                beginBallContact((BallModel) FixtureData.ownerOf(fix), fix, other);
+                break;
+            default:
+                break;
+        }
+    }
 
+    /**
+     * Applies the start of a collision to the player
+     *
+     * @param fix   The player fixture
+     * @param other The fixture it collided with
+     */
+    private void beginPlayerContact(Fixture fix, Fixture other) {
         PlayerModel avatar = level.getPlayer();
-        Array<AbstractBeeModel> bees = level.getBees();
-        Array<BallModel> balls = level.getBalls();
-        BoxObstacle goalDoor = level.getGoalDoor();
-
-        try {
-            Obstacle bd1 = (Obstacle) body1.getUserData();
-            Obstacle bd2 = (Obstacle) body2.getUserData();
-
-            // See if anything collided with a spikedPlatform
-            boolean bd1isCharacterModel = bd1.getClass().getSuperclass().getSimpleName().equals("CharacterModel") ||
-                    bd1.getClass().getSuperclass().getSuperclass().getSimpleName().equals("CharacterModel");
-            boolean bd2isCharacterModel = bd2.getClass().getSuperclass().getSimpleName().equals("CharacterModel") ||
-                    bd2.getClass().getSuperclass().getSuperclass().getSimpleName().equals("CharacterModel");
-
-            if (((bd1.getName().contains("spiked")) && bd2isCharacterModel) ||
-                bd2.getName().contains("spiked") && bd1isCharacterModel){
-                if ((avatar == bd1 || avatar == bd2) && !isComplete()){
-                    // Player is dead
-                    //System.out.println("PLAYER DIED");
-                    if(!avatar.getIsDead()) {
-                        avatar.setIsDead(true);
-                        avatar.setGrounded(true);
-                        deathId = playSound(deathSound, deathId, 0.1f * this.volume);
-                        setFailure(true);
-                    }
+        boolean feet = FixtureData.roleOf(fix) == FixtureData.Role.GROUND_SENSOR;
+
+        switch (FixtureData.categoryOf(other)) {
+            case FixtureData.CATEGORY_SPIKE:
+            case FixtureData.CATEGORY_BALL:
+                // Spiked platforms and spiked balls are both deadly
+                if (!isComplete() && !avatar.getIsDead()) {
+                    avatar.setIsDead(true);
+                    avatar.setGrounded(true);
+                    deathId = playSound(deathSound, deathId, 0.1f * this.volume);
+                    setFailure(true);
                 }
-                else if (!(avatar == bd1 || avatar == bd2)&&bd1isCharacterModel){
-                    AbstractBeeModel bee = (AbstractBeeModel) bd1;
-                    // System.out.println("ENEMY DIED: "+bee.getSensorName());
-                    if(!bee.getIsDead()) {
-                        bee.setIsDead(true);
-                        bee.setGrounded(true);
-                        deathId = playSound(deathSound, deathId, 0.1f * this.volume);
-                    }
-                    // Marked for removed, moved to the update loop
-                    // enemy is only removed when the death animation finishes playing
-                    // bd1.markRemoved(true);
-                } else if (!(avatar == bd1 || avatar == bd2)&&bd2isCharacterModel){
-                    AbstractBeeModel bee = (AbstractBeeModel) bd2;
-                    // System.out.println("ENEMY DIED: "+bee.getSensorName());
-                    if(!bee.getIsDead()) {
-                        bee.setIsDead(true);
-                        bee.setGrounded(true);
-                        deathId = playSound(deathSound, deathId, 0.1f * this.volume);
-                    }
-                    // Marked for removed, moved to the update loop
-                    // enemy is only removed when the death animation finishes playing
-                    // bd2.markRemoved(true);
+                if (feet && FixtureData.categoryOf(other) == FixtureData.CATEGORY_SPIKE &&
+                        !sensorFixtures.contains(other)) {
+                    avatar.setGrounded(true);
+                    sensorFixtures.add(other); // Could have more than one ground
                 }
-            }
+                break;
+            case FixtureData.CATEGORY_PLATFORM:
+                // See if we have landed on the ground.
+                if (feet && !sensorFixtures.contains(other)) {
+                    avatar.setGrounded(true);
+                    sensorFixtures.add(other); // Could have more than one ground
+                }
+                break;
+            case FixtureData.CATEGORY_HONEY:
+                if (feet && !honeyFixtures.contains(other)) {
+                    avatar.setInHoney(true);
+                    honeyFixtures.add(other);
+                    avatar.setMaxspeed(level.getHoneyPatches().getSlowSpeed());
+                }
+                break;
+            case FixtureData.CATEGORY_BEE:
+                // Check for contact with enemy
+                AbstractBeeModel bee = (AbstractBeeModel) FixtureData.ownerOf(other);
+                if (!isFailure() && !isComplete() && !avatar.getIsDead() && !bee.getIsDead()) {
+                    avatar.setIsDead(true);
+                    deathId = playSound(deathSound, deathId, 0.1f * this.volume);
+                    setFailure(true);
+                }
+                break;
+            case FixtureData.CATEGORY_GOAL:
+                // Check for win condition
+                if (!isComplete()) {
+                    winId = playSound(winSound, winId, 0.5f * volume);
+                    setComplete(true);
+                }
+                break;
+            default:
+                break;
+        }
+    }
 
-            // See if we have landed on the ground.
-            if (((avatar.getSensorName().equals(fd2) && avatar != bd1) && (bd1.getName().contains("platform")) &&
-                        !sensorFixtures.contains(fix1)) ||
-                ((avatar.getSensorName().equals(fd1)&& avatar != bd2) && (bd2.getName().contains("platform")) &&
-                        !sensorFixtures.contains(fix2))) {
-                avatar.setGrounded(true);
-                sensorFixtures.add(avatar == bd1 ? fix2 : fix1); // Could have more than one ground
-            }
-            // ITERATE OVER ALL CHASER BEES
-            for(AbstractBeeModel bee : bees) {
-                if ((((bee.getSensorName().equals(fd2) && bee != bd1)&&(bd1.getName().contains("platform")) &&
-                        !bee.getSensorFixtures().contains(fix1)) ||
-                    ((bee.getSensorName().equals(fd1) && bee != bd2)&&(bd2.getName().contains("platform")) &&
-                        !bee.getSensorFixtures().contains(fix2)))&&bee.getClass() == LarvaeModel.class) {
+    /**
+     * Applies the start of a collision to a bee
+     *
+     * @param bee   The bee that owns the fixture
+     * @param fix   The bee fixture
+     * @param other The fixture it collided with
+     */
+    private void beginBeeContact(AbstractBeeModel bee, Fixture fix, Fixture other) {
+        FixtureData.Role role = FixtureData.roleOf(fix);
+
+        switch (FixtureData.categoryOf(other)) {
+            case FixtureData.CATEGORY_SPIKE:
+            case FixtureData.CATEGORY_BALL:
+                if (!bee.getIsDead()) {
+                    bee.setIsDead(true);
                     bee.setGrounded(true);
-                    bee.getSensorFixtures().add(bee == bd1 ? fix2 : fix1); // Could have more than one ground
+                    deathId = playSound(deathSound, deathId, 0.1f * this.volume);
                 }
-                else if ((((("clipping"+bee.getSensorName()).equals(fd2) && bee != bd1)&&(bd1.getName().contains("platform")) &&
-                        !bee.getSensorFixtures().contains(fix1)) ||
-                        ((("clipping"+bee.getSensorName()).equals(fd1) && bee != bd2)&&(bd2.getName().contains("platform")) &&
-                                !bee.getSensorFixtures().contains(fix2)))&&bee.getClass() == FlyingBeeModel.class) {
+                // Marked for removed, moved to the update loop
+                // enemy is only removed when the death animation finishes playing
+                if (role == bee.getGroundRole() && FixtureData.categoryOf(other) == FixtureData.CATEGORY_SPIKE &&
+                        !bee.getSensorFixtures().contains(other)) {
                     bee.setGrounded(true);
-                    bee.getSensorFixtures().add(bee == bd1 ? fix2 : fix1); // Could have more than one ground
+                    bee.getSensorFixtures().add(other); // Could have more than one ground
                 }
-                if (((bee.getSensorName().equals(fd2) && bee != bd1)&& fix2.isSensor()&&(bd1.getName().contains("honeypatch")) &&
-                        !bee.getHoneyFixtures().contains(fix1)) ||
-                    ((bee.getSensorName().equals(fd1) && bee != bd2)&& fix1.isSensor()&&(bd2.getName().contains("honeypatch"))&&
-                            !bee.getHoneyFixtures().contains(fix2))) {
-                    //System.out.print(bee.getSensorName()+" in honeypatch\n");
-                    //bee.setGrounded(true);
+                break;
+            case FixtureData.CATEGORY_PLATFORM:
+                if (role == bee.getGroundRole() && !bee.getSensorFixtures().contains(other)) {
+                    bee.setGrounded(true);
+                    bee.getSensorFixtures().add(other); // Could have more than one ground
+                }
+                break;
+            case FixtureData.CATEGORY_HONEY:
+                if (role == FixtureData.Role.GROUND_SENSOR && !bee.getHoneyFixtures().contains(other)) {
                     bee.setInHoney(true);
-                    //bee.setHoneyTime(0.5f);
-                    bee.getHoneyFixtures().add(bee == bd1 ? fix2 : fix1); // Could have more than one ground
+                    bee.getHoneyFixtures().add(other);
                     bee.setMaxspeed(level.getHoneyPatches().getSlowSpeed());
                 }
-            }
-            //check if ball is grounded
-            for (BallModel ball : balls) {
-                if (((ball.getSensorName().equals(fd2) && ball != bd1)&&
-                        (bd1.getName().contains("platform")||bd1.getName().contains("spikedplat")) &&
-                        !ball.getSensorFixtures().contains(fix1)) ||
-                    ((ball.getSensorName().equals(fd1) && ball != bd2)&&
-                        (bd2.getName().contains("platform")||bd2.getName().contains("spikedplat")) &&
-                        !ball.getSensorFixtures().contains(fix2))) {
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Applies the start of a collision to a spiked ball
+     *
+     * Contacts between a ball and a character are handled from the side of the character.
+     *
+     * @param ball  The ball that owns the fixture
+     * @param fix   The ball fixture
+     * @param other The fixture it collided with
+     */
+    private void beginBallContact(BallModel ball, Fixture fix, Fixture other) {
+        if (FixtureData.roleOf(fix) != FixtureData.Role.GROUND_SENSOR) {
+            return;
+        }
+
+        switch (FixtureData.categoryOf(other)) {
+            case FixtureData.CATEGORY_SPIKE:
+            case FixtureData.CATEGORY_PLATFORM:
+                if (!ball.getSensorFixtures().contains(other)) {
                     ball.setGrounded(true);
-                    ball.getSensorFixtures().add(ball == bd1 ? fix2 : fix1); // Could have more than one ground
+                    ball.getSensorFixtures().add(other); // Could have more than one ground
                 }
-                if (((ball.getSensorName().equals(fd2) && ball != bd1)&& fix2.isSensor()&&(bd1.getName().contains("honeypatch")) &&
-                //if (((ball.getSensorName().equals(fd2) && ball != bd1)&&(bd1.getName().contains("honeypatch")) &&
-                        !ball.getHoneyFixtures().contains(fix1)) ||
-                        ((ball.getSensorName().equals(fd1) && ball != bd2)&& fix1.isSensor()&&(bd2.getName().contains("honeypatch"))&&
-                        //((ball.getSensorName().equals(fd1) && ball != bd2)&&(bd2.getName().contains("honeypatch"))&&
-                                !ball.getHoneyFixtures().contains(fix2))) {
-                    //System.out.print(bee.getSensorName()+" in honeypatch\n");
-                    //bee.setGrounded(true);
+                break;
+            case FixtureData.CATEGORY_HONEY:
+                if (!ball.getHoneyFixtures().contains(other)) {
                     ball.setInHoney(true);
-                    //bee.setHoneyTime(0.5f);
-                    ball.getHoneyFixtures().add(ball == bd1 ? fix2 : fix1); // Could have more than one ground
-                    System.out.print("honey fixtures: " + ball.getHoneyFixtures().size + "\n");
+                    ball.getHoneyFixtures().add(other);
                     ball.setMaxspeed(level.getHoneyPatches().getSlowSpeed());
                 }
-            }
-
-            // Check for honeypatch
-            if (((avatar.getSensorName().equals(fd2) && avatar != bd1)&& fix2.isSensor() && (bd1.getName().contains("honeypatch"))&&
-                    !honeyFixtures.contains(fix1)) ||
-                ((avatar.getSensorName().equals(fd1) && avatar != bd2)&& fix1.isSensor() && (bd2.getName().contains("honeypatch"))&&
-                        !honeyFixtures.contains(fix2))) {
-                //avatar.setGrounded(true);
-                //System.out.print("honeypatch!\n");
-                avatar.setInHoney(true);
-                //avatar.setHoneyTime(0.5f);
-                honeyFixtures.add(avatar == bd1 ? fix2 : fix1);
-                avatar.setMaxspeed(level.getHoneyPatches().getSlowSpeed());
-            }
-
-            // Check for contact with enemy
-            if (!isFailure() && !isComplete() && !avatar.getIsDead() &&
-                    ((bd1 == avatar && bd2.getClass().getSuperclass() == AbstractBeeModel.class) ||
-                    (bd1.getClass().getSuperclass() == AbstractBeeModel.class && bd2 == avatar))) {
-
-                AbstractBeeModel temp = (bd2.getClass().getSuperclass() == AbstractBeeModel.class ?
-                        (AbstractBeeModel) bd2 : (AbstractBeeModel) bd1);
-
-                if(!temp.getIsDead()) {
-                    avatar.setIsDead(true);
-                    deathId = playSound(deathSound, deathId, 0.1f * this.volume);
-                    if (!isComplete()) {
-                        setFailure(true);
-                    }
-                }
-            }
-
-            // Check for win condition
-            if (((bd1 == avatar && bd2 == goalDoor) ||
-                    (bd1 == goalDoor && bd2 == avatar))&&!isComplete()) {
-                winId = playSound(winSound, winId, 0.5f * volume);
-                setComplete(true);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+                break;
+            default:
+                break;
         }
-
     }
 
     /**
@@ -1347,87 +2096,76 @@ public class LevelController implements ContactListener {
         Fixture fix1 = contact.getFixtureA();
         Fixture fix2 = contact.getFixtureB();
 
-        Body body1 = fix1.getBody();
-        Body body2 = fix2.getBody();
-
-        Object fd1 = fix1.getUserData();
-        Object fd2 = fix2.getUserData();
-
-        //Object bd1 = body1.getUserData();
-        //Object bd2 = body2.getUserData();
+        endContact(fix1, fix2);
+        endContact(fix2, fix1);
+    }
 
-        PlayerModel avatar = level.getPlayer();
-        Array<AbstractBeeModel> bees = level.getBees();
+    /**
+     * Applies the end of a collision to the owner of one of the two fixtures
+     *
+     * Only sensors track what they are touching, so only they need to react.
+     *
+     * @param fix   The fixture whose owner reacts to the collision
+     * @param other The fixture it had collided with
+     */
+    private void endContact(Fixture fix, Fixture other) {
+        FixtureData.Role role = FixtureData.roleOf(fix);
+        if (role == FixtureData.Role.BODY) {
+            return;
+        }
 
-        try {
-            Obstacle bd1 = (Obstacle) body1.getUserData();
-            Obstacle bd2 = (Obstacle) body2.getUserData();
-            if (((avatar.getSensorName().equals(fd2) && avatar != bd1)&&(bd1.getName().contains("platform")))  ||
-                    ((avatar.getSensorName().equals(fd1) && avatar != bd2)&&(bd2.getName().contains("platform")))) {
-                sensorFixtures.remove(avatar == bd1 ? fix2 : fix1);
-                if (sensorFixtures.size == 0) {
-                    avatar.setGrounded(false);
-                }
-            }
-            if (((avatar.getSensorName().equals(fd2) && avatar != bd1)&& fix2.isSensor()&&(bd1.getName().contains("honeypatch")))  ||
-                    ((avatar.getSensorName().equals(fd1)  && avatar != bd2)&& fix1.isSensor()&&(bd2.getName().contains("honeypatch")))) {
-                honeyFixtures.remove(avatar == bd1 ? fix2 : fix1);
-                if(honeyFixtures.size == 0) {
-                    avatar.setDefaultMaxspeed();
-                    avatar.setInHoney(false);
+        short kind = FixtureData.categoryOf(other);
+        boolean ground = kind == FixtureData.CATEGORY_PLATFORM || kind == FixtureData.CATEGORY_SPIKE;
+        boolean honey = kind == FixtureData.CATEGORY_HONEY && role == FixtureData.Role.GROUND_SENSOR;
+
+        switch (FixtureData.categoryOf(fix)) {
+            case FixtureData.CATEGORY_PLAYER:
+                PlayerModel avatar = level.getPlayer();
+                if (ground) {
+                    sensorFixtures.remove(other);
+                    if (sensorFixtures.size == 0) {
+                        avatar.setGrounded(false);
+                    }
+                } else if (honey) {
+                    honeyFixtures.remove(other);
+                    if (honeyFixtures.size == 0) {
+                        avatar.setDefaultMaxspeed();
+                        avatar.setInHoney(false);
+                    }
                 }
-                //if (sensorFixtures.size == 0) {
-                //    avatar.setGrounded(false);
-                //}
-            }
-
-            for(AbstractBeeModel bee : bees) {
-                if ((((bee.getSensorName().equals(fd2)||("clipping"+bee.getSensorName()).equals(fd2))  && bee != bd1)&&(bd1.getName().contains("platform"))) ||
-                        (((bee.getSensorName().equals(fd1)||("clipping"+bee.getSensorName()).equals(fd1)) && bee != bd2)&&(bd2.getName().contains("platform")))) {
-                    bee.getSensorFixtures().remove(bee == bd1 ? fix2 : fix1);
+                break;
+            case FixtureData.CATEGORY_BEE:
+                AbstractBeeModel bee = (AbstractBeeModel) FixtureData.ownerOf(fix);
+                if (ground) {
+                    bee.getSensorFixtures().remove(other);
                     if (bee.getSensorFixtures().size == 0) {
                         bee.setGrounded(false);
                     }
-                }
-                if (((bee.getSensorName().equals(fd2) && bee != bd1)&& fix2.isSensor()&&(bd1.getName().contains("honeypatch"))) ||
-                        ((bee.getSensorName().equals(fd1) && bee != bd2)&& fix1.isSensor()&&(bd2.getName().contains("honeypatch")))) {
-                    bee.getHoneyFixtures().remove(bee == bd1 ? fix2 : fix1);
-                    //System.out.print("exiting honeypatch!\n");
+                } else if (honey) {
+                    bee.getHoneyFixtures().remove(other);
                     if (bee.getHoneyFixtures().size == 0) {
                         bee.setDefaultMaxspeed();
                         bee.setInHoney(false);
                     }
-                    //if (bee.getSensorFixtures().size == 0) {
-                    //    bee.setGrounded(false);
-                    //}
                 }
-            }
-
-            for(BallModel ball : level.getBalls()) {
-                if (((ball.getSensorName().equals(fd2) && ball != bd1)&&
-                        (bd1.getName().contains("platform")||bd1.getName().contains("spikedplat"))) ||
-                        ((ball.getSensorName().equals(fd1) && ball != bd2)&&
-                        (bd2.getName().contains("platform")||bd2.getName().contains("spikedplat")))) {
-                    ball.getSensorFixtures().remove(ball == bd1 ? fix2 : fix1);
+                break;
+            case FixtureData.CATEGORY_BALL:
+                BallModel ball = (BallModel) FixtureData.ownerOf(fix);
+                if (ground) {
+                    ball.getSensorFixtures().remove(other);
                     if (ball.getSensorFixtures().size == 0) {
                         ball.setGrounded(false);
                     }
-                }
-                if (((ball.getSensorName().equals(fd2) && ball != bd1)&& fix2.isSensor()&&(bd1.getName().contains("honeypatch"))) ||
-                        ((ball.getSensorName().equals(fd1) && ball != bd2)&& fix1.isSensor()&&(bd2.getName().contains("honeypatch")))) {
-                    ball.getHoneyFixtures().remove(ball == bd1 ? fix2 : fix1);
-                    //System.out.print("exiting honeypatch!\n");
+                } else if (honey) {
+                    ball.getHoneyFixtures().remove(other);
                     if (ball.getHoneyFixtures().size == 0) {
                         ball.setDefaultMaxspeed();
                         ball.setInHoney(false);
                     }
-                    //if (bee.getSensorFixtures().size == 0) {
-                    //    bee.setGrounded(false);
-                    //}
                 }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+                break;
+            default:
+                break;
         }
     }
 
@@ -1437,18 +2175,46 @@ public class LevelController implements ContactListener {
      * For simple worlds, this method is enough by itself.  It will need
      * to be overriden if the world needs fancy backgrounds or the like.
      *
-     * The method draws all objects in the order that they were added.
+     * The objects are queued on the canvas by their render layer, and drawn layer by
+     * layer.  Within a layer, those sharing a texture are drawn together, and otherwise
+     * in the order that they were added.
      *
      * @param dt	Number of seconds since last animation frame
      */
     public void draw(float dt) {
+        canvas.beginSection("level");
+        boolean turnCamera = level.getRotationMode() == LevelModel.RotationMode.GRAVITY;
+        if (turnCamera) {
+            // Turn the camera opposite to the screen axes, about the level origin
+            float angle = previousFrameAngle + (frameAngle - previousFrameAngle) * interpolation;
+            float ox = level.getOrigin().x * scale.x;
+            float oy = level.getOrigin().y * scale.y;
+            cameraCache.setToTranslation(ox, oy).rotateRad(-angle).translate(-ox, -oy);
+            canvas.end();
+            canvas.begin(cameraCache);
+        }
+        if (staticLayers && layers.size == 0) {
+            createStaticLayers();
+        }
+        for (StaticLayer layer : layers) {
+            layer.setDrawAlpha(interpolation);
+            canvas.queue(layer);
+        }
         for(Obstacle obj : objects) {
-            obj.draw(canvas);
+            if (!layerOf.containsKey(obj)) {
+                obj.setDrawAlpha(interpolation);
+                canvas.queue(obj);
+            }
         }
+        canvas.flushQueue();
         canvas.end();
 
         if (debug) {
-            canvas.beginDebug();
+            if (turnCamera) {
+                canvas.beginDebug(cameraCache);
+            } else {
+                canvas.beginDebug();
+            }
             for(Obstacle obj : objects) {
                 obj.drawDebug(canvas);
             }
@@ -1470,6 +2236,67 @@ public class LevelController implements ContactListener {
             canvas.drawTextCentered("STUNG!", displayFont, 0.0f);
             canvas.end();
         }
+        canvas.endSection("level");
+    }
+
+    /**
+     * Groups the static level geometry into the layers it is drawn from.
+     *
+     * Each layer caches the geometry of a run of render layers that hold nothing else,
+     * and is queued in the first of them.  As nothing is drawn between its obstacles,
+     * this keeps the order everything is drawn in.  Usually the background, goal and
+     * platforms make one layer, and the honey patches and spikes another.
+     * The layers follow the goal, which turns with the level in the geometry mode
+     * and stays put (with the rest of the level) in the gravity mode.
+     */
+    private void createStaticLayers() {
+        ObjectSet<Obstacle> geometry = new ObjectSet<Obstacle>();
+        if (level.getLevelBackground() != null) {
+            geometry.add(level.getLevelBackground());
+        }
+        geometry.add(level.getGoalDoor());
+        geometry.add(level.getPlatforms());
+        geometry.add(level.getHoneyPatches());
+        geometry.add(level.getSpikedPlatforms());
+
+        StaticLayer layer = null;
+        for (GameCanvas.RenderLayer renderLayer : GameCanvas.RenderLayer.values()) {
+            boolean empty = true;
+            boolean cached = true;
+            for (Obstacle obj : objects) {
+                if (obj.getRenderLayer() == renderLayer) {
+                    empty = false;
+                    cached = cached && geometry.contains(obj);
+                }
+            }
+            if (empty) {
+                continue;
+            } else if (!cached) {
+                layer = null;
+                continue;
+            }
+            if (layer == null) {
+                layer = new StaticLayer(renderLayer, level.getGoalDoor(), level.getOrigin(), bounds, scale);
+                layers.add(layer);
+            }
+            for (Obstacle obj : objects) {
+                if (obj.getRenderLayer() == renderLayer) {
+                    layer.add(obj);
+                    layerOf.put(obj, layer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the frame buffers of the cached layers, which are created again when next drawn.
+     */
+    private void disposeStaticLayers() {
+        for (StaticLayer layer : layers) {
+            layer.dispose();
+        }
+        layers.clear();
+        layerOf.clear();
     }
 
     /**
@@ -1507,6 +2334,10 @@ public class LevelController implements ContactListener {
      * @return the new sound instance for this asset.
      */
     public long playSound(SoundBuffer sound, long soundId, float vol) {
+        // Headless runs have no audio device, and so no sounds
+        if (sound == null) {
+            return -1;
+        }
         if (soundId != -1 && sound.isPlaying( soundId )) {
             sound.stop( soundId );
         }
@@ -1520,6 +2351,9 @@ public class LevelController implements ContactListener {
      * @return  the new sound instance
      */
     public long loopSound(SoundBuffer sound, long soundId){
+        if (sound == null) {
+            return -1;
+        }
         if (soundId != -1 && sound.isPlaying (soundId)){
             sound.stop(soundId);
         }
@@ -1530,10 +2364,22 @@ public class LevelController implements ContactListener {
      * Stops all sounds that are playing
      */
     public void stopAllSounds(){
-        bgm.stop(bgmId);
-        deathSound.stop(deathId);
-        trackingSound.stop(trackingId);
-        winSound.stop(winId);
+        stopSound(bgm, bgmId);
+        stopSound(deathSound, deathId);
+        stopSound(trackingSound, trackingId);
+        stopSound(winSound, winId);
+    }
+
+    /**
+     * Stops the given sound instance if the sound asset exists
+     *
+     * @param sound     Sound asset to stop
+     * @param soundId   Sound instance
+     */
+    private void stopSound(SoundBuffer sound, long soundId) {
+        if (sound != null) {
+            sound.stop(soundId);
+        }
     }
 
     /**
@@ -1602,16 +2448,16 @@ public class LevelController implements ContactListener {
      * Pausing happens when we switch game modes.
      */
     public void pause() {
-        if (deathSound.isPlaying(deathId)) {
+        if (deathSound != null && deathSound.isPlaying(deathId)) {
             deathSound.stop(deathId);
         }
-        if (winSound.isPlaying(winId)) {
+        if (winSound != null && winSound.isPlaying(winId)) {
             winSound.stop(winId);
         }
-        if (trackingSound.isPlaying(trackingId)) {
+        if (trackingSound != null && trackingSound.isPlaying(trackingId)) {
             trackingSound.stop(trackingId);
         }
-        if (bgm.isPlaying(bgmId)){
+        if (bgm != null && bgm.isPlaying(bgmId)){
             bgm.stop(bgmId);
         }
     }
@@ -0,0 +1,587 @@
+/*
+ * LevelSolver.java
+ *
+ * Searches the inputs of a level for a way to win it, so that the editor can warn a
+ * designer about a level that cannot be finished before anyone plays it.  The search
+ * is breadth first over short moves (walk left, walk right, wait, or rotate either
+ * way), so the first win it finds uses the fewest moves.  Every state it reaches is
+ * kept as a snapshot of the world, and each move starts from its snapshot instead of
+ * replaying the level from the start.  The states of a layer are spread over every
+ * core.
+ */
+package edu.cornell.gdiac.honeyHeistCode.controllers;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.LongMap;
+import edu.cornell.gdiac.assets.HeadlessAssetDirectory;
+import edu.cornell.gdiac.honeyHeistCode.models.PlayerModel;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Breadth first search for the shortest sequence of moves that wins a level.
+ *
+ * Two states are the same if the player is in the same cell of a grid, with the level
+ * turned the same way, the same grounded status and about the same vertical speed.
+ * Only the first of those to be reached is explored.  This ignores the bees, so the
+ * search is an approximation: a level it calls unsolvable may still be won by timing
+ * the bees differently.  The AI uses fixed seeds, so each search sees the same bees.
+ * <p>
+ * Each worker has its own {@link HeadlessAssetDirectory} and LevelController, for
+ * the same reasons as in {@link SimulationFarm}.  A snapshot holds values only, so
+ * any worker can explore a state that another reached.  Snapshots are restored in
+ * place rather than rebuilt, so a win is checked once more from a new world before
+ * it is reported as verified.
+ */
+public class LevelSolver {
+    /** The number of fixed steps a walk or a wait lasts (a quarter second) */
+    public static final int MOVE_STEPS = 15;
+    /** The most steps a rotation may take to finish */
+    private static final int MAX_ROTATION_STEPS = 120;
+    /** The width and height of a cell of the player position grid */
+    private static final float CELL_SIZE = 0.5f;
+    /** The width of a band of the player's vertical speed */
+    private static final float SPEED_BAND = 4.0f;
+    /** The seed for the AI seeds of every search */
+    private static final long SEED = 0;
+
+    /** Default limit on the states to explore */
+    public static final int DEFAULT_MAX_STATES = 20000;
+    /** Default limit on the moves in a win (a minute of play) */
+    public static final int DEFAULT_MAX_MOVES = 240;
+    /** Default limit on the time to search, in milliseconds */
+    public static final long DEFAULT_TIME_LIMIT = 10000;
+
+    /**
+     * One move of the player.
+     */
+    public enum Move {
+        /** Walk left for MOVE_STEPS */
+        LEFT("L", -1),
+        /** Walk right for MOVE_STEPS */
+        RIGHT("R", 1),
+        /** Stand still for MOVE_STEPS */
+        WAIT("W", 0),
+        /** Rotate the level clockwise, and wait until it stops */
+        CLOCKWISE("CW", 0),
+        /** Rotate the level counterclockwise, and wait until it stops */
+        COUNTER_CLOCKWISE("CCW", 0);
+
+        /** The short name of the move */
+        private final String symbol;
+        /** The horizontal input of the move */
+        private final float horizontal;
+
+        Move(String symbol, float horizontal) {
+            this.symbol = symbol;
+            this.horizontal = horizontal;
+        }
+
+        /**
+         * Returns true if this move rotates the level
+         *
+         * @return true if this move rotates the level
+         */
+        public boolean isRotation() {
+            return this == CLOCKWISE || this == COUNTER_CLOCKWISE;
+        }
+
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    /**
+     * How a search ended.
+     */
+    public enum Outcome {
+        /** A win was found */
+        SOLVED,
+        /** Every reachable state was explored without a win */
+        UNSOLVABLE,
+        /** The search ran out of states, moves or time first */
+        UNKNOWN,
+        /** The level could not be loaded or simulated */
+        ERROR
+    }
+
+    /**
+     * The outcome of a search.
+     */
+    public static class Result {
+        /** The name of the level */
+        public final String level;
+        /** How the search ended */
+        public Outcome outcome;
+        /** The shortest win found (empty unless solved) */
+        public final Array<Move> moves = new Array<Move>();
+        /** The input of every step of the win (null unless solved) */
+        public Replay replay;
+        /** Whether the win was also won when played from a new world */
+        public boolean verified;
+        /** The number of states explored */
+        public int states;
+        /** The number of moves the search looked ahead */
+        public int depth;
+        /** Wall clock time spent searching, in nanoseconds */
+        public long nanos;
+        /** The exception raised while loading or simulating, if any */
+        public RuntimeException error;
+
+        /**
+         * Creates an empty result for the given level
+         *
+         * @param level The name of the level
+         */
+        public Result(String level) {
+            this.level = level;
+        }
+
+        public String toString() {
+            String outcome;
+            switch (this.outcome) {
+                case SOLVED:
+                    outcome = String.format("solved in %d moves, %d steps%s: %s", moves.size, replay.size(),
+                            verified ? "" : " (not verified)", moves.toString(" "));
+                    break;
+                case ERROR:
+                    outcome = "ERROR " + error;
+                    break;
+                default:
+                    outcome = this.outcome.toString().toLowerCase() + " after " + depth + " moves";
+                    break;
+            }
+            return String.format("%-36s %6d states %8.2f ms  %s", level, states, nanos / 1.0e6, outcome);
+        }
+    }
+
+    /**
+     * A state reached by the search.
+     */
+    private static class Node {
+        /** The state this was reached from (null for the start) */
+        final Node parent;
+        /** The move that reached this state */
+        final Move move;
+        /** The number of fixed steps the move took */
+        final int steps;
+        /** The snapshot of the world in this state (null once explored) */
+        StateBuffer snapshot;
+        /** The key of this state (see {@link #key}) */
+        long key;
+
+        Node(Node parent, Move move, int steps) {
+            this.parent = parent;
+            this.move = move;
+            this.steps = steps;
+            snapshot = new StateBuffer();
+        }
+    }
+
+    /** The asset directory of each worker */
+    private final HeadlessAssetDirectory[] directories;
+    /** The pool the workers run on */
+    private final ForkJoinPool pool;
+    /** The limit on the states to explore */
+    private int maxStates = DEFAULT_MAX_STATES;
+    /** The limit on the moves in a win */
+    private int maxMoves = DEFAULT_MAX_MOVES;
+    /** The limit on the time to search, in milliseconds */
+    private long timeLimit = DEFAULT_TIME_LIMIT;
+    /** Whether the search in progress should stop as soon as it can */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a solver that loads levels with the given asset directory
+     *
+     * This must be called on the thread that owns the application.  The directories
+     * create their stub textures here, which needs the GL context if there is one.
+     * After that, searches can run on any thread.
+     *
+     * @param directoryFile The file name of the asset directory
+     * @param parallelism   The number of worker threads
+     */
+    public LevelSolver(String directoryFile, int parallelism) {
+        directories = new HeadlessAssetDirectory[parallelism];
+        for (int ii = 0; ii < parallelism; ii++) {
+            directories[ii] = new HeadlessAssetDirectory(directoryFile);
+            directories[ii].loadAssets();
+            // Gathering creates every texture a controller asks for
+            LevelController controller = create(ii);
+            controller.dispose();
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates a solver that uses every core
+     *
+     * @param directoryFile The file name of the asset directory
+     */
+    public LevelSolver(String directoryFile) {
+        this(directoryFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Sets the limits of a search
+     *
+     * A search that reaches any of these limits ends with {@link Outcome#UNKNOWN}.
+     *
+     * @param maxStates The most states to explore
+     * @param maxMoves  The most moves in a win
+     * @param timeLimit The most time to search, in milliseconds
+     */
+    public void setBudget(int maxStates, int maxMoves, long timeLimit) {
+        this.maxStates = maxStates;
+        this.maxMoves = maxMoves;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Stops the search in progress, if any, as soon as possible
+     *
+     * The search ends with {@link Outcome#UNKNOWN}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Releases the workers and their assets
+     *
+     * This must be called on the thread that owns the application.
+     */
+    public synchronized void dispose() {
+        pool.shutdown();
+        for (HeadlessAssetDirectory directory : directories) {
+            directory.unloadAssets();
+        }
+    }
+
+    /**
+     * Returns the keys of every level in the asset directory, in directory order
+     *
+     * @return the keys of every level in the asset directory
+     */
+    public Array<String> getLevelKeys() {
+        return new HeadlessLevelRunner(directories[0]).getLevelKeys();
+    }
+
+    /**
+     * Searches for a win of a level in the asset directory
+     *
+     * @param levelKey  The asset directory key of the level
+     *
+     * @return the outcome of the search
+     */
+    public Result solve(String levelKey) {
+        return solve(levelKey, null);
+    }
+
+    /**
+     * Searches for a win of the given level data
+     *
+     * Exceptions are captured in the result rather than thrown.  Only one search
+     * runs at a time.
+     *
+     * @param name  The name to report the level by
+     * @param data  The level data (null to read the level named from the directory)
+     *
+     * @return the outcome of the search
+     */
+    public synchronized Result solve(String name, JsonValue data) {
+        Result result = new Result(name);
+        long start = System.nanoTime();
+        cancelled = false;
+        LevelController[] controllers = new LevelController[directories.length];
+        try {
+            for (int ii = 0; ii < controllers.length; ii++) {
+                directories[ii].rewindFilmStrips();
+                controllers[ii] = create(ii);
+                if (data != null) {
+                    controllers[ii].setLevelData(name, data);
+                } else {
+                    controllers[ii].gatherLevelData(directories[ii], name);
+                }
+                controllers[ii].setSeed(SEED);
+                controllers[ii].reset();
+            }
+            Replay replay = new Replay(controllers[0]);
+            search(controllers, result, System.currentTimeMillis() + timeLimit);
+            if (result.outcome == Outcome.SOLVED) {
+                result.replay = replay;
+                verify(controllers[0], result);
+            }
+        } catch (RuntimeException e) {
+            result.outcome = Outcome.ERROR;
+            result.error = e;
+        } finally {
+            for (LevelController controller : controllers) {
+                if (controller != null && controller.world != null) {
+                    controller.dispose();
+                }
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Returns a new controller for the given worker, with its assets gathered
+     *
+     * @param worker    The index of the worker
+     *
+     * @return a new controller for the given worker
+     */
+    private LevelController create(int worker) {
+        LevelController controller = new LevelController();
+        controller.getScale().set(HeadlessLevelRunner.CANVAS_WIDTH / controller.bounds.getWidth(),
+                HeadlessLevelRunner.CANVAS_HEIGHT / controller.bounds.getHeight());
+        controller.setInstantReset(false);
+        controller.gatherAssets(directories[worker], "");
+        controller.setAIBudget(0);
+        controller.setAIThreads(1);
+        return controller;
+    }
+
+    /**
+     * Explores the level layer by layer until a win is found or the budget runs out
+     *
+     * @param controllers   The controller of each worker, with the level populated
+     * @param result        The result to fill in (outcome, moves and counters)
+     * @param deadline      The time to give up, in milliseconds
+     */
+    private void search(final LevelController[] controllers, final Result result, final long deadline) {
+        Node root = new Node(null, null, 0);
+        controllers[0].saveSnapshot(root.snapshot);
+        root.key = key(controllers[0]);
+        LongMap<Node> visited = new LongMap<Node>();
+        visited.put(root.key, root);
+
+        final Move[] moves = Move.values();
+        Array<Node> frontier = new Array<Node>();
+        frontier.add(root);
+        while (frontier.size > 0) {
+            if (result.depth >= maxMoves || result.states >= maxStates ||
+                    System.currentTimeMillis() > deadline || cancelled) {
+                result.outcome = Outcome.UNKNOWN;
+                return;
+            }
+
+            // Explore the layer, each worker taking the next state until none are left
+            final Node[] layer = frontier.toArray(Node.class);
+            final Node[][] children = new Node[layer.length][];
+            final LongMap<Node> seen = visited;
+            final AtomicInteger next = new AtomicInteger();
+            final AtomicBoolean won = new AtomicBoolean();
+            final int limit = Math.min(layer.length, maxStates - result.states);
+            List<Callable<Void>> workers = new ArrayList<Callable<Void>>(controllers.length);
+            for (final LevelController controller : controllers) {
+                workers.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        int index;
+                        while (!won.get() && (index = next.getAndIncrement()) < limit) {
+                            if (System.currentTimeMillis() > deadline || cancelled) {
+                                break;
+                            }
+                            children[index] = expand(controller, layer[index], moves, seen);
+                            for (Node child : children[index]) {
+                                if (child != null && child.snapshot == null) {
+                                    won.set(true);
+                                }
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            try {
+                for (Future<Void> future : pool.invokeAll(workers)) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw (e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() :
+                        new RuntimeException(e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.outcome = Outcome.UNKNOWN;
+                return;
+            }
+            result.depth++;
+
+            // Keep the first child to reach each state, in the order of the layer
+            Node win = null;
+            boolean finished = true;
+            frontier.clear();
+            for (int ii = 0; ii < layer.length; ii++) {
+                if (children[ii] == null) {
+                    finished = false;
+                    continue;
+                }
+                result.states++;
+                layer[ii].snapshot = null;
+                for (Node child : children[ii]) {
+                    if (child == null) {
+                        continue;
+                    } else if (child.snapshot == null) {
+                        // Of the wins in this layer, take the one with the fewest steps
+                        if (win == null || totalSteps(child) < totalSteps(win)) {
+                            win = child;
+                        }
+                    } else if (!visited.containsKey(child.key)) {
+                        visited.put(child.key, child);
+                        frontier.add(child);
+                    }
+                }
+            }
+            if (win != null) {
+                result.outcome = Outcome.SOLVED;
+                for (Node node = win; node.parent != null; node = node.parent) {
+                    result.moves.insert(0, node.move);
+                }
+                return;
+            } else if (!finished) {
+                result.outcome = Outcome.UNKNOWN;
+                return;
+            }
+        }
+        result.outcome = Outcome.UNSOLVABLE;
+    }
+
+    /**
+     * Returns the states reached by each move from the given state
+     *
+     * A move that loses, or that reaches a state already explored, has no child.
+     * A move that wins has a child with no snapshot.
+     *
+     * @param controller    The controller to simulate in
+     * @param node          The state to explore
+     * @param moves         The moves to try
+     * @param visited       The states explored by earlier layers (read only)
+     *
+     * @return the state reached by each move (null where there is none)
+     */
+    private static Node[] expand(LevelController controller, Node node, Move[] moves, LongMap<Node> visited) {
+        Node[] result = new Node[moves.length];
+        for (int ii = 0; ii < moves.length; ii++) {
+            controller.restoreSnapshot(node.snapshot);
+            Move move = moves[ii];
+            int steps = play(controller, move, null);
+            if (controller.isComplete()) {
+                Node win = new Node(node, move, steps);
+                win.snapshot = null;
+                result[ii] = win;
+                return result;
+            } else if (controller.isFailure() || steps < 0) {
+                continue;
+            }
+            long key = key(controller);
+            if (!visited.containsKey(key)) {
+                Node child = new Node(node, move, steps);
+                child.key = key;
+                controller.saveSnapshot(child.snapshot);
+                child.snapshot.shrink();
+                result[ii] = child;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Plays a move, stopping early if the level is won or lost
+     *
+     * @param controller    The controller to advance
+     * @param move          The move to play
+     * @param replay        The replay to record each step to (may be null)
+     *
+     * @return the number of steps played (-1 if a rotation never finished)
+     */
+    private static int play(LevelController controller, Move move, Replay replay) {
+        int steps = 0;
+        boolean rotation = move.isRotation();
+        while (steps < MOVE_STEPS || (rotation && controller.getLevel().getPlatforms().isRotating())) {
+            if (steps >= MAX_ROTATION_STEPS) {
+                return -1;
+            }
+            boolean press = rotation && steps == 0;
+            boolean didRotate = press && move == Move.CLOCKWISE;
+            boolean didAntiRotate = press && move == Move.COUNTER_CLOCKWISE;
+            if (replay != null) {
+                replay.addStep(move.horizontal, didRotate, didAntiRotate, true);
+            }
+            controller.step(move.horizontal, didRotate, didAntiRotate, true);
+            steps++;
+            if (controller.isComplete() || controller.isFailure()) {
+                break;
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Plays the win from a new world, recording its input
+     *
+     * @param controller    A controller with the level loaded
+     * @param result        A solved result, whose replay has the settings and seeds
+     */
+    private static void verify(LevelController controller, Result result) {
+        result.replay.prepare(controller);
+        controller.reset(true);
+        for (Move move : result.moves) {
+            if (play(controller, move, result.replay) < 0 || controller.isFailure()) {
+                break;
+            }
+        }
+        result.verified = controller.isComplete();
+    }
+
+    /**
+     * Returns the total steps of the moves that reach the given state
+     *
+     * @param node  The state reached
+     *
+     * @return the total steps of the moves that reach it
+     */
+    private static int totalSteps(Node node) {
+        int steps = 0;
+        for (; node != null; node = node.parent) {
+            steps += node.steps;
+        }
+        return steps;
+    }
+
+    /**
+     * Returns the key that states are told apart by
+     *
+     * This packs the grid cell of the player, the number of sixths of a turn the
+     * level has made, whether the player is grounded, and the band of the player's
+     * vertical speed.
+     *
+     * @param controller    The controller whose state to key
+     *
+     * @return the key of the current state
+     */
+    private static long key(LevelController controller) {
+        PlayerModel player = controller.getLevel().getPlayer();
+        Vector2 position = player.getPosition();
+        long x = MathUtils.floor(position.x / CELL_SIZE) & 0xffff;
+        long y = MathUtils.floor(position.y / CELL_SIZE) & 0xffff;
+        float turns = controller.getLevel().getPlatforms().getTurnedAngle() / (MathUtils.PI / 3);
+        long orientation = ((MathUtils.round(turns) % 6) + 6) % 6;
+        long grounded = (player.isGrounded() ? 1 : 0);
+        long speed = MathUtils.clamp(MathUtils.round(player.getVY() / SPEED_BAND), -8, 7) & 0xf;
+        return x | (y << 16) | (orientation << 32) | (grounded << 35) | (speed << 36);
+    }
+}
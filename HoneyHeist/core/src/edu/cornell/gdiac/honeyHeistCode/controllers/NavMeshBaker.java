@@ -0,0 +1,267 @@
+/*
+ * NavMeshBaker.java
+ *
+ * Works out which nodes of the AI graph of every level are clear of the platforms
+ * and spikes, in each orientation, and writes it into the level files.  A level
+ * with baked accessibility starts without testing a node against any geometry.
+ * The levels are baked on every core, and only the writing is done one at a time.
+ */
+package edu.cornell.gdiac.honeyHeistCode.controllers;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import edu.cornell.gdiac.assets.HeadlessAssetDirectory;
+import edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers.AIGraphModel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+/**
+ * Bakes the accessibility of the AI graph of each level into its level file.
+ *
+ * Each level is loaded in its own LevelController, as in SimulationFarm, and its
+ * graph is built from the platforms as populated.  The accessibility is stored
+ * under {@link AIGraphModel#BAKED_KEY} on a line of its own at the end of the file,
+ * so the rest of the hand written file is left as it is, and baking again replaces
+ * that line.  The graph checks a hash of the geometry before it trusts the data,
+ * so a level edited after it was baked still works, only without the head start.
+ */
+public class NavMeshBaker {
+    /** Finds the line of an entry baked before */
+    private static final Pattern BAKED_LINE = Pattern.compile("\\n\"" + AIGraphModel.BAKED_KEY + "\"[ \\t]*:.*");
+
+    /**
+     * The accessibility of one level.
+     */
+    public static class Result {
+        /** The asset directory key of the level */
+        public final String level;
+        /** The baked accessibility, as compact JSON */
+        public String baked;
+        /** Whether the level file holds different (or no) accessibility */
+        public boolean stale;
+        /** The number of nodes in the graph */
+        public int nodes;
+        /** Time spent loading and baking, in nanoseconds */
+        public long nanos;
+        /** The exception thrown while baking (or null if none) */
+        public RuntimeException error;
+
+        /**
+         * Creates an empty result for the given level
+         *
+         * @param level The asset directory key of the level
+         */
+        public Result(String level) {
+            this.level = level;
+        }
+
+        /**
+         * Returns true if the level was baked without an exception
+         *
+         * @return true if the level was baked without an exception
+         */
+        public boolean isValid() {
+            return error == null;
+        }
+
+        public String toString() {
+            String status = (error != null ? "BROKEN" : (stale ? "STALE" : "ok"));
+            return String.format("%-36s %-6s %6d nodes  %8.2f ms", level, status, nodes, nanos / 1.0e6);
+        }
+    }
+
+    /** The file name of the asset directory */
+    private String directoryFile;
+    /** The asset directory of the calling thread */
+    private HeadlessAssetDirectory directory;
+    /** The asset directory of each worker thread */
+    private ThreadLocal<HeadlessAssetDirectory> directories;
+    /** The number of worker threads */
+    private int parallelism;
+
+    /**
+     * Creates a baker that loads levels from the given asset directory
+     *
+     * This must be called on the thread that owns the application, as the first
+     * headless directory installs the stub GL that the workers share.
+     *
+     * @param directoryFile The file name of the asset directory
+     * @param parallelism   The number of worker threads
+     */
+    public NavMeshBaker(String directoryFile, int parallelism) {
+        this.directoryFile = directoryFile;
+        this.parallelism = parallelism;
+        directory = new HeadlessAssetDirectory(directoryFile);
+        directory.loadAssets();
+    }
+
+    /**
+     * Creates a baker that uses every core
+     *
+     * @param directoryFile The file name of the asset directory
+     */
+    public NavMeshBaker(String directoryFile) {
+        this(directoryFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the keys of every level in the asset directory, in directory order
+     *
+     * @return the keys of every level in the asset directory
+     */
+    public Array<String> getLevelKeys() {
+        return new HeadlessLevelRunner(directory).getLevelKeys();
+    }
+
+    /**
+     * Bakes every given level and returns their results, without writing anything
+     *
+     * Exceptions are captured in the results rather than thrown.
+     *
+     * @param levels    The asset directory keys of the levels
+     *
+     * @return the result of each level, in the order of the levels
+     */
+    public Array<Result> bake(Array<String> levels) {
+        Result[] results = new Result[levels.size];
+        if (levels.size > 0) {
+            directories = new ThreadLocal<HeadlessAssetDirectory>() {
+                @Override
+                protected HeadlessAssetDirectory initialValue() {
+                    HeadlessAssetDirectory directory = new HeadlessAssetDirectory(directoryFile);
+                    directory.loadAssets();
+                    return directory;
+                }
+            };
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new Shard(levels, results, 0, levels.size));
+            } finally {
+                pool.shutdown();
+                directories = null;
+            }
+        }
+        return new Array<Result>(results);
+    }
+
+    /**
+     * Writes the accessibility of every stale level into its level file
+     *
+     * The files are found through the "jsons" of the asset directory file, and
+     * written relative to the working directory, which should be the assets folder.
+     *
+     * @param results   The results of bake
+     *
+     * @return the number of level files written
+     */
+    public int write(Array<Result> results) {
+        JsonValue files = new JsonReader().parse(Gdx.files.internal(directoryFile)).get("jsons");
+        int written = 0;
+        for (Result result : results) {
+            if (!result.isValid() || !result.stale) {
+                continue;
+            }
+            FileHandle file = Gdx.files.local(files.getString(result.level));
+            file.writeString(withBakedData(file.readString(), result.baked), false);
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Returns the text of a level file with the given accessibility in place of any baked before
+     *
+     * @param text      The text of the level file
+     * @param baked     The baked accessibility, as compact JSON
+     *
+     * @return the text of the level file with the accessibility at its end
+     */
+    static String withBakedData(String text, String baked) {
+        text = BAKED_LINE.matcher(text).replaceAll("");
+        int close = text.lastIndexOf('}');
+        int last = close - 1;
+        while (last >= 0 && Character.isWhitespace(text.charAt(last))) {
+            last--;
+        }
+        char end = text.charAt(last);
+        String separator = (end == ',' || end == '{' ? "" : ",");
+        return text.substring(0, last + 1) + separator + "\n\"" + AIGraphModel.BAKED_KEY + "\": " + baked + "\n" +
+                text.substring(close);
+    }
+
+    /**
+     * Bakes a single level on the calling thread
+     *
+     * @param directory The asset directory of the calling thread
+     * @param level     The asset directory key of the level
+     *
+     * @return the result of the level
+     */
+    private static Result bakeLevel(HeadlessAssetDirectory directory, String level) {
+        Result result = new Result(level);
+        long start = System.nanoTime();
+        LevelController controller = null;
+        try {
+            controller = new HeadlessLevelRunner(directory).load(level);
+            AIGraphModel graph = new AIGraphModel(controller.getLevel(), null);
+            result.nodes = graph.getNodeCount();
+            result.baked = graph.bake().toJson(JsonWriter.OutputType.json);
+            JsonValue old = directory.getEntry(level, JsonValue.class).get(AIGraphModel.BAKED_KEY);
+            result.stale = (old == null || !old.toJson(JsonWriter.OutputType.json).equals(result.baked));
+        } catch (RuntimeException e) {
+            result.error = e;
+        } finally {
+            if (controller != null && controller.world != null) {
+                controller.dispose();
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * A range of levels, split in half until each piece is a single level.
+     */
+    @SuppressWarnings("serial")
+    private class Shard extends RecursiveAction {
+        /** All of the levels */
+        private final Array<String> levels;
+        /** Where to put the result of each level */
+        private final Result[] results;
+        /** The first level of this shard */
+        private final int begin;
+        /** One past the last level of this shard */
+        private final int end;
+
+        /**
+         * Creates a shard of the given levels
+         *
+         * @param levels    All of the levels
+         * @param results   Where to put the result of each level
+         * @param begin     The first level of this shard
+         * @param end       One past the last level of this shard
+         */
+        Shard(Array<String> levels, Result[] results, int begin, int end) {
+            this.levels = levels;
+            this.results = results;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - begin == 1) {
+                results[begin] = bakeLevel(directories.get(), levels.get(begin));
+            } else {
+                int middle = (begin + end) >>> 1;
+                invokeAll(new Shard(levels, results, begin, middle), new Shard(levels, results, middle, end));
+            }
+        }
+    }
+}
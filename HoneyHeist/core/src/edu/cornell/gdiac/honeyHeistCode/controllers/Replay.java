@@ -0,0 +1,359 @@
+/*
+ * Replay.java
+ *
+ * A recording of one attempt at a level: the settings and AI seeds it started with,
+ * and the input of every fixed step.  Since the simulation only ever advances in
+ * fixed steps, feeding the same input back into a freshly reset LevelController
+ * reproduces the attempt bit for bit.  That makes replays useful for reproducing
+ * bugs and as fixed workloads for profiling.
+ */
+package edu.cornell.gdiac.honeyHeistCode.controllers;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.LongArray;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+
+import java.io.*;
+
+/**
+ * The input and seeds of one attempt at a level, with a compact binary format.
+ *
+ * The file starts with a header (magic number, version, level key, settings and AI
+ * seeds) followed by one flag byte per step.  The horizontal input only follows the
+ * flag byte on the steps where it changes, so a typical step costs one byte.
+ */
+public class Replay {
+    /** The extension used for replay files */
+    public static final String EXTENSION = "hhr";
+
+    /** Marks the start of a replay file ("HHRP") */
+    private static final int MAGIC = 0x48485250;
+    /** The version of the file format */
+    private static final byte VERSION = 1;
+
+    /** Option bit for merged level geometry */
+    private static final int OPTION_COMPOUND = 0x1;
+    /** Option bit for gravity rotation */
+    private static final int OPTION_GRAVITY  = 0x2;
+
+    /** Step bit for a clockwise rotation press */
+    private static final int STEP_ROTATE      = 0x1;
+    /** Step bit for an anti-clockwise rotation press */
+    private static final int STEP_ANTI_ROTATE = 0x2;
+    /** Step bit for the first step of a frame */
+    private static final int STEP_FRAME_START = 0x4;
+    /** Step bit for a change in horizontal input (the new value follows) */
+    private static final int STEP_HORIZONTAL  = 0x8;
+
+    /** The asset directory key of the level */
+    private String levelKey;
+    /** Whether the level geometry was merged into one kinematic body */
+    private boolean compoundGeometry;
+    /** How the level turned */
+    private LevelModel.RotationMode rotationMode;
+    /** The seeds of the AI random generators, in the order they were created */
+    private LongArray seeds;
+    /** The horizontal input of each step */
+    private FloatArray horizontal;
+    /** The buttons of each step (STEP_ROTATE, STEP_ANTI_ROTATE, STEP_FRAME_START) */
+    private ByteArray buttons;
+
+    /**
+     * Creates an empty replay of the given level with the given settings
+     *
+     * @param levelKey          The asset directory key of the level
+     * @param compoundGeometry  Whether the level geometry is merged into one body
+     * @param rotationMode      How the level turns
+     */
+    public Replay(String levelKey, boolean compoundGeometry, LevelModel.RotationMode rotationMode) {
+        this.levelKey = levelKey;
+        this.compoundGeometry = compoundGeometry;
+        this.rotationMode = rotationMode;
+        seeds = new LongArray();
+        horizontal = new FloatArray();
+        buttons = new ByteArray();
+    }
+
+    /**
+     * Creates an empty replay of the level the controller was just reset to
+     *
+     * The replay takes the settings and AI seeds of that reset.
+     *
+     * @param controller    The controller that was just reset
+     */
+    public Replay(LevelController controller) {
+        this(controller.getLevelKey(), controller.isCompoundGeometry(), controller.getLevel().getRotationMode());
+        seeds.addAll(controller.getAISeeds());
+    }
+
+    /**
+     * Returns the asset directory key of the level
+     *
+     * @return the asset directory key of the level
+     */
+    public String getLevelKey() {
+        return levelKey;
+    }
+
+    /**
+     * Returns true if the level geometry was merged into one kinematic body
+     *
+     * @return true if the level geometry was merged into one kinematic body
+     */
+    public boolean isCompoundGeometry() {
+        return compoundGeometry;
+    }
+
+    /**
+     * Returns how the level turned
+     *
+     * @return how the level turned
+     */
+    public LevelModel.RotationMode getRotationMode() {
+        return rotationMode;
+    }
+
+    /**
+     * Returns the seeds of the AI random generators, in the order they were created
+     *
+     * @return the seeds of the AI random generators
+     */
+    public LongArray getSeeds() {
+        return seeds;
+    }
+
+    /**
+     * Returns the number of recorded steps
+     *
+     * @return the number of recorded steps
+     */
+    public int size() {
+        return buttons.size;
+    }
+
+    /**
+     * Records the input of the next step
+     *
+     * @param horizontal    The horizontal movement of the player (-1 to 1)
+     * @param didRotate     Whether the clockwise rotation was pressed this step
+     * @param didAntiRotate Whether the anti-clockwise rotation was pressed this step
+     * @param frameStart    Whether this is the first step of a frame
+     */
+    public void addStep(float horizontal, boolean didRotate, boolean didAntiRotate, boolean frameStart) {
+        int flags = 0;
+        if (didRotate) {
+            flags |= STEP_ROTATE;
+        }
+        if (didAntiRotate) {
+            flags |= STEP_ANTI_ROTATE;
+        }
+        if (frameStart) {
+            flags |= STEP_FRAME_START;
+        }
+        this.horizontal.add(horizontal);
+        buttons.add((byte) flags);
+    }
+
+    /**
+     * Returns the horizontal input of the given step
+     *
+     * @param step  The index of the step
+     * @return the horizontal input of the given step
+     */
+    public float getHorizontal(int step) {
+        return horizontal.get(step);
+    }
+
+    /**
+     * Returns true if the clockwise rotation was pressed on the given step
+     *
+     * @param step  The index of the step
+     * @return true if the clockwise rotation was pressed on the given step
+     */
+    public boolean didRotate(int step) {
+        return (buttons.get(step) & STEP_ROTATE) != 0;
+    }
+
+    /**
+     * Returns true if the anti-clockwise rotation was pressed on the given step
+     *
+     * @param step  The index of the step
+     * @return true if the anti-clockwise rotation was pressed on the given step
+     */
+    public boolean didAntiRotate(int step) {
+        return (buttons.get(step) & STEP_ANTI_ROTATE) != 0;
+    }
+
+    /**
+     * Returns true if the given step was the first of its frame
+     *
+     * GameplayController only checks whether the player fell out of the level once a
+     * frame, so a replay has to do the same to fail on the same step.
+     *
+     * @param step  The index of the step
+     * @return true if the given step was the first of its frame
+     */
+    public boolean isFrameStart(int step) {
+        return (buttons.get(step) & STEP_FRAME_START) != 0;
+    }
+
+    /**
+     * Sets the controller up to play this replay at its next reset
+     *
+     * This applies the recorded settings and AI seeds, and lets every AI think every
+     * tick, as a budget of time would choose differently from one run to the next.
+     * The settings stay in effect after the replay, so restore them if the controller
+     * is used for live play.
+     *
+     * @param controller    The controller to play this replay
+     */
+    public void prepare(LevelController controller) {
+        controller.setCompoundGeometry(compoundGeometry);
+        controller.setRotationMode(rotationMode);
+        controller.setReplaySeeds(seeds);
+        controller.setAIBudget(0);
+    }
+
+    /**
+     * Advances the controller by the given recorded step
+     *
+     * This is exactly what GameplayController does for one fixed step (see
+     * LevelController.step).  The controller must have been prepared and reset,
+     * and have played every earlier step.
+     *
+     * @param controller    The controller playing this replay
+     * @param step          The index of the step
+     */
+    public void play(LevelController controller, int step) {
+        controller.step(getHorizontal(step), didRotate(step), didAntiRotate(step), isFrameStart(step));
+    }
+
+    /**
+     * Writes this replay in the binary format
+     *
+     * @param stream    The stream to write to (left open)
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(levelKey);
+        int options = 0;
+        if (compoundGeometry) {
+            options |= OPTION_COMPOUND;
+        }
+        if (rotationMode == LevelModel.RotationMode.GRAVITY) {
+            options |= OPTION_GRAVITY;
+        }
+        out.writeByte(options);
+
+        out.writeInt(seeds.size);
+        for (int ii = 0; ii < seeds.size; ii++) {
+            out.writeLong(seeds.get(ii));
+        }
+
+        out.writeInt(size());
+        float last = 0;
+        for (int ii = 0; ii < size(); ii++) {
+            float value = horizontal.get(ii);
+            boolean changed = Float.floatToRawIntBits(value) != Float.floatToRawIntBits(last);
+            out.writeByte(buttons.get(ii) | (changed ? STEP_HORIZONTAL : 0));
+            if (changed) {
+                out.writeFloat(value);
+                last = value;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a replay in the binary format
+     *
+     * @param stream    The stream to read from (left open)
+     *
+     * @return the replay that was read
+     *
+     * @throws IOException if the stream cannot be read or is not a replay
+     */
+    public static Replay read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a replay file");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        String key = in.readUTF();
+        int options = in.readByte();
+        Replay replay = new Replay(key, (options & OPTION_COMPOUND) != 0,
+                (options & OPTION_GRAVITY) != 0 ? LevelModel.RotationMode.GRAVITY : LevelModel.RotationMode.GEOMETRY);
+
+        int count = in.readInt();
+        replay.seeds.ensureCapacity(count);
+        for (int ii = 0; ii < count; ii++) {
+            replay.seeds.add(in.readLong());
+        }
+
+        count = in.readInt();
+        replay.horizontal.ensureCapacity(count);
+        replay.buttons.ensureCapacity(count);
+        float last = 0;
+        for (int ii = 0; ii < count; ii++) {
+            int flags = in.readByte();
+            if ((flags & STEP_HORIZONTAL) != 0) {
+                last = in.readFloat();
+            }
+            replay.horizontal.add(last);
+            replay.buttons.add((byte) (flags & ~STEP_HORIZONTAL));
+        }
+        return replay;
+    }
+
+    /**
+     * Saves this replay to the given file
+     *
+     * @param file  The file to write
+     */
+    public void save(FileHandle file) {
+        OutputStream stream = new BufferedOutputStream(file.write(false));
+        try {
+            write(stream);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing replay " + file, e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Nothing left to flush
+            }
+        }
+    }
+
+    /**
+     * Returns the replay stored in the given file
+     *
+     * @param file  The file to read
+     *
+     * @return the replay stored in the given file
+     */
+    public static Replay load(FileHandle file) {
+        InputStream stream = new BufferedInputStream(file.read());
+        try {
+            return read(stream);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error reading replay " + file, e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Nothing to release
+            }
+        }
+    }
+}
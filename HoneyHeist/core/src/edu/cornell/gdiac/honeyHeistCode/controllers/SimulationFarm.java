@@ -0,0 +1,391 @@
+/*
+ * SimulationFarm.java
+ *
+ * Runs many independent level simulations at once, each in its own Box2D world, on
+ * every core.  A job is a level and a seed.  The seed fixes the AI and, when fuzzing,
+ * the input, so any job can be run again on its own and behave the same.  This is
+ * what soak tests, checking every level and replay fuzzing run on, where one level
+ * at a time on one core is far too slow.
+ */
+package edu.cornell.gdiac.honeyHeistCode.controllers;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.OrderedMap;
+import edu.cornell.gdiac.assets.HeadlessAssetDirectory;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Shards level simulations over a ForkJoinPool and aggregates their results.
+ *
+ * Most of the game is not thread safe, so nothing mutable is shared between jobs:
+ * <ul>
+ * <li>Each worker thread has its own {@link HeadlessAssetDirectory}, whose film
+ * strips are rewound before every job.  The directory caches assets without
+ * locking, and the models advance the shared film strips as they animate.</li>
+ * <li>Each job has its own LevelController, and so its own World.</li>
+ * <li>Input comes from each job's own script, never from the {@link InputController}
+ * singleton, which reads the one global Gdx.input.</li>
+ * <li>The triangulator in PolygonObstacle is kept per thread.</li>
+ * </ul>
+ * So the result of a job does not depend on the worker that ran it, or on what
+ * that worker ran before.
+ */
+public class SimulationFarm {
+    /** The fewest steps the fuzzed input holds a horizontal direction */
+    private static final int FUZZ_MIN_HOLD = 10;
+    /** The most steps the fuzzed input holds a horizontal direction */
+    private static final int FUZZ_MAX_HOLD = 90;
+    /** The chance that the fuzzed input presses a rotation on a step */
+    private static final float FUZZ_ROTATE_CHANCE = 1 / 120.0f;
+
+    /**
+     * One level simulation to run.
+     */
+    public static class Job {
+        /** The asset directory key of the level */
+        public final String level;
+        /** The seed for the AI and the fuzzed input */
+        public final long seed;
+        /** The maximum number of fixed steps to simulate */
+        public final int maxSteps;
+        /** Whether to drive the player with random input (otherwise no input) */
+        public final boolean fuzz;
+
+        /**
+         * Creates a job for the given level and seed
+         *
+         * @param level     The asset directory key of the level
+         * @param seed      The seed for the AI and the fuzzed input
+         * @param maxSteps  The maximum number of fixed steps to simulate
+         * @param fuzz      Whether to drive the player with random input
+         */
+        public Job(String level, long seed, int maxSteps, boolean fuzz) {
+            this.level = level;
+            this.seed = seed;
+            this.maxSteps = maxSteps;
+            this.fuzz = fuzz;
+        }
+    }
+
+    /**
+     * The outcome of one job, with the time spent in each phase of the loop.
+     */
+    public static class Result extends HeadlessLevelRunner.Result {
+        /** The seed of the job */
+        public final long seed;
+        /** Time spent creating and populating the level, in nanoseconds */
+        public long loadNanos;
+        /** Time spent in preUpdate, in nanoseconds */
+        public long preUpdateNanos;
+        /** Time spent in update (input, AI and forces), in nanoseconds */
+        public long updateNanos;
+        /** Time spent in postUpdate (the physics step), in nanoseconds */
+        public long postUpdateNanos;
+        /** The input and seeds of the job, which replay it exactly */
+        public Replay replay;
+
+        /**
+         * Creates an empty result for the given job
+         *
+         * @param job   The job this is the result of
+         */
+        public Result(Job job) {
+            super(job.level);
+            this.seed = job.seed;
+        }
+
+        public String toString() {
+            return super.toString() + String.format("  seed %d", seed);
+        }
+    }
+
+    /**
+     * The aggregate of several results.
+     */
+    public static class Summary {
+        /** The number of jobs */
+        public int jobs;
+        /** The number of jobs where the player reached the goal */
+        public int complete;
+        /** The number of jobs where the player died */
+        public int failed;
+        /** The number of jobs that threw an exception */
+        public int broken;
+        /** The total steps of the jobs that reached the goal */
+        public long stepsToComplete;
+        /** The fewest steps of a job that reached the goal */
+        public int minStepsToComplete = Integer.MAX_VALUE;
+        /** The total steps of every job */
+        public long steps;
+        /** The total time spent loading, in nanoseconds */
+        public long loadNanos;
+        /** The total time spent in preUpdate, in nanoseconds */
+        public long preUpdateNanos;
+        /** The total time spent in update, in nanoseconds */
+        public long updateNanos;
+        /** The total time spent in postUpdate, in nanoseconds */
+        public long postUpdateNanos;
+
+        /**
+         * Adds a result to this summary
+         *
+         * @param result    The result to add
+         */
+        public void add(Result result) {
+            jobs++;
+            if (!result.isValid()) {
+                broken++;
+            } else if (result.complete) {
+                complete++;
+                stepsToComplete += result.steps;
+                minStepsToComplete = Math.min(minStepsToComplete, result.steps);
+            } else if (result.failed) {
+                failed++;
+            }
+            steps += result.steps;
+            loadNanos += result.loadNanos;
+            preUpdateNanos += result.preUpdateNanos;
+            updateNanos += result.updateNanos;
+            postUpdateNanos += result.postUpdateNanos;
+        }
+
+        public String toString() {
+            String toComplete = (complete == 0 ? "-" : String.format("%.0f (min %d)",
+                    stepsToComplete / (double) complete, minStepsToComplete));
+            double perStep = Math.max(steps, 1) * 1000.0;
+            return String.format("%5d jobs  %4d complete  %4d failed  %4d broken  steps to complete %-14s" +
+                            "  load %.2f ms  per step: pre %.2f us  update %.2f us  post %.2f us",
+                    jobs, complete, failed, broken, toComplete, loadNanos / Math.max(jobs, 1) / 1.0e6,
+                    preUpdateNanos / perStep, updateNanos / perStep, postUpdateNanos / perStep);
+        }
+    }
+
+    /** The file name of the asset directory */
+    private String directoryFile;
+    /** The asset directory of the calling thread */
+    private HeadlessAssetDirectory directory;
+    /** The asset directory of each worker thread */
+    private ThreadLocal<HeadlessAssetDirectory> directories;
+    /** The number of worker threads */
+    private int parallelism;
+
+    /**
+     * Creates a farm that loads levels from the given asset directory
+     *
+     * This must be called on the thread that owns the application, as the first
+     * headless directory installs the stub GL that the workers share.
+     *
+     * @param directoryFile The file name of the asset directory
+     * @param parallelism   The number of worker threads
+     */
+    public SimulationFarm(String directoryFile, int parallelism) {
+        this.directoryFile = directoryFile;
+        this.parallelism = parallelism;
+        directory = new HeadlessAssetDirectory(directoryFile);
+        directory.loadAssets();
+    }
+
+    /**
+     * Creates a farm that uses every core
+     *
+     * @param directoryFile The file name of the asset directory
+     */
+    public SimulationFarm(String directoryFile) {
+        this(directoryFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the keys of every level in the asset directory, in directory order
+     *
+     * @return the keys of every level in the asset directory
+     */
+    public Array<String> getLevelKeys() {
+        return new HeadlessLevelRunner(directory).getLevelKeys();
+    }
+
+    /**
+     * Returns one job for every pair of level and seed
+     *
+     * @param levels    The asset directory keys of the levels
+     * @param seeds     The number of seeds per level (seeds 0 to seeds-1)
+     * @param maxSteps  The maximum number of fixed steps per job
+     * @param fuzz      Whether to drive the player with random input
+     *
+     * @return one job for every pair of level and seed, by level and then seed
+     */
+    public static Array<Job> jobs(Array<String> levels, int seeds, int maxSteps, boolean fuzz) {
+        Array<Job> result = new Array<Job>(levels.size * seeds);
+        for (String level : levels) {
+            for (int seed = 0; seed < seeds; seed++) {
+                result.add(new Job(level, seed, maxSteps, fuzz));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs every job and returns their results
+     *
+     * Exceptions are captured in the results rather than thrown.
+     *
+     * @param jobs  The jobs to run
+     *
+     * @return the result of each job, in the order of the jobs
+     */
+    public Array<Result> run(Array<Job> jobs) {
+        Result[] results = new Result[jobs.size];
+        if (jobs.size > 0) {
+            directories = new ThreadLocal<HeadlessAssetDirectory>() {
+                @Override
+                protected HeadlessAssetDirectory initialValue() {
+                    HeadlessAssetDirectory directory = new HeadlessAssetDirectory(directoryFile);
+                    directory.loadAssets();
+                    return directory;
+                }
+            };
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new Shard(jobs, results, 0, jobs.size));
+            } finally {
+                pool.shutdown();
+                directories = null;
+            }
+        }
+        return new Array<Result>(results);
+    }
+
+    /**
+     * Returns the summary of each level, in the order the levels first appear
+     *
+     * @param results   The results to summarize
+     *
+     * @return the summary of each level
+     */
+    public static OrderedMap<String, Summary> summarizeByLevel(Array<Result> results) {
+        OrderedMap<String, Summary> summaries = new OrderedMap<String, Summary>();
+        for (Result result : results) {
+            Summary summary = summaries.get(result.level);
+            if (summary == null) {
+                summary = new Summary();
+                summaries.put(result.level, summary);
+            }
+            summary.add(result);
+        }
+        return summaries;
+    }
+
+    /**
+     * Returns the summary of every result
+     *
+     * @param results   The results to summarize
+     *
+     * @return the summary of every result
+     */
+    public static Summary summarize(Array<Result> results) {
+        Summary summary = new Summary();
+        for (Result result : results) {
+            summary.add(result);
+        }
+        return summary;
+    }
+
+    /**
+     * Runs a single job on the calling thread
+     *
+     * @param directory The asset directory of the calling thread
+     * @param job       The job to run
+     *
+     * @return the result of the job
+     */
+    private static Result runJob(HeadlessAssetDirectory directory, Job job) {
+        Result result = new Result(job);
+        long start = System.nanoTime();
+        LevelController controller = null;
+        try {
+            directory.rewindFilmStrips();
+            controller = new HeadlessLevelRunner(directory).load(job.level, job.seed);
+            result.loadNanos = System.nanoTime() - start;
+            result.replay = new Replay(controller);
+            LevelController.StepTimes times = new LevelController.StepTimes();
+
+            Random input = new Random(job.seed);
+            float horizontal = 0;
+            int hold = 0;
+            while (result.steps < job.maxSteps && !controller.isComplete() && !controller.isFailure()) {
+                boolean didRotate = false;
+                boolean didAntiRotate = false;
+                if (job.fuzz) {
+                    if (hold-- <= 0) {
+                        horizontal = input.nextInt(3) - 1;
+                        hold = FUZZ_MIN_HOLD + input.nextInt(FUZZ_MAX_HOLD - FUZZ_MIN_HOLD + 1);
+                    }
+                    didRotate = input.nextFloat() < FUZZ_ROTATE_CHANCE;
+                    didAntiRotate = !didRotate && input.nextFloat() < FUZZ_ROTATE_CHANCE;
+                }
+                result.replay.addStep(horizontal, didRotate, didAntiRotate, true);
+                controller.step(horizontal, didRotate, didAntiRotate, true, times);
+                result.steps++;
+            }
+            result.preUpdateNanos = times.preUpdate;
+            result.updateNanos = times.update;
+            result.postUpdateNanos = times.postUpdate;
+            result.complete = controller.isComplete();
+            result.failed = controller.isFailure();
+            result.checksum = HeadlessLevelRunner.checksum(controller);
+        } catch (RuntimeException e) {
+            result.error = e;
+        } finally {
+            if (controller != null && controller.world != null) {
+                controller.dispose();
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * A range of jobs, split in half until each piece is a single job.
+     *
+     * The jobs are large and vary a lot in length, so single jobs give the pool
+     * the most to steal.
+     */
+    @SuppressWarnings("serial")
+    private class Shard extends RecursiveAction {
+        /** All of the jobs */
+        private final Array<Job> jobs;
+        /** Where to put the result of each job */
+        private final Result[] results;
+        /** The first job of this shard */
+        private final int begin;
+        /** One past the last job of this shard */
+        private final int end;
+
+        /**
+         * Creates a shard of the given jobs
+         *
+         * @param jobs      All of the jobs
+         * @param results   Where to put the result of each job
+         * @param begin     The first job of this shard
+         * @param end       One past the last job of this shard
+         */
+        Shard(Array<Job> jobs, Result[] results, int begin, int end) {
+            this.jobs = jobs;
+            this.results = results;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - begin == 1) {
+                results[begin] = runJob(directories.get(), jobs.get(begin));
+            } else {
+                int middle = (begin + end) >>> 1;
+                invokeAll(new Shard(jobs, results, begin, middle), new Shard(jobs, results, middle, end));
+            }
+        }
+    }
+}
@@ -1,45 +1,263 @@
 package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
 
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import com.badlogic.gdx.math.Vector2;
-import edu.cornell.gdiac.honeyHeistCode.models.FlyingBeeModel;
 import edu.cornell.gdiac.honeyHeistCode.models.LarvaeModel;
 import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
 import edu.cornell.gdiac.honeyHeistCode.models.CharacterModel;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.LongArray;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 public class AIController {
-    HashMap<CharacterModel, AISingleCharacterController> aICharacterControllers;
+    /** The controller of each character, in the order they were created (so runs can be replayed) */
+    LinkedHashMap<CharacterModel, AISingleCharacterController> aICharacterControllers;
     AIGraphModel aIGraphModel;
+    AStarPathFinderController pathFinder;
+    FlowFieldController flowField;
+    /** Answers whether lines are blocked by platforms or spikes */
+    LineOfSightService lineOfSight;
+    /** Decides which controllers think each tick */
+    AIScheduler scheduler;
+    /** The state of the level the controllers read while they think */
+    WorldSnapshot snapshot;
+    /** The tiers of detail the controllers think in (null to think every tick with every probe) */
+    AILevelOfDetail levelOfDetail;
     LevelModel levelModel;
 
+    /**
+     * Creates the AI of a level, building its graph from the platforms.
+     *
+     * @param levelModel the level, with its platforms created but not yet turned
+     */
     public AIController(LevelModel levelModel) {
+        this(levelModel, null);
+    }
+
+    /**
+     * Creates the AI of a level, taking the accessibility of its graph from baked data if it fits.
+     *
+     * @param levelModel the level, with its platforms created but not yet turned
+     * @param bakedGraph the baked accessibility of the level (null to work it out from the platforms)
+     */
+    public AIController(LevelModel levelModel, JsonValue bakedGraph) {
         this.levelModel = levelModel;
-        aICharacterControllers = new HashMap<CharacterModel, AISingleCharacterController>();
+        aICharacterControllers = new LinkedHashMap<CharacterModel, AISingleCharacterController>();
+        aIGraphModel = new AIGraphModel(levelModel, bakedGraph);
+        pathFinder = new AStarPathFinderController(aIGraphModel);
+        flowField = new FlowFieldController(aIGraphModel);
+        lineOfSight = new LineOfSightService(levelModel);
+        scheduler = new AIScheduler();
+        snapshot = new WorldSnapshot();
+    }
+
+    /**
+     * Sets the time the AI may spend thinking each tick.
+     *
+     * Every character still moves every tick, along the direction it last chose.
+     *
+     * @param micros the budget in microseconds (0 for no limit)
+     * @param maxWait the most ticks a character may go without thinking
+     */
+    public void setBudget(long micros, int maxWait) {
+        scheduler.setBudget(micros, maxWait);
+    }
+
+    /**
+     * Sets the number of worker threads the controllers think on.
+     *
+     * The controllers still move on the calling thread, and decide the same way
+     * whichever thread they think on.
+     *
+     * @param threads the number of workers (1 or less to think on the calling thread)
+     * @param batchSize the fewest controllers a worker is given to think for
+     */
+    public void setParallelism(int threads, int batchSize) {
+        scheduler.setParallelism(threads, batchSize);
+    }
+
+    /**
+     * Sets the tiers of detail the controllers think in, by distance to the player.
+     *
+     * @param levelOfDetail the tiers of detail (null to think every tick with every probe)
+     */
+    public void setLevelOfDetail(AILevelOfDetail levelOfDetail) {
+        this.levelOfDetail = levelOfDetail;
+        int phase = 0;
+        for (AISingleCharacterController aICharacterController : aICharacterControllers.values()) {
+            aICharacterController.setLevelOfDetail(levelOfDetail, phase++);
+        }
+    }
+
+    /**
+     * Releases the worker threads of the AI, if any.
+     */
+    public void dispose() {
+        scheduler.dispose();
+    }
+
+    /**
+     * Returns the service that answers whether lines are blocked, to choose its backend.
+     *
+     * @return the line of sight service shared by the controllers
+     */
+    public LineOfSightService getLineOfSight() {
+        return lineOfSight;
+    }
+
+    /**
+     * Returns the graph of the level the controllers find routes on.
+     *
+     * @return the graph of the level
+     */
+    public AIGraphModel getGraph() {
+        return aIGraphModel;
+    }
+
+    /**
+     * Returns the number of line tests the controllers answered from their memos.
+     *
+     * @return the number of line tests answered from a memo
+     */
+    public long getLineTestHits() {
+        long hits = 0;
+        for (AISingleCharacterController aICharacterController : aICharacterControllers.values()) {
+            hits += aICharacterController.getLineTestHits();
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of line tests the controllers asked the line of sight service.
+     *
+     * @return the number of line tests asked of the service
+     */
+    public long getLineTestMisses() {
+        long misses = 0;
+        for (AISingleCharacterController aICharacterController : aICharacterControllers.values()) {
+            misses += aICharacterController.getLineTestMisses();
+        }
+        return misses;
     }
 
-    public void createAIForSingleCharacter(CharacterModel characterModel, JsonValue data) {
-        aICharacterControllers.put(characterModel, new AISingleCharacterController (levelModel, characterModel, data));
+    /**
+     * Returns the scheduler, for its counters.
+     *
+     * @return the scheduler that decides which controllers think each tick
+     */
+    public AIScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Creates the AI for the given character.
+     *
+     * @param characterModel the character to control
+     * @param data the "ai_controller_options" of the character
+     * @param seed the seed for the random decisions of the AI
+     */
+    public void createAIForSingleCharacter(CharacterModel characterModel, JsonValue data, long seed) {
+        snapshot.capture(levelModel);
+        AISingleCharacterController aICharacterController = new AISingleCharacterController(
+                levelModel, characterModel, data, seed, pathFinder, flowField, lineOfSight, snapshot);
+        aICharacterController.setLevelOfDetail(levelOfDetail, aICharacterControllers.size());
+        aICharacterControllers.put(characterModel, aICharacterController);
+        scheduler.add(aICharacterController);
+    }
+
+    /**
+     * Returns every AI to the state it was created in.
+     *
+     * @param seeds the new seed of each AI, in the order they were created
+     */
+    public void resetAIControllers(LongArray seeds) {
+        snapshot.capture(levelModel);
+        int ii = 0;
+        for (AISingleCharacterController aICharacterController : aICharacterControllers.values()) {
+            aICharacterController.reset(seeds.get(ii++));
+        }
+        scheduler.reset();
+    }
+
+    /**
+     * Appends the orientation of the graph and the state of every AI to the buffer,
+     * in the order they were created.
+     *
+     * @param buffer the buffer to append to
+     */
+    public void saveState(StateBuffer buffer) {
+        buffer.putInt(aIGraphModel.getOrientation());
+        for (AISingleCharacterController aICharacterController : aICharacterControllers.values()) {
+            aICharacterController.saveState(buffer);
+        }
+    }
+
+    /**
+     * Returns every AI to the state read from the buffer.
+     *
+     * @param buffer the buffer to read, positioned where saveState wrote the AI
+     */
+    public void restoreState(StateBuffer buffer) {
+        aIGraphModel.setOrientation(buffer.getInt());
+        snapshot.capture(levelModel);
+        for (AISingleCharacterController aICharacterController : aICharacterControllers.values()) {
+            aICharacterController.restoreState(buffer);
+        }
+        scheduler.reset();
     }
 
     public void deleteAIForSingleCharacter(CharacterModel characterModel) {
-        aICharacterControllers.remove(characterModel);
+        AISingleCharacterController aICharacterController = aICharacterControllers.remove(characterModel);
+        if (aICharacterController != null) {
+            scheduler.remove(aICharacterController);
+            aICharacterController.dispose();
+        }
     }
 
 
+    /**
+     * Returns the average number of nodes the flow field to the player expands each tick.
+     *
+     * @return the average number of nodes expanded each tick
+     */
+    public float getAverageNodesExpanded() {
+        return flowField.getAverageExpanded();
+    }
+
+    /**
+     * Lets the AI decide where every character goes, then moves them.
+     *
+     * The state the controllers read is copied first, and everything shared is brought
+     * up to date, so that the controllers may then think on several threads while the
+     * world stands still.  Only after every controller has thought are the characters
+     * moved, one after another.
+     */
     public void moveAIControlledCharacters() {
-        for (AISingleCharacterController aICharacterController: aICharacterControllers.values()) {
-            aICharacterController.updateAIController();
-            CharacterModel bee = aICharacterController.getControlledCharacter();
-            bee.setMovement(aICharacterController.getMovementDirection().x * bee.getForce());
-            if (bee.getClass() == FlyingBeeModel.class) {
-                ((FlyingBeeModel) bee).setVMovement(aICharacterController.getMovementDirection().y * bee.getForce());
+        // Routes found before a rotation may lead through platforms that have moved
+        if (aIGraphModel.updateOrientation()) {
+            for (AISingleCharacterController aICharacterController: aICharacterControllers.values()) {
+                aICharacterController.invalidateRoute();
             }
         }
+        snapshot.capture(levelModel);
+        for (AISingleCharacterController aICharacterController: aICharacterControllers.values()) {
+            aICharacterController.capture();
+            aICharacterController.updateDetail();
+        }
+        lineOfSight.beginTick();
+        // One search to the player serves every bee that chases it
+        flowField.update(snapshot.playerPosition);
+
+        scheduler.update();
+
+        // Every character moves every tick, whether or not its controller thought
+        for (AISingleCharacterController aICharacterController: aICharacterControllers.values()) {
+            aICharacterController.apply();
+        }
     }
 
     public void drawDebugLines(GameCanvas canvas, Vector2 scale) {
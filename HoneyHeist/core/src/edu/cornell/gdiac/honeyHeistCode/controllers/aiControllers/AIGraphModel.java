@@ -1,90 +1,473 @@
 package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
 
 import com.badlogic.gdx.ai.pfa.Connection;
-import com.badlogic.gdx.ai.pfa.Graph;
 import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.Bits;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
 import edu.cornell.gdiac.honeyHeistCode.models.PlatformModel;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
 
-import java.util.HashMap;
+/**
+ * A hex grid over the level that flying characters can find routes on.
+ *
+ * Nodes are numbered row by row from the bottom left, so the six neighbours of a node
+ * are found by arithmetic.  A node is accessible if a character at its center would
+ * not touch a platform or spiked platform.
+ *
+ * The level only comes to rest at multiples of 60 degrees about its origin, so the
+ * accessibility of every node and the edges between them are worked out for all six
+ * orientations when the graph is built.  They are kept as one bit per node and six bits
+ * of edges per node for each orientation.  When a rotation finishes, the graph switches
+ * to the next orientation by copying those bits into the nodes, and no geometry is
+ * looked at again.  While the level is turning, the graph keeps the orientation it
+ * started from.
+ *
+ * Working out the accessibility is the only part of building the graph that looks at
+ * geometry, so it can be baked ahead of time (see NavMeshBaker) into the level data.
+ * Baked accessibility is only used if it was baked from the same grid and geometry,
+ * which is checked by a hash of the vertices, and otherwise it is worked out again.
+ */
+public class AIGraphModel implements IndexedGraph<AIGraphModel.AINodeModel> {
+    /** The key of the baked accessibility in the level data */
+    public static final String BAKED_KEY = "accessibility";
+    /** The number of orientations the level can rest at */
+    public static final int ORIENTATIONS = 6;
+    /** The angle between two orientations */
+    private static final float ORIENTATION_ANGLE = MathUtils.PI / 3;
 
-public class AIGraphModel implements Graph<AIGraphModel.AINodeModel> {
     Array<AINodeModel> nodes;
     float maxRadiusOfNode;
     int count;
 
+    /** The level the graph covers */
+    private LevelModel levelModel;
+    /** The number of rows and of nodes in each row */
+    private int rows;
+    private int columns;
+    /** The position of the first node */
+    private float minX;
+    private float minY;
+    /** The distance between two rows (the inner radius of a node) */
+    private float rowHeight;
+    /** The accessible nodes at each orientation */
+    private Bits[] accessibility;
+    /** The edges of each node at each orientation, one bit for each direction */
+    private byte[][] edges;
+    /** The orientation the nodes currently hold */
+    private int orientation;
+    /** Whether the accessibility was read from baked data */
+    private boolean baked;
+    /** Cache for the turned vertices of a platform */
+    private float[] vertexCache;
+
     //DEBUGGING
     TextureRegion whiteSquare;
 
-    public AIGraphModel(JsonValue aIGraphData, TextureRegion whiteSquare) {
+    /**
+     * Creates the graph of the given level from the current position of its platforms.
+     *
+     * @param levelModel the level to cover, with its platforms created
+     */
+    public AIGraphModel(LevelModel levelModel) {
+        this(levelModel, null);
+    }
+
+    /**
+     * Creates the graph of the given level, with the accessibility baked into its data if it still fits.
+     *
+     * @param levelModel the level to cover, with its platforms created
+     * @param bakedData the baked accessibility of the level (null to work it out from the platforms)
+     */
+    public AIGraphModel(LevelModel levelModel, JsonValue bakedData) {
+        this.levelModel = levelModel;
         nodes = new Array<AINodeModel>();
-        this.whiteSquare = whiteSquare;
-        this.maxRadiusOfNode = aIGraphData.getFloat("maxRadiusOfNode");
-        float minRadiusOfNode = (float)Math.sqrt(3) * (maxRadiusOfNode/2);
-        float xMin = aIGraphData.getFloat("minX");
-        float xMax = aIGraphData.getFloat("maxX");
-        float yMin = aIGraphData.getFloat("minY");
-        float yMax = aIGraphData.getFloat("maxY");
-        float yMiddle = (yMax + yMin) / 2;
-        boolean evenRow = true;
-        for (float y = yMiddle; y <= yMax; y += minRadiusOfNode) {
-            evenRow = !evenRow;
-            for (float x = evenRow ? (float) (xMin + maxRadiusOfNode * 1.5) : xMin;
-                 x <= xMax; x += (maxRadiusOfNode * 3)) {
-                addNode(new AINodeModel(x, y, true));
+        maxRadiusOfNode = AINodeModel.MAX_NODE_RADIUS;
+        rowHeight = AINodeModel.MIN_NODE_RADIUS;
+        vertexCache = new float[8];
+
+        Rectangle bounds = levelModel.getBounds();
+        minX = bounds.x;
+        minY = bounds.y;
+        rows = (int) (bounds.height / rowHeight) + 1;
+        columns = (int) (bounds.width / (maxRadiusOfNode * 3)) + 1;
+        Bits inBounds = new Bits(rows * columns);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                float x = minX + column * maxRadiusOfNode * 3 + (row % 2 == 1 ? maxRadiusOfNode * 1.5f : 0);
+                float y = minY + row * rowHeight;
+                if (bounds.contains(x, y)) {
+                    inBounds.set(count);
+                }
+                addNode(new AINodeModel(x, y, false));
+            }
+        }
+
+        float builtAngle = getTurnedAngle();
+        // Baked data is for the platforms as populated
+        accessibility = (builtAngle == 0 ? readBaked(bakedData) : null);
+        baked = (accessibility != null);
+        if (!baked) {
+            accessibility = new Bits[ORIENTATIONS];
+            for (int k = 0; k < ORIENTATIONS; k++) {
+                Bits accessible = new Bits(count);
+                accessible.or(inBounds);
+                block(accessible, levelModel.getPlatforms(), k * ORIENTATION_ANGLE - builtAngle);
+                block(accessible, levelModel.getSpikedPlatforms(), k * ORIENTATION_ANGLE - builtAngle);
+                accessibility[k] = accessible;
+            }
+        }
+        edges = new byte[ORIENTATIONS][count];
+        for (int k = 0; k < ORIENTATIONS; k++) {
+            Bits accessible = accessibility[k];
+            // Each edge is found from the node below it, and added in both directions
+            for (int i = accessible.nextSetBit(0); i >= 0; i = accessible.nextSetBit(i + 1)) {
+                for (int direction = 0; direction < 3; direction++) {
+                    int other = getNeighbour(i, direction);
+                    if (other >= 0 && accessible.get(other)) {
+                        edges[k][i] |= 1 << direction;
+                        edges[k][other] |= 1 << (direction + 3);
+                    }
+                }
             }
         }
-        evenRow = false;
-        for (float y = yMiddle - minRadiusOfNode; y >= yMin; y -= minRadiusOfNode) {
-            evenRow = !evenRow;
-            for (float x = evenRow ? (float) (xMin + maxRadiusOfNode * 1.5) : xMin;
-                 x <= xMax; x += (maxRadiusOfNode * 3)) {
-                addNode(new AINodeModel(x, y, true));
+
+        // One connection object for each edge of any orientation, shared by all of them
+        for (AINodeModel node : nodes) {
+            for (int direction = 0; direction < ORIENTATIONS; direction++) {
+                for (int k = 0; k < ORIENTATIONS; k++) {
+                    if ((edges[k][node.index] & (1 << direction)) != 0) {
+                        AINodeModel other = nodes.get(getNeighbour(node.index, direction));
+                        node.links[direction] = new AIConnectionModel(node, other, node.getDistance(other));
+                        break;
+                    }
+                }
             }
         }
-        for (int i = 0; i < aIGraphData.get("accessibility").size; i++) {
-            boolean accessible = aIGraphData.get("accessibility").getInt(i) == 1;
-            setAccessibility(i, accessible);
+        orientation = -1;
+        setOrientation(getOrientation(builtAngle));
+    }
+
+    /**
+     * Returns the accessibility of every orientation as data to bake into the level.
+     *
+     * @return the baked accessibility, to store under BAKED_KEY
+     */
+    public JsonValue bake() {
+        JsonValue result = new JsonValue(JsonValue.ValueType.object);
+        result.addChild("rows", new JsonValue(rows));
+        result.addChild("columns", new JsonValue(columns));
+        result.addChild("geometry", new JsonValue(Long.toHexString(getGeometryHash())));
+        JsonValue orientations = new JsonValue(JsonValue.ValueType.array);
+        for (int k = 0; k < ORIENTATIONS; k++) {
+            byte[] bytes = new byte[(count + 7) / 8];
+            Bits accessible = accessibility[k];
+            for (int i = accessible.nextSetBit(0); i >= 0; i = accessible.nextSetBit(i + 1)) {
+                bytes[i >> 3] |= 1 << (i & 7);
+            }
+            orientations.addChild(new JsonValue(new String(Base64Coder.encode(bytes))));
         }
+        result.addChild("orientations", orientations);
+        return result;
     }
 
-    private void setAccessibility(int index, boolean accessibility) {
-        if (index > count) {
-            return;
+    /**
+     * Returns true if the accessibility was read from baked data rather than worked out.
+     *
+     * @return true if the accessibility was baked
+     */
+    public boolean isBaked() {
+        return baked;
+    }
+
+    /**
+     * Returns the accessibility of every orientation read from baked data, or null if it does not fit.
+     *
+     * @param bakedData the baked accessibility (may be null)
+     */
+    private Bits[] readBaked(JsonValue bakedData) {
+        if (bakedData == null || bakedData.getInt("rows", -1) != rows || bakedData.getInt("columns", -1) != columns
+                || !Long.toHexString(getGeometryHash()).equals(bakedData.getString("geometry", null))) {
+            return null;
+        }
+        JsonValue orientations = bakedData.get("orientations");
+        if (orientations == null || orientations.size != ORIENTATIONS) {
+            return null;
+        }
+        Bits[] result = new Bits[ORIENTATIONS];
+        for (int k = 0; k < ORIENTATIONS; k++) {
+            byte[] bytes = Base64Coder.decode(orientations.getString(k));
+            if (bytes.length != (count + 7) / 8) {
+                return null;
+            }
+            result[k] = new Bits(count);
+            for (int i = 0; i < count; i++) {
+                if ((bytes[i >> 3] & (1 << (i & 7))) != 0) {
+                    result[k].set(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a hash of everything the accessibility depends on: the grid, the origin and every vertex.
+     */
+    private long getGeometryHash() {
+        long hash = 17;
+        hash = hash * 31 + Float.floatToIntBits(AINodeModel.MAX_NODE_RADIUS);
+        hash = hash * 31 + Float.floatToIntBits(minX);
+        hash = hash * 31 + Float.floatToIntBits(minY);
+        hash = hash * 31 + Float.floatToIntBits(levelModel.getOrigin().x);
+        hash = hash * 31 + Float.floatToIntBits(levelModel.getOrigin().y);
+        hash = hashVertices(hash, levelModel.getPlatforms());
+        return hashVertices(hash, levelModel.getSpikedPlatforms());
+    }
+
+    private static long hashVertices(long hash, PlatformModel platforms) {
+        for (PolygonObstacle platform : platforms.getBodies()) {
+            float[] vertices = platform.getTrueVertices();
+            hash = hash * 31 + vertices.length;
+            for (float vertex : vertices) {
+                hash = hash * 31 + Float.floatToIntBits(vertex);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the index of the neighbour of a node in the given direction, or -1 if there is none.
+     *
+     * The directions are numbered clockwise from straight up, and the opposite of
+     * direction d is d + 3.
+     * @param index the index of the node
+     * @param direction the direction of the neighbour (0 to 5)
+     * @return the index of the neighbour, or -1 if it is outside the grid
+     */
+    public int getNeighbour(int index, int direction) {
+        int row = index / columns;
+        int column = index % columns;
+        // The rows next to an even row are offset to its right, and those next to an odd row to its left
+        int left = column + (row % 2 == 0 ? -1 : 0);
+        switch (direction) {
+            case 0: row += 2; break;
+            case 1: row += 1; column = left + 1; break;
+            case 2: row -= 1; column = left + 1; break;
+            case 3: row -= 2; break;
+            case 4: row -= 1; column = left; break;
+            default: row += 1; column = left; break;
+        }
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+
+    /**
+     * Clears the nodes of the mask where a character would touch one of the platforms.
+     *
+     * The platforms are first turned about the origin of the level by the given angle.
+     * Only the nodes near the bounding box of each platform are checked.
+     * @param accessible the accessible nodes, to clear blocked nodes from
+     * @param platforms the platforms to check
+     * @param angle the angle to turn the platforms by, counterclockwise in radians
+     */
+    private void block(Bits accessible, PlatformModel platforms, float angle) {
+        float clearance = AINodeModel.MIN_NODE_RADIUS;
+        Vector2 origin = levelModel.getOrigin();
+        float cos = MathUtils.cos(angle);
+        float sin = MathUtils.sin(angle);
+        for (PolygonObstacle platform : platforms.getBodies()) {
+            float[] trueVertices = platform.getTrueVertices();
+            if (vertexCache.length < trueVertices.length) {
+                vertexCache = new float[trueVertices.length];
+            }
+            float[] vertices = vertexCache;
+            int length = trueVertices.length;
+            float left = Float.MAX_VALUE, right = -Float.MAX_VALUE;
+            float bottom = Float.MAX_VALUE, top = -Float.MAX_VALUE;
+            for (int i = 0; i < length; i += 2) {
+                float x = trueVertices[i] - origin.x;
+                float y = trueVertices[i + 1] - origin.y;
+                vertices[i] = origin.x + x * cos - y * sin;
+                vertices[i + 1] = origin.y + x * sin + y * cos;
+                left = Math.min(left, vertices[i]);
+                right = Math.max(right, vertices[i]);
+                bottom = Math.min(bottom, vertices[i + 1]);
+                top = Math.max(top, vertices[i + 1]);
+            }
+            int firstRow = Math.max((int) Math.floor((bottom - clearance - minY) / rowHeight), 0);
+            int lastRow = Math.min((int) Math.ceil((top + clearance - minY) / rowHeight), rows - 1);
+            int firstColumn = Math.max((int) Math.floor((left - clearance - minX) / (maxRadiusOfNode * 3)) - 1, 0);
+            int lastColumn = Math.min((int) Math.ceil((right + clearance - minX) / (maxRadiusOfNode * 3)), columns - 1);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int index = row * columns + column;
+                    AINodeModel node = nodes.get(index);
+                    if (accessible.get(index) && isBlocked(node.getX(), node.getY(), vertices, length, clearance)) {
+                        accessible.clear(index);
+                    }
+                }
+            }
         }
-        nodes.get(index).setAccessible(accessibility);
     }
 
-    private AINodeModel createNodeModel(JsonValue nodeData) {
-        boolean accessible = nodeData.getFloat(2) == 1;
-        return new AINodeModel(nodeData.getFloat(0), nodeData.getFloat(1), accessible);
+    /**
+     * Returns true if a point is inside a polygon or closer to it than the clearance.
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param vertices the vertices of the polygon
+     * @param length the number of floats of the vertices to use
+     * @param clearance the distance to keep from the polygon
+     * @return true if the point is inside the polygon or too close to it
+     */
+    private static boolean isBlocked(float x, float y, float[] vertices, int length, float clearance) {
+        if (Intersector.isPointInPolygon(vertices, 0, length, x, y)) {
+            return true;
+        }
+        for (int i = 0; i < length; i += 2) {
+            int next = (i + 2 < length ? i + 2 : 0);
+            if (Intersector.distanceSegmentPoint(vertices[i], vertices[i + 1],
+                    vertices[next], vertices[next + 1], x, y) < clearance) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public int getNodeCount() {
         return count;
     }
 
+    public int getIndex(AINodeModel node) {
+        return node.index;
+    }
+
+    /**
+     * Returns the node with the given index.
+     * @param index the index of the node
+     * @return the node with the given index
+     */
+    public AINodeModel getNode(int index) {
+        return nodes.get(index);
+    }
+
     public Array<Connection<AINodeModel>> getConnections(AINodeModel fromNode) {
         return fromNode.getConnections();
     }
 
     private void addNode(AINodeModel node) {
+        node.index = count;
         nodes.add(node);
         count++;
     }
 
-    private void addConnection(AINodeModel node1, AINodeModel node2) {
-        node1.addConnection(node2);
-        node2.addConnection(node1);
+    /**
+     * Returns the angle the platforms have turned since the level was populated.
+     *
+     * In the gravity rotation mode the platforms stay still, so this is zero.
+     * @return the angle the platforms have turned, counterclockwise in radians
+     */
+    public float getTurnedAngle() {
+        if (levelModel.getRotationMode() == LevelModel.RotationMode.GRAVITY) {
+            return 0;
+        }
+        return levelModel.getPlatforms().getTurnedAngle();
+    }
+
+    /**
+     * Returns the orientation nearest to the given angle.
+     * @param angle the angle the platforms have turned, counterclockwise in radians
+     * @return the nearest orientation (0 to 5)
+     */
+    private static int getOrientation(float angle) {
+        int k = MathUtils.round(angle / ORIENTATION_ANGLE) % ORIENTATIONS;
+        return (k < 0 ? k + ORIENTATIONS : k);
+    }
+
+    /**
+     * Returns the orientation the nodes currently hold.
+     * @return the orientation the nodes currently hold (0 to 5)
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Makes the nodes and connections those of the given orientation.
+     * @param k the orientation (0 to 5)
+     */
+    public void setOrientation(int k) {
+        if (k == orientation) {
+            return;
+        }
+        orientation = k;
+        Bits accessible = accessibility[k];
+        byte[] edges = this.edges[k];
+        for (AINodeModel node : nodes) {
+            node.setAccessible(accessible.get(node.index));
+            node.connections.clear();
+            for (int direction = 0; direction < ORIENTATIONS; direction++) {
+                if ((edges[node.index] & (1 << direction)) != 0) {
+                    node.connections.add(node.links[direction]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Switches to the orientation the level has come to rest at, if it has changed.
+     *
+     * Nothing changes while the level is turning.
+     * @return true if the orientation changed
+     */
+    public boolean updateOrientation() {
+        if (levelModel.getPlatforms().isRotating()) {
+            return false;
+        }
+        int k = getOrientation(getTurnedAngle());
+        if (k == orientation) {
+            return false;
+        }
+        setOrientation(k);
+        return true;
+    }
+
+    /**
+     * Returns the accessible node nearest to the given position, or null if there is none nearby.
+     *
+     * This only looks at the few nodes around the position, so it does not allocate.
+     * @param position the position in world coordinates
+     * @return the nearest accessible node, or null
+     */
+    public AINodeModel getNearestNode(Vector2 position) {
+        int row = Math.round((position.y - minY) / rowHeight);
+        int column = Math.round((position.x - minX) / (maxRadiusOfNode * 3));
+        AINodeModel nearest = null;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int r = Math.max(row - 4, 0); r <= Math.min(row + 4, rows - 1); r++) {
+            for (int c = Math.max(column - 2, 0); c <= Math.min(column + 2, columns - 1); c++) {
+                AINodeModel node = nodes.get(r * columns + c);
+                float distance = node.getPosition().dst2(position);
+                if (node.isAccessible() && distance < nearestDistance) {
+                    nearest = node;
+                    nearestDistance = distance;
+                }
+            }
+        }
+        return nearest;
     }
 
     public void drawDebug(GameCanvas canvas, Vector2 drawScale) {
@@ -93,7 +476,8 @@ public class AIGraphModel implements Graph<AIGraphModel.AINodeModel> {
         }
     }
 
-    public void setTextures() {
+    public void setTextures(TextureRegion whiteSquare) {
+        this.whiteSquare = whiteSquare;
         for (AINodeModel node : nodes) {
             node.setTexture(whiteSquare);
         }
@@ -111,13 +495,13 @@ public class AIGraphModel implements Graph<AIGraphModel.AINodeModel> {
         static final float MAX_NODE_RADIUS = .5f;
         static final float MIN_NODE_RADIUS = (float)Math.sqrt(3) * (MAX_NODE_RADIUS/2);
         private boolean accessible;
+        /** The index of the node in its graph */
+        int index;
+        /** The connection to the neighbour in each direction, if there is an edge to it at any orientation */
+        AIConnectionModel[] links = new AIConnectionModel[ORIENTATIONS];
         Array<Connection<AINodeModel>> connections;
         static final float[] HEXAGON_COORDINATES = getHexagonPoints(MAX_NODE_RADIUS);
 
-        //TempForCollisionCalculations
-        DirectedLineSegment temp1;
-        DirectedLineSegment temp2;
-
         // Debugging
         Texture texture;
         PolygonObstacle polygonObstacle;
@@ -128,14 +512,7 @@ public class AIGraphModel implements Graph<AIGraphModel.AINodeModel> {
         public AINodeModel(float x, float y, boolean accessible) {
             position = new Vector2(x, y);
             this.accessible = accessible;
-
-            //DEBUGGING
-            polygonObstacle = new PolygonObstacle(HEXAGON_COORDINATES, x, y);
-            polygonObstacle.setBodyType(BodyDef.BodyType.StaticBody);
-            polygonObstacle.setActive(false);
-
-            temp1 = new DirectedLineSegment();
-            temp2 = new DirectedLineSegment();
+            connections = new Array<Connection<AINodeModel>>(6);
         }
 
         public float getX() {
@@ -189,48 +566,12 @@ public class AIGraphModel implements Graph<AIGraphModel.AINodeModel> {
             accessible = value;
         }
 
-        public boolean doesPolygonIntersectNode(float[] vertices) {
-            for (int i = 0; i < HEXAGON_COORDINATES.length; i +=2) {
-                int x1NodeIndex = i;
-                int y1NodeIndex = i + 1;
-                int x2NodeIndex;
-                int y2NodeIndex;
-                if (i + 2 < vertices.length) {
-                    x2NodeIndex = i + 2;
-                    y2NodeIndex = i + 3;
-                } else {
-                    x2NodeIndex = 0;
-                    y2NodeIndex = 1;
-                }
-                temp2.set(vertices[x1NodeIndex] + getX(), vertices[y1NodeIndex] + getY(), vertices[x2NodeIndex] + getX(), vertices[y2NodeIndex] + getY());
-                for (int j = 0; j < vertices.length; j += 2) {
-                    int x1Index = j;
-                    int y1Index = j + 1;
-                    int x2Index;
-                    int y2Index;
-                    if (j + 2 < vertices.length) {
-                        x2Index = j + 2;
-                        y2Index = j + 3;
-                    } else {
-                        x2Index = 0;
-                        y2Index = 1;
-                    }
-                    temp2.set(vertices[x1Index], vertices[y1Index], vertices[x2Index], vertices[y2Index]);
-                    if (temp1.intersects(temp2)) {
-                        return true;
-                    }
-                }
-            }
-
-            return false;
-        }
-
         /*
         DEBUGGING TOOLS TO BE REMOVED LATER
          */
 
         public void drawDebug(GameCanvas canvas, Vector2 scale) {
-            polygonObstacle.setDrawScale(scale);
+            getPolygonObstacle().setDrawScale(scale);
             if (accessible) {
                 polygonObstacle.draw(canvas, accessibleColor);
             }
@@ -257,7 +598,17 @@ public class AIGraphModel implements Graph<AIGraphModel.AINodeModel> {
         }
 
         public void setTexture(TextureRegion texture) {
-            polygonObstacle.setTexture(texture);
+            getPolygonObstacle().setTexture(texture);
+        }
+
+        /** Creates the debugging polygon when it is first drawn, as most graphs never are */
+        private PolygonObstacle getPolygonObstacle() {
+            if (polygonObstacle == null) {
+                polygonObstacle = new PolygonObstacle(HEXAGON_COORDINATES, getX(), getY());
+                polygonObstacle.setBodyType(BodyDef.BodyType.StaticBody);
+                polygonObstacle.setActive(false);
+            }
+            return polygonObstacle;
         }
 
     }
@@ -0,0 +1,100 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+import com.badlogic.gdx.utils.JsonValue;
+
+/**
+ * The tiers of detail the AI thinks in, by distance to the player.
+ *
+ * A bee far from the player cannot start a chase for a while, so it need not look
+ * around every tick.  Each tier sets how many ticks pass between the thoughts of a
+ * bee and how many directions it may probe when it looks for a way to wander.  The
+ * first tier thinks every tick with every probe, exactly as without tiers, and every
+ * bee that is chasing stays in it.
+ *
+ * The tier of a bee is chosen by its distance to the player, in multiples of its
+ * chase distance.  There is no tier for bees off the screen, as the camera always
+ * shows the whole level.  A bee is promoted as soon as it comes within the radius of
+ * a nearer tier, and thinks at once, but it is only demoted once it is a little past
+ * the radius, so that it does not flicker between tiers at the edge.
+ *
+ * The tiers are read from the "ai_lod" constants:
+ * "tiers": each tier in order, with its "radius" (in chase distances, leave it out
+ * 		for the last tier), its "period" (in ticks) and its "probes".
+ * "hysteresis": how far past the radius a bee must go to drop a tier, as a fraction of it.
+ */
+public class AILevelOfDetail {
+    /** The most directions any decision probes (the twelve of the wander scan) */
+    public static final int ALL_PROBES = 12;
+
+    /** The outer radius of each tier, in chase distances */
+    private float[] radii;
+    /** The ticks between the thoughts of a bee in each tier */
+    private int[] periods;
+    /** The directions a bee in each tier may probe */
+    private int[] probes;
+    /** How far past the radius a bee must go to drop a tier, as a fraction of it */
+    private float hysteresis;
+
+    /**
+     * Creates the tiers of detail from the "ai_lod" constants.
+     *
+     * @param data the "ai_lod" constants
+     */
+    public AILevelOfDetail(JsonValue data) {
+        JsonValue tiers = data.get("tiers");
+        radii = new float[tiers.size];
+        periods = new int[tiers.size];
+        probes = new int[tiers.size];
+        for (int i = 0; i < tiers.size; i++) {
+            JsonValue tier = tiers.get(i);
+            radii[i] = tier.getFloat("radius", Float.MAX_VALUE);
+            periods[i] = Math.max(tier.getInt("period", 1), 1);
+            probes[i] = Math.max(tier.getInt("probes", ALL_PROBES), 1);
+        }
+        hysteresis = data.getFloat("hysteresis", 0);
+    }
+
+    /**
+     * Returns the tier a bee should be in now.
+     *
+     * @param tier the tier the bee is in
+     * @param distance the distance of the bee to the player, in its chase distances
+     * @param chasing whether the bee is chasing
+     * @return the tier the bee should be in
+     */
+    public int getTier(int tier, float distance, boolean chasing) {
+        if (chasing) {
+            return 0;
+        }
+        int last = radii.length - 1;
+        int wanted = 0;
+        while (wanted < last && distance >= radii[wanted]) {
+            wanted++;
+        }
+        if (wanted > tier && distance < radii[tier] * (1 + hysteresis)) {
+            // Drop a tier only once the bee is well past its radius
+            return tier;
+        }
+        return wanted;
+    }
+
+    /**
+     * Returns the number of ticks between the thoughts of a bee in the tier.
+     *
+     * @param tier a tier
+     * @return the ticks between thoughts
+     */
+    public int getPeriod(int tier) {
+        return periods[tier];
+    }
+
+    /**
+     * Returns the number of directions a bee in the tier may probe.
+     *
+     * @param tier a tier
+     * @return the directions it may probe
+     */
+    public int getProbes(int tier) {
+        return probes[tier];
+    }
+}
@@ -0,0 +1,329 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decides which AI Controllers think each tick, under a budget of time.
+ *
+ * Thinking (updating the state machine, probing wander directions and reading
+ * paths) is the expensive part of the AI, while moving along the last direction
+ * is cheap.  So every character still moves every tick, but only as many
+ * controllers think as fit in the budget, taking turns in order of creation.
+ *
+ * Two guarantees keep this fair.  Each tick the turn starts after the controller
+ * that thought last, so every controller thinks within as many ticks as there are
+ * controllers.  And a controller that has waited the maximum number of ticks thinks
+ * even when the budget is spent.  A controller's timers only run while it thinks,
+ * so one that waits acts as if time ran slower for it.
+ *
+ * A controller whose tier of detail lets it rest this tick (see AILevelOfDetail) is
+ * passed over, as if it had already thought, and does not count as waiting.
+ *
+ * A budget of zero lets every controller think every tick, in order of creation.
+ * Only that keeps a run the same from one machine to another, so the headless
+ * tools use it.
+ *
+ * The scheduler can also share the thinking among worker threads.  Controllers only
+ * read the level while they think, so the ones chosen are gathered into a batch and
+ * split among the workers, and a batch too small to be worth splitting thinks on the
+ * calling thread.  Each controller reads the same level whichever thread it thinks on,
+ * so this gives the same decisions as thinking one after another.  Under a budget,
+ * the turns are taken a batch at a time, and the time is checked between batches.
+ * The workers are shared by every scheduler with the same number of them, so a new
+ * level does not start threads of its own.
+ */
+public class AIScheduler {
+    /** The worker pools shared by every scheduler, by number of workers */
+    private static final IntMap<ForkJoinPool> POOLS = new IntMap<ForkJoinPool>();
+
+    /** The controllers in order of creation */
+    private Array<AISingleCharacterController> controllers;
+    /** The number of ticks each controller has waited since it last thought */
+    private IntArray waiting;
+    /** The tick each controller last thought, to tell which have thought this tick */
+    private IntArray thought;
+    /** The controller whose turn is next */
+    private int cursor;
+    /** The time the controllers may think each tick, in nanoseconds (0 for no limit) */
+    private long budget;
+    /** The most ticks a controller may wait before it thinks anyway */
+    private int maxWait;
+    /** The number of ticks scheduled */
+    private int ticks;
+    /** The controllers chosen to think, which think together */
+    private IntArray batch;
+    /** The shared workers that share the thinking (null to think on the calling thread) */
+    private ForkJoinPool pool;
+    /** The fewest controllers a worker is given to think for */
+    private int batchSize;
+
+    /** The number of controllers that thought past the budget, because they had waited too long */
+    private long forced;
+    /** The number of ticks that thought past the budget */
+    private long overBudget;
+    /** The most ticks any controller has waited */
+    private int longestWait;
+    /** The number of times a controller has thought */
+    private long updates;
+
+    /**
+     * Creates a scheduler that lets every controller think every tick.
+     */
+    public AIScheduler() {
+        controllers = new Array<AISingleCharacterController>();
+        waiting = new IntArray();
+        thought = new IntArray();
+        batch = new IntArray();
+        maxWait = 1;
+        batchSize = 1;
+    }
+
+    /**
+     * Sets the time the controllers may think each tick.
+     *
+     * @param micros the budget in microseconds (0 for no limit)
+     * @param maxWait the most ticks a controller may wait before it thinks anyway
+     */
+    public void setBudget(long micros, int maxWait) {
+        this.budget = micros * 1000;
+        this.maxWait = Math.max(maxWait, 1);
+    }
+
+    /**
+     * Sets the number of worker threads that share the thinking.
+     *
+     * @param threads the number of workers (1 or less to think on the calling thread)
+     * @param batchSize the fewest controllers a worker is given to think for
+     */
+    public void setParallelism(int threads, int batchSize) {
+        dispose();
+        this.batchSize = Math.max(batchSize, 1);
+        if (threads > 1) {
+            pool = getPool(threads);
+        }
+    }
+
+    /**
+     * Stops using the worker threads, if any.
+     *
+     * The controllers think on the calling thread from then on.  The workers are
+     * shared, and stay idle (as daemon threads) for the next scheduler to use.
+     */
+    public void dispose() {
+        pool = null;
+    }
+
+    /**
+     * Returns the shared pool with the given number of workers, creating it if needed.
+     *
+     * @param threads the number of workers
+     * @return the shared pool with the given number of workers
+     */
+    private static ForkJoinPool getPool(int threads) {
+        synchronized (POOLS) {
+            ForkJoinPool result = POOLS.get(threads);
+            if (result == null) {
+                result = new ForkJoinPool(threads);
+                POOLS.put(threads, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Adds a controller, to take its turn after the others.
+     *
+     * @param controller the controller to add
+     */
+    public void add(AISingleCharacterController controller) {
+        controllers.add(controller);
+        waiting.add(0);
+        thought.add(-1);
+    }
+
+    /**
+     * Removes a controller.
+     *
+     * @param controller the controller to remove
+     */
+    public void remove(AISingleCharacterController controller) {
+        int i = controllers.indexOf(controller, true);
+        if (i < 0) {
+            return;
+        }
+        controllers.removeIndex(i);
+        waiting.removeIndex(i);
+        thought.removeIndex(i);
+        if (cursor > i) {
+            cursor--;
+        }
+        if (cursor >= controllers.size) {
+            cursor = 0;
+        }
+    }
+
+    /**
+     * Starts the turns again from the first controller, as if none had waited.
+     */
+    public void reset() {
+        cursor = 0;
+        for (int i = 0; i < controllers.size; i++) {
+            waiting.set(i, 0);
+            thought.set(i, -1);
+        }
+    }
+
+    /**
+     * Lets the controllers think for one tick.
+     */
+    public void update() {
+        int count = controllers.size;
+        for (int i = 0; i < count; i++) {
+            if (!controllers.get(i).isDue()) {
+                thought.set(i, ticks);
+            }
+        }
+        if (budget <= 0) {
+            for (int i = 0; i < count; i++) {
+                if (thought.get(i) != ticks) {
+                    batch.add(i);
+                }
+            }
+            think();
+            ticks++;
+            return;
+        }
+
+        long start = TimeUtils.nanoTime();
+        // Those that have waited too long go first, whatever the time
+        for (int i = 0; i < count; i++) {
+            if (waiting.get(i) >= maxWait && thought.get(i) != ticks) {
+                batch.add(i);
+                forced++;
+            }
+        }
+        think();
+        // Then the rest take turns until the time is spent, but at least one always thinks
+        int turns = (pool == null ? 1 : batchSize * pool.getParallelism());
+        int taken = 0;
+        while (taken < count) {
+            int i = cursor;
+            cursor = (cursor + 1) % count;
+            taken++;
+            if (thought.get(i) != ticks) {
+                batch.add(i);
+            }
+            if (batch.size > 0 && batch.size < turns && taken < count) {
+                continue;
+            }
+            think();
+            if (TimeUtils.nanoTime() - start >= budget) {
+                break;
+            }
+        }
+        if (TimeUtils.nanoTime() - start > budget) {
+            overBudget++;
+        }
+        for (int i = 0; i < count; i++) {
+            if (thought.get(i) != ticks) {
+                int wait = waiting.get(i) + 1;
+                waiting.set(i, wait);
+                longestWait = Math.max(longestWait, wait);
+            }
+        }
+        ticks++;
+    }
+
+    /**
+     * Lets the controllers in the batch think, and marks them as having thought this tick.
+     */
+    private void think() {
+        if (pool != null && batch.size >= 2 * batchSize) {
+            pool.invoke(new Decision(0, batch.size));
+        } else {
+            for (int j = 0; j < batch.size; j++) {
+                controllers.get(batch.get(j)).updateAIController();
+            }
+        }
+        for (int j = 0; j < batch.size; j++) {
+            int i = batch.get(j);
+            waiting.set(i, 0);
+            thought.set(i, ticks);
+        }
+        updates += batch.size;
+        batch.clear();
+    }
+
+    /**
+     * Returns the number of times a controller thought past the budget because it had waited too long.
+     *
+     * @return the number of forced updates
+     */
+    public long getForced() {
+        return forced;
+    }
+
+    /**
+     * Returns the number of ticks that thought past the budget.
+     *
+     * @return the number of ticks over budget
+     */
+    public long getOverBudget() {
+        return overBudget;
+    }
+
+    /**
+     * Returns the most ticks any controller has waited to think.
+     *
+     * @return the longest wait in ticks
+     */
+    public int getLongestWait() {
+        return longestWait;
+    }
+
+    /**
+     * Returns the number of times a controller has thought.
+     *
+     * @return the number of updates
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * A range of the batch, split in half until each piece is small enough for one worker.
+     *
+     * The controllers only write to themselves while they think, so the pieces
+     * share nothing but the level they read.
+     */
+    @SuppressWarnings("serial")
+    private class Decision extends RecursiveAction {
+        /** The first entry of the batch in this piece */
+        private final int begin;
+        /** One past the last entry of the batch in this piece */
+        private final int end;
+
+        Decision(int begin, int end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - begin <= batchSize) {
+                for (int j = begin; j < end; j++) {
+                    controllers.get(batch.get(j)).updateAIController();
+                }
+            } else {
+                int middle = (begin + end) >>> 1;
+                invokeAll(new Decision(begin, middle), new Decision(middle, end));
+            }
+        }
+    }
+}
@@ -8,14 +8,15 @@ It is dependent on Level Model in order for the character to get information abo
  */
 package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
 
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.models.AbstractBeeModel;
 import edu.cornell.gdiac.honeyHeistCode.models.CharacterModel;
+import edu.cornell.gdiac.honeyHeistCode.models.FlyingBeeModel;
 import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
-import edu.cornell.gdiac.honeyHeistCode.models.PlatformModel;
-import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import com.badlogic.gdx.utils.JsonValue;
 
 import java.util.Random;
@@ -32,6 +33,24 @@ import java.util.Random;
  * If you want the AIController to target the player, you will need to put the position vector of the player into target.
  * Since that vector 2 is a reference, it should update with the movement of the player during runtime.
  *
+ * A flying character that chases the player follows the level's shared flow field, and measures its distance
+ * to the player along it, so it needs no line of sight.  A flying character with any other target that loses
+ * sight of it behind a platform keeps chasing it along a route found on the level's AIGraphModel, and goes back
+ * to wandering only if there is no route.
+ *
+ * A tick of the AI has three steps.  capture() copies the state of the controlled character, on the thread that
+ * steps the world.  updateAIController() then decides where to go, reading only those copies, the WorldSnapshot
+ * and the level's geometry, and writing only to this controller, so controllers can decide on several threads
+ * at once.  Its scratch objects (temp, tempLineSegment and the other segments) belong to this controller, so
+ * they are only ever used by the thread deciding for it.  Finally apply() moves the character as decided, back
+ * on the thread that steps the world.
+ *
+ * The answers about lines are kept in a LineTestMemo for the rest of the tick, as a decision may ask about the
+ * same line more than once.
+ *
+ * With an AILevelOfDetail, a controller far from the player thinks less often and probes fewer directions.
+ * Its tier is chosen by updateDetail() after each capture, and the scheduler skips it while it is not due.
+ *
  *
  */
 public class AISingleCharacterController {
@@ -80,7 +99,12 @@ public class AISingleCharacterController {
     private long ticksSinceLastChangeInDirection;
     private int ticksBeforeChangeInRandomDirection;
 	private static final float checkLength = 1.5f;
+	/** The number of ticks a route is followed before it is found again */
+	private static final int TICKS_BETWEEN_ROUTES = 30;
+	/** The number of nodes along the flow field to head for */
+	private static final int FLOW_LOOKAHEAD = 2;
     private Vector2 target;
+    private boolean targetsPlayer;
     private DirectedLineSegment lineToTarget;
     private DirectedLineSegment tempLineSegment;
     private DirectedLineSegment bottomChecker;
@@ -91,7 +115,43 @@ public class AISingleCharacterController {
     private Vector2 temp;
 	private int ticksUntilChangeMustOccur;
 
-    Random random = new Random();
+	private AStarPathFinderController pathFinder;
+	/** The way to the player from every node, shared by every AI Controller */
+	private FlowFieldController flowField;
+	/** Answers whether lines are blocked, shared by every AI Controller */
+	private LineOfSightService lineOfSight;
+	/** The state of the level this tick, shared by every AI Controller */
+	private WorldSnapshot snapshot;
+	/** The answers about lines this controller has asked for this tick */
+	private LineTestMemo lineTests;
+	/** The state of the controlled character this tick, copied by capture() */
+	private Vector2 position;
+	private float angle;
+	private float movement;
+	private boolean grounded;
+	private boolean inHoney;
+	/** Whether the character should stop before it next moves */
+	private boolean halt;
+	/** The tiers of detail to think in (null to think every tick with every probe) */
+	private AILevelOfDetail levelOfDetail;
+	/** The tier this controller thinks in */
+	private int detail;
+	/** The number of ticks since the last reset, to tell when a thought is due */
+	private int detailTicks;
+	/** The offset of this controller's thoughts, so that a tier does not think all at once */
+	private int detailPhase;
+	/** Whether this controller should think this tick */
+	private boolean due;
+	/** The route to the target, while it is out of sight */
+	private DefaultGraphPath<AIGraphModel.AINodeModel> route;
+	/** The node of the route being steered towards */
+	private int routeIndex;
+	private int ticksSinceRoute;
+	/** Whether the line to the target was clear of platforms this tick */
+	private boolean targetVisible;
+	private Vector2 waypoint;
+
+    SnapshotRandom random;
 
     /**
 	 * Creates an AI Controller for the given enemy model.
@@ -107,18 +167,29 @@ public class AISingleCharacterController {
 	 *
 	 * @param levelModel the level that the enemy is in.
 	 * @param controlledCharacter the enemy that this AI Controller controls.
+	 * @param seed the seed for the random decisions of this AI Controller.
+	 * @param pathFinder the path finder of the level, shared by every AI Controller.
+	 * @param flowField the flow field to the player, shared by every AI Controller.
+	 * @param lineOfSight the line of sight service of the level, shared by every AI Controller.
+	 * @param snapshot the state of the level each tick, shared by every AI Controller (already captured).
 	 *
 	 */
-	public AISingleCharacterController(LevelModel levelModel, CharacterModel controlledCharacter, JsonValue data) {
+	public AISingleCharacterController(LevelModel levelModel, CharacterModel controlledCharacter, JsonValue data, long seed,
+									   AStarPathFinderController pathFinder, FlowFieldController flowField,
+									   LineOfSightService lineOfSight, WorldSnapshot snapshot) {
 		this.levelModel = levelModel;
+		this.pathFinder = pathFinder;
+		this.flowField = flowField;
+		this.lineOfSight = lineOfSight;
+		this.snapshot = snapshot;
+		this.lineTests = new LineTestMemo();
+		this.route = pathFinder.obtainPath();
+		this.random = new SnapshotRandom();
         this.controlledCharacter = controlledCharacter;
 
 		this.characterType = CharacterType.fromInteger(data.getInt("enemy_type"));
 		this.chaseRadius = data.getFloat("chase_distance");
-		switch (data.getInt("target")) {
-			case 0:
-				this.target = levelModel.getPlayer().getPosition();
-		}
+		this.targetsPlayer = data.getInt("target") == 0;
 		this.wanderSpeedFactor = data.getFloat("wander_speed_factor");
 		this.chaseSpeedFactor = data.getFloat("chase_speed_factor");
 		this.checkIfItWillFallOffPlatform = data.getInt("check_fall_off_platform") == 1 ? true : false;
@@ -126,8 +197,7 @@ public class AISingleCharacterController {
 		this.ticksBeforeChangeInRandomDirection = data.getInt("ticksBeforeChangeInRandomDirection");
 		this.ticksUntilChangeMustOccur = data.getInt("ticksUntilChangeMustOccur");
 
-		state = FSMState.WANDER;
-		lineToTarget = new DirectedLineSegment(controlledCharacter.getPosition(), target);
+		lineToTarget = new DirectedLineSegment();
 		tempLineSegment = new DirectedLineSegment();
 		bottomChecker = new DirectedLineSegment();
 		poisonChecker = new DirectedLineSegment();
@@ -135,14 +205,198 @@ public class AISingleCharacterController {
 		temp = new Vector2();
 		currentDirection = new Vector2();
 		positionAtLastWander = new Vector2();
-		positionAtLastWander.set(controlledCharacter.getPosition());
+		waypoint = new Vector2();
+		position = new Vector2();
+		reset(seed);
+	}
+
+	/**
+	 * Returns the route of this AI Controller to the path finder.
+	 */
+	public void dispose() {
+		pathFinder.freePath(route);
+		route = null;
+	}
+
+	/**
+	 * Returns this AI Controller to the state it was created in, with a new seed.
+	 *
+	 * The controlled character should already be back where it started.
+	 *
+	 * @param seed the seed for the random decisions of this AI Controller.
+	 */
+	public void reset(long seed) {
+		random.setSeed(seed);
+		capture();
+		if (targetsPlayer) {
+			this.target = snapshot.playerPosition;
+		}
+
+		state = FSMState.WANDER;
+		halt = false;
+		detail = 0;
+		detailTicks = 0;
+		due = true;
+		lineToTarget.set(position, target);
+		positionAtLastWander.set(position);
 		ticksSinceLastChangeInDirection = 0;
 		ticks = 0;
+		route.clear();
+		routeIndex = 0;
+		ticksSinceRoute = 0;
 		initDirection();
 	}
 
+	/**
+	 * Appends the state of this AI Controller to the buffer, including its random generator.
+	 *
+	 * @param buffer the buffer to append to
+	 */
+	public void saveState(StateBuffer buffer) {
+		buffer.putObject(state);
+		buffer.putLong(ticks);
+		buffer.putLong(ticksSinceLastChangeInDirection);
+		buffer.putVector(positionAtLastWander);
+		buffer.putFloat(direction.x1);
+		buffer.putFloat(direction.y1);
+		buffer.putFloat(direction.x2);
+		buffer.putFloat(direction.y2);
+		buffer.putLong(random.getState());
+		buffer.putInt(route.getCount());
+		for (int i = 0; i < route.getCount(); i++) {
+			buffer.putInt(route.get(i).index);
+		}
+		buffer.putInt(routeIndex);
+		buffer.putInt(ticksSinceRoute);
+		buffer.putInt(detail);
+		buffer.putInt(detailTicks);
+	}
+
+	/**
+	 * Returns this AI Controller to the state read from the buffer.
+	 *
+	 * The controlled character should already be restored.
+	 *
+	 * @param buffer the buffer to read, positioned where saveState wrote this controller
+	 */
+	public void restoreState(StateBuffer buffer) {
+		capture();
+		if (targetsPlayer) {
+			this.target = snapshot.playerPosition;
+		}
+		state = buffer.getObject();
+		ticks = buffer.getLong();
+		ticksSinceLastChangeInDirection = buffer.getLong();
+		buffer.getVector(positionAtLastWander);
+		float x1 = buffer.getFloat();
+		float y1 = buffer.getFloat();
+		float x2 = buffer.getFloat();
+		direction.set(x1, y1, x2, buffer.getFloat());
+		random.setState(buffer.getLong());
+		route.clear();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			route.add(pathFinder.getGraph().getNode(buffer.getInt()));
+		}
+		routeIndex = buffer.getInt();
+		ticksSinceRoute = buffer.getInt();
+		detail = buffer.getInt();
+		detailTicks = buffer.getInt();
+		due = true;
+		lineToTarget.set(position, target);
+	}
+
+	/**
+	 * Copies the state of the controlled character that the next decision reads.
+	 *
+	 * Call this on the thread that steps the world, before updateAIController.
+	 */
+	public void capture() {
+		position.set(controlledCharacter.getPosition());
+		angle = controlledCharacter.getAngle();
+		movement = controlledCharacter.getMovement();
+		grounded = controlledCharacter.isGrounded();
+		inHoney = controlledCharacter.isInHoney();
+		lineTests.clear();
+	}
+
+	/**
+	 * Sets the tiers of detail this controller thinks in.
+	 *
+	 * @param levelOfDetail the tiers of detail (null to think every tick with every probe)
+	 * @param phase the offset of this controller's thoughts, such as its order of creation
+	 */
+	public void setLevelOfDetail(AILevelOfDetail levelOfDetail, int phase) {
+		this.levelOfDetail = levelOfDetail;
+		this.detailPhase = phase;
+		detail = 0;
+		due = true;
+	}
+
+	/**
+	 * Chooses the tier of detail to think in this tick, and whether a thought is due.
+	 *
+	 * Call this after capture, on the thread that steps the world.
+	 */
+	public void updateDetail() {
+		if (levelOfDetail == null) {
+			due = true;
+			return;
+		}
+		float distance = position.dst(snapshot.playerPosition) / chaseRadius;
+		int tier = levelOfDetail.getTier(detail, distance, state == FSMState.CHASE);
+		// A bee that comes nearer thinks at once
+		due = tier < detail || (detailTicks + detailPhase) % levelOfDetail.getPeriod(tier) == 0;
+		detail = tier;
+		detailTicks++;
+	}
+
+	/**
+	 * Returns true if this controller should think this tick.
+	 *
+	 * @return true if a thought is due
+	 */
+	public boolean isDue() {
+		return due;
+	}
+
+	/**
+	 * Returns the number of line tests this controller answered from its memo.
+	 *
+	 * @return the number of line tests answered from the memo
+	 */
+	public long getLineTestHits() {
+		return lineTests.getHits();
+	}
+
+	/**
+	 * Returns the number of line tests this controller asked the line of sight service.
+	 *
+	 * @return the number of line tests asked of the service
+	 */
+	public long getLineTestMisses() {
+		return lineTests.getMisses();
+	}
+
+	/**
+	 * Returns the tier of detail this controller thinks in (0 for the nearest).
+	 *
+	 * @return the tier of detail
+	 */
+	public int getDetail() {
+		return detail;
+	}
+
+	/**
+	 * Returns the number of directions this controller may probe in its tier.
+	 */
+	private int getProbes() {
+		return (levelOfDetail == null ? AILevelOfDetail.ALL_PROBES : levelOfDetail.getProbes(detail));
+	}
+
 	/**
 	 * Updates the state of the AI Controller
+	 *
+	 * This only reads the level, so it may run on any thread once capture has been called.
 	 */
 	public void updateAIController() {
 		updateLineToTarget();
@@ -152,6 +406,24 @@ public class AISingleCharacterController {
 		ticks ++;
 	}
 
+	/**
+	 * Moves the controlled character in the direction last decided.
+	 *
+	 * Call this on the thread that steps the world, after updateAIController.
+	 */
+	public void apply() {
+		if (halt) {
+			controlledCharacter.haltMovement();
+			halt = false;
+		}
+		((AbstractBeeModel) controlledCharacter).setIsChasing(state == FSMState.CHASE);
+		Vector2 movementDirection = getMovementDirection();
+		controlledCharacter.setMovement(movementDirection.x * controlledCharacter.getForce());
+		if (controlledCharacter.getClass() == FlyingBeeModel.class) {
+			((FlyingBeeModel) controlledCharacter).setVMovement(movementDirection.y * controlledCharacter.getForce());
+		}
+	}
+
 	/**
 	 * Returns the direction which the controlled enemy should move.
 	 *
@@ -160,6 +432,11 @@ public class AISingleCharacterController {
 	public Vector2 getMovementDirection() {
 		currentDirection.set(direction.getDirection());
 		currentDirection.nor();
+		// Characters move along the screen's axes, which turn when the gravity does
+		float frameAngle = levelModel.getFrameAngle();
+		if (frameAngle != 0) {
+			currentDirection.rotateRad(-frameAngle);
+		}
 		if (characterType == CharacterType.GROUNDED_CHARACTER) {
 			currentDirection.set(setVectorToLeftOrRight(currentDirection));
 		}
@@ -219,7 +496,7 @@ public class AISingleCharacterController {
 	 * Updates the vector 2 between the enemy object and the target.
 	 */
 	private void updateLineToTarget() {
-        lineToTarget.set(controlledCharacter.getPosition(), target);
+        lineToTarget.set(position, target);
     }
 
 
@@ -227,35 +504,98 @@ public class AISingleCharacterController {
 	 * Updates the state of the AI Controller to either WANDER or CHASE.
 	 */
 	private void updateFSMState() {
-		float distanceToPlayer = controlledCharacter.getPosition().dst(levelModel.getPlayer().getPosition());
-		if (levelModel.getPlatforms().isRotating()) {
+		float distanceToPlayer;
+		if (usesFlowField()) {
+			// The way around the platforms stands in for the line of sight
+			distanceToPlayer = flowField.getDistance(position);
+		} else {
+			distanceToPlayer = position.dst(snapshot.playerPosition);
+		}
+		if (snapshot.rotating) {
 			updatePositionAtLastWander();
 		}
 		switch (this.state) {
 			case WANDER:
-				if (distanceToPlayer < chaseRadius && !isLineCollidingWithAPlatform(lineToTarget)) {
+				if (distanceToPlayer >= chaseRadius) {
+					break;
+				}
+				if (usesFlowField()) {
+					this.state = FSMState.CHASE;
+					break;
+				}
+				targetVisible = !isLineCollidingWithAPlatform(lineToTarget);
+				if (targetVisible) {
 					if (characterType == CharacterType.FLYING_CHARACTER) {
 						this.state = FSMState.CHASE;
 					} else {
-						if (Math.abs(lineToTarget.getDirection().y) < .75f) {
+						temp.set(lineToTarget.getDirection()).rotateRad(-snapshot.frameAngle);
+						if (Math.abs(temp.y) < .75f) {
 							this.state = FSMState.CHASE;
 						}
 					}
+				} else if (characterType == CharacterType.FLYING_CHARACTER && findRoute()) {
+					this.state = FSMState.CHASE;
 				}
 				break;
 			case CHASE:
-				if (distanceToPlayer > chaseRadius || isLineCollidingWithAPlatform(lineToTarget)) {
+				boolean lost;
+				if (usesFlowField()) {
+					lost = distanceToPlayer > chaseRadius;
+				} else {
+					targetVisible = distanceToPlayer <= chaseRadius && !isLineCollidingWithAPlatform(lineToTarget);
+					if (targetVisible) {
+						// Find a new route as soon as the target is hidden again
+						invalidateRoute();
+					}
+					lost = distanceToPlayer > chaseRadius || (!targetVisible && !canFollowRoute());
+				}
+				if (lost) {
 					this.state = FSMState.WANDER;
-					controlledCharacter.haltMovement();
+					halt = true;
 					updatePositionAtLastWander();
 				}
 		}
-		boolean isChasing = this.state == FSMState.CHASE;
-		((AbstractBeeModel) controlledCharacter).setIsChasing(isChasing);
+	}
+
+	/**
+	 * Returns true if this AI Controller chases along the flow field to the player.
+	 */
+	private boolean usesFlowField() {
+		return targetsPlayer && characterType == CharacterType.FLYING_CHARACTER;
+	}
+
+	/**
+	 * Makes the route stale, so that a new one is found before it is followed again.
+	 */
+	public void invalidateRoute() {
+		routeIndex = route.getCount();
+	}
+
+	/**
+	 * Returns true if there is a route to follow to the target, finding a new one if it is stale.
+	 */
+	private boolean canFollowRoute() {
+		if (characterType != CharacterType.FLYING_CHARACTER) {
+			return false;
+		}
+		if (routeIndex < route.getCount() && ticksSinceRoute < TICKS_BETWEEN_ROUTES) {
+			return true;
+		}
+		return findRoute();
+	}
+
+	/**
+	 * Finds a new route to the target, and returns true if it leads anywhere.
+	 */
+	private boolean findRoute() {
+		ticksSinceRoute = 0;
+		// The first node is the one the character is already in
+		routeIndex = 1;
+		return pathFinder.findPath(position, target, route) && route.getCount() > 1;
 	}
 
 	private void updatePositionAtLastWander() {
-		positionAtLastWander.set(controlledCharacter.getPosition());
+		positionAtLastWander.set(position);
 	}
 
 	/**
@@ -265,12 +605,12 @@ public class AISingleCharacterController {
 		switch (this.state) {
 			case WANDER:
 				if (characterType == CharacterType.GROUNDED_CHARACTER) {
-					rotateWanderDirectionForGroundedEnemy((float)Math.toDegrees(controlledCharacter.getAngle()));
+					rotateWanderDirectionForGroundedEnemy((float)Math.toDegrees(angle));
 					wanderDirectionForGroundedEnemy();
 				} else {
 					wanderDirectionForFlyingEnemy();
 				}
-				direction.setByVector(controlledCharacter.getPosition(),direction.getDirection().nor().scl(checkLength));
+				direction.setByVector(position,direction.getDirection().nor().scl(checkLength));
 				break;
 
 			case CHASE:
@@ -289,14 +629,14 @@ public class AISingleCharacterController {
 	}
 
 	private void rotateWanderDirectionForGroundedEnemy(float rotation) {
-		if (controlledCharacter.getMovement() <= 0) {
+		if (movement <= 0) {
 			rotation = 180 + rotation;
 		}
-		direction.setByVector(controlledCharacter.getPosition(), direction.getDirection().setAngleDeg(rotation));
+		direction.setByVector(position, direction.getDirection().setAngleDeg(rotation));
 	}
 
 	private void wanderDirectionForGroundedEnemy() {
-		direction.setByVector(controlledCharacter.getPosition(), direction.getDirection());
+		direction.setByVector(position, direction.getDirection());
 		if (ticksSinceLastChangeInDirection >= ticksBeforeChangeInRandomDirection && isCharacterGroundedOnSlantedPlatform()) {
 			if (isLineCollidingWithAPlatform(direction)) {
 				changeToOppositeDirection();
@@ -306,7 +646,7 @@ public class AISingleCharacterController {
 				changeToOppositeDirection();
 				ticksSinceLastChangeInDirection = 0;
 			}
-			if (ticksSinceLastChangeInDirection >= ticksUntilChangeMustOccur && !controlledCharacter.isInHoney()) {
+			if (ticksSinceLastChangeInDirection >= ticksUntilChangeMustOccur && !inHoney) {
 				changeToOppositeDirection();
 				ticksSinceLastChangeInDirection = 0;
 			}
@@ -315,18 +655,19 @@ public class AISingleCharacterController {
 	}
 
 	private boolean isCharacterGroundedOnSlantedPlatform() {
-		return controlledCharacter.isGrounded() && (Math.toDegrees(controlledCharacter.getAngle()) != 0 || Math.toDegrees(controlledCharacter.getAngle()) != 180);
+		return grounded && (Math.toDegrees(angle) != 0 || Math.toDegrees(angle) != 180);
 	}
 
 	private boolean isExitingWanderRadius() {
-		return controlledCharacter.getPosition().dst(positionAtLastWander) >= wanderRadius;
+		return position.dst(positionAtLastWander) >= wanderRadius;
 	}
 
 	private void wanderDirectionForFlyingEnemy() {
-		direction.setByVector(controlledCharacter.getPosition(), direction.getDirection());
+		direction.setByVector(position, direction.getDirection());
 		if (ticks % ticksBeforeChangeInRandomDirection == 0) {
 			setDirectionToRandom12();
-			for (int i = 0; i < 5; i++) {
+			int retries = Math.min(5, getProbes());
+			for (int i = 0; i < retries; i++) {
 				if (isLineCollidingWithAPlatform(direction)) {
 					setDirectionToRandom12();
 				}
@@ -339,11 +680,11 @@ public class AISingleCharacterController {
 		else if (isLineCollidingWithAPlatform(direction)) {
 			getViableDirection12();
 		}
-		else if (isExitingWanderRadius() && !controlledCharacter.isInHoney()) {
-			direction.set(controlledCharacter.getPosition(), positionAtLastWander);
-			controlledCharacter.haltMovement();
+		else if (isExitingWanderRadius() && !inHoney) {
+			direction.set(position, positionAtLastWander);
+			halt = true;
 		}
-		else if (controlledCharacter.isInHoney()) {
+		else if (inHoney) {
 			updatePositionAtLastWander();
 		}
 
@@ -357,7 +698,7 @@ public class AISingleCharacterController {
 		temp.set(checkLength,0);
 		temp.setAngleDeg(angle);
 		temp.nor();
-		direction.setByVector(controlledCharacter.getPosition(), temp.scl(chaseSpeedFactor));
+		direction.setByVector(position, temp.scl(chaseSpeedFactor));
 	}
 
 	/**
@@ -368,7 +709,7 @@ public class AISingleCharacterController {
 		temp.set(1,0);
 		temp.setAngleDeg(angle * 90);
 		temp.nor();
-		direction.setByVector(controlledCharacter.getPosition(), temp);
+		direction.setByVector(position, temp);
 	}
 
 	/**
@@ -379,14 +720,15 @@ public class AISingleCharacterController {
 		temp.set(1,0);
 		temp.setAngleDeg(angle * 30);
 		temp.nor();
-		direction.setByVector(controlledCharacter.getPosition(), temp);
+		direction.setByVector(position, temp);
 	}
 
 	private void getViableDirection12() {
 		temp.set(1,0).scl(checkLength);
-		for (int i = 0; i < 360; i += 30) {
+		int scan = getProbes() * 30;
+		for (int i = 0; i < 360 && i < scan; i += 30) {
 			temp.setAngleDeg(i * 30);
-			direction.setByVector(controlledCharacter.getPosition(), temp);
+			direction.setByVector(position, temp);
 			if (!isLineCollidingWithAPlatform(direction)) {
 				break;
 			}
@@ -400,19 +742,31 @@ public class AISingleCharacterController {
 		} else {
 			temp.set(-1, 0);
 		}
-		direction.setByVector(controlledCharacter.getPosition(), temp);
+		direction.setByVector(position, temp);
 	}
 
 	private void changeToOppositeDirection() {
 		temp.set(direction.getDirection());
 		temp.scl(-1);
-		direction.setByVector(controlledCharacter.getPosition(), temp);
+		direction.setByVector(position, temp);
 	}
 
 	/**
 	 * Set the direction vector to go towards the specified target.
 	 */
 	private void setDirectionToGoTowardsTarget() {
+		if (usesFlowField()) {
+			AIGraphModel.AINodeModel next = flowField.getNextNode(position, FLOW_LOOKAHEAD);
+			// Close to the player, or if the player is out of the grid, go straight for it
+			if (next != null) {
+				temp.set(next.getPosition()).sub(position).nor();
+				direction.setByVector(position, temp);
+				return;
+			}
+		} else if (!targetVisible && characterType == CharacterType.FLYING_CHARACTER) {
+			setDirectionToFollowRoute();
+			return;
+		}
 		temp.set(lineToTarget.getDirection());
 		if (characterType == CharacterType.GROUNDED_CHARACTER) {
 			if (temp.x >= 0) {
@@ -422,15 +776,34 @@ public class AISingleCharacterController {
 			}
 		}
 		temp.nor();
-		direction.setByVector(controlledCharacter.getPosition(),temp);
+		direction.setByVector(position,temp);
+	}
+
+	/**
+	 * Set the direction vector to go towards the next node of the route.
+	 */
+	private void setDirectionToFollowRoute() {
+		waypoint.set(route.get(routeIndex).getPosition());
+		while (routeIndex < route.getCount() - 1 &&
+				waypoint.dst(position) < AIGraphModel.AINodeModel.MIN_NODE_RADIUS) {
+			routeIndex++;
+			waypoint.set(route.get(routeIndex).getPosition());
+		}
+		ticksSinceRoute++;
+		temp.set(waypoint).sub(position).nor();
+		direction.setByVector(position, temp);
 	}
 
 	private boolean willCharacterCollideWithAPoisonPlatform(DirectedLineSegment line) {
+		if (getProbes() < 4) {
+			// Too few probes for the fan, so only look straight ahead
+			return isLineCollidingWithAPoisonPlatform(line);
+		}
 		temp.set(line.getDirection());
 		float angle = temp.angleDeg();
 		for (int i = -10; i < 10; i+= 5) {
 			temp.setAngleDeg(angle + i);
-			poisonChecker.setByVector(controlledCharacter.getPosition(), temp);
+			poisonChecker.setByVector(position, temp);
 			if (isLineCollidingWithAPoisonPlatform(poisonChecker)) {
 				return true;
 			}
@@ -439,20 +812,19 @@ public class AISingleCharacterController {
 	}
 
 	private boolean willCharacterFallOffPlatform() {
-		temp.set(0,-1);
-		Vector2 position = controlledCharacter.getPosition();
-		bottomChecker.setByVector(position.x + direction.getDirection().x, position.y, temp.x, temp.y);
+		// Look down the screen from just ahead of the character along the screen
+		float frameAngle = snapshot.frameAngle;
+		temp.set(direction.getDirection()).rotateRad(-frameAngle);
+		temp.set(temp.x, 0).rotateRad(frameAngle);
+		float x = position.x + temp.x;
+		float y = position.y + temp.y;
+		temp.set(0,-1).rotateRad(frameAngle);
+		bottomChecker.setByVector(x, y, temp.x, temp.y);
 		return !isLineCollidingWithAPlatform(bottomChecker);
 	}
 
 	private boolean isLineCollidingWithAPoisonPlatform(DirectedLineSegment line) {
-		PlatformModel poisonPlatforms = levelModel.getSpikedPlatforms();
-		for (PolygonObstacle platform : poisonPlatforms.getBodies()) {
-			if (doesPolygonIntersectLine(line, platform.getTrueVertices())) {
-				return true;
-			}
-		}
-		return false;
+		return lineTests.isBlocked(lineOfSight, line, true, snapshot.platformAngle);
 	}
 
 
@@ -462,11 +834,8 @@ public class AISingleCharacterController {
 	 * @return
 	 */
     private boolean isLineCollidingWithAPlatform(DirectedLineSegment line) {
-		PlatformModel platforms = levelModel.getPlatforms();
-		for (PolygonObstacle platform : platforms.getBodies()) {
-			if (doesPolygonIntersectLine(line, platform.getTrueVertices())) {
-				return true;
-			}
+		if (lineTests.isBlocked(lineOfSight, line, false, snapshot.platformAngle)) {
+			return true;
 		}
 		return willCharacterCollideWithAPoisonPlatform(line);
     }
@@ -545,6 +914,60 @@ public class AISingleCharacterController {
 
 		gameCanvas.drawCircle(wanderRadius, Color.CYAN, positionAtLastWander.x, positionAtLastWander.y, scale.x, scale.y);
 
+		if (state == FSMState.CHASE && !targetVisible) {
+			for (int i = routeIndex; i + 1 < route.getCount(); i++) {
+				Vector2 from = route.get(i).getPosition();
+				Vector2 to = route.get(i + 1).getPosition();
+				gameCanvas.drawLine(Color.GREEN, from.x, from.y, to.x, to.y, scale.x, scale.y);
+			}
+		}
+
 	}
 
-}
\ No newline at end of file
+	/**
+	 * A random generator whose state can be saved and restored.
+	 *
+	 * This is the same generator as {@link Random}, so a seed gives the same numbers
+	 * either way, but the state is kept where snapshots can reach it.
+	 */
+	@SuppressWarnings("serial")
+	static class SnapshotRandom extends Random {
+		/** The constants of the linear congruential generator used by Random */
+		private static final long MULTIPLIER = 0x5DEECE66DL;
+		private static final long ADDEND = 0xBL;
+		private static final long MASK = (1L << 48) - 1;
+
+		/** The current state of the generator (set by the superclass constructor) */
+		private long state;
+
+		@Override
+		public synchronized void setSeed(long seed) {
+			super.setSeed(seed);
+			state = (seed ^ MULTIPLIER) & MASK;
+		}
+
+		@Override
+		protected int next(int bits) {
+			state = (state * MULTIPLIER + ADDEND) & MASK;
+			return (int) (state >>> (48 - bits));
+		}
+
+		/**
+		 * Returns the current state of the generator
+		 *
+		 * @return the current state of the generator
+		 */
+		long getState() {
+			return state;
+		}
+
+		/**
+		 * Sets the current state of the generator
+		 *
+		 * @param value a state returned by getState
+		 */
+		void setState(long value) {
+			state = value;
+		}
+	}
+}
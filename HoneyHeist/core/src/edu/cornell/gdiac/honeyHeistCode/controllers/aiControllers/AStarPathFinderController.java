@@ -1,53 +1,80 @@
 package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
 
-import com.badlogic.gdx.utils.BinaryHeap;
-
-import java.util.HashMap;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
 
-public class AStarPathFinderController  {
+/**
+ * Finds routes between positions of a level on its AIGraphModel.
+ *
+ * One path finder is shared by every AI of a level.  The search keeps a record for
+ * each node of the graph and reuses it in later searches, and routes are drawn from
+ * a pool, so a search does not allocate once every node has been visited.
+ * Those records are shared, so the AI takes turns to search when it thinks on
+ * several threads.
+ */
+public class AStarPathFinderController {
     AIGraphModel graph;
-    HashMap<Vector2, NodeRecord> discoveredNodes;
-    private int searchId;
-    NodeRecord current;
-
-
-    private static final int UNVISITED = 0;
-    private static final int OPEN = 1;
-    private static final int CLOSED = 2;
+    private IndexedAStarPathFinder<AIGraphModel.AINodeModel> pathFinder;
+    private AIGraphModel.AIHeuristicModel heuristic;
+    private Pool<DefaultGraphPath<AIGraphModel.AINodeModel>> paths;
 
+    public AStarPathFinderController(AIGraphModel graph) {
+        this.graph = graph;
+        pathFinder = new IndexedAStarPathFinder<AIGraphModel.AINodeModel>(graph);
+        heuristic = new AIGraphModel.AIHeuristicModel();
+        paths = new Pool<DefaultGraphPath<AIGraphModel.AINodeModel>>() {
+            @Override
+            protected DefaultGraphPath<AIGraphModel.AINodeModel> newObject() {
+                return new DefaultGraphPath<AIGraphModel.AINodeModel>();
+            }
+        };
+    }
 
     /**
-     * This nested class is used to keep track of the information we need for each node during the search.
-     *      Author: davebaol
-     *     Type parameters: <N> – Type of node
+     * Returns the graph that routes are found on.
+     * @return the graph that routes are found on
      */
+    public AIGraphModel getGraph() {
+        return graph;
+    }
 
-    static class NodeRecord extends BinaryHeap.Node {
-        /** The reference to the node. */
-        AIGraphModel.AINodeModel node;
-
-        /** The incoming connection to the node */
-        AIGraphModel.AIConnectionModel connection;
-
-        /** The actual cost from the start node. */
-        float costSoFar;
-
-        /** The node category: {@link #UNVISITED}, {@link #OPEN} or {@link #CLOSED}. */
-        int category;
-
-        /** ID of the current search. */
-        int searchId;
+    /**
+     * Returns an empty route from the pool.
+     * @return an empty route
+     */
+    public synchronized DefaultGraphPath<AIGraphModel.AINodeModel> obtainPath() {
+        DefaultGraphPath<AIGraphModel.AINodeModel> path = paths.obtain();
+        path.clear();
+        return path;
+    }
 
-        /** Creates a {@code NodeRecord}. */
-        public NodeRecord () {
-            super(0);
-        }
+    /**
+     * Returns a route obtained from obtainPath to the pool.
+     * @param path the route that is no longer used
+     */
+    public synchronized void freePath(DefaultGraphPath<AIGraphModel.AINodeModel> path) {
+        paths.free(path);
+    }
 
-        /** Returns the estimated total cost. */
-        public float getEstimatedTotalCost () {
-            return getValue();
+    /**
+     * Finds the shortest route between the nodes nearest to two positions.
+     *
+     * The route starts with the node nearest to the start.
+     * @param start the start position in world coordinates
+     * @param goal the goal position in world coordinates
+     * @param path the route to replace with the one found
+     * @return true if a route was found
+     */
+    public synchronized boolean findPath(Vector2 start, Vector2 goal, GraphPath<AIGraphModel.AINodeModel> path) {
+        path.clear();
+        AIGraphModel.AINodeModel startNode = graph.getNearestNode(start);
+        AIGraphModel.AINodeModel goalNode = graph.getNearestNode(goal);
+        if (startNode == null || goalNode == null) {
+            return false;
         }
+        return pathFinder.searchNodePath(startNode, goalNode, heuristic, path);
     }
-
 }
@@ -1,6 +1,7 @@
 package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
 
 import com.badlogic.gdx.math.Vector2;
+import edu.cornell.gdiac.util.Geometry;
 
 public class DirectedLineSegment {
     float x1;
@@ -65,26 +66,7 @@ public class DirectedLineSegment {
     }
 
     public boolean intersects(DirectedLineSegment line) {
-        int dir1 = orientation(this.x1, this.y1, this.x2, this.y2, line.x1, line.y1);
-        int dir2 = orientation(this.x1, this.y1, this.x2, this.y2, line.x2, line.y2);
-        int dir3 = orientation(line.x1, line.y1, line.x2, line.y2, this.x1, this.y1);
-        int dir4 = orientation(line.x1, line.y1, line.x2, line.y2, this.x2, this.y2);
-
-        if (dir1 != dir2 && dir3 != dir4) {
-            return true;
-        }
-        return false;
-    }
-
-    private int orientation(float x1, float y1, float x2, float y2, float x3, float y3) {
-        float val = (y2 - y1) * (x3 - x2) - (x2 - x1) * (y3 - y2);
-        if (val == 0) {
-            return 0;
-        } else if (val < 0) {
-            return -1;
-        } else {
-            return 1;
-        }
+        return Geometry.segmentsIntersect(x1, y1, x2, y2, line.x1, line.y1, line.x2, line.y2);
     }
 
     @Override
@@ -0,0 +1,328 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Bits;
+
+/**
+ * The way to a single goal from every node of an AIGraphModel.
+ *
+ * The field holds the number of edges from each node to the node of the goal, and
+ * a character heads for the neighbour that is closest to the goal.  One field serves
+ * every character chasing the goal, so a character reads its next move without
+ * looking at any geometry.
+ *
+ * The field is kept up to date by Lifelong Planning A* (the search D* Lite repeats),
+ * searching outwards from the goal.  When the goal moves to another node, or nodes
+ * are blocked or cleared by a rotation, only the nodes whose distance changes are
+ * expanded again.  There is no heuristic, as every node is wanted.
+ */
+public class FlowFieldController {
+    /** The distance of a node that cannot reach the goal */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    AIGraphModel graph;
+    /** The number of edges to the goal found for each node */
+    private int[] distance;
+    /** The number of edges to the goal through the best neighbour of each node */
+    private int[] lookahead;
+    /** The nodes whose two distances differ, as a binary heap on the smaller one */
+    private int[] heap;
+    /** The position of each node in the heap (-1 if it is not there) */
+    private int[] heapIndex;
+    private int heapSize;
+    /** The nodes that were accessible when the field was last updated */
+    private Bits accessible;
+    /** The node of the goal (-1 if the goal is off the grid) */
+    private int source;
+    /** The orientation of the graph when the field was last updated */
+    private int orientation;
+    /** The length of every edge */
+    private float edgeLength;
+    /** The number of nodes expanded by the last update, for profiling */
+    private int expanded;
+    /** The number of nodes expanded by every update, for profiling */
+    private long totalExpanded;
+    /** The number of updates, for profiling */
+    private long updates;
+
+    public FlowFieldController(AIGraphModel graph) {
+        this.graph = graph;
+        int count = graph.getNodeCount();
+        distance = new int[count];
+        lookahead = new int[count];
+        heap = new int[count];
+        heapIndex = new int[count];
+        accessible = new Bits(count);
+        source = -1;
+        orientation = -1;
+        edgeLength = 2 * AIGraphModel.AINodeModel.MIN_NODE_RADIUS;
+        clear();
+    }
+
+    /**
+     * Brings the field up to date with the goal and the orientation of the graph.
+     *
+     * Nothing is expanded unless the goal has moved to another node or the graph has turned.
+     * @param goal the position of the goal in world coordinates
+     */
+    public void update(Vector2 goal) {
+        updates++;
+        expanded = 0;
+        AIGraphModel.AINodeModel node = graph.getNearestNode(goal);
+        int index = (node == null ? -1 : node.index);
+        if (index == source && graph.getOrientation() == orientation) {
+            return;
+        }
+        if (index < 0) {
+            // Nothing can reach a goal off the grid
+            clear();
+            source = -1;
+            orientation = graph.getOrientation();
+            return;
+        }
+        if (source < 0) {
+            // Start from scratch, so that everything is expanded once
+            clear();
+            for (int i = 0; i < distance.length; i++) {
+                setAccessible(i, graph.getNode(i).isAccessible());
+            }
+        }
+
+        int previous = source;
+        source = index;
+        if (graph.getOrientation() != orientation) {
+            orientation = graph.getOrientation();
+            // A node that is blocked or cleared changes the edges of all its neighbours
+            for (int i = 0; i < distance.length; i++) {
+                boolean now = graph.getNode(i).isAccessible();
+                if (now != accessible.get(i)) {
+                    setAccessible(i, now);
+                    updateNode(i);
+                    updateNeighbours(i);
+                }
+            }
+        }
+        if (previous >= 0) {
+            updateNode(previous);
+        }
+        updateNode(source);
+        search();
+        totalExpanded += expanded;
+    }
+
+    /**
+     * Returns the length of the way to the goal from the given position.
+     *
+     * The length is measured along the grid, so it goes around platforms.
+     * @param position the position in world coordinates
+     * @return the length of the way to the goal, or Float.MAX_VALUE if there is none
+     */
+    public float getDistance(Vector2 position) {
+        AIGraphModel.AINodeModel node = graph.getNearestNode(position);
+        if (node == null || distance[node.index] == UNREACHABLE) {
+            return Float.MAX_VALUE;
+        }
+        return distance[node.index] * edgeLength + node.getPosition().dst(position);
+    }
+
+    /**
+     * Returns the node a few steps along the way to the goal from the given position.
+     *
+     * Looking more than one step ahead gives straighter movement.
+     * @param position the position in world coordinates
+     * @param steps the number of steps to look ahead
+     * @return the node to head for, or null if the position is at the goal or cannot reach it
+     */
+    public AIGraphModel.AINodeModel getNextNode(Vector2 position, int steps) {
+        AIGraphModel.AINodeModel node = graph.getNearestNode(position);
+        if (node == null || distance[node.index] == UNREACHABLE || node.index == source) {
+            return null;
+        }
+        int index = node.index;
+        for (int i = 0; i < steps && index != source; i++) {
+            index = getBestNeighbour(index);
+        }
+        return graph.getNode(index);
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last update.
+     * @return the number of nodes expanded by the last update
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Returns the average number of nodes expanded by an update.
+     * @return the average number of nodes expanded by an update
+     */
+    public float getAverageExpanded() {
+        return (updates == 0 ? 0 : (float) totalExpanded / updates);
+    }
+
+    private void setAccessible(int node, boolean value) {
+        if (value) {
+            accessible.set(node);
+        } else {
+            accessible.clear(node);
+        }
+    }
+
+    /**
+     * Makes every node unreachable and empties the heap.
+     */
+    private void clear() {
+        for (int i = 0; i < distance.length; i++) {
+            distance[i] = UNREACHABLE;
+            lookahead[i] = UNREACHABLE;
+            heapIndex[i] = -1;
+        }
+        heapSize = 0;
+    }
+
+    /**
+     * Expands nodes until every node has the distance of its best neighbour.
+     */
+    private void search() {
+        while (heapSize > 0) {
+            int node = pop();
+            expanded++;
+            if (distance[node] > lookahead[node]) {
+                // The node has come closer, and so may its neighbours
+                distance[node] = lookahead[node];
+            } else {
+                // The node has moved away, so it and its neighbours are found again
+                distance[node] = UNREACHABLE;
+                updateNode(node);
+            }
+            updateNeighbours(node);
+        }
+    }
+
+    /**
+     * Finds the distance of a node through its best neighbour, and queues it if that differs.
+     * @param node the index of the node
+     */
+    private void updateNode(int node) {
+        if (node == source) {
+            lookahead[node] = 0;
+        } else if (!accessible.get(node)) {
+            lookahead[node] = UNREACHABLE;
+        } else {
+            int best = getBestNeighbour(node);
+            lookahead[node] = (best < 0 || distance[best] == UNREACHABLE ? UNREACHABLE : distance[best] + 1);
+        }
+        if (distance[node] != lookahead[node]) {
+            push(node);
+        } else if (heapIndex[node] >= 0) {
+            remove(node);
+        }
+    }
+
+    /**
+     * Updates every node next to the given one.
+     * @param node the index of the node
+     */
+    private void updateNeighbours(int node) {
+        for (int direction = 0; direction < AIGraphModel.ORIENTATIONS; direction++) {
+            int other = graph.getNeighbour(node, direction);
+            if (other >= 0) {
+                updateNode(other);
+            }
+        }
+    }
+
+    /**
+     * Returns the accessible neighbour of a node that is closest to the goal.
+     *
+     * Ties go to the first direction, so that the field does not depend on the order of updates.
+     * @param node the index of an accessible node
+     * @return the index of the neighbour, or -1 if it has no accessible neighbour
+     */
+    private int getBestNeighbour(int node) {
+        int best = -1;
+        for (int direction = 0; direction < AIGraphModel.ORIENTATIONS; direction++) {
+            int other = graph.getNeighbour(node, direction);
+            if (other >= 0 && accessible.get(other) && (best < 0 || distance[other] < distance[best])) {
+                best = other;
+            }
+        }
+        return best;
+    }
+
+    // Binary heap of node indices, keyed on the smaller of their two distances
+
+    private int key(int node) {
+        return Math.min(distance[node], lookahead[node]);
+    }
+
+    private void push(int node) {
+        int i = heapIndex[node];
+        if (i < 0) {
+            i = heapSize++;
+            heap[i] = node;
+            heapIndex[node] = i;
+        }
+        siftUp(i);
+        siftDown(heapIndex[node]);
+    }
+
+    private int pop() {
+        int node = heap[0];
+        remove(node);
+        return node;
+    }
+
+    private void remove(int node) {
+        int i = heapIndex[node];
+        heapIndex[node] = -1;
+        heapSize--;
+        if (i == heapSize) {
+            return;
+        }
+        int last = heap[heapSize];
+        heap[i] = last;
+        heapIndex[last] = i;
+        siftUp(i);
+        siftDown(heapIndex[last]);
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        int key = key(node);
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (key(heap[parent]) <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        heapIndex[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        int key = key(node);
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && key(heap[child + 1]) < key(heap[child])) {
+                child++;
+            }
+            if (key <= key(heap[child])) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        heapIndex[node] = i;
+    }
+}
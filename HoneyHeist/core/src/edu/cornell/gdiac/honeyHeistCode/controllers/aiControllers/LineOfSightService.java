@@ -0,0 +1,242 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.LongMap;
+import edu.cornell.gdiac.honeyHeistCode.models.FixtureData;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+
+/**
+ * Answers whether a segment is blocked by the platforms or the spikes of a level.
+ *
+ * One service is shared by every AI of a level, and it can answer in two ways.
+ * The INDEX backend tests the edges near the segment in the level's PlatformEdgeIndex.
+ * The RAYCAST backend casts the segment into the Box2D world, so that the world's
+ * dynamic tree does the culling, and keeps the fixtures of the wanted category.
+ * A ray that starts inside a platform does not see that platform, so the two can
+ * disagree for segments that start inside the geometry.
+ *
+ * Answers can also be cached for the rest of a tick, keyed by the cells of the two
+ * end points, so that bees standing close together share their queries.  Segments
+ * in the same cells are then taken to agree, so the cache is off by default.
+ *
+ * The AI may ask from several threads at once.  The edge index is only read, so those
+ * queries run side by side.  A raycast and the cache share state, so queries that use
+ * either take turns.
+ */
+public class LineOfSightService implements RayCastCallback {
+    /**
+     * The ways the service can answer a query
+     */
+    public enum Backend {
+        /** Test the edges in the level's edge index */
+        INDEX,
+        /** Cast a ray into the Box2D world */
+        RAYCAST;
+
+        /**
+         * Returns the backend with the given name, ignoring case
+         *
+         * @param name the name of the backend ("index" or "raycast")
+         * @return the backend with the given name
+         */
+        public static Backend fromString(String name) {
+            return valueOf(name.toUpperCase());
+        }
+    }
+
+    /** The level to answer queries about */
+    private LevelModel levelModel;
+    /** The world to cast rays into (null unless the backend is RAYCAST) */
+    private World world;
+    private Backend backend;
+
+    /** The width of a cache cell (0 for no cache) */
+    private float cellSize;
+    /** The answers of this tick about the platforms, keyed by the cells of the end points */
+    private LongMap<Boolean> platformCache;
+    /** The answers of this tick about the spikes, keyed by the cells of the end points */
+    private LongMap<Boolean> spikeCache;
+
+    /** The category the ray being cast is looking for */
+    private short category;
+    /** Whether the ray being cast has hit a fixture of that category */
+    private boolean hit;
+    /** Cache for the end points of a ray */
+    private Vector2 start;
+    private Vector2 end;
+
+    /** The number of queries looked up in the cache, for profiling */
+    private long queries;
+    /** The number of queries answered by the cache, for profiling */
+    private long cacheHits;
+
+    /**
+     * Creates a service for the given level that answers from its edge index, without a cache.
+     *
+     * @param levelModel the level to answer queries about
+     */
+    public LineOfSightService(LevelModel levelModel) {
+        this.levelModel = levelModel;
+        backend = Backend.INDEX;
+        platformCache = new LongMap<Boolean>();
+        spikeCache = new LongMap<Boolean>();
+        start = new Vector2();
+        end = new Vector2();
+    }
+
+    /**
+     * Sets the way the service answers queries.
+     *
+     * @param backend the way to answer queries
+     * @param world the world of the level, needed for RAYCAST
+     */
+    public void setBackend(Backend backend, World world) {
+        assert backend != Backend.RAYCAST || world != null : "A raycast needs a world";
+        this.backend = backend;
+        this.world = world;
+        clearCache();
+    }
+
+    /**
+     * Returns the way the service answers queries.
+     *
+     * @return the way the service answers queries
+     */
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Sets the width of the cells answers are cached by.
+     *
+     * @param cellSize the width of a cache cell in world units (0 for no cache)
+     */
+    public void setCacheCellSize(float cellSize) {
+        this.cellSize = cellSize;
+        clearCache();
+    }
+
+    /**
+     * Forgets the answers of the last tick, and brings the edge indexes up to date.
+     *
+     * Call this once each tick, before the AI asks anything.
+     */
+    public void beginTick() {
+        clearCache();
+        if (backend == Backend.INDEX) {
+            levelModel.getPlatformEdges().prepare();
+            levelModel.getSpikedPlatformEdges().prepare();
+        }
+    }
+
+    /**
+     * Returns true if the segment is blocked by a platform.
+     *
+     * @param line the segment to test
+     * @return true if the segment is blocked by a platform
+     */
+    public boolean isBlockedByPlatforms(DirectedLineSegment line) {
+        return isBlocked(line, FixtureData.CATEGORY_PLATFORM, platformCache);
+    }
+
+    /**
+     * Returns true if the segment is blocked by a spiked platform.
+     *
+     * @param line the segment to test
+     * @return true if the segment is blocked by a spiked platform
+     */
+    public boolean isBlockedBySpikes(DirectedLineSegment line) {
+        return isBlocked(line, FixtureData.CATEGORY_SPIKE, spikeCache);
+    }
+
+    /**
+     * Returns the number of queries looked up in the cache.
+     *
+     * @return the number of queries looked up in the cache
+     */
+    public long getQueries() {
+        return queries;
+    }
+
+    /**
+     * Returns the number of queries answered by the cache.
+     *
+     * @return the number of queries answered by the cache
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    private boolean isBlocked(DirectedLineSegment line, short category, LongMap<Boolean> cache) {
+        if (backend == Backend.INDEX && cellSize <= 0) {
+            return intersectsEdges(line, category);
+        }
+        synchronized (this) {
+            if (cellSize <= 0) {
+                return castRay(line, category);
+            }
+            queries++;
+            long key = ((long) getCell(line.x1, line.y1) << 32) | (getCell(line.x2, line.y2) & 0xFFFFFFFFL);
+            Boolean cached = cache.get(key);
+            if (cached != null) {
+                cacheHits++;
+                return cached;
+            }
+            boolean blocked = (backend == Backend.RAYCAST ? castRay(line, category) : intersectsEdges(line, category));
+            cache.put(key, blocked);
+            return blocked;
+        }
+    }
+
+    private boolean intersectsEdges(DirectedLineSegment line, short category) {
+        if (category == FixtureData.CATEGORY_SPIKE) {
+            return levelModel.getSpikedPlatformEdges().intersects(line.x1, line.y1, line.x2, line.y2);
+        }
+        return levelModel.getPlatformEdges().intersects(line.x1, line.y1, line.x2, line.y2);
+    }
+
+    /**
+     * Returns the cell of a point, packing its column and row into an int.
+     */
+    private int getCell(float x, float y) {
+        int column = MathUtils.floor(x / cellSize);
+        int row = MathUtils.floor(y / cellSize);
+        return (column & 0xFFFF) | (row << 16);
+    }
+
+    private boolean castRay(DirectedLineSegment line, short category) {
+        if (line.x1 == line.x2 && line.y1 == line.y2) {
+            // Box2D cannot cast a ray of no length
+            return false;
+        }
+        this.category = category;
+        hit = false;
+        start.set(line.x1, line.y1);
+        end.set(line.x2, line.y2);
+        world.rayCast(this, start, end);
+        return hit;
+    }
+
+    @Override
+    public float reportRayFixture(Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+        if ((FixtureData.categoryOf(fixture) & category) == 0) {
+            // Ignore this fixture and go on
+            return -1;
+        }
+        hit = true;
+        return 0;
+    }
+
+    private void clearCache() {
+        if (platformCache.size > 0) {
+            platformCache.clear();
+        }
+        if (spikeCache.size > 0) {
+            spikeCache.clear();
+        }
+    }
+}
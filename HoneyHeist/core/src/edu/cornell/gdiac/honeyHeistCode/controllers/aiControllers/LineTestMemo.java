@@ -0,0 +1,104 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+/**
+ * The answers about lines one AI controller has asked for this tick.
+ *
+ * A decision often asks about the same line twice, such as the line to the target
+ * or a probe that both the platform and the spike tests look along, and nothing
+ * moves while the controllers decide.  So each controller keeps the last few
+ * answers, keyed by the end points of the line, whether it asked about the spikes,
+ * and the angle the platforms had turned when it asked.  The answers are forgotten
+ * when the controller next captures its character, and whenever the angle changes.
+ *
+ * A memo belongs to one controller, so it is only used by the thread deciding for it.
+ */
+class LineTestMemo {
+    /** The most answers kept, the oldest being replaced first */
+    private static final int CAPACITY = 16;
+
+    /** The end points of each line answered, four floats each */
+    private final float[] lines;
+    /** Whether each answer is about the spikes */
+    private final boolean[] spikes;
+    /** Whether each line was blocked */
+    private final boolean[] blocked;
+    /** The number of answers kept */
+    private int size;
+    /** The entry the next answer goes in */
+    private int next;
+    /** The angle of the platforms the answers hold for */
+    private float angle;
+
+    /** The number of answers found, for profiling */
+    private long hits;
+    /** The number of answers asked of the service, for profiling */
+    private long misses;
+
+    LineTestMemo() {
+        lines = new float[CAPACITY * 4];
+        spikes = new boolean[CAPACITY];
+        blocked = new boolean[CAPACITY];
+    }
+
+    /**
+     * Forgets every answer.
+     */
+    void clear() {
+        size = 0;
+        next = 0;
+    }
+
+    /**
+     * Returns true if the line is blocked, asking the service only if it has not been answered.
+     *
+     * @param service the service to ask
+     * @param line the line to test
+     * @param spike true to test against the spikes, false for the platforms
+     * @param platformAngle the angle the platforms have turned now
+     * @return true if the line is blocked
+     */
+    boolean isBlocked(LineOfSightService service, DirectedLineSegment line, boolean spike, float platformAngle) {
+        if (platformAngle != angle) {
+            clear();
+            angle = platformAngle;
+        }
+        for (int i = 0; i < size; i++) {
+            int j = i * 4;
+            if (spikes[i] == spike && lines[j] == line.x1 && lines[j + 1] == line.y1
+                    && lines[j + 2] == line.x2 && lines[j + 3] == line.y2) {
+                hits++;
+                return blocked[i];
+            }
+        }
+        misses++;
+        boolean result = (spike ? service.isBlockedBySpikes(line) : service.isBlockedByPlatforms(line));
+        int j = next * 4;
+        lines[j] = line.x1;
+        lines[j + 1] = line.y1;
+        lines[j + 2] = line.x2;
+        lines[j + 3] = line.y2;
+        spikes[next] = spike;
+        blocked[next] = result;
+        next = (next + 1) % CAPACITY;
+        size = Math.min(size + 1, CAPACITY);
+        return result;
+    }
+
+    /**
+     * Returns the number of answers found in the memo.
+     *
+     * @return the number of answers found
+     */
+    long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of answers the service was asked for.
+     *
+     * @return the number of answers asked of the service
+     */
+    long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,38 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+import com.badlogic.gdx.math.Vector2;
+import edu.cornell.gdiac.honeyHeistCode.models.LevelModel;
+
+/**
+ * The state of a level that every AI reads while it decides, copied once each tick.
+ *
+ * The controllers may decide on several threads at once, and the getters of a Box2D
+ * body write to scratch vectors of their own.  So the AI reads these copies instead,
+ * and nothing in the world changes until every controller has decided.
+ */
+public class WorldSnapshot {
+    /** The position of the player */
+    final Vector2 playerPosition;
+    /** Whether the platforms are turning */
+    boolean rotating;
+    /** The angle the screen's axes have turned, as LevelModel.getFrameAngle */
+    float frameAngle;
+    /** The angle the platforms have turned, which says where the geometry is */
+    float platformAngle;
+
+    public WorldSnapshot() {
+        playerPosition = new Vector2();
+    }
+
+    /**
+     * Copies the state of the level as it is now.
+     *
+     * @param levelModel the level to copy
+     */
+    public void capture(LevelModel levelModel) {
+        playerPosition.set(levelModel.getPlayer().getPosition());
+        rotating = levelModel.getPlatforms().isRotating();
+        frameAngle = levelModel.getFrameAngle();
+        platformAngle = levelModel.getPlatforms().getTurnedAngle();
+    }
+}
@@ -2,9 +2,11 @@ package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.ObjectSet;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 
 
 /**
@@ -32,6 +34,48 @@ public abstract class AbstractBeeModel extends CharacterModel {
         this.isTrulyDead = false;
     }
 
+    /**
+     * Creates the physics Body(s) for this object, adding them to the world.
+     * <p>
+     * This method overrides the base method to mark every fixture as part of a bee.
+     *
+     * @param world Box2D world to store body
+     * @return true if object allocation succeeded
+     */
+    public boolean activatePhysics(World world) {
+        if (!super.activatePhysics(world)) {
+            return false;
+        }
+        FixtureData.tag(this, FixtureData.CATEGORY_BEE, FixtureData.MASK_ALL);
+        return true;
+    }
+
+    /**
+     * Appends the current state of this bee to the buffer.
+     *
+     * @param buffer the buffer to append to
+     */
+    @Override
+    public void saveState(StateBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putBoolean(isChasing);
+        buffer.putBoolean(playedChaseSound);
+        buffer.putBoolean(isTrulyDead);
+    }
+
+    /**
+     * Returns this bee to the state read from the buffer.
+     *
+     * @param buffer the buffer to read, positioned where saveState wrote this bee
+     */
+    @Override
+    public void restoreState(StateBuffer buffer) {
+        super.restoreState(buffer);
+        isChasing = buffer.getBoolean();
+        playedChaseSound = buffer.getBoolean();
+        isTrulyDead = buffer.getBoolean();
+    }
+
     /**
      * Draws the physics object.
      *
@@ -39,7 +83,16 @@ public abstract class AbstractBeeModel extends CharacterModel {
      */
     public void draw(GameCanvas canvas) {
         float effect = faceRight ? 1.0f : -1.0f;
-        canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.y, getAngle(), effect, 1.0f);
+        canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), effect, 1.0f);
+    }
+
+    /**
+     * Returns the role of the sensor that decides whether this bee is on the ground
+     *
+     * @return the role of the sensor that decides whether this bee is on the ground
+     */
+    public FixtureData.Role getGroundRole() {
+        return FixtureData.Role.GROUND_SENSOR;
     }
 
     /**
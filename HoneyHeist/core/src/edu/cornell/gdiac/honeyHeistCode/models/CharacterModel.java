@@ -7,6 +7,7 @@ import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.ObjectSet;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.CapsuleObstacle;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 
 public class CharacterModel extends CapsuleObstacle {
 
@@ -308,7 +309,7 @@ public class CharacterModel extends CapsuleObstacle {
 
         // Ground sensor to represent our feet
         Fixture sensorFixture = body.createFixture(sensorDef);
-        sensorFixture.setUserData(getSensorName());
+        sensorFixture.setUserData(new FixtureData(this, FixtureData.Role.GROUND_SENSOR));
 
         return true;
     }
@@ -329,7 +330,8 @@ public class CharacterModel extends CapsuleObstacle {
                 }
             }
             if(!isGrounded){
-                float angle = getAngle();
+                // Turn upright relative to the screen
+                float angle = getAngle() - frameAngle;
                 float rotSpeed = ((isInHoney) ? 4f : 13f);
                 if(angle<-0.05) {
                     setAngularVelocity(Math.min(rotSpeed,-angle/dt));
@@ -358,7 +360,9 @@ public class CharacterModel extends CapsuleObstacle {
         if (!isClockwise) {
             rotationAmount *= -1;
         }
-        rotateAboutPoint(rotationAmount, stageCenter);
+        if (turnsWithStage) {
+            rotateAboutPoint(rotationAmount, stageCenter);
+        }
     }
 
     public void rotateAboutPoint(float amount, Vector2 point) {
@@ -388,26 +392,28 @@ public class CharacterModel extends CapsuleObstacle {
             return;
         }
 
+        // Movement is along the screen's axes, which only differ from the world's
+        // when the gravity has been rotated in place of the level.
         // Don't want to be moving. Damp out player motion
         if (getMovement() == 0f) {
-            forceCache.set(-getDamping() * getVX(), 0);
-            body.applyForce(forceCache, getPosition(), true);
+            forceCache.set(-getDamping() * getFrameVX(), 0);
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
         // Velocity too high, clamp it
-        if (Math.abs(getVX()) >= getMaxSpeed()) {
-            setVX(Math.signum(getVX()) * getMaxSpeed());
+        if (Math.abs(getFrameVX()) >= getMaxSpeed()) {
+            setFrameVX(Math.signum(getFrameVX()) * getMaxSpeed());
         }
-        if((Math.copySign(1.0f,getVX())!=Math.copySign(1.0f,getMovement()))||!(Math.abs(getVX()) >= getMaxSpeed())){
+        if((Math.copySign(1.0f,getFrameVX())!=Math.copySign(1.0f,getMovement()))||!(Math.abs(getFrameVX()) >= getMaxSpeed())){
             forceCache.set(getMovement(), 0);
-            body.applyForce(forceCache, getPosition(), true);
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
 
-        if ((isGrounded||isInHoney)&&(Math.abs(getVY()) >= getMaxSpeed())) {
-            setVY(Math.signum(getVY()) * getMaxSpeed());
+        if ((isGrounded||isInHoney)&&(Math.abs(getFrameVY()) >= getMaxSpeed())) {
+            setFrameVY(Math.signum(getFrameVY()) * getMaxSpeed());
         }
 
         if(!isGrounded){
-            setVY(Math.min(0f,getVY()));
+            setFrameVY(Math.min(0f,getFrameVY()));
         }
 
         /*if(isGrounded){
@@ -415,6 +421,49 @@ public class CharacterModel extends CapsuleObstacle {
         }*/
     }
 
+    /**
+     * Appends the current state of this character to the buffer.
+     *
+     * @param buffer the buffer to append to
+     */
+    @Override
+    public void saveState(StateBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putFloat(movement);
+        buffer.putFloat(maxspeed);
+        buffer.putFloat(honeyTime);
+        buffer.putBoolean(faceRight);
+        buffer.putBoolean(isGrounded);
+        buffer.putBoolean(isInHoney);
+        buffer.putBoolean(isDead);
+    }
+
+    /**
+     * Returns this character to the state read from the buffer.
+     * <p>
+     * The sensor sets are emptied, since the contacts that fill them are found again
+     * once the body is back in the world.
+     *
+     * @param buffer the buffer to read, positioned where saveState wrote this character
+     */
+    @Override
+    public void restoreState(StateBuffer buffer) {
+        super.restoreState(buffer);
+        movement = buffer.getFloat();
+        maxspeed = buffer.getFloat();
+        honeyTime = buffer.getFloat();
+        faceRight = buffer.getBoolean();
+        isGrounded = buffer.getBoolean();
+        isInHoney = buffer.getBoolean();
+        isDead = buffer.getBoolean();
+        if (sensorFixtures != null) {
+            sensorFixtures.clear();
+        }
+        if (honeyFixtures != null) {
+            honeyFixtures.clear();
+        }
+    }
+
     /**
      * Draws the outline of the physics body.
      *
@@ -0,0 +1,176 @@
+package edu.cornell.gdiac.honeyHeistCode.models;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
+
+/**
+ * Typed user data for the fixtures of a HoneyHeist level.
+ *
+ * Every fixture that takes part in gameplay contacts stores one of these as its
+ * user data, naming the obstacle that owns it and the role it plays. The kind of
+ * entity is stored in the category bits of the fixture filter, and mirrored here so
+ * that reading it does not cross into native code. Together these let
+ * LevelController resolve a contact without comparing names or inspecting classes.
+ *
+ * Fixtures of obstacles that take no part in gameplay contacts (the background,
+ * transitions) keep the default category of CATEGORY_SCENERY and have no user data.
+ */
+public class FixtureData {
+    /** The role a fixture plays for its owner */
+    public enum Role {
+        /** A fixture that makes up the physical shape of the owner */
+        BODY,
+        /** A sensor under the owner that detects the ground and honey */
+        GROUND_SENSOR,
+        /** A sensor at the center of a flying bee that detects the ground */
+        CLIPPING_SENSOR
+    }
+
+    /** Category of obstacles that take no part in gameplay contacts (the Box2D default) */
+    public static final short CATEGORY_SCENERY  = 0x0001;
+    /** Category of spiked platforms */
+    public static final short CATEGORY_SPIKE    = 0x0002;
+    /** Category of ordinary platforms */
+    public static final short CATEGORY_PLATFORM = 0x0004;
+    /** Category of honey patches */
+    public static final short CATEGORY_HONEY    = 0x0008;
+    /** Category of the player */
+    public static final short CATEGORY_PLAYER   = 0x0010;
+    /** Category of bees and larvae */
+    public static final short CATEGORY_BEE      = 0x0020;
+    /** Category of spiked balls */
+    public static final short CATEGORY_BALL     = 0x0040;
+    /** Category of the goal door */
+    public static final short CATEGORY_GOAL     = 0x0080;
+    /** Mask that collides with every category */
+    public static final short MASK_ALL = (short) 0xFFFF;
+
+    /** The obstacle that owns this fixture */
+    private final Obstacle owner;
+    /** The role this fixture plays for its owner */
+    private final Role role;
+    /** The category bits of the fixture filter */
+    private short category;
+
+    /**
+     * Creates fixture data for the given owner and role
+     *
+     * @param owner The obstacle that owns the fixture
+     * @param role  The role the fixture plays for its owner
+     */
+    public FixtureData(Obstacle owner, Role role) {
+        this.owner = owner;
+        this.role = role;
+        this.category = CATEGORY_SCENERY;
+    }
+
+    /**
+     * Returns the obstacle that owns this fixture
+     *
+     * @return the obstacle that owns this fixture
+     */
+    public Obstacle getOwner() {
+        return owner;
+    }
+
+    /**
+     * Returns the role this fixture plays for its owner
+     *
+     * @return the role this fixture plays for its owner
+     */
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * Returns the category bits of the fixture filter
+     *
+     * @return the category bits of the fixture filter
+     */
+    public short getCategory() {
+        return category;
+    }
+
+    /**
+     * Returns the category bits of the given fixture
+     *
+     * Fixtures without fixture data have the default category CATEGORY_SCENERY.
+     *
+     * @param fixture The fixture to classify
+     *
+     * @return the category bits of the given fixture
+     */
+    public static short categoryOf(Fixture fixture) {
+        Object data = fixture.getUserData();
+        return data instanceof FixtureData ? ((FixtureData) data).category : CATEGORY_SCENERY;
+    }
+
+    /**
+     * Returns the obstacle that owns the given fixture, or null if it has no fixture data
+     *
+     * @param fixture The fixture to classify
+     *
+     * @return the obstacle that owns the given fixture
+     */
+    public static Obstacle ownerOf(Fixture fixture) {
+        Object data = fixture.getUserData();
+        return data instanceof FixtureData ? ((FixtureData) data).owner : null;
+    }
+
+    /**
+     * Returns the role of the given fixture, or BODY if it has no fixture data
+     *
+     * @param fixture The fixture to classify
+     *
+     * @return the role of the given fixture
+     */
+    public static Role roleOf(Fixture fixture) {
+        Object data = fixture.getUserData();
+        return data instanceof FixtureData ? ((FixtureData) data).role : Role.BODY;
+    }
+
+    /**
+     * Tags every fixture of the given obstacle with a category and mask.
+     *
+     * Fixtures without user data are given BODY fixture data.  Fixtures that
+     * already have fixture data (such as sensors) keep their role.
+     *
+     * @param owner     The obstacle whose fixtures should be tagged (must be active)
+     * @param category  The category bits for the fixtures
+     * @param mask      The mask bits for the fixtures
+     */
+    public static void tag(Obstacle owner, short category, short mask) {
+        Body body = owner.getBody();
+        if (body == null) {
+            return;
+        }
+        for (Fixture fix : body.getFixtureList()) {
+            tag(fix, owner, category, mask);
+        }
+    }
+
+    /**
+     * Tags a single fixture with a category and mask.
+     *
+     * A fixture without user data is given BODY fixture data.  A fixture that
+     * already has fixture data keeps its role.
+     *
+     * @param fixture   The fixture to tag
+     * @param owner     The obstacle that owns the fixture
+     * @param category  The category bits for the fixture
+     * @param mask      The mask bits for the fixture
+     */
+    public static void tag(Fixture fixture, Obstacle owner, short category, short mask) {
+        Filter filter = new Filter();
+        filter.categoryBits = category;
+        filter.maskBits = mask;
+        fixture.setFilterData(filter);
+
+        if (!(fixture.getUserData() instanceof FixtureData)) {
+            fixture.setUserData(new FixtureData(owner, Role.BODY));
+        }
+        ((FixtureData) fixture.getUserData()).category = category;
+    }
+}
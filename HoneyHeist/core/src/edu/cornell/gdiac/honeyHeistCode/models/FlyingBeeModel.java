@@ -1,11 +1,13 @@
 package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import edu.cornell.gdiac.util.FilmStrip;
 
 public class FlyingBeeModel extends AbstractBeeModel{
@@ -82,7 +84,7 @@ public class FlyingBeeModel extends AbstractBeeModel{
 
         // Ground sensor to represent our feet
         Fixture sensorFixture = body.createFixture(sensorDef);
-        sensorFixture.setUserData(getSensorName());
+        sensorFixture.setUserData(new FixtureData(this, FixtureData.Role.GROUND_SENSOR));
 
         Vector2 sensor2Center = new Vector2(0,0);
         FixtureDef sensor2Def = new FixtureDef();
@@ -98,11 +100,24 @@ public class FlyingBeeModel extends AbstractBeeModel{
         sensorShape = sensor2Shape;
 
         Fixture sensor2Fixture = body.createFixture(sensor2Def);
-        sensor2Fixture.setUserData("clipping"+getSensorName());
+        sensor2Fixture.setUserData(new FixtureData(this, FixtureData.Role.CLIPPING_SENSOR));
 
+        FixtureData.tag(this, FixtureData.CATEGORY_BEE, FixtureData.MASK_ALL);
         return true;
     }
 
+    /**
+     * Returns the role of the sensor that decides whether this bee is on the ground
+     *
+     * A flying bee is only grounded when its clipping sensor is inside a platform.
+     *
+     * @return the role of the sensor that decides whether this bee is on the ground
+     */
+    @Override
+    public FixtureData.Role getGroundRole() {
+        return FixtureData.Role.CLIPPING_SENSOR;
+    }
+
     public void setVMovement (float value) {
         vMovement = value ;
     }
@@ -116,35 +131,37 @@ public class FlyingBeeModel extends AbstractBeeModel{
         if (!isActive()) {
             return;
         }
+        // Movement is along the screen's axes, which only differ from the world's
+        // when the gravity has been rotated in place of the level.
         // Don't want to be moving. Damp out player motion
         if ((getMovement() == 0f) && (getVMovement() == 0f)) {
-            forceCache.set(-getDamping() * getVX(), -getDamping() * getVY());
-            body.applyForce(forceCache, getPosition(), true);
+            forceCache.set(-getDamping() * getFrameVX(), -getDamping() * getFrameVY());
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
-        else if (getVMovement() == 0f && getVY() != 0f) {
-            forceCache.set(0, -getDamping() * getVY());
-            body.applyForce(forceCache, getPosition(), true);
+        else if (getVMovement() == 0f && getFrameVY() != 0f) {
+            forceCache.set(0, -getDamping() * getFrameVY());
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
         else if (getMovement() == 0f){
-            forceCache.set(-getDamping() * getVX(), 0);
-            body.applyForce(forceCache, getPosition(), true);
+            forceCache.set(-getDamping() * getFrameVX(), 0);
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
 
         // Velocity too high, clamp it
-        if (Math.abs(getVX()) >= getMaxSpeed()) {
-            setVX(Math.signum(getVX()) * getMaxSpeed());
+        if (Math.abs(getFrameVX()) >= getMaxSpeed()) {
+            setFrameVX(Math.signum(getFrameVX()) * getMaxSpeed());
         }
-        if (Math.abs(getVY()) >= getMaxSpeed()) {
-            setVY(Math.signum(getVY()) * getMaxSpeed());
+        if (Math.abs(getFrameVY()) >= getMaxSpeed()) {
+            setFrameVY(Math.signum(getFrameVY()) * getMaxSpeed());
         }
         // If not trying to move in a direction currently moving OR if not faster than cap
-        if((Math.copySign(1.0f,getVX())!=Math.copySign(1.0f,getMovement()))||!(Math.abs(getVX()) >= getMaxSpeed())){
+        if((Math.copySign(1.0f,getFrameVX())!=Math.copySign(1.0f,getMovement()))||!(Math.abs(getFrameVX()) >= getMaxSpeed())){
             forceCache.set(getMovement(), 0);
-            body.applyForce(forceCache, getPosition(), true);
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
-        if((Math.copySign(1.0f,getVY())!=Math.copySign(1.0f,getMovement()))||!(Math.abs(getVY()) >= getMaxSpeed())){
+        if((Math.copySign(1.0f,getFrameVY())!=Math.copySign(1.0f,getMovement()))||!(Math.abs(getFrameVY()) >= getMaxSpeed())){
             forceCache.set(0, getVMovement());
-            body.applyForce(forceCache, getPosition(), true);
+            body.applyForce(frameToWorld(forceCache), getPosition(), true);
         }
 
 //        if (isGrounded&&(Math.abs(getVY()) >= getMaxSpeed())) {
@@ -313,6 +330,67 @@ public class FlyingBeeModel extends AbstractBeeModel{
     }
 
 
+    /**
+     * Appends the current state of this bee to the buffer.
+     *
+     * @param buffer the buffer to append to
+     */
+    @Override
+    public void saveState(StateBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putFloat(vMovement);
+        buffer.putBoolean(flyCycle);
+        buffer.putBoolean(flailCycle);
+        buffer.putBoolean(deathCycle);
+        buffer.putBoolean(chaseCycle);
+        buffer.putInt(animFrames);
+        buffer.putInt(flyingAnim != null ? flyingAnim.getFrame() : 0);
+        buffer.putInt(flailingAnim != null ? flailingAnim.getFrame() : 0);
+        buffer.putInt(dyingAnim != null ? dyingAnim.getFrame() : 0);
+        buffer.putInt(chasingAnim != null ? chasingAnim.getFrame() : 0);
+    }
+
+    /**
+     * Returns this bee to the state read from the buffer.
+     *
+     * @param buffer the buffer to read, positioned where saveState wrote this bee
+     */
+    @Override
+    public void restoreState(StateBuffer buffer) {
+        super.restoreState(buffer);
+        vMovement = buffer.getFloat();
+        flyCycle = buffer.getBoolean();
+        flailCycle = buffer.getBoolean();
+        deathCycle = buffer.getBoolean();
+        chaseCycle = buffer.getBoolean();
+        animFrames = buffer.getInt();
+        int flyingAnimFrame = buffer.getInt();
+        if (flyingAnim != null) {
+            flyingAnim.setFrame(flyingAnimFrame);
+        }
+        int flailingAnimFrame = buffer.getInt();
+        if (flailingAnim != null) {
+            flailingAnim.setFrame(flailingAnimFrame);
+        }
+        int dyingAnimFrame = buffer.getInt();
+        if (dyingAnim != null) {
+            dyingAnim.setFrame(dyingAnimFrame);
+        }
+        int chasingAnimFrame = buffer.getInt();
+        if (chasingAnim != null) {
+            chasingAnim.setFrame(chasingAnimFrame);
+        }
+    }
+
+    /**
+     * Returns the texture of the flying animation, which this is mostly drawn from.
+     *
+     * @return the texture this is mostly drawn from
+     */
+    public Texture getRenderTexture() {
+        return (flyingAnim == null ? super.getRenderTexture() : flyingAnim.getTexture());
+    }
+
     /**
      * Draws the physics object.
      *
@@ -335,12 +413,12 @@ public class FlyingBeeModel extends AbstractBeeModel{
         // Walking Animation
         if (currAnim != null) {
             float offsety = currAnim.getRegionHeight()-origin.y;
-            canvas.draw(currAnim, Color.WHITE,origin.x,offsety,getX()*drawScale.x,getY()*drawScale.x,getAngle(),effect,1);
+            canvas.draw(currAnim, Color.WHITE,origin.x,offsety,getDrawX()*drawScale.x,getDrawY()*drawScale.x,getDrawAngle(),effect,1);
         }
         // Stationary Bee
         else {
             System.out.println("MISSING FILMSTRIP");
-            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.y, getAngle(), effect, 1.0f);
+            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), effect, 1.0f);
         }
     }
 
@@ -2,6 +2,7 @@ package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
@@ -12,17 +13,28 @@ public class HoneypatchModel extends PlatformModel {
 
     public HoneypatchModel(JsonValue data, float slowSpeed, Vector2 worldCenter){
         super(data,"honeypatch", worldCenter);
+        renderLayer = GameCanvas.RenderLayer.HAZARDS;
         this.setSensor(true);
         this.slowSpeed = slowSpeed;
     }
     public HoneypatchModel(){
         super();
+        renderLayer = GameCanvas.RenderLayer.HAZARDS;
     }
 
     public float getSlowSpeed() {
         return slowSpeed;
     }
 
+    @Override
+    public boolean activatePhysics(World world) {
+        boolean check = super.activatePhysics(world);
+        for(PolygonObstacle body: getBodies()){
+            FixtureData.tag(body, FixtureData.CATEGORY_HONEY, FixtureData.MASK_ALL);
+        }
+        return check;
+    }
+
     /**
      * Draws the physics object.
      *
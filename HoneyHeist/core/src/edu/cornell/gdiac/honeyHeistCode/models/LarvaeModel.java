@@ -1,8 +1,10 @@
 package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import edu.cornell.gdiac.util.FilmStrip;
 
 public class LarvaeModel extends AbstractBeeModel{
@@ -169,6 +171,65 @@ public class LarvaeModel extends AbstractBeeModel{
         animateLarvae(LarvaeAnimations.CHASE);
     }
 
+    /**
+     * Appends the current state of this bee to the buffer.
+     *
+     * @param buffer the buffer to append to
+     */
+    @Override
+    public void saveState(StateBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putBoolean(walkCycle);
+        buffer.putBoolean(flailCycle);
+        buffer.putBoolean(deathCycle);
+        buffer.putBoolean(chaseCycle);
+        buffer.putInt(animFrames);
+        buffer.putInt(walkingAnim != null ? walkingAnim.getFrame() : 0);
+        buffer.putInt(flailingAnim != null ? flailingAnim.getFrame() : 0);
+        buffer.putInt(dyingAnim != null ? dyingAnim.getFrame() : 0);
+        buffer.putInt(chasingAnim != null ? chasingAnim.getFrame() : 0);
+    }
+
+    /**
+     * Returns this bee to the state read from the buffer.
+     *
+     * @param buffer the buffer to read, positioned where saveState wrote this bee
+     */
+    @Override
+    public void restoreState(StateBuffer buffer) {
+        super.restoreState(buffer);
+        walkCycle = buffer.getBoolean();
+        flailCycle = buffer.getBoolean();
+        deathCycle = buffer.getBoolean();
+        chaseCycle = buffer.getBoolean();
+        animFrames = buffer.getInt();
+        int walkingAnimFrame = buffer.getInt();
+        if (walkingAnim != null) {
+            walkingAnim.setFrame(walkingAnimFrame);
+        }
+        int flailingAnimFrame = buffer.getInt();
+        if (flailingAnim != null) {
+            flailingAnim.setFrame(flailingAnimFrame);
+        }
+        int dyingAnimFrame = buffer.getInt();
+        if (dyingAnim != null) {
+            dyingAnim.setFrame(dyingAnimFrame);
+        }
+        int chasingAnimFrame = buffer.getInt();
+        if (chasingAnim != null) {
+            chasingAnim.setFrame(chasingAnimFrame);
+        }
+    }
+
+    /**
+     * Returns the texture of the walking animation, which this is mostly drawn from.
+     *
+     * @return the texture this is mostly drawn from
+     */
+    public Texture getRenderTexture() {
+        return (walkingAnim == null ? super.getRenderTexture() : walkingAnim.getTexture());
+    }
+
     /**
      * Draws the physics object.
      *
@@ -193,15 +254,15 @@ public class LarvaeModel extends AbstractBeeModel{
             canvas.draw(currAnim, Color.WHITE,
                     origin.x,
                     offsety,
-                    getX()*drawScale.x,
-                    getY()*drawScale.x,
-                    getAngle(),
+                    getDrawX()*drawScale.x,
+                    getDrawY()*drawScale.x,
+                    getDrawAngle(),
                     effect,1);
         }
         // Stationary larvae
         else {
             System.out.println("MISSING LARVAE TEXTURE");
-            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.y, getAngle(), effect, 1.0f);
+            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), effect, 1.0f);
         }
     }
 }
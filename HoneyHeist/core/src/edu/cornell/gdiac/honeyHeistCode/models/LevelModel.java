@@ -25,6 +25,26 @@ import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
  * the goalDoor, the platform model, and the origin of the world.
  */
 public class LevelModel {
+    /**
+     * Enumeration of the ways a level can turn when the player rotates it
+     */
+    public enum RotationMode {
+        /** The level geometry turns about the origin, and gravity stays down */
+        GEOMETRY,
+        /** The gravity and camera turn, and the level geometry stays still */
+        GRAVITY;
+
+        /**
+         * Returns the rotation mode with the given name, ignoring case
+         *
+         * @param name  The name of the mode ("geometry" or "gravity")
+         * @return the rotation mode with the given name
+         */
+        public static RotationMode fromString(String name) {
+            return valueOf(name.toUpperCase());
+        }
+    }
+
     /**
      * Reference to the character avatar
      */
@@ -67,6 +87,15 @@ public class LevelModel {
      * Reference to the bounds of the world
      */
     private Rectangle bounds;
+    /**
+     * How this level turns when the player rotates it
+     */
+    private RotationMode rotationMode = RotationMode.GEOMETRY;
+    /**
+     * The edges of the platforms and of the spiked platforms, for segment queries
+     */
+    private PlatformEdgeIndex platformEdges;
+    private PlatformEdgeIndex spikedPlatformEdges;
 
     /**
      * Creates and initialize a new instance of the platformer game
@@ -94,7 +123,10 @@ public class LevelModel {
         return platforms;
     }
 
-    public void setPlatforms(PlatformModel platforms) { this.platforms = platforms; }
+    public void setPlatforms(PlatformModel platforms) {
+        this.platforms = platforms;
+        platformEdges = null;
+    }
 
     public void setBalls (Array<BallModel> balls) {this.balls = balls;}
 
@@ -102,7 +134,34 @@ public class LevelModel {
 
     public SpikedPlatformModel getSpikedPlatforms() {return spikedPlatforms;}
 
-    public void setSpikedPlatforms(SpikedPlatformModel spikedPlatforms) { this.spikedPlatforms = spikedPlatforms; }
+    public void setSpikedPlatforms(SpikedPlatformModel spikedPlatforms) {
+        this.spikedPlatforms = spikedPlatforms;
+        spikedPlatformEdges = null;
+    }
+
+    /**
+     * Returns the index of the edges of the platforms
+     *
+     * @return the index of the edges of the platforms
+     */
+    public PlatformEdgeIndex getPlatformEdges() {
+        if (platformEdges == null) {
+            platformEdges = new PlatformEdgeIndex(platforms, origin);
+        }
+        return platformEdges;
+    }
+
+    /**
+     * Returns the index of the edges of the spiked platforms
+     *
+     * @return the index of the edges of the spiked platforms
+     */
+    public PlatformEdgeIndex getSpikedPlatformEdges() {
+        if (spikedPlatformEdges == null) {
+            spikedPlatformEdges = new PlatformEdgeIndex(spikedPlatforms, origin);
+        }
+        return spikedPlatformEdges;
+    }
 
     public PlayerModel getPlayer() { return playerModel; }
 
@@ -129,4 +188,21 @@ public class LevelModel {
     public void setLevelBackground(PolygonObstacle bg) {this.levelBackground = bg; }
 
     public PolygonObstacle getLevelBackground() { return levelBackground; }
+
+    public RotationMode getRotationMode() { return rotationMode; }
+
+    public void setRotationMode(RotationMode rotationMode) { this.rotationMode = rotationMode; }
+
+    /**
+     * Returns the angle of the screen's horizontal axis in world coordinates
+     * <p>
+     * When the level geometry turns, the screen and world axes always agree and this
+     * is zero.  When the gravity turns instead, the screen is turned opposite to the
+     * stage, so "down" on screen is the direction of gravity.
+     *
+     * @return the angle of the screen's horizontal axis in world coordinates
+     */
+    public float getFrameAngle() {
+        return rotationMode == RotationMode.GRAVITY ? -platforms.getTurnedAngle() : 0;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package edu.cornell.gdiac.honeyHeistCode.models;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+
+import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
+import edu.cornell.gdiac.util.Geometry;
+
+/**
+ * A uniform grid of the edges of a platform model in world coordinates, for segment queries.
+ *
+ * Each cell lists the edges whose bounding box overlaps it, so a query only tests the
+ * edges in the cells its segment passes through, instead of turning the vertices of
+ * every platform.
+ *
+ * The grid is built at the angle the platforms rest at.  While they turn, they turn
+ * rigidly about the origin of the level, so a query segment is turned back by the
+ * angle turned since the build instead.  The grid is built again once the platforms
+ * come to rest at a new angle (or are restored to one).
+ *
+ * Queries only read the grid, so they may run on several threads at once, as long as
+ * prepare has been called since the platforms last moved.  An edge that lies in several
+ * of the cells a segment passes through may be tested more than once.
+ */
+public class PlatformEdgeIndex {
+    /** The width and height of a cell */
+    private static final float CELL_SIZE = 1.0f;
+    /** How far a cell is grown before testing whether a segment crosses it */
+    private static final float CELL_MARGIN = 0.01f;
+
+    /** The platforms indexed */
+    private PlatformModel platforms;
+    /** The point the platforms turn about */
+    private Vector2 center;
+
+    /** The end points of every edge, four floats each */
+    private FloatArray edges;
+    /** The first entry of each cell in cellEdges, with one more entry for the end */
+    private int[] cellStart;
+    /** The edges of every cell, cell by cell */
+    private int[] cellEdges;
+    private int columns;
+    private int rows;
+    /** The corner of the first cell */
+    private float minX;
+    private float minY;
+
+    /** Whether the grid has been built */
+    private boolean built;
+    /** The angle of the platforms when the grid was built */
+    private float builtAngle;
+
+    /**
+     * Creates an index of the given platforms.
+     *
+     * The grid is built by the first query.
+     *
+     * @param platforms the platforms to index
+     * @param center the point the platforms turn about
+     */
+    public PlatformEdgeIndex(PlatformModel platforms, Vector2 center) {
+        this.platforms = platforms;
+        this.center = center;
+        edges = new FloatArray();
+        cellStart = new int[1];
+        cellEdges = new int[0];
+    }
+
+    /**
+     * Returns true if the segment crosses an edge of one of the platforms.
+     *
+     * This is the test of DirectedLineSegment against every edge, so it agrees with
+     * testing every platform whenever the platforms are at rest.
+     *
+     * @param x1 the x-coordinate of the start of the segment
+     * @param y1 the y-coordinate of the start of the segment
+     * @param x2 the x-coordinate of the end of the segment
+     * @param y2 the y-coordinate of the end of the segment
+     *
+     * @return true if the segment crosses an edge
+     */
+    public boolean intersects(float x1, float y1, float x2, float y2) {
+        prepare();
+        float angle = getAngle();
+        if (angle != builtAngle) {
+            // Turn the segment back to where the platforms were when the grid was built
+            float cos = (float) Math.cos(builtAngle - angle);
+            float sin = (float) Math.sin(builtAngle - angle);
+            float x = x1 - center.x;
+            float y = y1 - center.y;
+            x1 = x * cos - y * sin + center.x;
+            y1 = x * sin + y * cos + center.y;
+            x = x2 - center.x;
+            y = y2 - center.y;
+            x2 = x * cos - y * sin + center.x;
+            y2 = x * sin + y * cos + center.y;
+        }
+        if (edges.size == 0) {
+            return false;
+        }
+
+        int column0 = Math.max(getColumn(Math.min(x1, x2)), 0);
+        int column1 = Math.min(getColumn(Math.max(x1, x2)), columns - 1);
+        int row0 = Math.max(getRow(Math.min(y1, y2)), 0);
+        int row1 = Math.min(getRow(Math.max(y1, y2)), rows - 1);
+        float[] items = edges.items;
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                if (column1 > column0 && row1 > row0 && !crossesCell(x1, y1, x2, y2, column, row)) {
+                    continue;
+                }
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int j = cellEdges[i] * 4;
+                    if (Geometry.segmentsIntersect(items[j], items[j + 1], items[j + 2], items[j + 3], x1, y1, x2, y2)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the grid again if the platforms have come to rest at a new angle.
+     *
+     * A query does this itself, but queries from several threads at once need it done beforehand.
+     */
+    public void prepare() {
+        float angle = getAngle();
+        if (!built || (angle != builtAngle && !platforms.isRotating())) {
+            build(angle);
+        }
+    }
+
+    /**
+     * Returns the number of edges indexed.
+     *
+     * @return the number of edges indexed
+     */
+    public int getEdgeCount() {
+        return edges.size / 4;
+    }
+
+    /**
+     * Returns the angle the platforms have turned about the center.
+     */
+    private float getAngle() {
+        return (platforms.turnsWithStage() ? platforms.getTurnedAngle() : 0);
+    }
+
+    private int getColumn(float x) {
+        return MathUtils.floor((x - minX) / CELL_SIZE);
+    }
+
+    private int getRow(float y) {
+        return MathUtils.floor((y - minY) / CELL_SIZE);
+    }
+
+    /**
+     * Returns true unless the corners of the (slightly grown) cell all lie on one side of the segment's line.
+     */
+    private boolean crossesCell(float x1, float y1, float x2, float y2, int column, int row) {
+        float left = minX + column * CELL_SIZE - CELL_MARGIN;
+        float bottom = minY + row * CELL_SIZE - CELL_MARGIN;
+        float right = left + CELL_SIZE + 2 * CELL_MARGIN;
+        float top = bottom + CELL_SIZE + 2 * CELL_MARGIN;
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float a = dx * (bottom - y1) - dy * (left - x1);
+        float b = dx * (bottom - y1) - dy * (right - x1);
+        float c = dx * (top - y1) - dy * (left - x1);
+        float d = dx * (top - y1) - dy * (right - x1);
+        return !((a > 0 && b > 0 && c > 0 && d > 0) || (a < 0 && b < 0 && c < 0 && d < 0));
+    }
+
+    /**
+     * Collects the edges of the platforms where they are now and sorts them into cells.
+     *
+     * @param angle the angle the platforms have turned
+     */
+    private void build(float angle) {
+        built = true;
+        builtAngle = angle;
+        edges.clear();
+        for (PolygonObstacle platform : platforms.getBodies()) {
+            float[] vertices = platform.getTrueVertices();
+            for (int i = 0; i < vertices.length; i += 2) {
+                int next = (i + 2 < vertices.length ? i + 2 : 0);
+                edges.add(vertices[i], vertices[i + 1], vertices[next], vertices[next + 1]);
+            }
+        }
+        int count = edges.size / 4;
+        if (count == 0) {
+            return;
+        }
+
+        float[] items = edges.items;
+        minX = Float.MAX_VALUE;
+        minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < edges.size; i += 2) {
+            minX = Math.min(minX, items[i]);
+            minY = Math.min(minY, items[i + 1]);
+            maxX = Math.max(maxX, items[i]);
+            maxY = Math.max(maxY, items[i + 1]);
+        }
+        columns = getColumn(maxX) + 1;
+        rows = getRow(maxY) + 1;
+
+        // Count the edges of each cell, then place them
+        int cells = columns * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        }
+        for (int cell = 0; cell <= cells; cell++) {
+            cellStart[cell] = 0;
+        }
+        int entries = 0;
+        for (int edge = 0; edge < count; edge++) {
+            int j = edge * 4;
+            for (int row = getRow(Math.min(items[j + 1], items[j + 3])); row <= getRow(Math.max(items[j + 1], items[j + 3])); row++) {
+                for (int column = getColumn(Math.min(items[j], items[j + 2])); column <= getColumn(Math.max(items[j], items[j + 2])); column++) {
+                    cellStart[row * columns + column + 1]++;
+                    entries++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        if (cellEdges.length < entries) {
+            cellEdges = new int[entries];
+        }
+        for (int edge = 0; edge < count; edge++) {
+            int j = edge * 4;
+            for (int row = getRow(Math.min(items[j + 1], items[j + 3])); row <= getRow(Math.max(items[j + 1], items[j + 3])); row++) {
+                for (int column = getColumn(Math.min(items[j], items[j + 2])); column <= getColumn(Math.max(items[j], items[j + 2])); column++) {
+                    // The start of each cell counts up as its edges are placed
+                    cellEdges[cellStart[row * columns + column]++] = edge;
+                }
+            }
+        }
+        // Each start has moved to the next cell's start, so move them back
+        for (int cell = cells; cell > 0; cell--) {
+            cellStart[cell] = cellStart[cell - 1];
+        }
+        cellStart[0] = 0;
+    }
+}
@@ -1,19 +1,23 @@
 package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.MyTenPatch;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.Obstacle;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import edu.cornell.gdiac.util.FilmStrip;
 
 public class PlatformModel extends Obstacle {
@@ -34,6 +38,9 @@ public class PlatformModel extends Obstacle {
 
 	private Vector2 worldCenter;
 
+	/** The total angle (in radians, counterclockwise) the stage has turned */
+	private float turnedAngle;
+
 	public final float D_THICKNESS = 0.5f;
 
 	protected NinePatch ninePatch; // TODO: TO BE REPLACED WHEN TENPATCH IS COMPLETE
@@ -49,6 +56,23 @@ public class PlatformModel extends Obstacle {
 	private TextureRegion ULeft;
 	private TextureRegion URight;
 
+	/** The vertices of every tile, in the format of a sprite batch, in the order they are drawn */
+	private FloatArray tileVertices;
+	/** The texture of each run of tiles in tileVertices */
+	private Array<Texture> tileTextures;
+	/** The number of floats in each run of tiles */
+	private IntArray tileRuns;
+	/** Whether the tiles have been baked since they last changed */
+	private boolean tilesBaked;
+	/** The drawn position and angle of the first body when the tiles were baked */
+	private float bakedX;
+	private float bakedY;
+	private float bakedAngle;
+	/** Cache for the transform from where the tiles were baked to where they are drawn */
+	private Affine2 tileTransform;
+	/** Cache for the transform of a single tile as it is baked */
+	private Affine2 tileAffine;
+
 	/**
 	 * Enumeration to identify the platform animations
 	 */
@@ -72,6 +96,8 @@ public class PlatformModel extends Obstacle {
 		super(0,0);
 		this.worldCenter = worldCenter;
 		bodies = new Array<PolygonObstacle>();
+		initTiles();
+		renderLayer = GameCanvas.RenderLayer.GEOMETRY;
 
         this.data = data;
 
@@ -98,6 +124,8 @@ public class PlatformModel extends Obstacle {
 		super(0,0);
 		this.worldCenter = worldCenter;
 		bodies = new Array<PolygonObstacle>();
+		initTiles();
+		renderLayer = GameCanvas.RenderLayer.GEOMETRY;
 
 		this.data = data;
 
@@ -123,6 +151,8 @@ public class PlatformModel extends Obstacle {
 	public PlatformModel() {
 		super(0,0);
 		bodies = new Array<PolygonObstacle>();
+		initTiles();
+		renderLayer = GameCanvas.RenderLayer.GEOMETRY;
 		data = null;
 
 		//Probably replace the following code with json data
@@ -130,6 +160,17 @@ public class PlatformModel extends Obstacle {
 		//rotationSpeed = ((float) Math.PI/3)*1.3f;
 	}
 
+	/**
+	 * Creates the empty caches the tiles are baked into.
+	 */
+	private void initTiles() {
+		tileVertices = new FloatArray();
+		tileTextures = new Array<Texture>();
+		tileRuns = new IntArray();
+		tileTransform = new Affine2();
+		tileAffine = new Affine2();
+	}
+
 	public Iterable<PolygonObstacle> getBodies() { return bodies; }
 
 	public Array<PolygonObstacle> getArrayBodies() {return bodies;}
@@ -172,7 +213,82 @@ public class PlatformModel extends Obstacle {
 		if (!isClockwise) {
 			rotationAmount *= -1;
 		}
-		rotateAboutPoint(rotationAmount, stageCenter);
+		turnedAngle += rotationAmount;
+		if (turnsWithStage) {
+			rotateAboutPoint(rotationAmount, stageCenter);
+		}
+	}
+
+	/**
+	 * Returns the total angle the stage has turned since the level started
+	 *
+	 * The angle is counterclockwise in radians, and grows whether or not the
+	 * platforms themselves are moved by the rotation.
+	 *
+	 * @return the total angle the stage has turned since the level started
+	 */
+	public float getTurnedAngle() {
+		return turnedAngle;
+	}
+
+	/**
+	 * Appends the current state of this model and every body in it to the buffer.
+	 *
+	 * @param buffer the buffer to append to
+	 */
+	@Override
+	public void saveState(StateBuffer buffer) {
+		super.saveState(buffer);
+		for(Obstacle obj : bodies) {
+			obj.saveState(buffer);
+		}
+		buffer.putFloat(turnedAngle);
+		buffer.putBoolean(shuffleCycle);
+		buffer.putInt(animFrames);
+		buffer.putInt(shufflingAnim != null ? shufflingAnim.getFrame() : 0);
+	}
+
+	/**
+	 * Returns this model and every body in it to the state read from the buffer.
+	 *
+	 * @param buffer the buffer to read, positioned where saveState wrote this model
+	 */
+	@Override
+	public void restoreState(StateBuffer buffer) {
+		super.restoreState(buffer);
+		for(Obstacle obj : bodies) {
+			obj.restoreState(buffer);
+		}
+		turnedAngle = buffer.getFloat();
+		shuffleCycle = buffer.getBoolean();
+		animFrames = buffer.getInt();
+		int shuffleFrame = buffer.getInt();
+		if (shufflingAnim != null) {
+			shufflingAnim.setFrame(shuffleFrame);
+		}
+	}
+
+	/**
+	 * Records the current transform of every body as the start of the next step.
+	 */
+	@Override
+	public void storePreviousTransform() {
+		for(Obstacle obj : bodies) {
+			obj.storePreviousTransform();
+		}
+	}
+
+	/**
+	 * Sets the interpolation factor used when drawing the bodies in this model.
+	 *
+	 * @param alpha the fraction of a physics step left over in the accumulator
+	 */
+	@Override
+	public void setDrawAlpha(float alpha) {
+		drawAlpha = alpha;
+		for(Obstacle obj : bodies) {
+			obj.setDrawAlpha(alpha);
+		}
 	}
 
 	/**
@@ -192,6 +308,9 @@ public class PlatformModel extends Obstacle {
 		// Create all other bodies.
 		for(PolygonObstacle obj : bodies) {
 			success = success && obj.activatePhysics(world);
+			if (success) {
+				FixtureData.tag(obj, FixtureData.CATEGORY_PLATFORM, FixtureData.MASK_ALL);
+			}
 		}
 
 		// Clean up if we failed
@@ -234,19 +353,64 @@ public class PlatformModel extends Obstacle {
 		for(Obstacle obj : bodies) {
 			obj.setDrawScale(x,y);
 		}
+		tilesBaked = false;
 	}
 
 	/**
 	 * Draws the physics object.
 	 *
+	 * The tiles of every platform are baked into one array of vertices, which is drawn
+	 * with a single call for each run of tiles that share a texture.  The platforms only
+	 * ever move rigidly, so while they turn the baked tiles are drawn with the transform
+	 * that takes the first body from where it was baked to where it is drawn.  Changing
+	 * that transform flushes the batch, so the tiles are baked again once the platforms
+	 * come to rest somewhere new.
+	 *
 	 * @param canvas Drawing context
 	 */
 	public void draw(GameCanvas canvas) {
-		// Delegate to components
+		if (bodies.size == 0) {
+			return;
+		}
+		PolygonObstacle first = bodies.get(0);
+		boolean moved = (first.getDrawX() != bakedX || first.getDrawY() != bakedY || first.getDrawAngle() != bakedAngle);
+		if (!tilesBaked || (moved && !isRotating)) {
+			bakeTiles();
+			moved = false;
+		}
+
+		if (moved) {
+			tileTransform.setToTranslation(first.getDrawX() * drawScale.x, first.getDrawY() * drawScale.y);
+			tileTransform.rotateRad(first.getDrawAngle() - bakedAngle);
+			tileTransform.translate(-bakedX * drawScale.x, -bakedY * drawScale.y);
+			canvas.setMeshTransform(tileTransform);
+		}
+		int offset = 0;
+		for (int ii = 0; ii < tileRuns.size; ii++) {
+			canvas.draw(tileTextures.get(ii), tileVertices.items, offset, tileRuns.get(ii));
+			offset += tileRuns.get(ii);
+		}
+		if (moved) {
+			canvas.setMeshTransform(null);
+		}
+	}
+
+	/**
+	 * Works out the tiles of every platform where they are drawn now, and stores their vertices.
+	 */
+	private void bakeTiles() {
+		tileVertices.clear();
+		tileTextures.clear();
+		tileRuns.clear();
+		PolygonObstacle first = bodies.get(0);
+		bakedX = first.getDrawX();
+		bakedY = first.getDrawY();
+		bakedAngle = first.getDrawAngle();
+		tilesBaked = true;
+
 		for (PolygonObstacle obj : bodies) {
-			// obj.draw(canvas);
 			if (worldCenter != null) {
-				float[] corners = obj.getTruePoints();
+				float[] corners = obj.getDrawTruePoints();
 				assert corners.length == 8;
 				Vector2 topLeft = new Vector2(corners[0], corners[1]);
 				Vector2 botLeft = new Vector2(corners[2], corners[3]);
@@ -255,7 +419,7 @@ public class PlatformModel extends Obstacle {
 				float trueWidth = Math.max(botLeft.dst(botRight), botLeft.dst(topLeft));
 				float trueHeight = obj.PLATFORM_HEIGHT;
 
-				Vector2 objCenter = obj.getCenter();
+				Vector2 objCenter = obj.getDrawCenter();
 				Vector2 scaledPlatCenter = new Vector2(
 						objCenter.x * drawScale.x,
 						objCenter.y * drawScale.y);
@@ -291,39 +455,76 @@ public class PlatformModel extends Obstacle {
 				assert MMid != null: "Missing middle center tile texture";
 				assert BMid != null: "Missing bottom center tile texture";
 				for (int ii = 0; ii < midTileCenters.size; ii += 2){
-					canvas.draw(UMid, Color.WHITE,
+					addTile(UMid,
 							UMid.getRegionHeight()/2f,
 							UMid.getRegionWidth()/2f,
 							midTileCenters.get(ii) * drawScale.x,
 							midTileCenters.get(ii+1) * drawScale.y,
-							angle * MathUtils.degRad, 1f, 1f);
+							angle * MathUtils.degRad);
 				}
 
 				// Draw left edge tiles
 				float xstep = MathUtils.cosDeg(angle) * (trueWidth/2 - step/2);
 				float ystep = MathUtils.sinDeg(angle) * (trueWidth/2 - step/2);
 				Vector2 leftEdgeCenter = midStart.cpy().add(-xstep, -ystep);
-				canvas.draw(ULeft, Color.WHITE,
+				addTile(ULeft,
 						ULeft.getRegionHeight()/2f,
 						ULeft.getRegionWidth()/2f,
 						leftEdgeCenter.x * drawScale.x,
 						leftEdgeCenter.y * drawScale.y,
-						angle * MathUtils.degRad, 1f, 1f);
+						angle * MathUtils.degRad);
 
 				// Draw right edge tiles
 				Vector2 rightEdgeCenter = midStart.cpy().add(xstep, ystep);
-				canvas.draw(URight, Color.WHITE,
+				addTile(URight,
 						URight.getRegionHeight()/2f,
 						URight.getRegionWidth()/2f,
 						rightEdgeCenter.x * drawScale.x,
 						rightEdgeCenter.y * drawScale.y,
-						angle * MathUtils.degRad, 1f, 1f);
+						angle * MathUtils.degRad);
 
 				// TODO: Replace with myTenPatch
 			}
 		}
 	}
 
+
+	/**
+	 * Adds the vertices of a tile, as the canvas would draw it, to the baked tiles.
+	 *
+	 * @param region 	The tile to add
+	 * @param ox 		The x-coordinate of the tile origin (in pixels)
+	 * @param oy 		The y-coordinate of the tile origin (in pixels)
+	 * @param x 		The x-coordinate of the tile origin (on screen)
+	 * @param y 		The y-coordinate of the tile origin (on screen)
+	 * @param angle 	The rotation angle (in radians) about the origin
+	 */
+	private void addTile(TextureRegion region, float ox, float oy, float x, float y, float angle) {
+		Texture tileTexture = region.getTexture();
+		if (tileTextures.size == 0 || tileTextures.peek() != tileTexture) {
+			tileTextures.add(tileTexture);
+			tileRuns.add(0);
+		}
+		tileRuns.incr(tileRuns.size - 1, 20);
+
+		// The same transform and corners as GameCanvas.draw with an angle
+		tileAffine.setToTranslation(x, y);
+		tileAffine.rotate(180.0f * angle / (float) Math.PI);
+		tileAffine.translate(-ox, -oy);
+		Affine2 t = tileAffine;
+		float width = region.getRegionWidth();
+		float height = region.getRegionHeight();
+		float color = Color.WHITE.toFloatBits();
+		tileVertices.add(t.m02, t.m12, color, region.getU());
+		tileVertices.add(region.getV2());
+		tileVertices.add(t.m01 * height + t.m02, t.m11 * height + t.m12, color, region.getU());
+		tileVertices.add(region.getV());
+		tileVertices.add(t.m00 * width + t.m01 * height + t.m02, t.m10 * width + t.m11 * height + t.m12, color, region.getU2());
+		tileVertices.add(region.getV());
+		tileVertices.add(t.m00 * width + t.m02, t.m10 * width + t.m12, color, region.getU2());
+		tileVertices.add(region.getV2());
+	}
+
 	/**
 	 * Returns the result of moving a step amount in the given angle from v
 	 * @param v 	Starting coordinate
@@ -338,7 +539,7 @@ public class PlatformModel extends Obstacle {
 	}
 
 	/** Returns an array of x,y coordinates denote where the tiled centers should be */
-	private FloatArray computerCenters(Vector2 startVert, float angle, float step, int centerNum,
+	public FloatArray computerCenters(Vector2 startVert, float angle, float step, int centerNum,
 									   float minx, float maxx, float miny, float maxy){
 
 		FloatArray temp = new FloatArray(2*centerNum);
@@ -444,6 +645,7 @@ public class PlatformModel extends Obstacle {
 		this.BMid = botCenter;
 		this.ULeft = topLeft;
 		this.URight = topRight;
+		tilesBaked = false;
 		TextureRegion[] t = new TextureRegion[]{
 				topLeft, topCenter, topRight,
 				midLeft, midCenter, midRight,
@@ -530,4 +732,16 @@ public class PlatformModel extends Obstacle {
 	public TextureRegion getTexture() {
 		return texture;
 	}
+
+	/**
+	 * Returns the texture of the first run of baked tiles, or of the bodies if there are none.
+	 *
+	 * @return the texture these platforms are mostly drawn from
+	 */
+	public Texture getRenderTexture() {
+		if (tileTextures.size > 0) {
+			return tileTextures.first();
+		}
+		return (texture == null ? null : texture.getTexture());
+	}
 }
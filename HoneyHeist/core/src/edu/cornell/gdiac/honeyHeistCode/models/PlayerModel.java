@@ -1,9 +1,11 @@
 package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.JsonValue;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
 import edu.cornell.gdiac.util.FilmStrip;
 
 /**
@@ -63,18 +65,16 @@ public class PlayerModel extends CharacterModel {
         Boolean check = super.activatePhysics(world);
 
 
-        Filter filter = new Filter();
-        filter.categoryBits = 0x0001;
-        filter.maskBits = 0x0001;
-        for(Fixture fix : body.getFixtureList()){
-            fix.setFilterData(filter);
-        }
+        // The ant itself passes through spikes; only the smaller spike hitbox touches them
+        FixtureData.tag(this, FixtureData.CATEGORY_PLAYER,
+                (short) (FixtureData.MASK_ALL & ~FixtureData.CATEGORY_SPIKE));
 
         PolygonShape spikeCollision = new PolygonShape();
         spikeCollision.setAsBox(getWidth()/5f,getHeight()/12f);
         FixtureDef spikeCollDef = new FixtureDef();
         spikeCollDef.shape = spikeCollision;
-        body.createFixture(spikeCollDef);
+        Fixture spikeFixture = body.createFixture(spikeCollDef);
+        FixtureData.tag(spikeFixture, this, FixtureData.CATEGORY_PLAYER, FixtureData.MASK_ALL);
         return check;
     }
 
@@ -182,6 +182,64 @@ public class PlayerModel extends CharacterModel {
     }
 
 
+    /**
+     * Appends the current state of the ant to the buffer.
+     *
+     * @param buffer the buffer to append to
+     */
+    @Override
+    public void saveState(StateBuffer buffer) {
+        super.saveState(buffer);
+        buffer.putBoolean(isTrulyDead);
+        buffer.putBoolean(isShrinking);
+        buffer.putFloat(shrinkFactor);
+        buffer.putBoolean(walkCycle);
+        buffer.putBoolean(flailCycle);
+        buffer.putBoolean(deathCycle);
+        buffer.putInt(animFrames);
+        buffer.putInt(walkingAnim != null ? walkingAnim.getFrame() : 0);
+        buffer.putInt(flailingAnim != null ? flailingAnim.getFrame() : 0);
+        buffer.putInt(dyingAnim != null ? dyingAnim.getFrame() : 0);
+    }
+
+    /**
+     * Returns the ant to the state read from the buffer.
+     *
+     * @param buffer the buffer to read, positioned where saveState wrote the ant
+     */
+    @Override
+    public void restoreState(StateBuffer buffer) {
+        super.restoreState(buffer);
+        isTrulyDead = buffer.getBoolean();
+        isShrinking = buffer.getBoolean();
+        shrinkFactor = buffer.getFloat();
+        walkCycle = buffer.getBoolean();
+        flailCycle = buffer.getBoolean();
+        deathCycle = buffer.getBoolean();
+        animFrames = buffer.getInt();
+        int walkingAnimFrame = buffer.getInt();
+        if (walkingAnim != null) {
+            walkingAnim.setFrame(walkingAnimFrame);
+        }
+        int flailingAnimFrame = buffer.getInt();
+        if (flailingAnim != null) {
+            flailingAnim.setFrame(flailingAnimFrame);
+        }
+        int dyingAnimFrame = buffer.getInt();
+        if (dyingAnim != null) {
+            dyingAnim.setFrame(dyingAnimFrame);
+        }
+    }
+
+    /**
+     * Returns the texture of the walking animation, which this is mostly drawn from.
+     *
+     * @return the texture this is mostly drawn from
+     */
+    public Texture getRenderTexture() {
+        return (walkingAnim == null ? super.getRenderTexture() : walkingAnim.getTexture());
+    }
+
     /**
      * Draws the physics object.
      *
@@ -197,19 +255,19 @@ public class PlayerModel extends CharacterModel {
         if (currAnim != null) {
             float offsety = currAnim.getRegionHeight()-origin.y;
             if (isShrinking){
-                canvas.draw(currAnim,Color.WHITE,origin.x,offsety,getX()*drawScale.x,getY()*drawScale.x,getAngle(),effect * shrinkFactor,1 * shrinkFactor);
+                canvas.draw(currAnim,Color.WHITE,origin.x,offsety,getDrawX()*drawScale.x,getDrawY()*drawScale.x,getDrawAngle(),effect * shrinkFactor,1 * shrinkFactor);
                 shrink();
             } else {
-                canvas.draw(currAnim, Color.WHITE, origin.x, offsety, getX() * drawScale.x, getY() * drawScale.x, getAngle(), effect, 1);
+                canvas.draw(currAnim, Color.WHITE, origin.x, offsety, getDrawX() * drawScale.x, getDrawY() * drawScale.x, getDrawAngle(), effect, 1);
             }
         }
         // Stationary ant
         else {
             if (isShrinking) {
-                canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.y, getAngle(), effect * shrinkFactor, shrinkFactor);
+                canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), effect * shrinkFactor, shrinkFactor);
                 shrink();
             } else {
-                canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.y, getAngle(), effect, 1.0f);
+                canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), effect, 1.0f);
             }
         }
     }
@@ -1,10 +1,9 @@
 package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Filter;
-import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.JsonValue;
+import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.models.PlatformModel;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
 
@@ -22,21 +21,19 @@ public class SpikedPlatformModel extends PlatformModel{
     public SpikedPlatformModel(JsonValue data, Vector2 worldCenter) {
 
         super(data, "spikedplatform", worldCenter);
+        renderLayer = GameCanvas.RenderLayer.HAZARDS;
     }
 
     public SpikedPlatformModel() {
         super();
+        renderLayer = GameCanvas.RenderLayer.HAZARDS;
     }
 
     @Override
     public boolean activatePhysics(World world) {
         boolean check = super.activatePhysics(world);
-        Filter filter = new Filter();
-        filter.categoryBits = 0x0002;
         for(PolygonObstacle body: getBodies()){
-            for(Fixture fix : body.getBody().getFixtureList()){
-                fix.setFilterData(filter);
-            }
+            FixtureData.tag(body, FixtureData.CATEGORY_SPIKE, FixtureData.MASK_ALL);
         }
         return check;
     }
@@ -1,6 +1,7 @@
 package edu.cornell.gdiac.honeyHeistCode.models;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import edu.cornell.gdiac.honeyHeistCode.GameCanvas;
 import edu.cornell.gdiac.honeyHeistCode.obstacle.BoxObstacle;
 import edu.cornell.gdiac.util.FilmStrip;
@@ -16,6 +17,7 @@ public class TransitionModel extends BoxObstacle {
     public TransitionModel(float x, float y, boolean reversed){
         super(x,y,1,1);
         this.reversed = reversed;
+        renderLayer = GameCanvas.RenderLayer.FX;
     }
 
     public void setAnimationStrip(FilmStrip strip) {
@@ -47,6 +49,15 @@ public class TransitionModel extends BoxObstacle {
         return finished;
     }
 
+    /**
+     * Returns the texture of the transition animation.
+     *
+     * @return the texture of the transition animation
+     */
+    public Texture getRenderTexture() {
+        return (transitionAnim == null ? null : transitionAnim.getTexture());
+    }
+
     /**
      * Draws the physics object.
      *
@@ -56,7 +67,7 @@ public class TransitionModel extends BoxObstacle {
 
         float offsetx = transitionAnim.getRegionWidth()/2;
         float offsety = transitionAnim.getRegionHeight()/2;
-        canvas.draw(transitionAnim, Color.WHITE, offsetx, offsety, getX() * drawScale.x, getY() * drawScale.y, getAngle(), 1.0f, 1.0f);
+        canvas.draw(transitionAnim, Color.WHITE, offsetx, offsety, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), 1.0f, 1.0f);
 
     }
 }
@@ -400,7 +400,8 @@ public class CapsuleObstacle extends SimpleObstacle {
 		fixture.shape = shape;
 		core = body.createFixture(fixture);
 		    
-		fixture.density = fixture.density/2.0f;
+		float density = fixture.density;
+		fixture.density = density/2.0f;
 		posCache.set(0,0);
 		switch (orient) {
 		case TOP:
@@ -452,6 +453,8 @@ public class CapsuleObstacle extends SimpleObstacle {
 			cap2 = body.createFixture(fixture);
 			break;
 		}
+		// Recreating the fixtures must not halve the density again
+		fixture.density = density;
 
 		markDirty(false);
 	}
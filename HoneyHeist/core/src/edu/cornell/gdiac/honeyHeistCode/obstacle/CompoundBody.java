@@ -0,0 +1,184 @@
+/*
+ * CompoundBody.java
+ *
+ * A level rotates by teleporting every static obstacle with setTransform, one body
+ * at a time, and every teleport makes Box2D re-evaluate that body's contacts from
+ * its new position.  This class merges the fixtures of those obstacles into a
+ * single kinematic body that is turned with an angular velocity instead, so a
+ * rotation costs one body update and the solver sees the geometry actually move.
+ */
+package edu.cornell.gdiac.honeyHeistCode.obstacle;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+
+/**
+ * One kinematic body holding the fixtures of several static obstacles.
+ *
+ * Each merged obstacle keeps its own body, but that body is made inactive so that
+ * its fixtures leave the broadphase.  The obstacle still rotates as before (moving
+ * a body with no proxies is cheap), so drawing and geometry queries see no change.
+ * This body then follows the angle of the first obstacle added to it, turning
+ * about its own position, which should be the point the level rotates about.
+ */
+public class CompoundBody {
+	/** The kinematic body that holds every merged fixture */
+	private Body body;
+	/** The obstacle whose angle this body follows */
+	private Obstacle reference;
+	/** The angle of the reference relative to this body when it was added */
+	private float referenceOffset;
+	/** Cache for transforming shape vertices */
+	private final Vector2 vertexCache = new Vector2();
+
+	/**
+	 * Creates an empty kinematic body at the given point
+	 *
+	 * @param world Box2D world to store the body
+	 * @param pivot The point the level rotates about
+	 */
+	public CompoundBody(World world, Vector2 pivot) {
+		BodyDef def = new BodyDef();
+		def.type = BodyDef.BodyType.KinematicBody;
+		def.position.set(pivot);
+		body = world.createBody(def);
+	}
+
+	/**
+	 * Returns the Box2D body holding the merged fixtures
+	 *
+	 * @return the Box2D body holding the merged fixtures
+	 */
+	public Body getBody() {
+		return body;
+	}
+
+	/**
+	 * Moves the fixtures of an active obstacle onto this body.
+	 *
+	 * The copies keep the shape, material, filter and user data of the originals.
+	 * The obstacle's own body is deactivated afterwards.
+	 *
+	 * @param obj The obstacle to merge (must be active)
+	 */
+	public void add(Obstacle obj) {
+		Body source = obj.getBody();
+		if (source == null) {
+			return;
+		}
+		for (Fixture fix : source.getFixtureList()) {
+			copyFixture(source, fix);
+		}
+		obj.setActive(false);
+
+		if (reference == null) {
+			reference = obj;
+			referenceOffset = obj.getAngle() - body.getAngle();
+		}
+	}
+
+	/**
+	 * Sets the angular velocity that brings this body to the angle of its reference
+	 *
+	 * Call this after the obstacles have been rotated for the step, so that the next
+	 * world step catches this body up to them.
+	 *
+	 * @param dt Length of the next world step
+	 */
+	public void follow(float dt) {
+		if (reference == null) {
+			return;
+		}
+		float delta = reference.getAngle() - referenceOffset - body.getAngle();
+		if (Math.abs(delta) < MathUtils.FLOAT_ROUNDING_ERROR) {
+			delta = 0;
+		}
+		body.setAngularVelocity(delta / dt);
+	}
+
+	/**
+	 * Appends the angle and angular velocity of this body to the buffer
+	 *
+	 * @param buffer the buffer to append to
+	 */
+	public void saveState(StateBuffer buffer) {
+		buffer.putFloat(body.getAngle());
+		buffer.putFloat(body.getAngularVelocity());
+	}
+
+	/**
+	 * Turns this body back to the angle and angular velocity read from the buffer
+	 *
+	 * The reference should be restored as well, so that its offset still holds.
+	 *
+	 * @param buffer the buffer to read, positioned where saveState wrote this body
+	 */
+	public void restoreState(StateBuffer buffer) {
+		body.setTransform(body.getPosition(), buffer.getFloat());
+		body.setAngularVelocity(buffer.getFloat());
+	}
+
+	/**
+	 * Copies a fixture of the given body onto this body
+	 *
+	 * @param source    The body that owns the fixture
+	 * @param fix       The fixture to copy
+	 */
+	private void copyFixture(Body source, Fixture fix) {
+		Shape shape;
+		switch (fix.getType()) {
+			case Polygon:
+				PolygonShape polygon = (PolygonShape) fix.getShape();
+				float[] vertices = new float[2 * polygon.getVertexCount()];
+				for (int ii = 0; ii < polygon.getVertexCount(); ii++) {
+					polygon.getVertex(ii, vertexCache);
+					toLocal(source, vertexCache);
+					vertices[2 * ii] = vertexCache.x;
+					vertices[2 * ii + 1] = vertexCache.y;
+				}
+				PolygonShape polygonCopy = new PolygonShape();
+				polygonCopy.set(vertices);
+				shape = polygonCopy;
+				break;
+			case Circle:
+				CircleShape circle = (CircleShape) fix.getShape();
+				vertexCache.set(circle.getPosition());
+				toLocal(source, vertexCache);
+				CircleShape circleCopy = new CircleShape();
+				circleCopy.setRadius(circle.getRadius());
+				circleCopy.setPosition(vertexCache);
+				shape = circleCopy;
+				break;
+			default:
+				assert false : "Unsupported shape type " + fix.getType();
+				return;
+		}
+
+		FixtureDef def = new FixtureDef();
+		def.shape = shape;
+		def.density = fix.getDensity();
+		def.friction = fix.getFriction();
+		def.restitution = fix.getRestitution();
+		def.isSensor = fix.isSensor();
+		Filter filter = fix.getFilterData();
+		def.filter.categoryBits = filter.categoryBits;
+		def.filter.maskBits = filter.maskBits;
+		def.filter.groupIndex = filter.groupIndex;
+
+		Fixture copy = body.createFixture(def);
+		copy.setUserData(fix.getUserData());
+		shape.dispose();
+	}
+
+	/**
+	 * Converts a point from the coordinates of the given body to those of this body
+	 *
+	 * @param source    The body whose coordinates the point is in
+	 * @param point     The point to convert, which is modified in place
+	 */
+	private void toLocal(Body source, Vector2 point) {
+		point.set(source.getWorldPoint(point));
+		point.set(body.getLocalPoint(point));
+	}
+}
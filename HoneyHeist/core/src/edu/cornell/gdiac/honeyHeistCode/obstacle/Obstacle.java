@@ -17,6 +17,7 @@
  */
 package edu.cornell.gdiac.honeyHeistCode.obstacle;
 
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -36,7 +37,7 @@ import edu.cornell.gdiac.honeyHeistCode.*;  // For GameCanvas
  * to unify common functionality. In particular, it wraps the body and 
  * and fixture information into a single interface.
  */
-public abstract class Obstacle {
+public abstract class Obstacle implements GameCanvas.Renderable {
 	/// Initialization structures to store body information
 	/** Stores the body information for this shape */
 	protected BodyDef bodyinfo;
@@ -76,6 +77,14 @@ public abstract class Obstacle {
 	protected final float maxStickTime = 0.3f;
 	/** The amount of time that the ant has been sticking */
 	protected float stickTime;
+	/** Whether a rotation of the stage moves this body (false when gravity turns instead) */
+	protected boolean turnsWithStage = true;
+	/** The angle of the screen's horizontal axis in world coordinates */
+	protected float frameAngle;
+	/** Cosine of the frame angle */
+	protected float frameCos = 1.0f;
+	/** Sine of the frame angle */
+	protected float frameSin = 0.0f;
 
 	/// Track garbage collection status
 	/** Whether the object should be removed from the world on next pass */
@@ -93,6 +102,22 @@ public abstract class Obstacle {
 	/** A cache value for when the user wants to access the drawing scale */
 	protected Vector2 scaleCache = new Vector2();
 
+	/** A cache value for the point of rotation read back by restoreState */
+	private Vector2 centerCache = new Vector2();
+
+	/// Render interpolation
+	/** The x-coordinate at the start of the most recent physics step */
+	protected float previousX;
+	/** The y-coordinate at the start of the most recent physics step */
+	protected float previousY;
+	/** The angle at the start of the most recent physics step */
+	protected float previousAngle;
+	/** Whether a previous transform has been recorded since activation */
+	protected boolean hasPrevious;
+	/** How far (0 to 1) the frame being drawn lies between the previous and current step */
+	protected float drawAlpha = 1.0f;
+	/** The layer of the render queue this object is drawn in */
+	protected GameCanvas.RenderLayer renderLayer = GameCanvas.RenderLayer.ACTORS;
 
 	/// BodyDef Methods
 	/**
@@ -1031,6 +1056,259 @@ public abstract class Obstacle {
 	 */
 	public boolean isClockwise() { return isClockwise; }
 
+	/**
+	 * Returns true if a rotation of the stage moves this body about the stage center
+	 *
+	 * When this is false a rotation still runs its course (and its sticking), but
+	 * the body stays where it is.  This is how the stage turns when the gravity and
+	 * camera rotate instead of the level geometry.
+	 *
+	 * @return true if a rotation of the stage moves this body about the stage center
+	 */
+	public boolean turnsWithStage() { return turnsWithStage; }
+
+	/**
+	 * Sets whether a rotation of the stage moves this body about the stage center
+	 *
+	 * @param value	whether a rotation of the stage moves this body
+	 */
+	public void setTurnsWithStage(boolean value) { turnsWithStage = value; }
+
+	/**
+	 * Returns the angle of the screen's horizontal axis in world coordinates
+	 *
+	 * This is zero unless the gravity and camera have been rotated in place of
+	 * the level.  Movement that the player thinks of as left/right or up/down is
+	 * measured along these axes.
+	 *
+	 * @return the angle of the screen's horizontal axis in world coordinates
+	 */
+	public float getFrameAngle() { return frameAngle; }
+
+	/**
+	 * Sets the angle of the screen's horizontal axis in world coordinates
+	 *
+	 * @param angle	the angle of the screen's horizontal axis (in radians)
+	 */
+	public void setFrameAngle(float angle) {
+		frameAngle = angle;
+		frameCos = (float) Math.cos(angle);
+		frameSin = (float) Math.sin(angle);
+	}
+
+	/**
+	 * Returns the velocity of this body along the screen's horizontal axis
+	 *
+	 * @return the velocity of this body along the screen's horizontal axis
+	 */
+	protected float getFrameVX() {
+		return getVX() * frameCos + getVY() * frameSin;
+	}
+
+	/**
+	 * Sets the velocity of this body along the screen's horizontal axis
+	 *
+	 * @param value	the velocity along the screen's horizontal axis
+	 */
+	protected void setFrameVX(float value) {
+		float vy = getFrameVY();
+		setVX(value * frameCos - vy * frameSin);
+		setVY(value * frameSin + vy * frameCos);
+	}
+
+	/**
+	 * Returns the velocity of this body along the screen's vertical axis
+	 *
+	 * @return the velocity of this body along the screen's vertical axis
+	 */
+	protected float getFrameVY() {
+		return getVY() * frameCos - getVX() * frameSin;
+	}
+
+	/**
+	 * Sets the velocity of this body along the screen's vertical axis
+	 *
+	 * @param value	the velocity along the screen's vertical axis
+	 */
+	protected void setFrameVY(float value) {
+		float vx = getFrameVX();
+		setVX(vx * frameCos - value * frameSin);
+		setVY(vx * frameSin + value * frameCos);
+	}
+
+	/**
+	 * Converts a vector from screen axes to world coordinates, in place
+	 *
+	 * @param vector	the vector to convert
+	 *
+	 * @return the converted vector, for chaining
+	 */
+	protected Vector2 frameToWorld(Vector2 vector) {
+		return vector.set(vector.x * frameCos - vector.y * frameSin, vector.x * frameSin + vector.y * frameCos);
+	}
+
+	/// Render Interpolation
+	/**
+	 * Records the current transform as the start of the next physics step.
+	 *
+	 * This should be called immediately before every world step so that
+	 * draw methods can blend between the last two physics states.
+	 */
+	public void storePreviousTransform() {
+		previousX = getX();
+		previousY = getY();
+		previousAngle = getAngle();
+		hasPrevious = true;
+	}
+
+	/**
+	 * Sets the interpolation factor used by the draw methods.
+	 *
+	 * An alpha of 0 draws the object at its previous transform, and an alpha of
+	 * 1 draws it at its current transform.
+	 *
+	 * @param alpha the fraction of a physics step left over in the accumulator
+	 */
+	public void setDrawAlpha(float alpha) {
+		drawAlpha = alpha;
+	}
+
+	/**
+	 * Returns the layer of the render queue this object is drawn in.
+	 *
+	 * @return the layer of the render queue this object is drawn in
+	 */
+	public GameCanvas.RenderLayer getRenderLayer() {
+		return renderLayer;
+	}
+
+	/**
+	 * Sets the layer of the render queue this object is drawn in.
+	 *
+	 * Objects are drawn in the actor layer unless set otherwise.
+	 *
+	 * @param layer the layer of the render queue this object is drawn in
+	 */
+	public void setRenderLayer(GameCanvas.RenderLayer layer) {
+		renderLayer = layer;
+	}
+
+	/**
+	 * Returns the texture this object is mostly drawn from (or null if unknown).
+	 *
+	 * The render queue draws objects that share a texture together.
+	 *
+	 * @return the texture this object is mostly drawn from
+	 */
+	public Texture getRenderTexture() {
+		return null;
+	}
+
+	/**
+	 * Returns the blend state this object is drawn with (or null for that of the pass).
+	 *
+	 * @return the blend state this object is drawn with
+	 */
+	public GameCanvas.BlendState getRenderBlend() {
+		return null;
+	}
+
+	/**
+	 * Returns the interpolated x-coordinate to draw this object at
+	 *
+	 * @return the interpolated x-coordinate to draw this object at
+	 */
+	public float getDrawX() {
+		float x = getX();
+		return (hasPrevious ? previousX + (x - previousX) * drawAlpha : x);
+	}
+
+	/**
+	 * Returns the interpolated y-coordinate to draw this object at
+	 *
+	 * @return the interpolated y-coordinate to draw this object at
+	 */
+	public float getDrawY() {
+		float y = getY();
+		return (hasPrevious ? previousY + (y - previousY) * drawAlpha : y);
+	}
+
+	/**
+	 * Returns the interpolated angle to draw this object at
+	 *
+	 * Box2D does not wrap body angles, so a straight lerp is safe here.
+	 *
+	 * @return the interpolated angle to draw this object at
+	 */
+	public float getDrawAngle() {
+		float angle = getAngle();
+		return (hasPrevious ? previousAngle + (angle - previousAngle) * drawAlpha : angle);
+	}
+
+	/// Snapshots
+	/**
+	 * Appends the current state of this object to the buffer, so that restoreState can return to it.
+	 *
+	 * This covers the transform, velocity and type of the body, and the progress of
+	 * any rotation.  Subclasses with gameplay state of their own extend this, and must
+	 * read it back in restoreState in the same order.  Only values are saved, so the
+	 * state can be restored into a copy of this object in another world.
+	 *
+	 * @param buffer the buffer to append to
+	 */
+	public void saveState(StateBuffer buffer) {
+		buffer.putObject(getBodyType());
+		buffer.putVector(getPosition());
+		buffer.putFloat(getAngle());
+		buffer.putVector(getLinearVelocity());
+		buffer.putFloat(getAngularVelocity());
+		buffer.putBoolean(isAwake());
+
+		buffer.putFloat(remainingAngle);
+		buffer.putFloat(currentSpeed);
+		buffer.putFloat(stickTime);
+		buffer.putFloat(frameAngle);
+		buffer.putBoolean(isRotating);
+		buffer.putBoolean(isClockwise);
+		buffer.putBoolean(sticking);
+		buffer.putBoolean(stageCenter != null);
+		if (stageCenter != null) {
+			buffer.putVector(stageCenter);
+		}
+		buffer.putBoolean(toRemove);
+	}
+
+	/**
+	 * Returns this object to the state read from the buffer.
+	 *
+	 * The body is moved in place, so none of its fixtures are rebuilt.  Box2D keeps
+	 * whatever contacts the body already had, so a moving body should be made
+	 * inactive around this call if those contacts must be found again.
+	 *
+	 * @param buffer the buffer to read, positioned where saveState wrote this object
+	 */
+	public void restoreState(StateBuffer buffer) {
+		setBodyType(buffer.<BodyType>getObject());
+		float x = buffer.getFloat();
+		setPosition(x, buffer.getFloat());
+		setAngle(buffer.getFloat());
+		setVX(buffer.getFloat());
+		setVY(buffer.getFloat());
+		setAngularVelocity(buffer.getFloat());
+		setAwake(buffer.getBoolean());
+
+		remainingAngle = buffer.getFloat();
+		currentSpeed = buffer.getFloat();
+		stickTime = buffer.getFloat();
+		setFrameAngle(buffer.getFloat());
+		isRotating = buffer.getBoolean();
+		isClockwise = buffer.getBoolean();
+		sticking = buffer.getBoolean();
+		stageCenter = (buffer.getBoolean() ? buffer.getVector(centerCache) : null);
+		toRemove = buffer.getBoolean();
+		hasPrevious = false;
+	}
+
 	/// Abstract Methods
 	/**
 	 * Creates the physics Body(s) for this object, adding them to the world.
@@ -32,8 +32,13 @@ import edu.cornell.gdiac.honeyHeistCode.*;  // For GameCanvas
  * from the texture size, using the same policy as PolygonSpriteBatch.
  */
 public class PolygonObstacle extends SimpleObstacle {
-	/** An earclipping triangular to make sure we work with convex shapes */
-	private static final EarClippingTriangulator TRIANGULATOR = new EarClippingTriangulator();
+	/** An earclipping triangular to make sure we work with convex shapes (one per thread) */
+	private static final ThreadLocal<EarClippingTriangulator> TRIANGULATOR = new ThreadLocal<EarClippingTriangulator>() {
+		@Override
+		protected EarClippingTriangulator initialValue() {
+			return new EarClippingTriangulator();
+		}
+	};
 
 	/** Shape information for this physics object */
 	protected PolygonShape[] shapes;
@@ -147,19 +152,8 @@ public class PolygonObstacle extends SimpleObstacle {
 	 * @return
 	 */
 	public float[] getTrueVertices(){
-		float[] vertices = getVertices();
-		float angle = getAngle();
 		Vector2 pos = getPosition();
-		for (int i=0; i<vertices.length; i+=2){
-			float length = (float)Math.sqrt(Math.pow(vertices[i],2)+Math.pow(vertices[i+1],2));
-			float theta = (float)Math.atan((vertices[i+1] /vertices[i]));
-			vertices[i] = length*(float)Math.cos(theta+angle);
-			vertices[i+1] =  length*(float)Math.sin(theta+angle);;
-			vertices[i] += pos.x;
-			vertices[i+1] +=  pos.y;;
-		}
-
-		return vertices;
+		return transformPoints(getVertices(), pos.x, pos.y, getAngle());
 	}
 
 	/**
@@ -172,16 +166,39 @@ public class PolygonObstacle extends SimpleObstacle {
 	 * - 4 is the top right
 	 */
 	public float[] getTruePoints(){
-		float[] points = getPoints();
-		float angle = getAngle();
 		Vector2 pos = getPosition();
+		return transformPoints(getPoints(), pos.x, pos.y, getAngle());
+	}
+
+	/**
+	 * Returns the corners of the rectangle at the interpolated draw transform.
+	 *
+	 * The order of the points is the same as getTruePoints().
+	 *
+	 * @return the corners of the rectangle as they should be drawn this frame
+	 */
+	public float[] getDrawTruePoints(){
+		return transformPoints(getPoints(), getDrawX(), getDrawY(), getDrawAngle());
+	}
+
+	/**
+	 * Moves local points into world space using the given body transform.
+	 *
+	 * @param points	the local points, modified in place
+	 * @param x			the x-coordinate of the body
+	 * @param y			the y-coordinate of the body
+	 * @param angle		the angle of the body
+	 *
+	 * @return the transformed points
+	 */
+	private float[] transformPoints(float[] points, float x, float y, float angle){
 		for (int i=0; i<points.length; i+=2){
 			float length = (float)Math.sqrt(Math.pow(points[i],2)+Math.pow(points[i+1],2));
 			float theta = (float)Math.atan((points[i+1] /points[i]));
 			points[i] = length*(float)Math.cos(theta+angle);
-			points[i+1] =  length*(float)Math.sin(theta+angle);;
-			points[i] += pos.x;
-			points[i+1] +=  pos.y;;
+			points[i+1] =  length*(float)Math.sin(theta+angle);
+			points[i] += x;
+			points[i+1] += y;
 		}
 
 		return points;
@@ -195,9 +212,20 @@ public class PolygonObstacle extends SimpleObstacle {
 		return getCenter(true);
 	}
 	public Vector2 getCenter(boolean v){
+		return averagePoints((v) ? getTrueVertices() : getVertices());
+	}
+
+	/** Returns the center of the polygon at the interpolated draw transform.
+	 *
+	 * @return the center of the polygon as it should be drawn this frame
+	 */
+	public Vector2 getDrawCenter(){
+		return averagePoints(transformPoints(getVertices(), getDrawX(), getDrawY(), getDrawAngle()));
+	}
+
+	private Vector2 averagePoints(float[] verts){
 		float xAvg = 0;
 		float yAvg = 0;
-		float[] verts = ((v) ? getTrueVertices() : getVertices());
 		for(int i=0; i<verts.length; i++){
 			if(i%2 == 0){
 				xAvg+=verts[i];
@@ -338,7 +366,7 @@ public class PolygonObstacle extends SimpleObstacle {
 	private void initShapes(float[] points) {
 		// Triangulate
 		this.points = points;
-		ShortArray array = TRIANGULATOR.computeTriangles(points);
+		ShortArray array = TRIANGULATOR.get().computeTriangles(points);
 		trimColinear(points,array);
 
 		tridx = new short[array.items.length];
@@ -451,8 +479,9 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	protected void releaseFixtures() {
 		if (geoms[0] != null) {
-			for(Fixture fix : geoms) {
-				body.destroyFixture(fix);
+			for(int ii = 0; ii < geoms.length; ii++) {
+				body.destroyFixture(geoms[ii]);
+				geoms[ii] = null;
 			}
 		}
 	}
@@ -505,7 +534,7 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	public void draw(GameCanvas canvas) {
 		if (region != null) {
-			canvas.draw(region,Color.WHITE,0,0,getX()*drawScale.x,getY()*drawScale.y,getAngle(),1,1);
+			canvas.draw(region,Color.WHITE,0,0,getDrawX()*drawScale.x,getDrawY()*drawScale.y,getDrawAngle(),1,1);
 		}
 	}
 	/**
@@ -516,7 +545,7 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	public void draw(GameCanvas canvas, Color tint) {
 		if (region != null) {
-			canvas.draw(region,tint,0,0,getX()*drawScale.x,getY()*drawScale.y,getAngle(),1,1);
+			canvas.draw(region,tint,0,0,getDrawX()*drawScale.x,getDrawY()*drawScale.y,getDrawAngle(),1,1);
 		}
 	}
 
@@ -18,6 +18,7 @@ package edu.cornell.gdiac.honeyHeistCode.obstacle;
 
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -768,6 +769,15 @@ public abstract class SimpleObstacle extends Obstacle {
 		texture = value;
 		origin.set(texture.getRegionWidth()/2.0f, texture.getRegionHeight()/2.0f);
 	}
+
+	/**
+	 * Returns the texture this object is drawn from (or null if it has none).
+	 *
+	 * @return the texture this object is drawn from
+	 */
+	public Texture getRenderTexture() {
+		return (texture == null ? null : texture.getTexture());
+	}
 	
 	/**
 	 * Draws the physics object.
@@ -776,7 +786,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	 */
 	public void draw(GameCanvas canvas) {
 		if (texture != null) {
-			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.x,getAngle(),1,1);
+			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getDrawX()*drawScale.x,getDrawY()*drawScale.x,getDrawAngle(),1,1);
 		}
 	}
 	
@@ -849,6 +859,8 @@ public abstract class SimpleObstacle extends Obstacle {
 		if (body != null) {
 			// Snapshot the values
 			setBodyState(body);
+			// Forget the fixtures, so the object can be activated again
+			releaseFixtures();
 			world.destroyBody(body);
 			body = null;
 			bodyinfo.active = false;
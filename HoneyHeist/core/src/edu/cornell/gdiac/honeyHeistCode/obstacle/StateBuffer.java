@@ -0,0 +1,201 @@
+/*
+ * StateBuffer.java
+ *
+ * A snapshot of the simulation is just the values of a known list of objects, saved
+ * and restored in the same order.  This class holds those values in flat arrays, so
+ * a snapshot costs a few array writes per object instead of an allocation, and any
+ * number of snapshots can be kept at once (a search keeps one per open state).
+ */
+package edu.cornell.gdiac.honeyHeistCode.obstacle;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A sequence of values, read back in the order they were written.
+ *
+ * Floats, ints (including booleans and longs) and object references are kept in
+ * separate arrays, each with its own read position.  So a reader must ask for the
+ * same types in the same order as the writer put them, but need not interleave
+ * them the same way.
+ */
+public class StateBuffer {
+	/** The float values */
+	private final FloatArray floats;
+	/** The int, boolean and long values */
+	private final IntArray ints;
+	/** The object references */
+	private final Array<Object> objects;
+	/** The next float to read */
+	private int floatIndex;
+	/** The next int to read */
+	private int intIndex;
+	/** The next object to read */
+	private int objectIndex;
+
+	/**
+	 * Creates an empty buffer
+	 */
+	public StateBuffer() {
+		floats = new FloatArray();
+		ints = new IntArray();
+		objects = new Array<Object>();
+	}
+
+	/**
+	 * Returns true if nothing has been written since the last clear
+	 *
+	 * @return true if nothing has been written since the last clear
+	 */
+	public boolean isEmpty() {
+		return floats.size == 0 && ints.size == 0 && objects.size == 0;
+	}
+
+	/**
+	 * Removes every value, keeping the storage for the next write
+	 */
+	public void clear() {
+		floats.clear();
+		ints.clear();
+		objects.clear();
+		rewind();
+	}
+
+	/**
+	 * Moves the read position back to the first value
+	 */
+	public void rewind() {
+		floatIndex = 0;
+		intIndex = 0;
+		objectIndex = 0;
+	}
+
+	/**
+	 * Releases the storage beyond the values written so far
+	 *
+	 * This is worth calling on buffers that are kept for a long time.
+	 */
+	public void shrink() {
+		floats.shrink();
+		ints.shrink();
+		objects.shrink();
+	}
+
+	/**
+	 * Appends a float
+	 *
+	 * @param value the value to append
+	 */
+	public void putFloat(float value) {
+		floats.add(value);
+	}
+
+	/**
+	 * Appends both coordinates of a vector
+	 *
+	 * @param value the value to append
+	 */
+	public void putVector(Vector2 value) {
+		floats.add(value.x, value.y);
+	}
+
+	/**
+	 * Appends an int
+	 *
+	 * @param value the value to append
+	 */
+	public void putInt(int value) {
+		ints.add(value);
+	}
+
+	/**
+	 * Appends a boolean
+	 *
+	 * @param value the value to append
+	 */
+	public void putBoolean(boolean value) {
+		ints.add(value ? 1 : 0);
+	}
+
+	/**
+	 * Appends a long
+	 *
+	 * @param value the value to append
+	 */
+	public void putLong(long value) {
+		ints.add((int) (value >>> 32), (int) value);
+	}
+
+	/**
+	 * Appends an object reference
+	 *
+	 * The object itself is not copied, so it should not change while it is saved.
+	 * Only save objects (like enum values) that mean the same to every reader.
+	 *
+	 * @param value the value to append (may be null)
+	 */
+	public void putObject(Object value) {
+		objects.add(value);
+	}
+
+	/**
+	 * Returns the next float
+	 *
+	 * @return the next float
+	 */
+	public float getFloat() {
+		return floats.get(floatIndex++);
+	}
+
+	/**
+	 * Reads the next two floats into a vector
+	 *
+	 * @param result the vector to set
+	 *
+	 * @return the given vector, for chaining
+	 */
+	public Vector2 getVector(Vector2 result) {
+		float x = floats.get(floatIndex++);
+		return result.set(x, floats.get(floatIndex++));
+	}
+
+	/**
+	 * Returns the next int
+	 *
+	 * @return the next int
+	 */
+	public int getInt() {
+		return ints.get(intIndex++);
+	}
+
+	/**
+	 * Returns the next boolean
+	 *
+	 * @return the next boolean
+	 */
+	public boolean getBoolean() {
+		return ints.get(intIndex++) != 0;
+	}
+
+	/**
+	 * Returns the next long
+	 *
+	 * @return the next long
+	 */
+	public long getLong() {
+		long high = ints.get(intIndex++);
+		return (high << 32) | (ints.get(intIndex++) & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the next object reference
+	 *
+	 * @return the next object reference
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getObject() {
+		return (T) objects.get(objectIndex++);
+	}
+}
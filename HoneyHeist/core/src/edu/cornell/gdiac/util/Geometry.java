@@ -0,0 +1,54 @@
+/*
+ * Geometry.java
+ *
+ * Static tests on plain coordinates, for code that keeps its shapes in float
+ * arrays rather than in objects.  The models index their edges this way, and
+ * the AI builds its segments from the same numbers, so both share one test and
+ * always agree on the answer.
+ */
+package edu.cornell.gdiac.util;
+
+/**
+ * Static class for geometric tests on coordinates.
+ */
+public class Geometry {
+
+	/**
+	 * Returns true if two segments cross, or touch in a way that is not collinear.
+	 *
+	 * @param ax1 the x-coordinate of the start of segment a
+	 * @param ay1 the y-coordinate of the start of segment a
+	 * @param ax2 the x-coordinate of the end of segment a
+	 * @param ay2 the y-coordinate of the end of segment a
+	 * @param bx1 the x-coordinate of the start of segment b
+	 * @param by1 the y-coordinate of the start of segment b
+	 * @param bx2 the x-coordinate of the end of segment b
+	 * @param by2 the y-coordinate of the end of segment b
+	 *
+	 * @return true if segment a crosses segment b
+	 */
+	public static boolean segmentsIntersect(float ax1, float ay1, float ax2, float ay2,
+	                                        float bx1, float by1, float bx2, float by2) {
+		int dir1 = orientation(ax1, ay1, ax2, ay2, bx1, by1);
+		int dir2 = orientation(ax1, ay1, ax2, ay2, bx2, by2);
+		int dir3 = orientation(bx1, by1, bx2, by2, ax1, ay1);
+		int dir4 = orientation(bx1, by1, bx2, by2, ax2, ay2);
+		return dir1 != dir2 && dir3 != dir4;
+	}
+
+	/**
+	 * Returns the side of the line through the first two points the third is on.
+	 *
+	 * @return 0 if the points are collinear, and -1 or 1 otherwise
+	 */
+	private static int orientation(float x1, float y1, float x2, float y2, float x3, float y3) {
+		float val = (y2 - y1) * (x3 - x2) - (x2 - x1) * (y3 - y2);
+		if (val == 0) {
+			return 0;
+		} else if (val < 0) {
+			return -1;
+		} else {
+			return 1;
+		}
+	}
+}
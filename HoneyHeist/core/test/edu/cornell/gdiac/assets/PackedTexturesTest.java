@@ -0,0 +1,273 @@
+package edu.cornell.gdiac.assets;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectSet;
+import edu.cornell.gdiac.honeyHeistCode.TestLevels;
+import edu.cornell.gdiac.util.FilmStrip;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Tests reading the atlases of a directory, and the fallback when an atlas is not packed.
+ *
+ * The atlas is written in the format the packTextures task writes, so no GL context
+ * is needed: PackedTextures only reads the atlas file, never its pages.  The last
+ * test loads the shipped directory through the texture parsers, as the game does
+ * before the atlas has been packed.
+ */
+public class PackedTexturesTest {
+    /** A directory with one atlas, listing textures of every kind */
+    private static final String DIRECTORY = (
+            "{" +
+            "  'textures': {" +
+            "    'a:ant': 'platform/ant.png'," +
+            "    'a:larvae': { 'file': 'platform/larvae.png' }," +
+            "    'a:bee': 'platform/bee.png'," +
+            "    'a:spin': 'platform/spin.png'," +
+            "    'a:trim': 'platform/trim.png'," +
+            "    'a:loose': 'platform/loose.png'," +
+            "    'a:earth': { 'file': 'shared/earth.png', 'wrapU': 'repeated', 'wrapV': 'repeated' }," +
+            "    'a:mipped': { 'file': 'shared/mipped.png', 'mipmaps': true }" +
+            "  }," +
+            "  'atlases': {" +
+            "    'game': { 'file': 'atlases/game.atlas'," +
+            "              'textures': [ 'a:ant', 'a:larvae', 'a:bee', 'a:spin', 'a:trim', 'a:earth', 'a:mipped', 'a:missing' ] }" +
+            "  }" +
+            "}").replace('\'', '"');
+
+    /** The atlas of the directory: two pages, with regions the parsers cannot use */
+    private static final String ATLAS =
+            "\n" +
+            "game.png\n" +
+            "size: 128, 64\n" +
+            "format: RGBA8888\n" +
+            "filter: Linear, Linear\n" +
+            "repeat: none\n" +
+            "platform/ant\n" +
+            "  rotate: false\n" +
+            "  xy: 2, 2\n" +
+            "  size: 28, 18\n" +
+            "  orig: 28, 18\n" +
+            "  offset: 0, 0\n" +
+            "  index: -1\n" +
+            "platform/larvae\n" +
+            "  rotate: false\n" +
+            "  xy: 32, 7\n" +
+            "  size: 32, 13\n" +
+            "  orig: 32, 13\n" +
+            "  offset: 0, 0\n" +
+            "  index: -1\n" +
+            "platform/spin\n" +
+            "  rotate: true\n" +
+            "  xy: 66, 2\n" +
+            "  size: 10, 20\n" +
+            "  orig: 10, 20\n" +
+            "  offset: 0, 0\n" +
+            "  index: -1\n" +
+            "platform/trim\n" +
+            "  rotate: false\n" +
+            "  xy: 80, 2\n" +
+            "  size: 8, 8\n" +
+            "  orig: 16, 16\n" +
+            "  offset: 4, 4\n" +
+            "  index: -1\n" +
+            "platform/loose\n" +
+            "  rotate: false\n" +
+            "  xy: 90, 2\n" +
+            "  size: 8, 8\n" +
+            "  orig: 8, 8\n" +
+            "  offset: 0, 0\n" +
+            "  index: -1\n" +
+            "shared/earth\n" +
+            "  rotate: false\n" +
+            "  xy: 100, 2\n" +
+            "  size: 8, 8\n" +
+            "  orig: 8, 8\n" +
+            "  offset: 0, 0\n" +
+            "  index: -1\n" +
+            "\n" +
+            "game2.png\n" +
+            "size: 64, 64\n" +
+            "format: RGBA8888\n" +
+            "filter: Nearest, Nearest\n" +
+            "repeat: none\n" +
+            "platform/bee\n" +
+            "  rotate: false\n" +
+            "  xy: 2, 30\n" +
+            "  size: 24, 24\n" +
+            "  orig: 24, 24\n" +
+            "  offset: 0, 0\n" +
+            "  index: -1\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonValue directory;
+    private FileHandleResolver resolver;
+
+    @Before
+    public void setUp() {
+        directory = new JsonReader().parse(DIRECTORY);
+        final File root = folder.getRoot();
+        resolver = new FileHandleResolver() {
+            public FileHandle resolve(String fileName) {
+                return new FileHandle(new File(root, fileName));
+            }
+        };
+    }
+
+    /** Writes the atlas where the directory declares it */
+    private void writeAtlas() throws IOException {
+        File file = new File(folder.getRoot(), "atlases/game.atlas");
+        assertTrue(file.getParentFile().mkdirs());
+        new FileHandle(file).writeString(ATLAS, false);
+    }
+
+    @Test
+    public void listsTexturesThatCanShareAPage() {
+        ObjectSet<String> listed = PackedTextures.getListed(directory);
+        assertEquals(5, listed.size);
+        for (String key : new String[] { "a:ant", "a:larvae", "a:bee", "a:spin", "a:trim" }) {
+            assertTrue(key, listed.contains(key));
+        }
+        // Repeating and mipmapped textures, and keys with no texture, are never listed
+        assertFalse(listed.contains("a:earth"));
+        assertFalse(listed.contains("a:mipped"));
+        assertFalse(listed.contains("a:missing"));
+        assertFalse(listed.contains("a:loose"));
+    }
+
+    @Test
+    public void withoutAnAtlasFileNothingIsPacked() {
+        PackedTextures packed = new PackedTextures(directory, resolver);
+        for (String key : PackedTextures.getListed(directory)) {
+            assertTrue(key, packed.isListed(key));
+            assertFalse(key, packed.isPacked(key));
+            assertNull(key, packed.getPlacement(key));
+        }
+        assertEquals(0, packed.getPages().size);
+    }
+
+    @Test
+    public void readsWherePackedTexturesAre() throws IOException {
+        writeAtlas();
+        PackedTextures packed = new PackedTextures(directory, resolver);
+
+        PackedTextures.Placement ant = packed.getPlacement("a:ant");
+        assertTrue(ant.page.endsWith("atlases/game.png"));
+        assertEquals(2, ant.x);
+        assertEquals(2, ant.y);
+        assertEquals(28, ant.width);
+        assertEquals(18, ant.height);
+
+        PackedTextures.Placement larvae = packed.getPlacement("a:larvae");
+        assertEquals(ant.page, larvae.page);
+        assertEquals(32, larvae.x);
+        assertEquals(7, larvae.y);
+        assertEquals(32, larvae.width);
+        assertEquals(13, larvae.height);
+
+        PackedTextures.Placement bee = packed.getPlacement("a:bee");
+        assertTrue(bee.page.endsWith("atlases/game2.png"));
+        assertEquals(2, bee.x);
+        assertEquals(30, bee.y);
+    }
+
+    @Test
+    public void namesPagesAfterTheAtlas() throws IOException {
+        writeAtlas();
+        PackedTextures packed = new PackedTextures(directory, resolver);
+        assertEquals(2, packed.getPages().size);
+        assertEquals(packed.getPlacement("a:ant").page, packed.getPages().get("game"));
+        assertEquals(packed.getPlacement("a:bee").page, packed.getPages().get("game.1"));
+    }
+
+    @Test
+    public void leavesRotatedAndTrimmedRegionsUnpacked() throws IOException {
+        writeAtlas();
+        PackedTextures packed = new PackedTextures(directory, resolver);
+        // Still regions, but of their own textures
+        assertTrue(packed.isListed("a:spin"));
+        assertFalse(packed.isPacked("a:spin"));
+        assertTrue(packed.isListed("a:trim"));
+        assertFalse(packed.isPacked("a:trim"));
+    }
+
+    @Test
+    public void ignoresRegionsThatAreNotListed() throws IOException {
+        writeAtlas();
+        PackedTextures packed = new PackedTextures(directory, resolver);
+        assertFalse(packed.isPacked("a:loose"));
+        assertFalse(packed.isListed("a:loose"));
+        // A repeating texture keeps its own file even if the atlas has its image
+        assertFalse(packed.isPacked("a:earth"));
+    }
+
+    @Test
+    public void loadsEachPageWithItsSettings() throws IOException {
+        writeAtlas();
+        PackedTextures packed = new PackedTextures(directory, resolver);
+        TextureLoader.TextureParameter first = packed.getParameters(packed.getPages().get("game"));
+        assertEquals(Texture.TextureFilter.Linear, first.minFilter);
+        assertEquals(Texture.TextureFilter.Linear, first.magFilter);
+        assertFalse(first.genMipMaps);
+        TextureLoader.TextureParameter second = packed.getParameters(packed.getPages().get("game.1"));
+        assertEquals(Texture.TextureFilter.Nearest, second.minFilter);
+        assertEquals(Texture.TextureWrap.ClampToEdge, second.wrapU);
+    }
+
+    @Test
+    public void namesRegionsAsThePackerDoes() {
+        assertEquals("platform/ant", PackedTextures.regionName("platform/ant.png"));
+        assertEquals("shared/earth", PackedTextures.regionName("shared/earth"));
+        assertEquals("platform/ant.png", PackedTextures.getFile(directory.get("textures").get("a:ant")));
+        assertEquals("platform/larvae.png", PackedTextures.getFile(directory.get("textures").get("a:larvae")));
+    }
+
+    @Test
+    public void parsersServeWholeTexturesWithoutAnAtlas() {
+        TestLevels.start();
+        assumeFalse(Gdx.files.internal("atlases/game.atlas").exists());
+        AssetDirectory assets = new AssetDirectory("assets.json");
+        // Only the images are wanted, and there is no audio device
+        for (AssetParser<?> parser : new Array<AssetParser<?>>(assets.getParsers())) {
+            if (!(parser instanceof TextureParser || parser instanceof TextureRegionParser ||
+                    parser instanceof FilmStripParser)) {
+                assets.removeParser(parser);
+            }
+        }
+        assets.loadAssets();
+        assets.finishLoading();
+        try {
+            TextureRegion ant = assets.getEntry("platform:ant", TextureRegion.class);
+            Texture texture = assets.getEntry("platform:ant", Texture.class);
+            assertSame(texture, ant.getTexture());
+            assertEquals(0, ant.getRegionX());
+            assertEquals(0, ant.getRegionY());
+            assertEquals(texture.getWidth(), ant.getRegionWidth());
+            assertEquals(texture.getHeight(), ant.getRegionHeight());
+
+            FilmStrip walk = assets.getEntry("platform:playerWalk.pacing", FilmStrip.class);
+            assertSame(assets.getEntry("platform:playerWalk", Texture.class), walk.getTexture());
+            assertEquals(32, walk.getRegionWidth());
+        } finally {
+            assets.unloadAssets();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.cornell.gdiac.honeyHeistCode;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import edu.cornell.gdiac.assets.HeadlessAssetDirectory;
+import edu.cornell.gdiac.honeyHeistCode.controllers.HeadlessLevelRunner;
+
+/**
+ * The shipped levels, loaded once for every test that plays them.
+ *
+ * The levels are loaded from a HeadlessAssetDirectory, as the headless tools load
+ * them, so the tests need no window or GL context.  They must run from the assets
+ * folder, as the game does.
+ */
+public class TestLevels {
+    /** The runner shared by every test */
+    private static HeadlessLevelRunner runner;
+    /** The directory the runner loads from, which also installs the stub GL */
+    private static HeadlessAssetDirectory directory;
+
+    /**
+     * Starts libGDX without a window, with a stub in place of GL, if it has not been started.
+     */
+    public static synchronized void start() {
+        if (directory == null) {
+            // Nothing is rendered, so the application never needs to update
+            HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+            config.updatesPerSecond = -1;
+            new HeadlessApplication(new ApplicationAdapter() {}, config);
+            directory = new HeadlessAssetDirectory("assets.json");
+        }
+    }
+
+    /**
+     * Returns a runner for the levels of the asset directory, starting libGDX the first time.
+     *
+     * @return a runner for the shipped levels
+     */
+    public static synchronized HeadlessLevelRunner getRunner() {
+        if (runner == null) {
+            start();
+            directory.loadAssets();
+            directory.finishLoading();
+            runner = new HeadlessLevelRunner(directory);
+        }
+        return runner;
+    }
+}
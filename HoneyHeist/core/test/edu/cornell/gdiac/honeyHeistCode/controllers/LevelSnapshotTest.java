@@ -0,0 +1,118 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers;
+
+import edu.cornell.gdiac.honeyHeistCode.TestLevels;
+import edu.cornell.gdiac.honeyHeistCode.models.PlayerModel;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.StateBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a snapshot of a level puts every character back where it was.
+ *
+ * HeadlessLevelRunner.checksum covers the position, velocity and angle of every
+ * character and ball, so equal checksums mean the bodies were restored bit for bit.
+ */
+public class LevelSnapshotTest {
+    /** A level with several bees, a ball and platforms to turn */
+    private static final String LEVEL = "levels:multipleEnemies";
+
+    private HeadlessLevelRunner runner;
+    private LevelController controller;
+
+    @Before
+    public void setUp() {
+        runner = TestLevels.getRunner();
+        controller = runner.load(LEVEL, 1);
+    }
+
+    @After
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    /**
+     * Plays the given steps of a script that walks both ways and turns the level.
+     */
+    private static void play(LevelController controller, int from, int to) {
+        for (int step = from; step < to; step++) {
+            float horizontal = ((step / 40) % 2 == 0 ? 1 : -1);
+            controller.step(horizontal, step % 150 == 30, step % 150 == 100, true);
+        }
+    }
+
+    @Test
+    public void restoreReturnsToTheSavedState() {
+        play(controller, 0, 90);
+        StateBuffer snapshot = new StateBuffer();
+        controller.saveSnapshot(snapshot);
+        long saved = HeadlessLevelRunner.checksum(controller);
+        boolean complete = controller.isComplete();
+        boolean failure = controller.isFailure();
+
+        play(controller, 90, 300);
+        assertNotEquals(saved, HeadlessLevelRunner.checksum(controller));
+
+        controller.restoreSnapshot(snapshot);
+        assertEquals(saved, HeadlessLevelRunner.checksum(controller));
+        assertEquals(complete, controller.isComplete());
+        assertEquals(failure, controller.isFailure());
+    }
+
+    @Test
+    public void snapshotRestoresIntoAnotherController() {
+        play(controller, 0, 120);
+        StateBuffer snapshot = new StateBuffer();
+        controller.saveSnapshot(snapshot);
+
+        LevelController other = runner.load(LEVEL, 2);
+        try {
+            other.restoreSnapshot(snapshot);
+            assertEquals(HeadlessLevelRunner.checksum(controller), HeadlessLevelRunner.checksum(other));
+        } finally {
+            other.dispose();
+        }
+    }
+
+    @Test
+    public void snapshotCanBeRestoredMoreThanOnce() {
+        play(controller, 0, 60);
+        StateBuffer snapshot = new StateBuffer();
+        controller.saveSnapshot(snapshot);
+        long saved = HeadlessLevelRunner.checksum(controller);
+
+        for (int ii = 0; ii < 3; ii++) {
+            play(controller, 60, 200);
+            controller.restoreSnapshot(snapshot);
+            assertEquals(saved, HeadlessLevelRunner.checksum(controller));
+        }
+    }
+
+    @Test
+    public void resetRestoresTheLevelInPlace() {
+        assertTrue(controller.isInstantReset());
+        long populated = HeadlessLevelRunner.checksum(controller);
+        PlayerModel player = controller.getLevel().getPlayer();
+
+        play(controller, 0, 240);
+        controller.reset();
+        assertEquals(populated, HeadlessLevelRunner.checksum(controller));
+        // A restore keeps the objects, where a rebuild would populate new ones
+        assertSame(player, controller.getLevel().getPlayer());
+        assertFalse(controller.isComplete());
+        assertFalse(controller.isFailure());
+    }
+
+    @Test
+    public void rebuildMatchesRestore() {
+        play(controller, 0, 240);
+        controller.reset();
+        long restored = HeadlessLevelRunner.checksum(controller);
+
+        play(controller, 0, 240);
+        controller.reset(true);
+        assertEquals(restored, HeadlessLevelRunner.checksum(controller));
+    }
+}
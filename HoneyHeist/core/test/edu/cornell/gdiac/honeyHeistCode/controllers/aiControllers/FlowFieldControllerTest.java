@@ -0,0 +1,131 @@
+package edu.cornell.gdiac.honeyHeistCode.controllers.aiControllers;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import edu.cornell.gdiac.honeyHeistCode.TestLevels;
+import edu.cornell.gdiac.honeyHeistCode.controllers.HeadlessLevelRunner;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the field kept by LPA* always holds the distances a fresh search finds.
+ *
+ * The goal wanders in small steps over the graph of every shipped level, and the
+ * graph turns now and then, as it does when the level rotates.  After every update
+ * the distance of each accessible node must be its number of edges to the goal, as
+ * found by a breadth-first search of the graph as it is now.
+ */
+public class FlowFieldControllerTest {
+    /** The number of updates made on each level */
+    private static final int UPDATES = 200;
+    /** The length of every edge of the graph */
+    private static final float EDGE_LENGTH = 2 * AIGraphModel.AINodeModel.MIN_NODE_RADIUS;
+
+    /**
+     * Returns the number of edges from every node to the given node (-1 if there is no way).
+     */
+    private static int[] search(AIGraphModel graph, int goal) {
+        int[] hops = new int[graph.getNodeCount()];
+        Arrays.fill(hops, -1);
+        int[] queue = new int[hops.length];
+        int head = 0;
+        int tail = 0;
+        hops[goal] = 0;
+        queue[tail++] = goal;
+        while (head < tail) {
+            int node = queue[head++];
+            Array<Connection<AIGraphModel.AINodeModel>> connections = graph.getNode(node).getConnections();
+            for (int i = 0; i < connections.size; i++) {
+                int other = graph.getIndex(connections.get(i).getToNode());
+                if (hops[other] < 0) {
+                    hops[other] = hops[node] + 1;
+                    queue[tail++] = other;
+                }
+            }
+        }
+        return hops;
+    }
+
+    @Test
+    public void distancesMatchBreadthFirstSearch() {
+        HeadlessLevelRunner runner = TestLevels.getRunner();
+        for (String key : runner.getLevelKeys()) {
+            LevelController controller = runner.load(key);
+            try {
+                checkLevel(key, new AIGraphModel(controller.getLevel()));
+            } finally {
+                controller.dispose();
+            }
+        }
+    }
+
+    private void checkLevel(String key, AIGraphModel graph) {
+        FlowFieldController field = new FlowFieldController(graph);
+        RandomXS128 random = new RandomXS128(7);
+        Vector2 goal = new Vector2(graph.getNode(random.nextInt(graph.getNodeCount())).getPosition());
+        for (int update = 0; update < UPDATES; update++) {
+            if (random.nextInt(20) == 0) {
+                graph.setOrientation(random.nextInt(AIGraphModel.ORIENTATIONS));
+            }
+            goal.add(0.15f * (random.nextFloat() - 0.3f), 0.15f * (random.nextFloat() - 0.5f));
+            if (graph.getNearestNode(goal) == null) {
+                goal.set(graph.getNode(random.nextInt(graph.getNodeCount())).getPosition());
+            }
+            field.update(goal);
+
+            AIGraphModel.AINodeModel source = graph.getNearestNode(goal);
+            if (source == null) {
+                continue;
+            }
+            int[] hops = search(graph, graph.getIndex(source));
+            for (int i = 0; i < hops.length; i++) {
+                AIGraphModel.AINodeModel node = graph.getNode(i);
+                if (!node.isAccessible()) {
+                    continue;
+                }
+                String where = key + ", update " + update + ", node " + i;
+                float distance = field.getDistance(node.getPosition());
+                if (hops[i] < 0) {
+                    assertEquals(where, Float.MAX_VALUE, distance, 0);
+                } else {
+                    assertEquals(where, hops[i] * EDGE_LENGTH, distance, 1e-3f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void repairExpandsLessThanAFreshSearch() {
+        HeadlessLevelRunner runner = TestLevels.getRunner();
+        LevelController controller = runner.load("levels:multipleEnemies");
+        try {
+            AIGraphModel graph = new AIGraphModel(controller.getLevel());
+            Vector2 goal = new Vector2(controller.getLevel().getPlayer().getPosition());
+            FlowFieldController field = new FlowFieldController(graph);
+            field.update(goal);
+            int full = field.getExpanded();
+            assertTrue(full > 0);
+
+            // Nothing has changed, so nothing is expanded
+            field.update(goal);
+            assertEquals(0, field.getExpanded());
+
+            // Move the goal to a neighbour of its node
+            AIGraphModel.AINodeModel source = graph.getNearestNode(goal);
+            goal.set(source.getConnections().first().getToNode().getPosition());
+            field.update(goal);
+            FlowFieldController fresh = new FlowFieldController(graph);
+            fresh.update(goal);
+            assertTrue(field.getExpanded() > 0);
+            assertTrue(field.getExpanded() < fresh.getExpanded());
+        } finally {
+            controller.dispose();
+        }
+    }
+}
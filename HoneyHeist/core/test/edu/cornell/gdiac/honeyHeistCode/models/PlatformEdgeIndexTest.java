@@ -0,0 +1,100 @@
+package edu.cornell.gdiac.honeyHeistCode.models;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
+import edu.cornell.gdiac.honeyHeistCode.TestLevels;
+import edu.cornell.gdiac.honeyHeistCode.controllers.HeadlessLevelRunner;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelController;
+import edu.cornell.gdiac.honeyHeistCode.obstacle.PolygonObstacle;
+import edu.cornell.gdiac.util.Geometry;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the edge index answers every segment query as testing every edge does.
+ *
+ * Each shipped level is played with turns in both directions, and after every step
+ * random segments, short and long, are tested against the platforms and the spikes
+ * both ways.  This covers the grid at rest, rebuilt after a turn, and the query
+ * turned back while the platforms are turning.
+ */
+public class PlatformEdgeIndexTest {
+    /** The number of steps played on each level */
+    private static final int STEPS = 300;
+    /** The number of segments tested after each step */
+    private static final int QUERIES = 20;
+
+    /**
+     * Returns true if the segment crosses an edge of any platform, testing every edge.
+     */
+    private static boolean scan(PlatformModel platforms, float x1, float y1, float x2, float y2) {
+        for (PolygonObstacle platform : platforms.getBodies()) {
+            float[] vertices = platform.getTrueVertices();
+            for (int i = 0; i < vertices.length; i += 2) {
+                int next = (i + 2 < vertices.length ? i + 2 : 0);
+                if (Geometry.segmentsIntersect(vertices[i], vertices[i + 1], vertices[next], vertices[next + 1],
+                        x1, y1, x2, y2)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void indexMatchesScanOfEveryEdge() {
+        HeadlessLevelRunner runner = TestLevels.getRunner();
+        RandomXS128 random = new RandomXS128(3);
+        int rotating = 0;
+        for (String key : runner.getLevelKeys()) {
+            LevelController controller = runner.load(key);
+            try {
+                LevelModel level = controller.getLevel();
+                Rectangle bounds = level.getBounds();
+                for (int step = 0; step < STEPS && !controller.isComplete() && !controller.isFailure(); step++) {
+                    controller.step(0, step % 90 == 5, step % 130 == 7, true);
+                    if (level.getPlatforms().isRotating()) {
+                        rotating++;
+                    }
+                    for (int query = 0; query < QUERIES; query++) {
+                        float x1 = bounds.x + random.nextFloat() * bounds.width;
+                        float y1 = bounds.y + random.nextFloat() * bounds.height;
+                        float length = random.nextFloat() * (query % 5 == 0 ? 10 : 2);
+                        float angle = random.nextFloat() * MathUtils.PI2;
+                        float x2 = x1 + length * MathUtils.cos(angle);
+                        float y2 = y1 + length * MathUtils.sin(angle);
+                        String where = key + ", step " + step + ", (" + x1 + "," + y1 + ")-(" + x2 + "," + y2 + ")";
+                        assertEquals(where, scan(level.getPlatforms(), x1, y1, x2, y2),
+                                level.getPlatformEdges().intersects(x1, y1, x2, y2));
+                        assertEquals(where, scan(level.getSpikedPlatforms(), x1, y1, x2, y2),
+                                level.getSpikedPlatformEdges().intersects(x1, y1, x2, y2));
+                    }
+                }
+            } finally {
+                controller.dispose();
+            }
+        }
+        // The queries must have run while the platforms turned, not just at rest
+        assertTrue(rotating > 0);
+    }
+
+    @Test
+    public void indexHoldsEveryEdge() {
+        HeadlessLevelRunner runner = TestLevels.getRunner();
+        LevelController controller = runner.load("levels:multipleEnemies");
+        try {
+            LevelModel level = controller.getLevel();
+            int edges = 0;
+            for (PolygonObstacle platform : level.getPlatforms().getBodies()) {
+                edges += platform.getTrueVertices().length / 2;
+            }
+            level.getPlatformEdges().prepare();
+            assertTrue(edges > 0);
+            assertEquals(edges, level.getPlatformEdges().getEdgeCount());
+        } finally {
+            controller.dispose();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package edu.cornell.gdiac.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the segment test shared by the edge index and the AI.
+ */
+public class GeometryTest {
+
+	@Test
+	public void crossingSegmentsIntersect() {
+		assertTrue(Geometry.segmentsIntersect(0, 0, 2, 2, 0, 2, 2, 0));
+		// Either direction of either segment
+		assertTrue(Geometry.segmentsIntersect(2, 2, 0, 0, 2, 0, 0, 2));
+	}
+
+	@Test
+	public void separateSegmentsDoNotIntersect() {
+		assertFalse(Geometry.segmentsIntersect(0, 0, 1, 0, 0, 1, 1, 1));
+		// The lines cross, but past the end of one segment
+		assertFalse(Geometry.segmentsIntersect(0, 0, 1, 1, 3, 0, 2, 1.5f));
+	}
+
+	@Test
+	public void touchingAtAnEndIntersects() {
+		assertTrue(Geometry.segmentsIntersect(0, 0, 1, 1, 1, 1, 2, 0));
+		assertTrue(Geometry.segmentsIntersect(0, 0, 2, 0, 1, 0, 1, 1));
+	}
+
+	@Test
+	public void collinearSegmentsDoNotIntersect() {
+		assertFalse(Geometry.segmentsIntersect(0, 0, 2, 0, 1, 0, 3, 0));
+		assertFalse(Geometry.segmentsIntersect(0, 0, 1, 0, 2, 0, 3, 0));
+	}
+}
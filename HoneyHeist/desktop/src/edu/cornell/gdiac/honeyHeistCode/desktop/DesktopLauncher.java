@@ -28,14 +28,27 @@ public class DesktopLauncher {
 	 * 
 	 * This method simply exists to start a new LwjglApplication.  For desktop games,
 	 * LibGDX is built on top of LWJGL (this is not the case for Android).
+	 *
+	 * The option --record saves every attempt at a level as a replay, and the option
+	 * --replay followed by a file plays that replay once the assets are loaded.
 	 * 
 	 * @param arg Command line arguments
 	 */
 	public static void main (String[] arg) {
+		boolean record = false;
+		String replay = null;
+		for (int ii = 0; ii < arg.length; ii++) {
+			if (arg[ii].equals("--record")) {
+				record = true;
+			} else if (arg[ii].equals("--replay") && ii + 1 < arg.length) {
+				replay = arg[++ii];
+			}
+		}
+
 		GDXAppSettings config = new GDXAppSettings();
 		config.width  = 1024;
 		config.height = 576;
 		config.resizable = false;
-		new GDXApp(new GDXRoot(), config);
+		new GDXApp(new GDXRoot(record, replay), config);
 	}
 }
\ No newline at end of file
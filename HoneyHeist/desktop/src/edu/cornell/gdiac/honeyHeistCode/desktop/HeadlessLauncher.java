@@ -0,0 +1,221 @@
+/*
+ * HeadlessLauncher.java
+ *
+ * Runs every shipped level without a window or audio device and reports how each
+ * one went.  This is meant for build servers: the process exits with a non-zero
+ * status if any level fails to load or throws while it is simulated.
+ *
+ * Given --replay and a list of replay files, it plays those instead and prints the
+ * checksum of each, so that two runs of the same replay can be compared.
+ *
+ * Given --farm, it runs every level with several seeds of random input on every
+ * core, and prints a summary of each level.  The replay of any job that throws is
+ * saved to the "replays" folder.
+ *
+ * Given --solve and an optional list of level keys, it searches each level (or every
+ * level) for a win and prints the shortest one found.  The process exits with the
+ * number of levels that were found to be unwinnable or could not be searched.
+ *
+ * Given --bake, it bakes the accessibility of the AI graph of every level into the
+ * level files, on every core.  With --check as well, it writes nothing, and exits
+ * with the number of levels whose baked data is missing or out of date.
+ *
+ * Run it from the assets folder (gradle desktop:verifyLevels does this for you).
+ */
+package edu.cornell.gdiac.honeyHeistCode.desktop;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import edu.cornell.gdiac.assets.HeadlessAssetDirectory;
+import edu.cornell.gdiac.honeyHeistCode.controllers.HeadlessLevelRunner;
+import edu.cornell.gdiac.honeyHeistCode.controllers.LevelSolver;
+import edu.cornell.gdiac.honeyHeistCode.controllers.NavMeshBaker;
+import edu.cornell.gdiac.honeyHeistCode.controllers.Replay;
+import edu.cornell.gdiac.honeyHeistCode.controllers.SimulationFarm;
+
+/**
+ * Command line entry point for the headless level check.
+ */
+public class HeadlessLauncher {
+	/** Default number of fixed steps to simulate per level (one minute of play) */
+	private static final int DEFAULT_STEPS = 3600;
+	/** Default number of seeds to fuzz each level with */
+	private static final int DEFAULT_SEEDS = 16;
+
+	/**
+	 * Simulates every level and exits with the number of broken levels.
+	 *
+	 * @param arg Optional number of steps to simulate per level, --replay and files,
+	 *            --farm with an optional number of seeds and of steps, --solve
+	 *            and optional level keys, or --bake and an optional --check
+	 */
+	public static void main (final String[] arg) {
+		final boolean replay = (arg.length > 0 && arg[0].equals("--replay"));
+		final boolean farm = (arg.length > 0 && arg[0].equals("--farm"));
+		final boolean solve = (arg.length > 0 && arg[0].equals("--solve"));
+		final boolean bake = (arg.length > 0 && arg[0].equals("--bake"));
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.updatesPerSecond = -1;
+		if (farm) {
+			final int seeds = (arg.length > 1 ? Integer.parseInt(arg[1]) : DEFAULT_SEEDS);
+			final int steps = (arg.length > 2 ? Integer.parseInt(arg[2]) : DEFAULT_STEPS);
+			new HeadlessApplication(new ApplicationAdapter() {
+				@Override
+				public void create() {
+					System.exit(runFarm(seeds, steps));
+				}
+			}, config);
+			return;
+		} else if (solve) {
+			new HeadlessApplication(new ApplicationAdapter() {
+				@Override
+				public void create() {
+					System.exit(runSolver(arg));
+				}
+			}, config);
+			return;
+		} else if (bake) {
+			final boolean check = (arg.length > 1 && arg[1].equals("--check"));
+			new HeadlessApplication(new ApplicationAdapter() {
+				@Override
+				public void create() {
+					System.exit(runBaker(check));
+				}
+			}, config);
+			return;
+		}
+
+		final int steps = (arg.length > 0 && !replay ? Integer.parseInt(arg[0]) : DEFAULT_STEPS);
+		new HeadlessApplication(new ApplicationAdapter() {
+			@Override
+			public void create() {
+				HeadlessAssetDirectory directory = new HeadlessAssetDirectory("assets.json");
+				directory.loadAssets();
+				HeadlessLevelRunner runner = new HeadlessLevelRunner(directory);
+
+				int broken = 0;
+				Array<HeadlessLevelRunner.Result> results;
+				if (replay) {
+					results = new Array<HeadlessLevelRunner.Result>();
+					for (int ii = 1; ii < arg.length; ii++) {
+						results.add(runner.replay(Replay.load(Gdx.files.absolute(arg[ii]))));
+					}
+				} else {
+					results = runner.runAll(steps);
+				}
+				for (HeadlessLevelRunner.Result result : results) {
+					System.out.println(result);
+					if (!result.isValid()) {
+						result.error.printStackTrace();
+						broken++;
+					}
+				}
+				System.out.println(results.size + " levels, " + broken + " broken");
+				directory.unloadAssets();
+				System.exit(broken);
+			}
+		}, config);
+	}
+
+	/**
+	 * Fuzzes every level on every core and returns the number of broken jobs.
+	 *
+	 * @param seeds The number of seeds to fuzz each level with
+	 * @param steps The maximum number of fixed steps per job
+	 *
+	 * @return the number of jobs that threw an exception
+	 */
+	private static int runFarm(int seeds, int steps) {
+		SimulationFarm farm = new SimulationFarm("assets.json");
+		long start = System.nanoTime();
+		Array<SimulationFarm.Result> results = farm.run(SimulationFarm.jobs(farm.getLevelKeys(), seeds, steps, true));
+		long nanos = System.nanoTime() - start;
+
+		for (SimulationFarm.Result result : results) {
+			if (!result.isValid()) {
+				System.out.println(result);
+				result.error.printStackTrace();
+				String name = result.level.replace(':', '_') + "-seed" + result.seed;
+				result.replay.save(Gdx.files.local("replays/" + name + "." + Replay.EXTENSION));
+			}
+		}
+		for (ObjectMap.Entry<String, SimulationFarm.Summary> entry : SimulationFarm.summarizeByLevel(results)) {
+			System.out.println(String.format("%-36s %s", entry.key, entry.value));
+		}
+		SimulationFarm.Summary total = SimulationFarm.summarize(results);
+		System.out.println(String.format("%-36s %s", "total", total));
+		System.out.println(String.format("%.2f s wall clock, %.0f steps per second",
+				nanos / 1.0e9, total.steps / (nanos / 1.0e9)));
+		return total.broken;
+	}
+
+	/**
+	 * Searches the given levels for a win and returns the number without one.
+	 *
+	 * @param arg The command line, whose arguments after the first are level keys
+	 *            (every level if there are none)
+	 *
+	 * @return the number of levels found unwinnable or that could not be searched
+	 */
+	private static int runSolver(String[] arg) {
+		LevelSolver solver = new LevelSolver("assets.json");
+		Array<String> levels = new Array<String>();
+		for (int ii = 1; ii < arg.length; ii++) {
+			levels.add(arg[ii]);
+		}
+		if (levels.size == 0) {
+			levels = solver.getLevelKeys();
+		}
+
+		int unsolved = 0;
+		for (String level : levels) {
+			LevelSolver.Result result = solver.solve(level);
+			System.out.println(result);
+			if (result.outcome == LevelSolver.Outcome.ERROR) {
+				result.error.printStackTrace();
+				unsolved++;
+			} else if (result.outcome == LevelSolver.Outcome.UNSOLVABLE) {
+				unsolved++;
+			}
+		}
+		solver.dispose();
+		return unsolved;
+	}
+
+	/**
+	 * Bakes the AI graph of every level and returns the number of levels not up to date.
+	 *
+	 * @param check Whether to only check the level files, rather than write them
+	 *
+	 * @return the number of broken levels, and of stale levels if only checking
+	 */
+	private static int runBaker(boolean check) {
+		NavMeshBaker baker = new NavMeshBaker("assets.json");
+		long start = System.nanoTime();
+		Array<NavMeshBaker.Result> results = baker.bake(baker.getLevelKeys());
+		long nanos = System.nanoTime() - start;
+
+		int broken = 0;
+		int stale = 0;
+		for (NavMeshBaker.Result result : results) {
+			System.out.println(result);
+			if (!result.isValid()) {
+				result.error.printStackTrace();
+				broken++;
+			} else if (result.stale) {
+				stale++;
+			}
+		}
+		System.out.println(String.format("%d levels, %d stale, %d broken in %.2f s",
+				results.size, stale, broken, nanos / 1.0e9));
+		if (check) {
+			return broken + stale;
+		}
+		System.out.println(baker.write(results) + " level files written");
+		return broken;
+	}
+}